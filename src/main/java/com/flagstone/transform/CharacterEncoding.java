@@ -97,6 +97,20 @@ public enum CharacterEncoding {
     	return TABLE.get(set.name());
     }
 
+    /**
+     * Get the CharacterEncoding that is identified by the name used by Java
+     * for the character set.
+     *
+     * @param name
+     *            the name returned by getEncoding().
+     *
+     * @return the CharacterEncoding with the same name or null if there is
+     * no matching CharacterEncoding.
+     */
+    public static CharacterEncoding fromEncoding(final String name) {
+        return TABLE.get(name);
+    }
+
     /** Holds character set encoding name used in Java. */
     private String encoding;
 
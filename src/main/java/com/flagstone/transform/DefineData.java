@@ -31,6 +31,7 @@
 package com.flagstone.transform;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.coder.Coder;
@@ -61,7 +62,7 @@ public final class DefineData implements DefineTag {
     /** Unique identifier for this object. */
     private int identifier;
     /** Binary encoded data. */
-    private byte[] data;
+    private ByteBuffer data;
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
@@ -84,7 +85,7 @@ public final class DefineData implements DefineTag {
         coder.mark();
         identifier = coder.readUnsignedShort();
         coder.readInt(); // always zero
-        data = coder.readBytes(new byte[length - coder.bytesRead()]);
+        data = coder.readBuffer(length - coder.bytesRead());
         coder.check(length);
         coder.unmark();
     }
@@ -134,7 +135,18 @@ public final class DefineData implements DefineTag {
      * @return a copy of the data.
      */
     public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the encoded data. The data is not copied.
+     *
+     * @return a read-only buffer containing the encoded data.
+     */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyBuffer();
     }
 
     /**
@@ -148,7 +160,7 @@ public final class DefineData implements DefineTag {
         if (bytes == null) {
             throw new IllegalArgumentException();
         }
-        data = Arrays.copyOf(bytes, bytes.length);
+        data = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
     }
 
     /** {@inheritDoc} */
@@ -159,13 +171,13 @@ public final class DefineData implements DefineTag {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, identifier, data.length);
+        return String.format(FORMAT, identifier, data.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
         //CHECKSTYLE:OFF
-        length = 6 + data.length;
+        length = 6 + data.remaining();
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
         //CHECKSTYLE:ON
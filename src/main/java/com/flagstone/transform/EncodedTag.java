@@ -0,0 +1,309 @@
+/*
+ * EncodedTag.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.coder.SWFDecoder;
+import com.flagstone.transform.coder.SWFEncoder;
+
+/**
+ * EncodedTag is used to hold the encoded data for a MovieTag so that decoding
+ * the tag can be deferred until it is used.
+ *
+ * <p>
+ * When lazy decoding is enabled on a Movie each tag is decoded as an
+ * EncodedTag which records the type, location and the encoded bytes. The tag
+ * is decoded, using the registry and version of Flash from the Movie, the
+ * first time it is returned by Movie.getObjects(). Any EncodedTag objects that
+ * are not accessed are encoded using the original bytes.
+ * </p>
+ *
+ * <p>
+ * Tags with one of the raw types set in the DecoderRegistry are always
+ * decoded as EncodedTags and are not decoded when accessed, so they are
+ * encoded using the original bytes unless they are explicitly decoded using
+ * a registry that does not keep them raw.
+ * </p>
+ *
+ * @see Movie#setLazyDecoding(boolean)
+ */
+public final class EncodedTag implements MovieTag {
+
+    /** Format string used in toString() method. */
+    private static final String FORMAT = "EncodedTag: { type=%d; offset=%d;"
+            + " length=%d}";
+
+    /** The type identifying the MovieTag. */
+    private final transient int type;
+    /** The location of the tag from the start of the movie header. */
+    private final transient int offset;
+    /** Whether the length was encoded using the long form of the header. */
+    private final transient boolean extended;
+    /** The encoded tag, including the header. */
+    private final transient ByteBuffer data;
+    /** The version of Flash used to decode the tag. */
+    private final transient int version;
+    /** The character encoding used to decode strings. */
+    private final transient String encoding;
+    /** The registry used to decode the tag. */
+    private final transient DecoderRegistry registry;
+    /** Whether the decoded tag keeps its encoded data. */
+    private final transient boolean passThrough;
+
+    /**
+     * Creates and initialises an EncodedTag object using values encoded
+     * in the Flash binary format.
+     *
+     * @param coder
+     *            an SWFDecoder object that contains the encoded Flash data.
+     *
+     * @param context
+     *            a Context object used to obtain the version of Flash, the
+     *            character encoding and the registry used to decode the tag.
+     *
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    public EncodedTag(final SWFDecoder coder, final Context context)
+            throws IOException {
+        offset = coder.mark();
+        coder.unmark();
+        type = coder.scanUnsignedShort() >>> Coder.LENGTH_FIELD_SIZE;
+        int length = coder.readUnsignedShort() & Coder.LENGTH_FIELD;
+        extended = length == Coder.IS_EXTENDED;
+        if (extended) {
+            length = coder.readInt();
+        }
+        data = coder.readBuffer(header(length), length);
+        version = context.getInt(Context.VERSION);
+        encoding = context.getEncoding();
+        registry = context.getRegistry();
+        passThrough = context.contains(Context.PASS_THROUGH);
+    }
+
+    /**
+     * Creates and initialises an EncodedTag object using the values copied
+     * from another EncodedTag object. The encoded data is shared since it
+     * cannot be changed.
+     *
+     * @param object
+     *            an EncodedTag object from which the values will be
+     *            copied.
+     */
+    public EncodedTag(final EncodedTag object) {
+        type = object.type;
+        offset = object.offset;
+        extended = object.extended;
+        data = object.data;
+        version = object.version;
+        encoding = object.encoding;
+        registry = object.registry;
+        passThrough = object.passThrough;
+    }
+
+    /**
+     * Get the type that identifies the object when it is encoded.
+     * @return the type that identifies the encoded data structure.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Get the location of the tag in the encoded movie, measured from the
+     * start of the movie header that follows the signature, version and
+     * length fields.
+     *
+     * @return the offset in bytes of the start of the tag.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the length of the body of the tag, excluding the header that
+     * contains the type and length.
+     *
+     * @return the length in bytes of the encoded data.
+     */
+    public int getLength() {
+        return data.remaining() - headerLength();
+    }
+
+    /**
+     * Get a copy of the encoded data for the body of the tag.
+     * @return a copy of the encoded data.
+     */
+    public byte[] getData() {
+        final byte[] bytes = new byte[getLength()];
+        body().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the encoded data for the body of the tag. The
+     * data is not copied.
+     *
+     * @return a read-only buffer containing the encoded data.
+     */
+    public ByteBuffer getDataBuffer() {
+        return body().asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the length of the header that contains the type and length.
+     *
+     * @return the length in bytes of the header.
+     */
+    private int headerLength() {
+        return extended ? Coder.LONG_HEADER : Coder.SHORT_HEADER;
+    }
+
+    /**
+     * Get a view of the body of the tag.
+     *
+     * @return a buffer containing the encoded data that follows the header.
+     */
+    private ByteBuffer body() {
+        final ByteBuffer view = data.duplicate();
+        view.position(view.position() + headerLength());
+        return view.slice();
+    }
+
+    /**
+     * Encode the header of the tag.
+     *
+     * @param length the length of the body of the tag.
+     * @return the encoded type and length.
+     */
+    private byte[] header(final int length) {
+        final byte[] bytes = new byte[headerLength()];
+        final int value = (type << Coder.LENGTH_FIELD_SIZE)
+                | (extended ? Coder.IS_EXTENDED : length);
+
+        bytes[0] = (byte) value;
+        bytes[1] = (byte) (value >>> Coder.ALIGN_BYTE1);
+        if (extended) {
+            bytes[2] = (byte) length;
+            bytes[3] = (byte) (length >>> Coder.ALIGN_BYTE1);
+            bytes[4] = (byte) (length >>> Coder.ALIGN_BYTE2);
+            bytes[5] = (byte) (length >>> Coder.ALIGN_BYTE3);
+        }
+        return bytes;
+    }
+
+    /**
+     * Is the type of tag kept raw by the registry the tag was created with,
+     * so that decoding the tag returns the tag itself.
+     *
+     * @return true if the tag is not decoded when it is accessed.
+     */
+    boolean isRaw() {
+        return registry != null && registry.isRawType(type);
+    }
+
+    /**
+     * Decode the tag using the registry the tag was created with. If the
+     * registry keeps the type of tag raw then the tag itself is returned.
+     *
+     * @return the MovieTag decoded from the encoded data.
+     *
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    public MovieTag decode() throws IOException {
+        return decode(registry);
+    }
+
+    /**
+     * Decode the tag using a specified registry. If the registry keeps the
+     * type of tag raw then the tag itself is returned.
+     *
+     * @param decoders the registry used to decode the tag and any objects it
+     * contains.
+     *
+     * @return the MovieTag decoded from the encoded data.
+     *
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    public MovieTag decode(final DecoderRegistry decoders)
+            throws IOException {
+        if (decoders.isRawType(type)) {
+            return this;
+        }
+
+        final Context context = new Context();
+        context.setRegistry(decoders);
+        context.setEncoding(encoding);
+        context.putInt(Context.VERSION, version);
+        if (passThrough) {
+            context.putInt(Context.PASS_THROUGH, 1);
+        }
+
+        final SWFDecoder coder = new SWFDecoder(data);
+        coder.setEncoding(CharacterEncoding.fromEncoding(encoding));
+
+        final List<MovieTag> list = new ArrayList<MovieTag>(1);
+        decoders.getMovieDecoder().getObject(list, coder, context);
+        return list.get(0);
+    }
+
+    /** {@inheritDoc} */
+    public EncodedTag copy() {
+        return new EncodedTag(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(FORMAT, type, offset, getLength());
+    }
+
+    /** {@inheritDoc} */
+    public int prepareToEncode(final Context context) {
+        return data.remaining();
+    }
+
+    /** {@inheritDoc} */
+    public void encode(final SWFEncoder coder, final Context context)
+            throws IOException {
+        coder.writeBytes(data);
+    }
+}
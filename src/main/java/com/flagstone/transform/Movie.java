@@ -31,29 +31,41 @@
 
 package com.flagstone.transform;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderPool;
 import com.flagstone.transform.coder.Context;
 import com.flagstone.transform.coder.Copyable;
 import com.flagstone.transform.coder.DecoderRegistry;
-import com.flagstone.transform.coder.SWFDecoder;
+import com.flagstone.transform.coder.LZMAOutputStream;
 import com.flagstone.transform.coder.SWFEncoder;
-import com.flagstone.transform.coder.SWFFactory;
+import com.flagstone.transform.exception.IllegalArgumentRangeException;
+import com.flagstone.transform.exception.IllegalArgumentValueException;
+import com.flagstone.transform.shape.PathsArePostscript;
 
 /**
  * Movie is a container class for the objects that represents the data
@@ -85,14 +97,48 @@ public final class Movie implements Copyable<Movie> {
     /** The version of Flash supported. */
     public static final int VERSION = 10;
 
-    /** Length in bytes of the magic number used to identify the file type. */
-    private static final int SIGNATURE_LENGTH = 3;
-    /** Length in bytes of the signature and length fields. */
-    private static final int HEADER_LENGTH = 8;
     /** Signature identifying Flash (SWF) files. */
     public static final byte[] FWS = new byte[] {0x46, 0x57, 0x53 };
     /** Signature identifying Compressed Flash (SWF) files. */
     public static final byte[] CWS = new byte[] {0x43, 0x57, 0x53 };
+    /** Signature identifying LZMA Compressed Flash (SWF) files. */
+    public static final byte[] ZWS = new byte[] {0x5A, 0x57, 0x53 };
+
+    /**
+     * The types of tag that are decoded by the executor rather than by the
+     * thread decoding the movie.
+     */
+    private static final Set<Integer> TASK_TYPES = new HashSet<Integer>();
+    /** The number of consecutive tags encoded by each task. */
+    private static final int TASK_TAGS = 64;
+    /** Length in bytes of the signature, version and length fields. */
+    private static final int HEADER_LENGTH = 8;
+    /** The largest buffer used to write compressed data. */
+    private static final int DEFLATE_BUFFER_SIZE = 65536;
+    /** The smallest buffer used to write compressed data. */
+    private static final int MIN_BUFFER_SIZE = 512;
+
+    static {
+        TASK_TYPES.add(MovieTypes.DEFINE_SHAPE);
+        TASK_TYPES.add(MovieTypes.DEFINE_SHAPE_2);
+        TASK_TYPES.add(MovieTypes.DEFINE_SHAPE_3);
+        TASK_TYPES.add(MovieTypes.DEFINE_SHAPE_4);
+        TASK_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE);
+        TASK_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE_2);
+        TASK_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE);
+        TASK_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_2);
+        TASK_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_3);
+        TASK_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_4);
+        TASK_TYPES.add(MovieTypes.DEFINE_IMAGE);
+        TASK_TYPES.add(MovieTypes.DEFINE_IMAGE_2);
+        TASK_TYPES.add(MovieTypes.DEFINE_FONT);
+        TASK_TYPES.add(MovieTypes.DEFINE_FONT_2);
+        TASK_TYPES.add(MovieTypes.DEFINE_FONT_3);
+        TASK_TYPES.add(MovieTypes.DEFINE_FONT_4);
+        TASK_TYPES.add(MovieTypes.DO_ABC);
+    }
+    /** Length in bytes of the properties at the start of LZMA data. */
+    private static final int LZMA_PROPERTIES_SIZE = 5;
 
     /** Format string used in toString() method. */
     private static final String FORMAT = "Movie: { objects=%s}";
@@ -102,6 +148,22 @@ public final class Movie implements Copyable<Movie> {
     private transient CharacterEncoding encoding;
     /** The list of objects that make up the movie. */
     private List<MovieTag> objects;
+    /** Whether decoding of tags is deferred until they are accessed. */
+    private transient boolean lazyDecoding;
+    /** Whether decoded tags keep their encoded data. */
+    private transient boolean passThrough;
+    /** The executor used to decode tags in parallel. */
+    private transient ExecutorService executor;
+    /** The pool of reusable coders. */
+    private transient CoderPool pool;
+    /** The level of compression used for compressed movies. */
+    private transient int compressionLevel;
+    /** The strategy used to compress movies. */
+    private transient int compressionStrategy;
+    /** The index of the objects defined in the movie. */
+    private transient SymbolTable symbols;
+    /** The positions of the tags shared with another movie. */
+    private transient BitSet shared;
 
     /**
      * Creates a new Movie.
@@ -109,6 +171,8 @@ public final class Movie implements Copyable<Movie> {
     public Movie() {
         registry = DecoderRegistry.getDefault();
         encoding = CharacterEncoding.UTF8;
+        compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        compressionStrategy = Deflater.DEFAULT_STRATEGY;
         objects = new ArrayList<MovieTag>();
     }
 
@@ -118,18 +182,57 @@ public final class Movie implements Copyable<Movie> {
      * @param movie the Movie to copy.
      */
     public Movie(final Movie movie) {
+        this(movie, false);
+    }
+
+    /**
+     * Creates a copy of a movie, either copying all the tags or sharing
+     * them with the original.
+     *
+     * @param movie the Movie to copy.
+     * @param share true if the tags are shared, false if they are copied.
+     */
+    private Movie(final Movie movie, final boolean share) {
         if (movie.registry != null) {
             registry = movie.registry.copy();
         }
         encoding = movie.encoding;
+        lazyDecoding = movie.lazyDecoding;
+        passThrough = movie.passThrough;
+        executor = movie.executor;
+        pool = movie.pool;
+        compressionLevel = movie.compressionLevel;
+        compressionStrategy = movie.compressionStrategy;
 
         objects = new ArrayList<MovieTag>(movie.objects.size());
 
-        for (final MovieTag tag : movie.objects) {
-            objects.add(tag.copy());
+        if (share) {
+            shared = new BitSet(movie.objects.size());
+            for (final MovieTag tag : movie.objects) {
+                if (tag instanceof MovieHeader) {
+                    objects.add(tag.copy());
+                } else {
+                    shared.set(objects.size());
+                    objects.add(tag);
+                }
+            }
+        } else {
+            for (final MovieTag tag : movie.objects) {
+                objects.add(tag.copy());
+            }
         }
     }
 
+    /**
+     * Get the registry containing the objects used to decode the different
+     * types of object found in a movie.
+     *
+     * @return the registry used to decode the movie.
+     */
+    public DecoderRegistry getRegistry() {
+        return registry;
+    }
+
     /**
      * Sets the registry containing the object used to decode the different
      * types of object found in a movie.
@@ -152,12 +255,354 @@ public final class Movie implements Copyable<Movie> {
     }
 
     /**
-     * Get the list of objects contained in the Movie.
+     * Is decoding of tags deferred until they are accessed.
+     *
+     * @return true if tags are decoded as EncodedTags and only fully decoded
+     * when they are returned by getObjects().
+     */
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Sets whether decoding of tags is deferred until they are accessed.
+     *
+     * <p>
+     * When lazy decoding is enabled each tag, other than the ones which have
+     * no body such as ShowFrame, is decoded as an EncodedTag containing the
+     * encoded data. The list returned by getObjects() decodes each tag the
+     * first time it is accessed and replaces the EncodedTag in the movie.
+     * Tags that are never accessed are encoded using the original data.
+     * </p>
+     *
+     * @param lazy true if decoding of tags should be deferred, false if the
+     * tags should be decoded when the movie is decoded.
+     */
+    public void setLazyDecoding(final boolean lazy) {
+        lazyDecoding = lazy;
+    }
+
+    /**
+     * Do decoded tags keep their encoded data.
+     *
+     * @return true if tags which support it keep their encoded data so they
+     * are written unchanged if they are not modified.
+     */
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    /**
+     * Sets whether decoded tags keep their encoded data.
+     *
+     * <p>
+     * Shapes are the most expensive objects to encode. When pass through is
+     * enabled the DefineShape, DefineShape2, DefineShape3 and DefineShape4
+     * objects decoded from a movie keep a copy of their encoded data. When
+     * the movie is encoded the data is written directly unless the shape was
+     * changed. Any method that changes a shape, or which returns an object,
+     * such as the list of fill styles, that could be used to change it,
+     * discards the encoded data. Only these four classes keep their data;
+     * all other tags are encoded again from their attributes.
+     * </p>
+     *
+     * <p>
+     * Pass through is deliberately limited to shapes. The other tags are
+     * written field by field with little more work than copying them, while
+     * keeping the data for every tag would mean tracking changes in each
+     * setter and in each method that returns a mutable object of every class.
+     * Movies that only need to copy tags they do not look at should use
+     * lazy decoding instead, which writes any tag that was never decoded
+     * exactly as it was read.
+     * </p>
+     *
+     * @param retain true if decoded tags should keep their encoded data,
+     * false otherwise.
+     */
+    public void setPassThrough(final boolean retain) {
+        passThrough = retain;
+    }
+
+    /**
+     * Get the executor used to decode and encode tags in parallel.
+     *
+     * @return the executor or null if tags are decoded and encoded by the
+     * thread that decodes or encodes the movie.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor used to decode and encode tags in parallel.
+     *
+     * <p>
+     * When an executor is set the boundaries of each tag are found first then
+     * the tags which are expensive to decode, the shapes, images, fonts and
+     * DoABC tags, are decoded as separate tasks. The decoded tags are added to the movie in
+     * the order they appear in the file. Lazy decoding takes precedence if it
+     * is also enabled.
+     * </p>
+     *
+     * <p>
+     * When a movie is encoded the tags are divided into blocks and each block
+     * is encoded into a separate buffer. The buffers are then written to the
+     * file in order. The executor is not shut down by the movie.
+     * </p>
+     *
+     * @param service the executor used to decode and encode the tags or null
+     * if they should be processed by the current thread.
+     */
+    public void setExecutor(final ExecutorService service) {
+        executor = service;
+    }
+
+    /**
+     * Get the pool of coders used to decode and encode the movie.
+     *
+     * @return the pool or null if the coders are allocated each time the
+     * movie is decoded or encoded.
+     */
+    public CoderPool getCoderPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool of coders used to decode and encode the movie.
+     *
+     * <p>
+     * Each time a movie is decoded or encoded new buffers are allocated
+     * along with the objects used to decompress or compress the data. When
+     * a large number of small movies are processed a CoderPool can be shared
+     * between the movies so the buffers and other objects are reused.
+     * </p>
+     *
+     * @param coderPool the pool of coders or null if new coders should be
+     * allocated each time the movie is decoded or encoded.
+     */
+    public void setCoderPool(final CoderPool coderPool) {
+        pool = coderPool;
+    }
+
+    /**
+     * Get the level of compression used when a compressed movie is encoded.
+     *
+     * @return the compression level, from Deflater.BEST_SPEED (1) to
+     * Deflater.BEST_COMPRESSION (9), Deflater.NO_COMPRESSION (0) or
+     * Deflater.DEFAULT_COMPRESSION (-1).
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the level of compression used when a compressed movie is encoded.
+     * Lower levels compress large movies significantly faster at the cost of
+     * a slightly larger file. For LZMA compressed movies the level selects
+     * the preset used by the encoder.
+     *
+     * @param level the compression level, in the range -1 to 9, where -1
+     * selects the default level used by zlib or LZMA.
+     */
+    public void setCompressionLevel(final int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION
+                || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentRangeException(
+                    Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION,
+                    level);
+        }
+        compressionLevel = level;
+    }
+
+    /**
+     * Get the strategy used when a compressed movie is encoded.
+     *
+     * @return the compression strategy, either Deflater.DEFAULT_STRATEGY,
+     * Deflater.FILTERED or Deflater.HUFFMAN_ONLY.
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    /**
+     * Sets the strategy used when a compressed movie is encoded.
+     *
+     * @param strategy the compression strategy, either
+     * Deflater.DEFAULT_STRATEGY, Deflater.FILTERED or Deflater.HUFFMAN_ONLY.
+     */
+    public void setCompressionStrategy(final int strategy) {
+        if (strategy != Deflater.DEFAULT_STRATEGY
+                && strategy != Deflater.FILTERED
+                && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentValueException(
+                    new int[] {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED,
+                            Deflater.HUFFMAN_ONLY}, strategy);
+        }
+        compressionStrategy = strategy;
+    }
+
+    /**
+     * Get the list of objects contained in the Movie. If lazy decoding is
+     * enabled then any objects which have not yet been decoded are decoded
+     * when they are accessed in the list. Objects added to or removed from
+     * the list are also added to or removed from the table returned by
+     * getSymbols().
      *
      * @return the list of objects that make up the movie.
      */
     public List<MovieTag> getObjects() {
-        return objects;
+        return new TagList(this, objects);
+    }
+
+    /**
+     * Get the table that maps the identifier of each object defined in the
+     * movie to the tag that defines it and the tags that refer to it. The
+     * table is created the first time this method is called and is then kept
+     * up to date as tags are added to or removed from the movie. Creating
+     * the table does not change or copy any of the tags in the movie. The
+     * identifiers in EncodedTags are read from the encoded data where they
+     * are at a fixed position, otherwise, for example in shapes, buttons,
+     * text and movie clips, a temporary copy of the tag is decoded.
+     *
+     * @return the symbol table for the movie.
+     */
+    public SymbolTable getSymbols() {
+        if (symbols == null) {
+            final SymbolTable table = new SymbolTable(this);
+            for (int i = 0; i < objects.size(); i++) {
+                table.add(i, objects.get(i));
+            }
+            symbols = table;
+        }
+        return symbols;
+    }
+
+    /**
+     * Update the symbol table after a tag was added to the list of objects.
+     *
+     * @param index the position of the tag added.
+     * @param tag the tag added.
+     */
+    void added(final int index, final MovieTag tag) {
+        if (symbols != null) {
+            symbols.add(index, tag);
+        }
+    }
+
+    /**
+     * Update the symbol table after a tag was removed from the list of
+     * objects.
+     *
+     * @param tag the tag removed.
+     */
+    void removed(final MovieTag tag) {
+        if (symbols != null) {
+            symbols.remove(tag);
+        }
+    }
+
+    /**
+     * Update the symbol table after a tag in the list of objects was
+     * replaced by a copy or by the tag decoded from an EncodedTag.
+     *
+     * @param original the tag that was replaced.
+     * @param tag the tag that replaced it.
+     */
+    void replaced(final MovieTag original, final MovieTag tag) {
+        if (symbols != null) {
+            symbols.replace(original, tag);
+        }
+    }
+
+    /**
+     * Replace any tags in the list of objects that are shared with another
+     * movie or have not been decoded with the tags returned by owned(), so
+     * they can be returned from the symbol table. Each tag is found using the
+     * position recorded in the symbol table.
+     *
+     * @param tags the tags from the symbol table.
+     */
+    void resolve(final List<MovieTag> tags) {
+        int index;
+
+        for (final MovieTag tag : tags) {
+            index = symbols.position(tag);
+            if (index < 0 || index >= objects.size()
+                    || objects.get(index) != tag) {
+                index = indexOf(tag);
+            }
+            if (index >= 0 && ((shared != null && shared.get(index))
+                    || (tag instanceof EncodedTag
+                    && !((EncodedTag) tag).isRaw()))) {
+                owned(index);
+            }
+        }
+    }
+
+    /**
+     * Find a tag in the list of objects, comparing the tags by identity.
+     * This is only used if the position recorded in the symbol table is not
+     * correct, for example when the same tag was added to the movie twice.
+     *
+     * @param tag the tag.
+     * @return the position of the tag or -1 if the tag is not found.
+     */
+    private int indexOf(final MovieTag tag) {
+        for (int i = 0; i < objects.size(); i++) {
+            if (objects.get(i) == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Discard the symbol table after the list of objects was cleared or
+     * replaced. It is created again when it is next used.
+     */
+    void cleared() {
+        symbols = null;
+        shared = null;
+    }
+
+    /**
+     * Update the positions of the shared tags after a tag was inserted in
+     * the list of objects.
+     *
+     * @param index the position of the tag inserted.
+     */
+    void inserted(final int index) {
+        if (symbols != null) {
+            symbols.inserted(index);
+        }
+        if (shared != null && index < shared.length()) {
+            final BitSet moved = shared.get(index, shared.length());
+            shared.clear(index, shared.length());
+            for (int i = moved.nextSetBit(0); i >= 0;
+                    i = moved.nextSetBit(i + 1)) {
+                shared.set(index + 1 + i);
+            }
+        }
+    }
+
+    /**
+     * Update the positions of the shared tags after a tag was deleted from
+     * the list of objects.
+     *
+     * @param index the position of the tag deleted.
+     */
+    void deleted(final int index) {
+        if (symbols != null) {
+            symbols.deleted(index);
+        }
+        if (shared != null && index < shared.length()) {
+            final BitSet moved = shared.get(index + 1, shared.length());
+            shared.clear(index, shared.length());
+            for (int i = moved.nextSetBit(0); i >= 0;
+                    i = moved.nextSetBit(i + 1)) {
+                shared.set(index + i);
+            }
+        }
     }
 
     /**
@@ -171,6 +616,8 @@ public final class Movie implements Copyable<Movie> {
             throw new IllegalArgumentException();
         }
         objects = list;
+        symbols = null;
+        shared = null;
     }
 
     /**
@@ -185,6 +632,7 @@ public final class Movie implements Copyable<Movie> {
             throw new IllegalArgumentException();
         }
         objects.add(anObject);
+        added(objects.size() - 1, anObject);
         return this;
     }
 
@@ -194,6 +642,65 @@ public final class Movie implements Copyable<Movie> {
         return new Movie(this);
     }
 
+    /**
+     * <p>
+     * Creates a copy of this movie that shares the tags with this movie
+     * rather than copying them, so the time taken depends on the number of
+     * tags rather than the amount of data they contain. Only the header is
+     * copied. Each shared tag is copied the first time it is accessed using
+     * the list returned by the copy's getObjects() method, so it can then be
+     * changed without affecting this movie. Tags that are not accessed, for
+     * example the images and sounds in a template, are encoded directly from
+     * the shared instances.
+     * </p>
+     *
+     * <p>
+     * The tags in this movie must not be changed while copies created with
+     * this method are in use. Copies with the same Flash version and
+     * character encoding may be encoded on different threads, since encoding
+     * a shared tag only records values derived from the tag, the version and
+     * the encoding.
+     * </p>
+     *
+     * @return a copy of this movie that shares its tags.
+     */
+    public Movie copyOnWrite() {
+        return new Movie(this, true);
+    }
+
+    /**
+     * Get the tag at a position in the list of objects so that it can be
+     * changed. If the tag is shared with another movie it is copied and if
+     * it is an EncodedTag it is decoded. The new tag replaces the original
+     * one in the list of objects.
+     *
+     * @param index the position of the tag in the list of objects.
+     * @return the tag, which is not shared with any other movie.
+     */
+    MovieTag owned(final int index) {
+        final MovieTag original = objects.get(index);
+        MovieTag tag = original;
+
+        if (shared != null && shared.get(index)) {
+            shared.clear(index);
+            if (!(tag instanceof EncodedTag)) {
+                tag = tag.copy();
+            }
+        }
+        if (tag instanceof EncodedTag) {
+            try {
+                tag = ((EncodedTag) tag).decode();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (tag != original) {
+            objects.set(index, tag);
+            replaced(original, tag);
+        }
+        return tag;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
@@ -203,6 +710,14 @@ public final class Movie implements Copyable<Movie> {
     /**
      * Decodes the contents of the specified file.
      *
+     * <p>
+     * Uncompressed files are decoded directly from a buffer containing the
+     * entire file rather than being read through a stream. Large files are
+     * mapped into memory. The binary data held by the decoded tags is copied
+     * out of the mapped file so the file may be changed, for example by
+     * encoding the movie back to it, once it has been decoded.
+     * </p>
+     *
      * @param file
      *            the Flash file that will be parsed.
      * @throws DataFormatException
@@ -212,7 +727,7 @@ public final class Movie implements Copyable<Movie> {
      */
     public void decodeFromFile(final File file) throws DataFormatException,
             IOException {
-        decodeFromStream(new FileInputStream(file));
+        decode(new MovieReader(file, registry, encoding, pool));
     }
 
     /**
@@ -253,71 +768,90 @@ public final class Movie implements Copyable<Movie> {
      */
     public void decodeFromStream(final InputStream stream)
             throws DataFormatException, IOException {
+        decode(new MovieReader(stream, registry, encoding, pool));
+    }
 
-        InputStream streamIn = null;
-
+    /**
+     * Decodes the header and the list of tags, replacing the objects in the
+     * movie.
+     *
+     * @param reader
+     *            the MovieReader used to decode the header and each tag.
+     *
+     * @throws IOException
+     *             if an error occurs while decoding the movie.
+     */
+    private void decode(final MovieReader reader) throws IOException {
         try {
-            final Context context = new Context();
-            context.setRegistry(registry);
-            context.setEncoding(encoding.getEncoding());
+            reader.setLazyDecoding(lazyDecoding || executor != null);
+            reader.setPassThrough(passThrough);
 
-            final byte[] signature = new byte[SIGNATURE_LENGTH];
-            if (stream.read(signature) != signature.length) {
-                throw new DataFormatException("Could not read file signature");
-            }
+            objects.clear();
+            symbols = null;
+            shared = null;
+            objects.add(reader.getHeader());
 
-            if (Arrays.equals(CWS, signature)) {
-                streamIn = new InflaterInputStream(stream);
-                context.put(Context.COMPRESSED, 1);
-            } else if (Arrays.equals(FWS, signature)) {
-                streamIn = stream;
-                context.put(Context.COMPRESSED, 0);
-            } else {
-                throw new DataFormatException();
+            MovieTag tag;
+
+            while ((tag = reader.next()) != null) {
+                objects.add(tag);
             }
+        } finally {
+            reader.close();
+        }
 
-            context.put(Context.VERSION, stream.read());
+        if (!lazyDecoding && executor != null) {
+            decodeInParallel();
+        }
+    }
 
-            int length = stream.read();
-            length |= stream.read() << Coder.ALIGN_BYTE1;
-            length |= stream.read() << Coder.ALIGN_BYTE2;
-            length |= stream.read() << Coder.ALIGN_BYTE3;
+    /**
+     * Decodes the EncodedTags in the list of objects, submitting the shapes,
+     * images, fonts and DoABC tags to the executor and decoding the remainder
+     * in the current thread. Each task decodes the tag directly from the
+     * encoded data it holds, which shares the buffer the movie was decoded
+     * from when possible.
+     *
+     * @throws IOException
+     *             if an error occurs while decoding a tag.
+     */
+    private void decodeInParallel() throws IOException {
+        final int count = objects.size();
+        final List<Future<MovieTag>> tasks =
+            new ArrayList<Future<MovieTag>>(count);
 
-            /*
-             * If the file is shorter than the default buffer size then set the
-             * buffer size to be the file size - this gets around a bug in Java
-             * where the end of ZLIB streams are not detected correctly.
-             */
-            SWFDecoder decoder;
+        MovieTag tag;
 
-            if (length < SWFDecoder.BUFFER_SIZE) {
-                decoder = new SWFDecoder(streamIn, length - HEADER_LENGTH);
+        for (int i = 0; i < count; i++) {
+            tag = objects.get(i);
+            if (tag instanceof EncodedTag
+                    && TASK_TYPES.contains(((EncodedTag) tag).getType())
+                    && !registry.isRawType(((EncodedTag) tag).getType())) {
+                final EncodedTag encoded = (EncodedTag) tag;
+                tasks.add(executor.submit(new Callable<MovieTag>() {
+                    public MovieTag call() throws IOException {
+                        return encoded.decode();
+                    }
+                }));
             } else {
-                decoder = new SWFDecoder(streamIn);
+                tasks.add(null);
             }
+        }
 
-            decoder.setEncoding(encoding);
-
-            objects.clear();
-
-            final SWFFactory<MovieTag> factory = registry.getMovieDecoder();
-
-            final MovieHeader header = new MovieHeader(decoder, context);
-            objects.add(header);
-
-            while (decoder.scanUnsignedShort() >>> Coder.LENGTH_FIELD_SIZE
-                    != MovieTypes.END) {
-                factory.getObject(objects, decoder, context);
+        try {
+            for (int i = 0; i < count; i++) {
+                tag = objects.get(i);
+                if (tasks.get(i) != null) {
+                    objects.set(i, getResult(tasks.get(i)));
+                } else if (tag instanceof EncodedTag) {
+                    objects.set(i, ((EncodedTag) tag).decode());
+                }
             }
-
-            decoder.readUnsignedShort();
-
-            header.setVersion(context.get(Context.VERSION));
-            header.setCompressed(context.get(Context.COMPRESSED) == 1);
-
         } finally {
-            if (streamIn != null) {
-                streamIn.close();
+            for (final Future<MovieTag> task : tasks) {
+                if (task != null) {
+                    task.cancel(false);
+                }
             }
         }
     }
@@ -354,14 +888,29 @@ public final class Movie implements Copyable<Movie> {
     public void encodeToStream(final OutputStream stream)
             throws DataFormatException, IOException {
 
+        if (executor != null) {
+            encodeInParallel(stream);
+            return;
+        }
+
         OutputStream streamOut = null;
+        Context context = null;
+        SWFEncoder coder = null;
+        Deflater deflater = null;
 
         try {
             final MovieHeader header = (MovieHeader) objects.get(0);
 
-            final Context context = new Context();
+            if (pool == null) {
+                context = new Context();
+            } else {
+                context = pool.getContext();
+            }
+            if (header.getCompression() == Compression.ZLIB) {
+                deflater = newDeflater();
+            }
             context.setEncoding(encoding.getEncoding());
-            context.put(Context.VERSION, header.getVersion());
+            context.putInt(Context.VERSION, header.getVersion());
 
             // length of signature, version, length and end
             // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
@@ -377,37 +926,339 @@ public final class Movie implements Copyable<Movie> {
             }
 
             header.setFrameCount(frameCount);
+            streamOut = writeSignature(stream, header, length, deflater);
 
-            if (header.isCompressed()) {
-                stream.write(CWS);
+            if (pool == null) {
+                coder = new SWFEncoder(streamOut);
             } else {
-                stream.write(FWS);
+                coder = pool.getEncoder(streamOut);
             }
+            coder.setEncoding(encoding);
 
-            stream.write(header.getVersion());
-            stream.write(length);
-            stream.write(length >>> Coder.ALIGN_BYTE1);
-            stream.write(length >>> Coder.ALIGN_BYTE2);
-            stream.write(length >>> Coder.ALIGN_BYTE3);
+            for (final MovieTag tag : objects) {
+                tag.encode(coder, context);
+            }
+            coder.writeShort(0);
+            coder.flush();
+        } finally {
+            try {
+                if (streamOut != null) {
+                    streamOut.close();
+                }
+            } finally {
+                if (deflater != null) {
+                    release(deflater);
+                }
+                if (pool != null && context != null) {
+                    pool.release(context);
+                    if (coder != null) {
+                        pool.release(coder);
+                    }
+                }
+            }
+        }
+    }
 
-            if (header.isCompressed()) {
-                streamOut = new DeflaterOutputStream(stream);
+    /**
+     * Encodes the list of objects using the executor. The objects are divided
+     * into blocks of consecutive tags and each block is encoded into a
+     * separate buffer. The buffers are then written to the stream in order.
+     *
+     * @param stream
+     *            the output stream that the video will be encoded to.
+     * @throws IOException
+     *             - if an I/O error occurs while encoding the file.
+     */
+    private void encodeInParallel(final OutputStream stream)
+            throws IOException {
+
+        OutputStream streamOut = null;
+        Deflater deflater = null;
+
+        try {
+            final MovieHeader header = (MovieHeader) objects.get(0);
+
+            final int count = objects.size();
+            int frameCount = 0;
+            int postscript = -1;
+
+            MovieTag tag;
+
+            for (int i = 0; i < count; i++) {
+                tag = objects.get(i);
+                if (tag instanceof ShowFrame) {
+                    frameCount++;
+                } else if (tag instanceof PathsArePostscript
+                        && postscript == -1) {
+                    postscript = i;
+                }
+            }
+
+            header.setFrameCount(frameCount);
+
+            final List<Future<byte[]>> tasks = new ArrayList<Future<byte[]>>();
+
+            // A block containing the PathsArePostscript tag sets the flag
+            // itself when the tag is encoded, as it is in encodeToStream().
+            for (int start = 0; start < count; start += TASK_TAGS) {
+                tasks.add(executor.submit(new EncodeTask(objects.subList(
+                        start, Math.min(start + TASK_TAGS, count)),
+                        header.getVersion(),
+                        postscript != -1 && postscript < start)));
+            }
+
+            final ByteBuffer[] blocks = new ByteBuffer[tasks.size() + 1];
+            // length of signature, version, length and end
+            // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
+            int length = 10;
+
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    blocks[i] = ByteBuffer.wrap(getResult(tasks.get(i)));
+                    length += blocks[i].remaining();
+                }
+            } finally {
+                for (final Future<byte[]> task : tasks) {
+                    task.cancel(false);
+                }
+            }
+            blocks[tasks.size()] = ByteBuffer.wrap(new byte[2]);
+
+            if (header.getCompression() == Compression.ZLIB) {
+                deflater = newDeflater();
+            }
+            streamOut = writeSignature(stream, header, length, deflater);
+
+            if (streamOut instanceof FileOutputStream) {
+                final FileChannel channel =
+                    ((FileOutputStream) streamOut).getChannel();
+                long remaining = length - HEADER_LENGTH;
+                while (remaining > 0) {
+                    remaining -= channel.write(blocks);
+                }
             } else {
-                streamOut = stream;
+                for (final ByteBuffer block : blocks) {
+                    streamOut.write(block.array());
+                }
+            }
+            streamOut.flush();
+        } finally {
+            try {
+                if (streamOut != null) {
+                    streamOut.close();
+                }
+            } finally {
+                if (deflater != null) {
+                    release(deflater);
+                }
             }
+        }
+    }
+
+    /**
+     * Get a Deflater, from the pool if one is set, configured with the
+     * compression level and strategy for the movie.
+     *
+     * @return the Deflater used to compress the movie.
+     */
+    private Deflater newDeflater() {
+        Deflater deflater;
+        if (pool == null) {
+            deflater = new Deflater();
+        } else {
+            deflater = pool.getDeflater();
+        }
+        deflater.setLevel(compressionLevel);
+        deflater.setStrategy(compressionStrategy);
+        return deflater;
+    }
+
+    /**
+     * Return a Deflater to the pool or, if there is no pool, free the memory
+     * it uses.
+     *
+     * @param deflater the Deflater returned by newDeflater().
+     */
+    private void release(final Deflater deflater) {
+        if (pool == null) {
+            deflater.end();
+        } else {
+            pool.release(deflater);
+        }
+    }
+
+    /**
+     * Writes the signature, version and length of the movie and returns the
+     * stream that the header and tags will be written to.
+     *
+     * @param stream
+     *            the output stream that the video will be encoded to.
+     * @param header
+     *            the MovieHeader for the movie.
+     * @param length
+     *            the length of the uncompressed movie in bytes.
+     * @param deflater
+     *            the Deflater used to compress the movie or null if the
+     *            movie is not compressed using zlib.
+     * @return the stream the header and tags will be written to, which
+     *            compresses the data if the movie is compressed.
+     * @throws IOException
+     *             - if an I/O error occurs while writing to the stream.
+     */
+    private OutputStream writeSignature(final OutputStream stream,
+            final MovieHeader header, final int length,
+            final Deflater deflater) throws IOException {
+
+        final Compression compression = header.getCompression();
+
+        if (compression == Compression.ZLIB) {
+            stream.write(CWS);
+        } else if (compression == Compression.LZMA) {
+            stream.write(ZWS);
+        } else {
+            stream.write(FWS);
+        }
 
-            final SWFEncoder coder = new SWFEncoder(streamOut);
+        stream.write(header.getVersion());
+        stream.write(length);
+        stream.write(length >>> Coder.ALIGN_BYTE1);
+        stream.write(length >>> Coder.ALIGN_BYTE2);
+        stream.write(length >>> Coder.ALIGN_BYTE3);
+
+        OutputStream streamOut;
+
+        if (compression == Compression.LZMA) {
+            streamOut = new LZMAOutputStream(new LZMABuffer(stream),
+                    compressionLevel, length - HEADER_LENGTH);
+        } else if (deflater == null) {
+            streamOut = stream;
+        } else {
+            streamOut = new DeflaterOutputStream(stream, deflater,
+                    Math.max(MIN_BUFFER_SIZE,
+                            Math.min(length, DEFLATE_BUFFER_SIZE)));
+        }
+        return streamOut;
+    }
+
+    /**
+     * Get the result of a task submitted to the executor, rethrowing any
+     * exception thrown by the task.
+     *
+     * @param <T> the type of object returned by the task.
+     * @param task the task submitted to the executor.
+     * @return the result of the task.
+     * @throws IOException
+     *             if the task was interrupted or threw an IOException.
+     */
+    private static <T> T getResult(final Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * LZMABuffer holds the LZMA compressed data for a movie until it has all
+     * been written, since the length of the compressed data is written in the
+     * header before the data. When closed the length and data are written to
+     * the stream, which is then closed.
+     */
+    private static final class LZMABuffer extends ByteArrayOutputStream {
+        /** The stream the length and compressed data is written to. */
+        private final transient OutputStream stream;
+
+        /**
+         * Creates a buffer for compressed data.
+         *
+         * @param streamOut the stream the data is written to when the
+         * buffer is closed.
+         */
+        LZMABuffer(final OutputStream streamOut) {
+            super();
+            stream = streamOut;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() throws IOException {
+            try {
+                // The length excludes the properties that precede the data.
+                final int length = count - LZMA_PROPERTIES_SIZE;
+                stream.write(length);
+                stream.write(length >>> Coder.ALIGN_BYTE1);
+                stream.write(length >>> Coder.ALIGN_BYTE2);
+                stream.write(length >>> Coder.ALIGN_BYTE3);
+                stream.write(buf, 0, count);
+                stream.flush();
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * EncodeTask encodes a block of consecutive tags into a separate buffer
+     * using its own Context so blocks can be encoded at the same time.
+     */
+    private final class EncodeTask implements Callable<byte[]> {
+        /** The tags to encode. */
+        private final transient List<MovieTag> tags;
+        /** The Flash version of the movie. */
+        private final transient int version;
+        /** Whether a PathsArePostscript tag precedes the block. */
+        private final transient boolean postscript;
+
+        /**
+         * Creates a task to encode a block of tags.
+         *
+         * @param list the tags to encode.
+         * @param flashVersion the Flash version of the movie.
+         * @param paths whether shapes are drawn using PostScript rules
+         * from the start of the block.
+         */
+        EncodeTask(final List<MovieTag> list, final int flashVersion,
+                final boolean paths) {
+            tags = list;
+            version = flashVersion;
+            postscript = paths;
+        }
+
+        /** {@inheritDoc} */
+        public byte[] call() throws IOException {
+            final Context context = new Context();
+            context.setEncoding(encoding.getEncoding());
+            context.putInt(Context.VERSION, version);
+            if (postscript) {
+                context.putInt(Context.POSTSCRIPT, 1);
+            }
+
+            int length = 0;
+
+            for (final MovieTag tag : tags) {
+                length += tag.prepareToEncode(context);
+            }
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+            final SWFEncoder coder = new SWFEncoder(out);
             coder.setEncoding(encoding);
 
-            for (final MovieTag tag : objects) {
+            for (final MovieTag tag : tags) {
                 tag.encode(coder, context);
             }
-            coder.writeShort(0);
             coder.flush();
-        } finally {
-            if (streamOut != null) {
-                streamOut.close();
-            }
+            return out.toByteArray();
         }
     }
 }
@@ -41,6 +41,7 @@ import com.flagstone.transform.button.DefineButton2;
 import com.flagstone.transform.coder.Coder;
 import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFFactory;
 import com.flagstone.transform.font.DefineFont;
@@ -95,9 +96,17 @@ public final class MovieDecoder implements SWFFactory<MovieTag> {
 	public void getObject(final List<MovieTag> list, final SWFDecoder coder,
             final Context context) throws IOException {
 
+        final int type = coder.scanUnsignedShort() >> Coder.LENGTH_FIELD_SIZE;
+        final DecoderRegistry registry = context.getRegistry();
+
+        if (registry != null && registry.isRawType(type)) {
+            list.add(new EncodedTag(coder, context));
+            return;
+        }
+
         MovieTag obj;
 
-        switch (coder.scanUnsignedShort() >> Coder.LENGTH_FIELD_SIZE) {
+        switch (type) {
         case MovieTypes.SHOW_FRAME:
             obj = ShowFrame.getInstance(coder, context);
             break;
@@ -0,0 +1,314 @@
+/*
+ * MovieExecutor.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+
+/**
+ * MovieExecutor decodes and encodes movies as tasks run by an ExecutorService
+ * so the calling thread does not wait while files are read and written.
+ *
+ * <p>
+ * Each method returns a Future which contains the Movie once the task has
+ * completed. Any exception thrown while the movie was decoded or encoded is
+ * returned as the cause of the ExecutionException thrown by Future.get().
+ * </p>
+ *
+ * <p>
+ * The number of movies being decoded or encoded at the same time is limited
+ * to avoid the memory used by the movies growing without bounds when tasks
+ * are submitted faster than they can be completed. When the limit is reached
+ * the methods block until one of the earlier tasks has finished.
+ * </p>
+ *
+ * <pre>
+ * MovieExecutor movies = new MovieExecutor(executor, 16);
+ * Future&lt;Movie&gt; future = movies.decodeFromFile(file);
+ * ...
+ * Movie movie = future.get();
+ * </pre>
+ *
+ * <p>
+ * The executor is not shut down by the MovieExecutor. The Movie objects
+ * passed to the methods may be configured, for example with a CoderPool or
+ * DecoderRegistry, and must not be used by other threads until the task has
+ * completed.
+ * </p>
+ */
+public final class MovieExecutor {
+
+    /** The executor that runs the tasks. */
+    private final transient ExecutorService executor;
+    /** The maximum number of tasks that can be pending. */
+    private final transient int limit;
+    /** The permits for each pending task. */
+    private final transient Semaphore permits;
+
+    /**
+     * Creates a MovieExecutor that runs tasks using an executor.
+     *
+     * @param service the executor that runs the tasks to decode and encode
+     * movies. Must not be null.
+     * @param maxMovies the maximum number of movies that can be decoded or
+     * encoded at the same time. Must be at least 1.
+     */
+    public MovieExecutor(final ExecutorService service, final int maxMovies) {
+        if (service == null) {
+            throw new IllegalArgumentException();
+        }
+        if (maxMovies < 1) {
+            throw new IllegalArgumentException(
+                    "Number of movies must be at least 1");
+        }
+        executor = service;
+        limit = maxMovies;
+        permits = new Semaphore(maxMovies, true);
+    }
+
+    /**
+     * Get the executor that runs the tasks.
+     *
+     * @return the executor.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the maximum number of movies that can be decoded or encoded at the
+     * same time.
+     *
+     * @return the maximum number of pending tasks.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of movies being decoded or encoded, including the ones
+     * waiting to be run by the executor.
+     *
+     * @return the number of pending tasks.
+     */
+    public int getPending() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * Decode a Flash file into a new Movie.
+     *
+     * @param file the Flash file.
+     * @return the Future containing the decoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> decodeFromFile(final File file)
+            throws InterruptedException {
+        return decodeFromFile(new Movie(), file);
+    }
+
+    /**
+     * Decode a Flash file into an existing Movie, replacing its contents.
+     *
+     * @param movie the Movie that the file is decoded into.
+     * @param file the Flash file.
+     * @return the Future containing the decoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> decodeFromFile(final Movie movie, final File file)
+            throws InterruptedException {
+        return submit(new Callable<Movie>() {
+            public Movie call() throws DataFormatException, IOException {
+                movie.decodeFromFile(file);
+                return movie;
+            }
+        });
+    }
+
+    /**
+     * Decode a Flash file referenced by a URL into a new Movie.
+     *
+     * @param url the Uniform Resource Locator referencing the file.
+     * @return the Future containing the decoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> decodeFromUrl(final URL url)
+            throws InterruptedException {
+        final Movie movie = new Movie();
+        return submit(new Callable<Movie>() {
+            public Movie call() throws DataFormatException, IOException {
+                movie.decodeFromUrl(url);
+                return movie;
+            }
+        });
+    }
+
+    /**
+     * Decode a movie from a stream into a new Movie. The stream is closed
+     * when the movie has been decoded.
+     *
+     * @param stream the stream containing the movie.
+     * @return the Future containing the decoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> decodeFromStream(final InputStream stream)
+            throws InterruptedException {
+        final Movie movie = new Movie();
+        return submit(new Callable<Movie>() {
+            public Movie call() throws DataFormatException, IOException {
+                movie.decodeFromStream(stream);
+                return movie;
+            }
+        });
+    }
+
+    /**
+     * Encode a movie to a file.
+     *
+     * @param movie the Movie to encode.
+     * @param file the file the movie is written to.
+     * @return the Future containing the encoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> encodeToFile(final Movie movie, final File file)
+            throws InterruptedException {
+        return submit(new Callable<Movie>() {
+            public Movie call() throws DataFormatException, IOException {
+                movie.encodeToFile(file);
+                return movie;
+            }
+        });
+    }
+
+    /**
+     * Encode a movie to a stream. The stream is closed when the movie has
+     * been encoded.
+     *
+     * @param movie the Movie to encode.
+     * @param stream the stream the movie is written to.
+     * @return the Future containing the encoded movie.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for another task to finish.
+     */
+    public Future<Movie> encodeToStream(final Movie movie,
+            final OutputStream stream) throws InterruptedException {
+        return submit(new Callable<Movie>() {
+            public Movie call() throws DataFormatException, IOException {
+                movie.encodeToStream(stream);
+                return movie;
+            }
+        });
+    }
+
+    /**
+     * Submit a task to the executor once a permit is available.
+     *
+     * @param task the task that decodes or encodes a movie.
+     * @return the Future for the task.
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting for a permit.
+     */
+    private Future<Movie> submit(final Callable<Movie> task)
+            throws InterruptedException {
+        final PermitTask future = new PermitTask(task);
+        permits.acquire();
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * PermitTask releases the permit held for a task once, either when the
+     * task finishes, before the result is available to callers, or when the
+     * task is cancelled.
+     */
+    private final class PermitTask extends FutureTask<Movie> {
+        /** Whether the permit has been released. */
+        private final transient AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Creates a PermitTask for a task that decodes or encodes a movie.
+         *
+         * @param task the task.
+         */
+        PermitTask(final Callable<Movie> task) {
+            super(task);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void set(final Movie movie) {
+            release();
+            super.set(movie);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void setException(final Throwable error) {
+            release();
+            super.setException(error);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void done() {
+            release();
+        }
+
+        /** Release the permit if it is still held. */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -58,8 +58,8 @@ public final class MovieHeader implements MovieTag {
     private int frameRate;
     /** The number of frames in the movie. */
     private int frameCount;
-    /** Flag indicating whether the movie is compressed. */
-    private boolean compressed;
+    /** How the movie is compressed. */
+    private Compression compression;
 
     /**
      * Creates and initialises a MovieAttributes object using values encoded
@@ -78,8 +78,9 @@ public final class MovieHeader implements MovieTag {
      */
     public MovieHeader(final SWFDecoder coder, final Context context)
             throws IOException {
-        version = context.get(Context.VERSION);
-        compressed = context.get(Context.COMPRESSED) == 1;
+        version = context.getInt(Context.VERSION);
+        compression = Compression.values()[
+                context.getInt(Context.COMPRESSED)];
         frameSize = new Bounds(coder);
         frameRate = coder.readUnsignedShort();
         frameCount = coder.readUnsignedShort();
@@ -91,7 +92,7 @@ public final class MovieHeader implements MovieTag {
      */
     public MovieHeader() {
         version = Movie.VERSION;
-        compressed = true;
+        compression = Compression.ZLIB;
     }
 
     /**
@@ -104,7 +105,7 @@ public final class MovieHeader implements MovieTag {
      */
     public MovieHeader(final MovieHeader object) {
         version = object.version;
-        compressed = object.compressed;
+        compression = object.compression;
         frameSize = object.frameSize;
         frameRate = object.frameRate;
         frameCount = object.frameCount;
@@ -214,21 +215,48 @@ public final class MovieHeader implements MovieTag {
     /**
      * Is the movie compressed.
      *
-     * @return true if the movie contains zlib compressed data or false if it
-     * is not compressed.
+     * @return true if the movie contains zlib or LZMA compressed data or
+     * false if it is not compressed.
      */
     public boolean isCompressed() {
-        return compressed;
+        return compression != Compression.NONE;
     }
 
     /**
-     * Set whether the movie should be compressed when encoded.
+     * Set whether the movie should be compressed when encoded. Movies are
+     * compressed using zlib.
      *
      * @param compress true if the movie will be compressed, false if no
      * compression will be applied.
      */
     public void setCompressed(final boolean compress) {
-        compressed = compress;
+        if (compress) {
+            compression = Compression.ZLIB;
+        } else {
+            compression = Compression.NONE;
+        }
+    }
+
+    /**
+     * Get how the movie is compressed.
+     *
+     * @return the compression used for the movie.
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Set how the movie will be compressed when encoded. LZMA compressed
+     * movies are smaller but can only be played by Flash Player 11 or later.
+     *
+     * @param type the compression used to encode the movie. Must not be null.
+     */
+    public void setCompression(final Compression type) {
+        if (type == null) {
+            throw new IllegalArgumentException();
+        }
+        compression = type;
     }
 
     /** {@inheritDoc} */
@@ -239,7 +267,7 @@ public final class MovieHeader implements MovieTag {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, version, compressed, frameSize,
+        return String.format(FORMAT, version, isCompressed(), frameSize,
                 getFrameRate(), frameCount);
     }
 
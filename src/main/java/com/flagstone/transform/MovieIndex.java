@@ -0,0 +1,895 @@
+/*
+ * MovieIndex.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.InflaterInputStream;
+
+import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.coder.LZMAInputStream;
+import com.flagstone.transform.coder.SWFDecoder;
+
+/**
+ * MovieIndex records the type, location, length, frame and character
+ * identifier of each tag in a movie so individual tags, or all the tags in a
+ * frame, can be decoded without decoding the rest of the movie.
+ *
+ * <p>
+ * The index is created by scanning the headers of the tags, skipping the
+ * remainder of each tag, and can be saved to a file so it only needs to be
+ * created once:
+ * </p>
+ *
+ * <pre>
+ * MovieIndex index = new MovieIndex();
+ * index.scanFile(movieFile);
+ * index.encodeToFile(indexFile);
+ * ...
+ * index.decodeFromFile(indexFile);
+ * List&lt;MovieTag&gt; tags = index.decodeFrame(movieFile, 10);
+ * </pre>
+ *
+ * <p>
+ * Offsets are measured from the start of the file, for compressed movies
+ * from the start of the uncompressed movie. Tags are read from uncompressed
+ * movies directly from the recorded location. Compressed movies must be
+ * decompressed from the start up to the location of the tag, though the
+ * preceding tags are not decoded.
+ * </p>
+ */
+public final class MovieIndex {
+
+    /** Signature identifying an index file. */
+    private static final byte[] SIGNATURE = new byte[] {0x53, 0x57, 0x46,
+        0x49 };
+    /** The version of the format used to save an index. */
+    private static final int FORMAT_VERSION = 1;
+    /** Length in bytes of the signature, version and length fields. */
+    private static final int HEADER_LENGTH = 8;
+    /** Length in bytes of the compressed length field in LZMA movies. */
+    private static final int LZMA_LENGTH_SIZE = 4;
+    /** The number of entries allocated when the index is created. */
+    private static final int INITIAL_SIZE = 64;
+    /** The number of bits in each byte of a variable length integer. */
+    private static final int VAR_BITS = 7;
+    /** Bit mask for the value in each byte of a variable length integer. */
+    private static final int VAR_MASK = 0x7F;
+    /** Bit set when more bytes follow in a variable length integer. */
+    private static final int VAR_MORE = 0x80;
+
+    /**
+     * The types of tag that start with the identifier of the object they
+     * define or refer to, indexed by type.
+     */
+    private static final boolean[] IDENTIFIED = new boolean[1 << (Short.SIZE
+            - Coder.LENGTH_FIELD_SIZE)];
+
+    static {
+        final int[] types = {MovieTypes.DEFINE_SHAPE, MovieTypes.PLACE,
+            MovieTypes.REMOVE, MovieTypes.DEFINE_JPEG_IMAGE,
+            MovieTypes.DEFINE_BUTTON, MovieTypes.DEFINE_FONT,
+            MovieTypes.DEFINE_TEXT, MovieTypes.FONT_INFO,
+            MovieTypes.DEFINE_SOUND, MovieTypes.START_SOUND,
+            MovieTypes.BUTTON_SOUND, MovieTypes.DEFINE_IMAGE,
+            MovieTypes.DEFINE_JPEG_IMAGE_2, MovieTypes.DEFINE_SHAPE_2,
+            MovieTypes.BUTTON_COLOR_TRANSFORM, MovieTypes.DEFINE_SHAPE_3,
+            MovieTypes.DEFINE_TEXT_2, MovieTypes.DEFINE_BUTTON_2,
+            MovieTypes.DEFINE_JPEG_IMAGE_3, MovieTypes.DEFINE_IMAGE_2,
+            MovieTypes.DEFINE_TEXT_FIELD, MovieTypes.DEFINE_MOVIE_CLIP,
+            MovieTypes.DEFINE_MORPH_SHAPE, MovieTypes.DEFINE_FONT_2,
+            MovieTypes.INITIALIZE, MovieTypes.DEFINE_VIDEO,
+            MovieTypes.VIDEO_FRAME, MovieTypes.FONT_INFO_2,
+            MovieTypes.FONT_ALIGNMENT, MovieTypes.TEXT_SETTINGS,
+            MovieTypes.DEFINE_FONT_3, MovieTypes.DEFINE_SCALING_GRID,
+            MovieTypes.DEFINE_SHAPE_4, MovieTypes.DEFINE_MORPH_SHAPE_2,
+            MovieTypes.DEFINE_BINARY_DATA, MovieTypes.FONT_NAME,
+            MovieTypes.DEFINE_JPEG_IMAGE_4, MovieTypes.DEFINE_FONT_4 };
+
+        for (final int type : types) {
+            IDENTIFIED[type] = true;
+        }
+    }
+
+    /** The registry for the different types of decoder. */
+    private transient DecoderRegistry registry;
+    /** The character encoding used for strings. */
+    private transient CharacterEncoding encoding;
+    /** The Flash version of the movie. */
+    private transient int version;
+    /** How the movie is compressed. */
+    private transient Compression compression;
+    /** The length of the uncompressed movie in bytes. */
+    private transient int length;
+    /** The number of tags in the index. */
+    private transient int count;
+    /** The type of each tag. */
+    private transient int[] types;
+    /** The offset of each tag from the start of the movie. */
+    private transient int[] offsets;
+    /** The length of the body of each tag. */
+    private transient int[] lengths;
+    /** Whether the length of each tag uses the long form of the header. */
+    private transient boolean[] extended;
+    /** The frame that contains each tag. */
+    private transient int[] frames;
+    /** The identifier of the object each tag defines or refers to. */
+    private transient int[] identifiers;
+
+    /**
+     * Creates an empty index which uses the default registry and UTF-8 to
+     * decode tags.
+     */
+    public MovieIndex() {
+        registry = DecoderRegistry.getDefault();
+        encoding = CharacterEncoding.UTF8;
+        compression = Compression.NONE;
+        clear();
+    }
+
+    /**
+     * Get the registry containing the object used to decode the different
+     * types of object found in a movie.
+     *
+     * @return the registry used to decode tags.
+     */
+    public DecoderRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Sets the registry containing the object used to decode the different
+     * types of object found in a movie.
+     *
+     * @param decoderRegistry a central registry to decoders of different types
+     * of object.
+     */
+    public void setRegistry(final DecoderRegistry decoderRegistry) {
+        registry = decoderRegistry;
+    }
+
+    /**
+     * Sets the encoding scheme for strings decoded from Flash files.
+     *
+     * @param enc the character encoding used for strings.
+     */
+    public void setEncoding(final CharacterEncoding enc) {
+        encoding = enc;
+    }
+
+    /**
+     * Get the Flash version of the indexed movie.
+     *
+     * @return the version number.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get how the indexed movie is compressed.
+     *
+     * @return the compression used for the movie.
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the length of the indexed movie when uncompressed.
+     *
+     * @return the length in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the number of tags in the index, excluding the End tag.
+     *
+     * @return the number of tags.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of frames in the indexed movie.
+     *
+     * @return the number of ShowFrame tags.
+     */
+    public int getFrameCount() {
+        int frameCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (types[i] == MovieTypes.SHOW_FRAME) {
+                frameCount++;
+            }
+        }
+        return frameCount;
+    }
+
+    /**
+     * Get the type of a tag.
+     *
+     * @param index the position of the tag in the index.
+     * @return the type of the tag, see MovieTypes.
+     */
+    public int getType(final int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    /**
+     * Get the location of a tag.
+     *
+     * @param index the position of the tag in the index.
+     * @return the offset in bytes of the start of the tag from the start of
+     * the uncompressed movie.
+     */
+    public int getOffset(final int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Get the length of the body of a tag, excluding the header that contains
+     * the type and length.
+     *
+     * @param index the position of the tag in the index.
+     * @return the length in bytes of the encoded data.
+     */
+    public int getLength(final int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /**
+     * Get the frame that contains a tag. Frames are numbered from zero and a
+     * ShowFrame tag is part of the frame it displays.
+     *
+     * @param index the position of the tag in the index.
+     * @return the frame number.
+     */
+    public int getFrame(final int index) {
+        checkIndex(index);
+        return frames[index];
+    }
+
+    /**
+     * Get the identifier of the object that a tag defines or, for tags such
+     * as Place and Remove, refers to.
+     *
+     * @param index the position of the tag in the index.
+     * @return the identifier or -1 if the tag does not start with one.
+     */
+    public int getIdentifier(final int index) {
+        checkIndex(index);
+        return identifiers[index];
+    }
+
+    /**
+     * Find the tag that defines an object.
+     *
+     * @param identifier the identifier of the object.
+     * @return the position of the tag in the index or -1 if there is no tag
+     * that defines the object.
+     */
+    public int indexOf(final int identifier) {
+        for (int i = 0; i < count; i++) {
+            if (identifiers[i] == identifier && isDefinitionType(types[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Does a tag define an object, such as a shape, image or font, rather
+     * than refer to one.
+     *
+     * @param index the position of the tag in the index.
+     * @return true if the tag defines an object.
+     */
+    public boolean isDefinition(final int index) {
+        checkIndex(index);
+        return IDENTIFIED[types[index]] && isDefinitionType(types[index]);
+    }
+
+    /**
+     * Get the position in the index of the first tag in a frame.
+     *
+     * @param frame the frame number, starting from zero.
+     * @return the position of the first tag or -1 if the frame does not
+     * exist.
+     */
+    public int firstTag(final int frame) {
+        int low = 0;
+        int high = count;
+        int mid;
+
+        while (low < high) {
+            mid = (low + high) >>> 1;
+            if (frames[mid] < frame) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < count && frames[low] == frame ? low : -1;
+    }
+
+    /**
+     * Create the index by scanning a movie file.
+     *
+     * @param file the Flash file.
+     * @throws DataFormatException if the file does not contain Flash data.
+     * @throws IOException if an error occurs reading the file.
+     */
+    public void scanFile(final File file)
+            throws DataFormatException, IOException {
+        scan(new MovieReader(file, registry, encoding));
+    }
+
+    /**
+     * Create the index by scanning a movie from a stream.
+     *
+     * @param stream the stream containing the movie.
+     * @throws DataFormatException if the stream does not contain Flash data.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    public void scanStream(final InputStream stream)
+            throws DataFormatException, IOException {
+        scan(new MovieReader(stream, registry, encoding));
+    }
+
+    /**
+     * Read the headers of the tags and add them to the index.
+     *
+     * @param reader the reader positioned at the first tag.
+     * @throws IOException if an error occurs reading the movie.
+     */
+    private void scan(final MovieReader reader) throws IOException {
+        clear();
+        try {
+            final SWFDecoder coder = reader.getDecoder();
+            final MovieHeader header = reader.getHeader();
+            version = header.getVersion();
+            compression = header.getCompression();
+
+            int offset;
+            int tagHeader;
+            int type;
+            int bodyLength;
+            int identifier;
+            int frame = 0;
+
+            while (true) {
+                offset = coder.mark() + HEADER_LENGTH;
+                coder.unmark();
+                tagHeader = coder.readUnsignedShort();
+                type = tagHeader >>> Coder.LENGTH_FIELD_SIZE;
+
+                if (type == MovieTypes.END) {
+                    length = offset + Coder.SHORT_HEADER;
+                    break;
+                }
+
+                bodyLength = tagHeader & Coder.LENGTH_FIELD;
+                final boolean isLong = bodyLength == Coder.IS_EXTENDED;
+                if (isLong) {
+                    bodyLength = coder.readInt();
+                }
+                if (IDENTIFIED[type] && bodyLength >= 2) {
+                    identifier = coder.scanUnsignedShort();
+                } else {
+                    identifier = -1;
+                }
+                add(type, offset, bodyLength, isLong, frame, identifier);
+                coder.skip(bodyLength);
+
+                if (type == MovieTypes.SHOW_FRAME) {
+                    frame++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decode a tag from the indexed movie.
+     *
+     * @param file the Flash file that was indexed.
+     * @param index the position of the tag in the index.
+     * @return the decoded tag.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading or decoding the tag.
+     */
+    public MovieTag decodeTag(final File file, final int index)
+            throws DataFormatException, IOException {
+        return decodeTags(file, Collections.singleton(index)).get(0);
+    }
+
+    /**
+     * Decode all the tags in a frame of the indexed movie, including the
+     * ShowFrame tag that displays it.
+     *
+     * @param file the Flash file that was indexed.
+     * @param frame the frame number, starting from zero.
+     * @return the list of decoded tags.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading or decoding the tags.
+     */
+    public List<MovieTag> decodeFrame(final File file, final int frame)
+            throws DataFormatException, IOException {
+        final int first = firstTag(frame);
+        if (first == -1) {
+            throw new IllegalArgumentException("No such frame: " + frame);
+        }
+        final List<Integer> indices = new ArrayList<Integer>();
+        for (int i = first; i < count && frames[i] == frame; i++) {
+            indices.add(i);
+        }
+        return decodeTags(file, indices);
+    }
+
+    /**
+     * Decode a set of tags from the indexed movie. The movie is read once,
+     * skipping the tags that were not selected. A tag that is selected more
+     * than once is only decoded once.
+     *
+     * @param file the Flash file that was indexed.
+     * @param indices the positions in the index of the tags to decode.
+     * @return the decoded tags in the order they appear in the movie.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading or decoding the tags.
+     */
+    public List<MovieTag> decodeTags(final File file,
+            final Collection<Integer> indices)
+            throws DataFormatException, IOException {
+        return decodeTags(file, indices, registry);
+    }
+
+    /**
+     * Decode a set of tags from the indexed movie using a specified registry,
+     * for example one that keeps some types of tag raw so they can be
+     * decoded later. The movie is read once, skipping the tags that were not
+     * selected. A tag that is selected more than once is only decoded once.
+     *
+     * @param file the Flash file that was indexed.
+     * @param indices the positions in the index of the tags to decode.
+     * @param decoders the registry used to decode the tags.
+     * @return the decoded tags in the order they appear in the movie.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading or decoding the tags.
+     */
+    public List<MovieTag> decodeTags(final File file,
+            final Collection<Integer> indices, final DecoderRegistry decoders)
+            throws DataFormatException, IOException {
+        final int[] sorted = new int[indices.size()];
+        int pos = 0;
+        for (final Integer index : indices) {
+            checkIndex(index);
+            sorted[pos++] = index;
+        }
+        Arrays.sort(sorted);
+
+        pos = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[pos++] = sorted[i];
+            }
+        }
+        final int[] selected = Arrays.copyOf(sorted, pos);
+
+        final Context context = new Context();
+        context.setRegistry(decoders);
+        context.setEncoding(encoding.getEncoding());
+        context.putInt(Context.VERSION, version);
+
+        final List<MovieTag> list = new ArrayList<MovieTag>(selected.length);
+        final InputStream stream = open(file);
+
+        try {
+            int position = HEADER_LENGTH;
+            byte[] data;
+            SWFDecoder coder;
+
+            for (final int index : selected) {
+                skipFully(stream, offsets[index] - position);
+                data = new byte[lengths[index] + (extended[index]
+                        ? Coder.LONG_HEADER : Coder.SHORT_HEADER)];
+                readFully(stream, data);
+                position = offsets[index] + data.length;
+
+                coder = new SWFDecoder(ByteBuffer.wrap(data));
+                coder.setEncoding(encoding);
+                decoders.getMovieDecoder().getObject(list, coder, context);
+            }
+        } finally {
+            stream.close();
+        }
+        return list;
+    }
+
+    /**
+     * Open the indexed movie, checking that it matches the index.
+     *
+     * @param file the Flash file that was indexed.
+     * @return a stream, which decompresses the movie if required, positioned
+     * after the signature, version and length fields in the header.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading the file.
+     */
+    private InputStream open(final File file)
+            throws DataFormatException, IOException {
+        final FileInputStream fileIn = new FileInputStream(file);
+        final byte[] header = new byte[HEADER_LENGTH];
+
+        try {
+            readFully(fileIn, header);
+
+            final byte[] signature;
+            if (compression == Compression.ZLIB) {
+                signature = Movie.CWS;
+            } else if (compression == Compression.LZMA) {
+                signature = Movie.ZWS;
+            } else {
+                signature = Movie.FWS;
+            }
+            final int movieLength = ByteBuffer.wrap(header, 4, 4)
+                    .order(ByteOrder.LITTLE_ENDIAN).getInt();
+
+            if (!Arrays.equals(signature, Arrays.copyOf(header,
+                    signature.length)) || movieLength != length) {
+                throw new DataFormatException("Index does not match movie");
+            }
+
+            final InputStream stream;
+            if (compression == Compression.ZLIB) {
+                stream = new InflaterInputStream(fileIn);
+            } else if (compression == Compression.LZMA) {
+                skipFully(fileIn, LZMA_LENGTH_SIZE);
+                stream = new LZMAInputStream(fileIn, length - HEADER_LENGTH);
+            } else {
+                stream = fileIn;
+            }
+            return stream;
+        } catch (DataFormatException e) {
+            fileIn.close();
+            throw e;
+        } catch (IOException e) {
+            fileIn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the index to a file.
+     *
+     * @param file the file the index is written to.
+     * @throws IOException if an error occurs writing the file.
+     */
+    public void encodeToFile(final File file) throws IOException {
+        final OutputStream stream = new BufferedOutputStream(
+                new FileOutputStream(file));
+        try {
+            encodeToStream(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Write the index to a stream. The offsets and frame numbers are not
+     * written since they are derived from the types and lengths of the
+     * tags.
+     *
+     * @param stream the stream the index is written to.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    public void encodeToStream(final OutputStream stream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(stream);
+
+        out.write(SIGNATURE);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(version);
+        out.writeByte(compression.ordinal());
+        out.writeInt(length);
+        out.writeInt(count);
+        if (count > 0) {
+            out.writeInt(offsets[0]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            writeVarInt(out, (types[i] << 1) | (extended[i] ? 1 : 0));
+            writeVarInt(out, lengths[i]);
+            writeVarInt(out, identifiers[i] + 1);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read an index from a file.
+     *
+     * @param file the file containing the index.
+     * @throws DataFormatException if the file does not contain an index.
+     * @throws IOException if an error occurs reading the file.
+     */
+    public void decodeFromFile(final File file)
+            throws DataFormatException, IOException {
+        final InputStream stream = new BufferedInputStream(
+                new FileInputStream(file));
+        try {
+            decodeFromStream(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Read an index from a stream.
+     *
+     * @param stream the stream containing the index.
+     * @throws DataFormatException if the stream does not contain an index.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    public void decodeFromStream(final InputStream stream)
+            throws DataFormatException, IOException {
+        final DataInputStream in = new DataInputStream(stream);
+        final byte[] signature = new byte[SIGNATURE.length];
+
+        in.readFully(signature);
+        if (!Arrays.equals(SIGNATURE, signature)
+                || in.readUnsignedByte() != FORMAT_VERSION) {
+            throw new DataFormatException("Not a movie index");
+        }
+
+        clear();
+        version = in.readUnsignedByte();
+        final int ordinal = in.readUnsignedByte();
+        if (ordinal >= Compression.values().length) {
+            throw new DataFormatException("Not a movie index");
+        }
+        compression = Compression.values()[ordinal];
+        length = in.readInt();
+
+        final int size = in.readInt();
+        int offset = size > 0 ? in.readInt() : 0;
+        int frame = 0;
+        int value;
+        int bodyLength;
+        boolean isLong;
+
+        for (int i = 0; i < size; i++) {
+            value = readVarInt(in);
+            isLong = (value & 1) == 1;
+            bodyLength = readVarInt(in);
+            add(value >>> 1, offset, bodyLength, isLong, frame,
+                    readVarInt(in) - 1);
+            offset += bodyLength + (isLong ? Coder.LONG_HEADER
+                    : Coder.SHORT_HEADER);
+            if (value >>> 1 == MovieTypes.SHOW_FRAME) {
+                frame++;
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("MovieIndex: { version=%d; compression=%s;"
+                + " length=%d; tags=%d}", version, compression, length, count);
+    }
+
+    /**
+     * Remove all the entries from the index.
+     */
+    private void clear() {
+        count = 0;
+        length = 0;
+        types = new int[INITIAL_SIZE];
+        offsets = new int[INITIAL_SIZE];
+        lengths = new int[INITIAL_SIZE];
+        extended = new boolean[INITIAL_SIZE];
+        frames = new int[INITIAL_SIZE];
+        identifiers = new int[INITIAL_SIZE];
+    }
+
+    /**
+     * Add an entry to the index.
+     *
+     * @param type the type of the tag.
+     * @param offset the location of the tag.
+     * @param bodyLength the length of the body of the tag.
+     * @param isLong whether the long form of the tag header is used.
+     * @param frame the frame containing the tag.
+     * @param identifier the identifier of the object the tag defines or
+     * refers to, or -1.
+     */
+    private void add(final int type, final int offset, final int bodyLength,
+            final boolean isLong, final int frame, final int identifier) {
+        if (count == types.length) {
+            final int size = count << 1;
+            types = Arrays.copyOf(types, size);
+            offsets = Arrays.copyOf(offsets, size);
+            lengths = Arrays.copyOf(lengths, size);
+            extended = Arrays.copyOf(extended, size);
+            frames = Arrays.copyOf(frames, size);
+            identifiers = Arrays.copyOf(identifiers, size);
+        }
+        types[count] = type;
+        offsets[count] = offset;
+        lengths[count] = bodyLength;
+        extended[count] = isLong;
+        frames[count] = frame;
+        identifiers[count] = identifier;
+        count++;
+    }
+
+    /**
+     * Check that a position is in the index.
+     *
+     * @param index the position of the tag.
+     */
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    /**
+     * Does a type of tag define an object rather than refer to one.
+     *
+     * @param type the type of tag.
+     * @return true if the tag defines an object.
+     */
+    private static boolean isDefinitionType(final int type) {
+        switch (type) {
+        case MovieTypes.PLACE:
+        case MovieTypes.REMOVE:
+        case MovieTypes.FONT_INFO:
+        case MovieTypes.START_SOUND:
+        case MovieTypes.BUTTON_SOUND:
+        case MovieTypes.BUTTON_COLOR_TRANSFORM:
+        case MovieTypes.INITIALIZE:
+        case MovieTypes.VIDEO_FRAME:
+        case MovieTypes.FONT_INFO_2:
+        case MovieTypes.FONT_ALIGNMENT:
+        case MovieTypes.TEXT_SETTINGS:
+        case MovieTypes.DEFINE_SCALING_GRID:
+        case MovieTypes.FONT_NAME:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Write a variable length integer.
+     *
+     * @param out the stream to write to.
+     * @param value the unsigned value.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private static void writeVarInt(final DataOutputStream out,
+            final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~VAR_MASK) != 0) {
+            out.writeByte((remaining & VAR_MASK) | VAR_MORE);
+            remaining >>>= VAR_BITS;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Read a variable length integer.
+     *
+     * @param in the stream to read from.
+     * @return the unsigned value.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private static int readVarInt(final DataInputStream in)
+            throws IOException {
+        int value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = in.readUnsignedByte();
+            value |= (current & VAR_MASK) << shift;
+            shift += VAR_BITS;
+        } while ((current & VAR_MORE) != 0);
+        return value;
+    }
+
+    /**
+     * Read bytes from a stream until the array is full.
+     *
+     * @param stream the stream to read from.
+     * @param data the array to fill.
+     * @throws IOException if the end of the stream is reached.
+     */
+    private static void readFully(final InputStream stream, final byte[] data)
+            throws IOException {
+        int index = 0;
+        int bytesRead;
+        while (index < data.length) {
+            bytesRead = stream.read(data, index, data.length - index);
+            if (bytesRead == -1) {
+                throw new EOFException();
+            }
+            index += bytesRead;
+        }
+    }
+
+    /**
+     * Skip bytes in a stream.
+     *
+     * @param stream the stream.
+     * @param count the number of bytes to skip.
+     * @throws IOException if the end of the stream is reached.
+     */
+    private static void skipFully(final InputStream stream, final long count)
+            throws IOException {
+        long remaining = count;
+        long skipped;
+        while (remaining > 0) {
+            skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                if (stream.read() == -1) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
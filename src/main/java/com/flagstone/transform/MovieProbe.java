@@ -0,0 +1,171 @@
+/*
+ * MovieProbe.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import com.flagstone.transform.coder.DecoderRegistry;
+
+/**
+ * MovieProbe reads the header of a movie and the tags with selected types,
+ * skipping over the others without decoding them, so the information needed
+ * to describe a movie can be obtained without decoding it completely.
+ *
+ * <p>
+ * By default the Background, MovieMetaData, FrameLabel and Export tags are
+ * decoded:
+ * </p>
+ *
+ * <pre>
+ * MovieSummary summary = new MovieProbe().probe(file);
+ *
+ * summary.getHeader().getFrameRate();
+ * summary.getFrameLabels();
+ * </pre>
+ *
+ * <p>
+ * Only the header of each skipped tag is read. For uncompressed files the
+ * remainder of the tag is not read at all, however the data in compressed
+ * movies must still be decompressed.
+ * </p>
+ */
+public final class MovieProbe {
+
+    /** The types of tag decoded by default. */
+    public static final Set<Integer> DEFAULT_TYPES =
+        Collections.unmodifiableSet(new LinkedHashSet<Integer>(Arrays.asList(
+            MovieTypes.SET_BACKGROUND_COLOR, MovieTypes.METADATA,
+            MovieTypes.FRAME_LABEL, MovieTypes.EXPORT)));
+
+    /** The types of tag that are decoded. */
+    private final transient Set<Integer> types;
+    /** The registry for the different types of decoder. */
+    private final transient DecoderRegistry registry;
+    /** The character encoding used for strings. */
+    private final transient CharacterEncoding encoding;
+
+    /**
+     * Creates a MovieProbe that decodes the default types of tag.
+     */
+    public MovieProbe() {
+        this(DEFAULT_TYPES);
+    }
+
+    /**
+     * Creates a MovieProbe that decodes the specified types of tag.
+     *
+     * @param tagTypes the types of tag to decode, see MovieTypes.
+     */
+    public MovieProbe(final Set<Integer> tagTypes) {
+        this(tagTypes, DecoderRegistry.getDefault(), CharacterEncoding.UTF8);
+    }
+
+    /**
+     * Creates a MovieProbe that decodes the specified types of tag.
+     *
+     * @param tagTypes the types of tag to decode, see MovieTypes.
+     * @param decoders the registry containing the decoders for each type of
+     * object.
+     * @param enc the character encoding used for strings.
+     */
+    public MovieProbe(final Set<Integer> tagTypes,
+            final DecoderRegistry decoders, final CharacterEncoding enc) {
+        types = new LinkedHashSet<Integer>(tagTypes);
+        registry = decoders;
+        encoding = enc;
+    }
+
+    /**
+     * Get the types of tag that are decoded.
+     *
+     * @return the types of tag.
+     */
+    public Set<Integer> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Read the header and selected tags from a file.
+     *
+     * @param file the Flash file.
+     * @return the summary of the movie.
+     * @throws DataFormatException if the file does not contain Flash data.
+     * @throws IOException if an error occurs reading the file.
+     */
+    public MovieSummary probe(final File file)
+            throws DataFormatException, IOException {
+        return probe(new MovieReader(file, registry, encoding));
+    }
+
+    /**
+     * Read the header and selected tags from a stream.
+     *
+     * @param stream the stream containing the movie.
+     * @return the summary of the movie.
+     * @throws DataFormatException if the stream does not contain Flash data.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    public MovieSummary probe(final InputStream stream)
+            throws DataFormatException, IOException {
+        return probe(new MovieReader(stream, registry, encoding));
+    }
+
+    /**
+     * Read the selected tags and close the reader.
+     *
+     * @param reader the reader for the movie.
+     * @return the summary of the movie.
+     * @throws IOException if an error occurs reading the movie.
+     */
+    private MovieSummary probe(final MovieReader reader) throws IOException {
+        final List<MovieTag> tags = new ArrayList<MovieTag>();
+        MovieTag tag;
+
+        try {
+            while ((tag = reader.next(types)) != null) {
+                tags.add(tag);
+            }
+        } finally {
+            reader.close();
+        }
+        return new MovieSummary(reader.getHeader(), tags);
+    }
+}
@@ -0,0 +1,668 @@
+/*
+ * MovieReader.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderPool;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.coder.LZMAInputStream;
+import com.flagstone.transform.coder.SWFDecoder;
+import com.flagstone.transform.coder.SWFFactory;
+
+/**
+ * MovieReader decodes the tags in a Flash file one at a time so a movie can
+ * be processed without creating the list of all the objects it contains.
+ *
+ * <p>
+ * The signature and header of the file are decoded when the MovieReader is
+ * created so the MovieHeader is available before the first tag is read.
+ * Compressed files are decompressed as the tags are read. Each call to next()
+ * decodes and returns the next tag, returning null once the End tag marking
+ * the end of the movie has been read:
+ * </p>
+ *
+ * <pre>
+ * MovieReader reader = new MovieReader(file);
+ * MovieHeader header = reader.getHeader();
+ * MovieTag tag;
+ *
+ * try {
+ *     while ((tag = reader.next()) != null) {
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ */
+public final class MovieReader {
+
+    /** Length in bytes of the magic number used to identify the file type. */
+    private static final int SIGNATURE_LENGTH = 3;
+    /** Length in bytes of the signature and length fields. */
+    private static final int HEADER_LENGTH = 8;
+    /** Offset in bytes from the start of the file to the length field. */
+    private static final int LENGTH_OFFSET = 4;
+    /** Length in bytes of the compressed length field in LZMA movies. */
+    private static final int LZMA_LENGTH_SIZE = 4;
+    /** Bit mask applied to bytes when converting to unsigned integers. */
+    private static final int BYTE_MASK = 255;
+    /**
+     * The size of file above which it is mapped into memory rather than
+     * read into a buffer.
+     */
+    private static final int MAPPED_SIZE = 65536;
+    /** The largest buffer used to read compressed data. */
+    private static final int INFLATE_BUFFER_SIZE = 65536;
+    /** The smallest buffer used to read compressed data. */
+    private static final int MIN_BUFFER_SIZE = 512;
+
+    /** The stream the movie is read from, null if decoded from a buffer. */
+    private transient InputStream stream;
+    /** The decoder used to read the tags. */
+    private final transient SWFDecoder decoder;
+    /** The Context shared by the objects as they are decoded. */
+    private final transient Context context;
+    /** The factory used to decode each tag. */
+    private final transient SWFFactory<MovieTag> factory;
+    /** List used to hold each tag returned by the factory. */
+    private final transient List<MovieTag> list;
+    /** The header decoded from the start of the movie. */
+    private final transient MovieHeader header;
+    /** Whether decoding of tags is deferred. */
+    private transient boolean lazyDecoding;
+    /** Whether the End tag has been read. */
+    private transient boolean finished;
+    /** The pool the coder and Context were taken from, null if not pooled. */
+    private transient CoderPool pool;
+    /** The Inflater used to decompress the movie, null if uncompressed. */
+    private transient Inflater inflater;
+
+    /**
+     * Creates a MovieReader to decode a file using the default registry and
+     * UTF-8 as the character encoding for strings.
+     *
+     * @param file
+     *            the Flash file that will be parsed.
+     * @throws DataFormatException
+     *             - if the file does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the file.
+     */
+    public MovieReader(final File file)
+            throws DataFormatException, IOException {
+        this(file, DecoderRegistry.getDefault(), CharacterEncoding.UTF8);
+    }
+
+    /**
+     * Creates a MovieReader to decode a stream using the default registry and
+     * UTF-8 as the character encoding for strings.
+     *
+     * @param stream
+     *            an InputStream from which the objects will be decoded.
+     * @throws DataFormatException
+     *             - if the stream does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the stream.
+     */
+    public MovieReader(final InputStream stream)
+            throws DataFormatException, IOException {
+        this(stream, DecoderRegistry.getDefault(), CharacterEncoding.UTF8);
+    }
+
+    /**
+     * Creates a MovieReader to decode a file.
+     *
+     * <p>
+     * Uncompressed files are decoded directly from a buffer containing the
+     * entire file rather than being read through a stream. Large files are
+     * mapped into memory. The binary data held by the decoded tags is copied
+     * out of the mapped file so the file may be changed, for example by
+     * encoding the movie back to it, once it has been decoded.
+     * </p>
+     *
+     * @param file
+     *            the Flash file that will be parsed.
+     * @param registry
+     *            the registry containing the decoders for each type of object.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @throws DataFormatException
+     *             - if the file does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the file.
+     */
+    public MovieReader(final File file, final DecoderRegistry registry,
+            final CharacterEncoding encoding)
+            throws DataFormatException, IOException {
+        this(file, registry, encoding, null);
+    }
+
+    /**
+     * Creates a MovieReader to decode a file, taking the decoder and Context
+     * from a pool. They are returned to the pool when the reader is closed.
+     *
+     * @param file
+     *            the Flash file that will be parsed.
+     * @param registry
+     *            the registry containing the decoders for each type of object.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @param coderPool
+     *            the pool of reusable coders, or null if the objects used to
+     *            decode the movie should be allocated by the reader.
+     * @throws DataFormatException
+     *             - if the file does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the file.
+     */
+    public MovieReader(final File file, final DecoderRegistry registry,
+            final CharacterEncoding encoding, final CoderPool coderPool)
+            throws DataFormatException, IOException {
+        pool = coderPool;
+        context = newContext();
+        context.setRegistry(registry);
+        context.setEncoding(encoding.getEncoding());
+
+        final FileInputStream fileIn = new FileInputStream(file);
+        SWFDecoder coder = null;
+        boolean opened = false;
+
+        try {
+            final ByteBuffer data = readFile(fileIn);
+
+            if (data == null) {
+                coder = openStream(fileIn);
+            } else {
+                coder = openBuffer(data);
+            }
+            coder.setEncoding(encoding);
+            opened = true;
+        } finally {
+            if (!opened) {
+                release(stream == null ? fileIn : stream, coder);
+            }
+        }
+        decoder = coder;
+        factory = registry.getMovieDecoder();
+        list = new ArrayList<MovieTag>(1);
+        header = readHeader();
+    }
+
+    /**
+     * Creates a MovieReader to decode a stream.
+     *
+     * @param streamIn
+     *            an InputStream from which the objects will be decoded.
+     * @param registry
+     *            the registry containing the decoders for each type of object.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @throws DataFormatException
+     *             - if the stream does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the stream.
+     */
+    public MovieReader(final InputStream streamIn,
+            final DecoderRegistry registry, final CharacterEncoding encoding)
+            throws DataFormatException, IOException {
+        this(streamIn, registry, encoding, null);
+    }
+
+    /**
+     * Creates a MovieReader to decode a stream, taking the decoder and Context
+     * from a pool. They are returned to the pool when the reader is closed.
+     *
+     * @param streamIn
+     *            an InputStream from which the objects will be decoded.
+     * @param registry
+     *            the registry containing the decoders for each type of object.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @param coderPool
+     *            the pool of reusable coders, or null if the objects used to
+     *            decode the movie should be allocated by the reader.
+     * @throws DataFormatException
+     *             - if the stream does not contain Flash data.
+     * @throws IOException
+     *             - if an I/O error occurs while reading the stream.
+     */
+    public MovieReader(final InputStream streamIn,
+            final DecoderRegistry registry, final CharacterEncoding encoding,
+            final CoderPool coderPool)
+            throws DataFormatException, IOException {
+        pool = coderPool;
+        context = newContext();
+        context.setRegistry(registry);
+        context.setEncoding(encoding.getEncoding());
+        SWFDecoder coder = null;
+        boolean opened = false;
+
+        try {
+            coder = openStream(streamIn);
+            coder.setEncoding(encoding);
+            opened = true;
+        } finally {
+            if (!opened) {
+                release(stream == null ? streamIn : stream, coder);
+            }
+        }
+        decoder = coder;
+        factory = registry.getMovieDecoder();
+        list = new ArrayList<MovieTag>(1);
+        header = readHeader();
+    }
+
+    /**
+     * Create the Context used to decode the movie.
+     *
+     * @return a Context taken from the pool or a new Context if the reader
+     * does not use a pool.
+     */
+    private Context newContext() {
+        Context value;
+        if (pool == null) {
+            value = new Context();
+        } else {
+            value = pool.getContext();
+        }
+        return value;
+    }
+
+    /**
+     * Read the contents of an uncompressed file into a buffer.
+     *
+     * @param fileIn the stream used to read the file.
+     * @return a buffer containing the file or null if the file is compressed
+     * and must be read as a stream, in which case the stream is positioned at
+     * the start of the file.
+     * @throws IOException if an error occurs reading the file.
+     */
+    private ByteBuffer readFile(final FileInputStream fileIn)
+            throws IOException {
+        final FileChannel channel = fileIn.getChannel();
+        final long size = channel.size();
+        final ByteBuffer signature = ByteBuffer.allocate(SIGNATURE_LENGTH);
+
+        while (signature.hasRemaining() && channel.read(signature) != -1) {
+            continue;
+        }
+
+        if (!Arrays.equals(Movie.FWS, signature.array())
+                || size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+            channel.position(0);
+            return null;
+        }
+
+        ByteBuffer data;
+        try {
+            if (size < MAPPED_SIZE) {
+                data = ByteBuffer.allocate((int) size);
+                channel.position(0);
+                while (data.hasRemaining() && channel.read(data) != -1) {
+                    continue;
+                }
+                data.flip();
+            } else {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        } finally {
+            fileIn.close();
+        }
+        return data;
+    }
+
+    /**
+     * Read the signature, version and length of a movie from a stream and
+     * create the decoder used to read the remainder of the movie.
+     *
+     * @param streamIn the stream containing the movie.
+     * @return the decoder used to read the header and tags.
+     * @throws DataFormatException if the stream does not contain Flash data.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private SWFDecoder openStream(final InputStream streamIn)
+            throws DataFormatException, IOException {
+
+        final byte[] signature = new byte[SIGNATURE_LENGTH];
+        if (streamIn.read(signature) != signature.length) {
+            throw new DataFormatException("Could not read file signature");
+        }
+
+        Compression compression;
+
+        if (Arrays.equals(Movie.FWS, signature)) {
+            compression = Compression.NONE;
+        } else if (Arrays.equals(Movie.CWS, signature)) {
+            compression = Compression.ZLIB;
+        } else if (Arrays.equals(Movie.ZWS, signature)) {
+            compression = Compression.LZMA;
+        } else {
+            throw new DataFormatException();
+        }
+
+        context.putInt(Context.VERSION, streamIn.read());
+
+        int length = streamIn.read();
+        length |= streamIn.read() << Coder.ALIGN_BYTE1;
+        length |= streamIn.read() << Coder.ALIGN_BYTE2;
+        length |= streamIn.read() << Coder.ALIGN_BYTE3;
+
+        /*
+         * The compressed data is read in blocks of up to 64KB but the buffer
+         * is never larger than the uncompressed movie so decoding small
+         * movies does not allocate large buffers.
+         */
+        if (compression == Compression.ZLIB) {
+            if (pool == null) {
+                inflater = new Inflater();
+            } else {
+                inflater = pool.getInflater();
+            }
+            stream = new InflaterInputStream(streamIn, inflater,
+                    Math.max(MIN_BUFFER_SIZE,
+                            Math.min(length, INFLATE_BUFFER_SIZE)));
+        } else if (compression == Compression.LZMA) {
+            /*
+             * The length of the compressed data is not needed since the
+             * stream ends when the uncompressed length has been read.
+             */
+            for (int i = 0; i < LZMA_LENGTH_SIZE; i++) {
+                streamIn.read();
+            }
+            stream = new LZMAInputStream(streamIn, length - HEADER_LENGTH);
+        } else {
+            stream = streamIn;
+        }
+        context.putInt(Context.COMPRESSED, compression.ordinal());
+
+        /*
+         * If the file is shorter than the default buffer size then set the
+         * buffer size to be the file size - this gets around a bug in Java
+         * where the end of ZLIB streams are not detected correctly.
+         */
+        int size;
+
+        if (length < SWFDecoder.BUFFER_SIZE) {
+            size = length - HEADER_LENGTH;
+        } else {
+            size = SWFDecoder.BUFFER_SIZE;
+        }
+
+        SWFDecoder coder;
+
+        if (pool == null) {
+            coder = new SWFDecoder(stream, size);
+        } else {
+            coder = pool.getDecoder(stream, size);
+        }
+        return coder;
+    }
+
+    /**
+     * Read the version and length of an uncompressed movie from a buffer
+     * and create the decoder used to read the remainder of the movie.
+     *
+     * @param data the buffer containing the complete, uncompressed movie.
+     * @return the decoder used to read the header and tags.
+     * @throws DataFormatException if the buffer does not contain Flash data.
+     */
+    private SWFDecoder openBuffer(final ByteBuffer data)
+            throws DataFormatException {
+
+        context.putInt(Context.COMPRESSED, Compression.NONE.ordinal());
+        context.putInt(Context.VERSION, data.get(SIGNATURE_LENGTH) & BYTE_MASK);
+
+        int length = data.get(LENGTH_OFFSET) & BYTE_MASK;
+        length |= (data.get(LENGTH_OFFSET + 1) & BYTE_MASK)
+                << Coder.ALIGN_BYTE1;
+        length |= (data.get(LENGTH_OFFSET + 2) & BYTE_MASK)
+                << Coder.ALIGN_BYTE2;
+        length |= (data.get(LENGTH_OFFSET + 3) & BYTE_MASK)
+                << Coder.ALIGN_BYTE3;
+
+        if (length < HEADER_LENGTH) {
+            throw new DataFormatException("Invalid file length");
+        }
+        if (length < data.limit()) {
+            data.limit(length);
+        }
+        data.position(HEADER_LENGTH);
+
+        return new SWFDecoder(data);
+    }
+
+    /**
+     * Decode the header and close the stream if it cannot be decoded.
+     *
+     * @return the MovieHeader.
+     * @throws IOException if an error occurs decoding the header.
+     */
+    private MovieHeader readHeader() throws IOException {
+        try {
+            return new MovieHeader(decoder, context);
+        } catch (final IOException e) {
+            close();
+            throw e;
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the header decoded from the start of the movie.
+     *
+     * @return the MovieHeader containing the version, compression, frame
+     * size, frame rate and number of frames.
+     */
+    public MovieHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Get the decoder used to read the tags, so the tags can be scanned
+     * without being decoded.
+     *
+     * @return the decoder positioned at the next tag.
+     */
+    SWFDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Is decoding of tags deferred.
+     *
+     * @return true if tags are returned as EncodedTags.
+     */
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Sets whether decoding of tags is deferred. When enabled each tag, other
+     * than the ones which have no body such as ShowFrame, is returned as an
+     * EncodedTag containing the encoded data.
+     *
+     * @param lazy true if decoding of tags should be deferred, false if the
+     * tags should be decoded as they are read.
+     */
+    public void setLazyDecoding(final boolean lazy) {
+        lazyDecoding = lazy;
+    }
+
+    /**
+     * Do decoded tags keep their encoded data.
+     *
+     * @return true if tags keep the encoded data.
+     */
+    public boolean isPassThrough() {
+        return context.contains(Context.PASS_THROUGH);
+    }
+
+    /**
+     * Sets whether decoded tags keep their encoded data so they can be
+     * encoded without being serialized again if they are not changed.
+     *
+     * @param retain true if tags should keep their encoded data.
+     */
+    public void setPassThrough(final boolean retain) {
+        if (retain) {
+            context.putInt(Context.PASS_THROUGH, 1);
+        } else {
+            context.remove(Context.PASS_THROUGH);
+        }
+    }
+
+    /**
+     * Decode the next tag in the movie.
+     *
+     * @return the next tag or null if the end of the movie has been reached.
+     * @throws IOException if an error occurs while decoding the tag.
+     */
+    public MovieTag next() throws IOException {
+        if (finished) {
+            return null;
+        }
+
+        final int tagHeader = decoder.scanUnsignedShort();
+        MovieTag tag;
+
+        if (tagHeader >>> Coder.LENGTH_FIELD_SIZE == MovieTypes.END) {
+            decoder.readUnsignedShort();
+            finished = true;
+            tag = null;
+        } else if (lazyDecoding && (tagHeader & Coder.LENGTH_FIELD) != 0) {
+            tag = new EncodedTag(decoder, context);
+        } else {
+            factory.getObject(list, decoder, context);
+            tag = list.remove(0);
+        }
+        return tag;
+    }
+
+    /**
+     * Decode the next tag in the movie with one of the specified types. The
+     * tags with other types are skipped without being decoded so only the
+     * header of each tag is read.
+     *
+     * @param types the types of tag to decode, see MovieTypes.
+     * @return the next tag with one of the types or null if the end of the
+     * movie has been reached.
+     * @throws IOException if an error occurs while decoding the tag.
+     */
+    public MovieTag next(final Set<Integer> types) throws IOException {
+        int tagHeader;
+        int type;
+        int length;
+
+        while (!finished) {
+            tagHeader = decoder.scanUnsignedShort();
+            type = tagHeader >>> Coder.LENGTH_FIELD_SIZE;
+
+            if (type == MovieTypes.END || types.contains(type)) {
+                return next();
+            }
+
+            decoder.readUnsignedShort();
+            length = tagHeader & Coder.LENGTH_FIELD;
+            if (length == Coder.IS_EXTENDED) {
+                length = decoder.readInt();
+            }
+            decoder.skip(length);
+        }
+        return null;
+    }
+
+    /**
+     * Closes the stream the movie is being read from. If the reader uses a
+     * pool then the decoder and Context are returned to the pool and the
+     * reader cannot be used to read any more tags.
+     *
+     * @throws IOException if an error occurs closing the stream.
+     */
+    public void close() throws IOException {
+        release(stream, decoder);
+    }
+
+    /**
+     * Close the stream the movie is read from and return the decoder and
+     * Context to the pool. This is also used when the constructor fails so
+     * the file is not left open.
+     *
+     * @param streamIn the stream to close, null if decoding from a buffer.
+     * @param coder the decoder to return to the pool, null if it was not
+     * created.
+     * @throws IOException if an error occurs closing the stream.
+     */
+    private void release(final InputStream streamIn, final SWFDecoder coder)
+            throws IOException {
+        try {
+            if (streamIn != null) {
+                streamIn.close();
+            }
+        } finally {
+            stream = null;
+            if (inflater != null) {
+                if (pool == null) {
+                    inflater.end();
+                } else {
+                    pool.release(inflater);
+                }
+                inflater = null;
+            }
+            if (pool != null) {
+                if (coder != null) {
+                    pool.release(coder);
+                }
+                pool.release(context);
+                pool = null;
+                finished = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * MovieStreamWriter.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.flagstone.transform.coder.CoderPool;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.LZMAOutputStream;
+import com.flagstone.transform.coder.SWFEncoder;
+import com.flagstone.transform.exception.IllegalArgumentRangeException;
+import com.flagstone.transform.exception.IllegalArgumentValueException;
+
+/**
+ * MovieStreamWriter encodes a movie one tag at a time so large movies can be
+ * generated without creating the list of all the objects it contains.
+ *
+ * <p>
+ * The MovieHeader is written when the MovieStreamWriter is created and each
+ * tag is encoded as soon as it is passed to write(). When the writer is
+ * closed the End tag is added and the length of the file, which is not known
+ * until all the tags have been written, is updated in the header.
+ * </p>
+ *
+ * <p>
+ * For uncompressed movies the number of frames is also updated in the header
+ * using the number of ShowFrame tags written. For compressed movies the
+ * number of frames is part of the compressed data, which is written as the
+ * tags are encoded rather than held in memory, so it cannot be updated. The
+ * frame count must be set on the MovieHeader before the writer is created,
+ * otherwise the value in the header is written unchanged.
+ * </p>
+ *
+ * <p>
+ * The movie must be written to a File or a FileChannel rather than an
+ * OutputStream. The length of the movie and, for uncompressed movies, the
+ * number of frames are written to the header when the writer is closed
+ * using positional writes, so the target must support random access.
+ * </p>
+ *
+ * <p>
+ * The compression level and strategy, with the same values as
+ * Movie.setCompressionLevel() and Movie.setCompressionStrategy(), may be
+ * specified when the writer is created. The Deflater used for movies
+ * compressed with zlib is released when the writer is closed, returning it
+ * to the CoderPool if one was given.
+ * </p>
+ *
+ * <pre>
+ * MovieStreamWriter writer = new MovieStreamWriter(file, header);
+ *
+ * try {
+ *     writer.write(tag);
+ *     ...
+ * } finally {
+ *     writer.close();
+ * }
+ * </pre>
+ */
+public final class MovieStreamWriter {
+
+    /** Length in bytes of the signature, version and length fields. */
+    private static final int HEADER_LENGTH = 8;
+    /** Offset in bytes from the start of the file to the length field. */
+    private static final int LENGTH_OFFSET = 4;
+    /** Length in bytes of the length field. */
+    private static final int LENGTH_SIZE = 4;
+    /** Length in bytes of the frame count field. */
+    private static final int COUNT_SIZE = 2;
+    /** Length in bytes of the End tag. */
+    private static final int END_LENGTH = 2;
+    /** Length in bytes of the properties at the start of LZMA data. */
+    private static final int LZMA_PROPERTIES_SIZE = 5;
+
+    /** The file stream, null if the channel is owned by the caller. */
+    private transient FileOutputStream fileOut;
+    /** The channel the movie is written to. */
+    private final transient FileChannel channel;
+    /** The position in the channel of the start of the movie. */
+    private final transient long start;
+    /** The stream used to compress the movie, null if not using zlib. */
+    private final transient DeflaterOutputStream deflater;
+    /** The Deflater used by the compressed stream, null if not using zlib. */
+    private transient Deflater zlib;
+    /** The pool the Deflater is returned to, null if it is ended. */
+    private final transient CoderPool pool;
+    /** The stream used to compress the movie, null if not using LZMA. */
+    private final transient LZMAOutputStream lzma;
+    /** The encoder used to write the tags. */
+    private final transient SWFEncoder coder;
+    /** The Context shared by the objects as they are encoded. */
+    private final transient Context context;
+    /** Offset from the start of the movie to the frame count. */
+    private final transient int countOffset;
+    /** Whether the movie is compressed. */
+    private final transient boolean compressed;
+    /** The length of the uncompressed movie in bytes. */
+    private transient int length;
+    /** The number of frames written. */
+    private transient int frameCount;
+    /** Whether the writer has been closed. */
+    private transient boolean closed;
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a file using UTF-8 as
+     * the character encoding for strings.
+     *
+     * @param file
+     *            the Flash file that the movie will be encoded to.
+     * @param header
+     *            the MovieHeader containing the attributes of the movie.
+     * @throws IOException
+     *             - if an I/O error occurs while writing the file.
+     */
+    public MovieStreamWriter(final File file, final MovieHeader header)
+            throws IOException {
+        this(file, header, CharacterEncoding.UTF8);
+    }
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a file.
+     *
+     * @param file
+     *            the Flash file that the movie will be encoded to.
+     * @param header
+     *            the MovieHeader containing the attributes of the movie.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @throws IOException
+     *             - if an I/O error occurs while writing the file.
+     */
+    public MovieStreamWriter(final File file, final MovieHeader header,
+            final CharacterEncoding encoding) throws IOException {
+        this(file, header, encoding, Deflater.DEFAULT_COMPRESSION,
+                Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a file, specifying
+     * how the movie is compressed.
+     *
+     * @param file
+     *            the Flash file that the movie will be encoded to.
+     * @param header
+     *            the MovieHeader containing the attributes of the movie.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @param level
+     *            the compression level, in the range -1 to 9, where -1
+     *            selects the default level used by zlib or LZMA.
+     * @param strategy
+     *            the strategy used by zlib, either Deflater.DEFAULT_STRATEGY,
+     *            Deflater.FILTERED or Deflater.HUFFMAN_ONLY.
+     * @throws IOException
+     *             - if an I/O error occurs while writing the file.
+     */
+    public MovieStreamWriter(final File file, final MovieHeader header,
+            final CharacterEncoding encoding, final int level,
+            final int strategy) throws IOException {
+        this(new FileOutputStream(file), header, encoding, level, strategy);
+    }
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a file stream which
+     * will be closed when the writer is closed.
+     *
+     * @param stream the stream the movie will be encoded to.
+     * @param header the MovieHeader containing the attributes of the movie.
+     * @param encoding the character encoding used for strings.
+     * @param level the compression level.
+     * @param strategy the compression strategy.
+     * @throws IOException if an I/O error occurs while writing the file.
+     */
+    private MovieStreamWriter(final FileOutputStream stream,
+            final MovieHeader header, final CharacterEncoding encoding,
+            final int level, final int strategy) throws IOException {
+        this(stream.getChannel(), header, encoding, level, strategy, null,
+                stream);
+    }
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a channel, starting at
+     * the current position. The channel is not closed when the writer is
+     * closed.
+     *
+     * @param fileChannel
+     *            the channel that the movie will be encoded to.
+     * @param header
+     *            the MovieHeader containing the attributes of the movie.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @throws IOException
+     *             - if an I/O error occurs while writing to the channel.
+     */
+    public MovieStreamWriter(final FileChannel fileChannel,
+            final MovieHeader header, final CharacterEncoding encoding)
+            throws IOException {
+        this(fileChannel, header, encoding, Deflater.DEFAULT_COMPRESSION,
+                Deflater.DEFAULT_STRATEGY, null);
+    }
+
+    /**
+     * Creates a MovieStreamWriter to encode a movie to a channel, starting at
+     * the current position, specifying how the movie is compressed. The
+     * channel is not closed when the writer is closed.
+     *
+     * @param fileChannel
+     *            the channel that the movie will be encoded to.
+     * @param header
+     *            the MovieHeader containing the attributes of the movie.
+     * @param encoding
+     *            the character encoding used for strings.
+     * @param level
+     *            the compression level, in the range -1 to 9, where -1
+     *            selects the default level used by zlib or LZMA.
+     * @param strategy
+     *            the strategy used by zlib, either Deflater.DEFAULT_STRATEGY,
+     *            Deflater.FILTERED or Deflater.HUFFMAN_ONLY.
+     * @param coderPool
+     *            the pool the Deflater is obtained from and returned to, or
+     *            null if a new Deflater is created and ended when the writer
+     *            is closed.
+     * @throws IOException
+     *             - if an I/O error occurs while writing to the channel.
+     */
+    public MovieStreamWriter(final FileChannel fileChannel,
+            final MovieHeader header, final CharacterEncoding encoding,
+            final int level, final int strategy, final CoderPool coderPool)
+            throws IOException {
+        this(fileChannel, header, encoding, level, strategy, coderPool, null);
+    }
+
+    /**
+     * Creates a MovieStreamWriter and writes the header. If an error occurs
+     * the file stream, if any, is closed and the Deflater released before
+     * the exception is thrown.
+     *
+     * @param fileChannel the channel that the movie will be encoded to.
+     * @param header the MovieHeader containing the attributes of the movie.
+     * @param encoding the character encoding used for strings.
+     * @param level the compression level.
+     * @param strategy the compression strategy.
+     * @param coderPool the pool the Deflater is obtained from, or null.
+     * @param stream the file stream that owns the channel, or null if the
+     * channel belongs to the caller.
+     * @throws IOException if an I/O error occurs while writing the header.
+     */
+    private MovieStreamWriter(final FileChannel fileChannel,
+            final MovieHeader header, final CharacterEncoding encoding,
+            final int level, final int strategy, final CoderPool coderPool,
+            final FileOutputStream stream) throws IOException {
+        fileOut = stream;
+        pool = coderPool;
+        channel = fileChannel;
+        boolean opened = false;
+
+        try {
+            if (level < Deflater.DEFAULT_COMPRESSION
+                    || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentRangeException(
+                        Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION,
+                        level);
+            }
+            if (strategy != Deflater.DEFAULT_STRATEGY
+                    && strategy != Deflater.FILTERED
+                    && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentValueException(
+                        new int[] {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED,
+                                Deflater.HUFFMAN_ONLY}, strategy);
+            }
+            start = channel.position();
+            final Compression compression = header.getCompression();
+            compressed = compression != Compression.NONE;
+
+            context = new Context();
+            context.setEncoding(encoding.getEncoding());
+            context.putInt(Context.VERSION, header.getVersion());
+
+            final int headerLength = header.prepareToEncode(context);
+            countOffset = HEADER_LENGTH + headerLength - COUNT_SIZE;
+            length = HEADER_LENGTH + headerLength + END_LENGTH;
+
+            final ByteBuffer signature = ByteBuffer.allocate(HEADER_LENGTH);
+            if (compression == Compression.ZLIB) {
+                signature.put(Movie.CWS);
+            } else if (compression == Compression.LZMA) {
+                signature.put(Movie.ZWS);
+            } else {
+                signature.put(Movie.FWS);
+            }
+            signature.put((byte) header.getVersion());
+            signature.rewind();
+            write(signature, start);
+
+            if (compression == Compression.LZMA) {
+                channel.position(start + HEADER_LENGTH + LENGTH_SIZE);
+            } else {
+                channel.position(start + HEADER_LENGTH);
+            }
+
+            final OutputStream streamOut = Channels.newOutputStream(channel);
+
+            if (compression == Compression.ZLIB) {
+                if (pool == null) {
+                    zlib = new Deflater();
+                } else {
+                    zlib = pool.getDeflater();
+                }
+                zlib.setLevel(level);
+                zlib.setStrategy(strategy);
+                deflater = new DeflaterOutputStream(streamOut, zlib);
+                lzma = null;
+                coder = new SWFEncoder(deflater);
+            } else if (compression == Compression.LZMA) {
+                deflater = null;
+                lzma = new LZMAOutputStream(streamOut, level, -1);
+                coder = new SWFEncoder(lzma);
+            } else {
+                deflater = null;
+                lzma = null;
+                coder = new SWFEncoder(streamOut);
+            }
+            coder.setEncoding(encoding);
+            header.encode(coder, context);
+            opened = true;
+        } finally {
+            if (!opened) {
+                try {
+                    if (fileOut != null) {
+                        fileOut.close();
+                    }
+                } finally {
+                    release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of ShowFrame tags written so far.
+     *
+     * @return the number of frames.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the length of the uncompressed movie including the tags written so
+     * far and the End tag that is added when the writer is closed.
+     *
+     * @return the length of the movie in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Encode a tag.
+     *
+     * @param tag the tag that will be added to the movie.
+     * @throws IOException if an error occurs while encoding the tag.
+     */
+    public void write(final MovieTag tag) throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+        length += tag.prepareToEncode(context);
+        tag.encode(coder, context);
+
+        if (tag instanceof ShowFrame) {
+            frameCount++;
+        }
+    }
+
+    /**
+     * Writes the End tag, updates the length and, for uncompressed movies,
+     * the number of frames in the header then closes the file and releases
+     * the Deflater used to compress the movie.
+     *
+     * @throws IOException if an error occurs writing the file.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            coder.writeShort(0);
+            coder.flush();
+
+            if (deflater != null) {
+                deflater.finish();
+                deflater.flush();
+            }
+
+            final ByteBuffer field = ByteBuffer.allocate(LENGTH_SIZE);
+            field.order(ByteOrder.LITTLE_ENDIAN);
+
+            field.putInt(length);
+            field.flip();
+            write(field, start + LENGTH_OFFSET);
+
+            if (lzma != null) {
+                lzma.finish();
+                field.clear();
+                field.putInt((int) (channel.position() - start
+                        - HEADER_LENGTH - LENGTH_SIZE - LZMA_PROPERTIES_SIZE));
+                field.flip();
+                write(field, start + HEADER_LENGTH);
+            }
+
+            if (!compressed) {
+                field.clear();
+                field.putShort((short) frameCount);
+                field.flip();
+                write(field, start + countOffset);
+            }
+        } finally {
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Return the Deflater to the pool or, if there is no pool, free the
+     * memory it uses.
+     */
+    private void release() {
+        if (zlib != null) {
+            if (pool == null) {
+                zlib.end();
+            } else {
+                pool.release(zlib);
+            }
+            zlib = null;
+        }
+    }
+
+    /**
+     * Write the contents of a buffer at the specified position in the channel
+     * without changing the current position.
+     *
+     * @param data the data to write.
+     * @param position the position in the channel.
+     * @throws IOException if an error occurs writing to the channel.
+     */
+    private void write(final ByteBuffer data, final long position)
+            throws IOException {
+        long index = position;
+        while (data.hasRemaining()) {
+            index += channel.write(data, index);
+        }
+    }
+}
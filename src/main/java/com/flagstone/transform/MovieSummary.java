@@ -0,0 +1,155 @@
+/*
+ * MovieSummary.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.flagstone.transform.datatype.Color;
+
+/**
+ * MovieSummary contains the header of a movie and the tags decoded by a
+ * MovieProbe, along with methods to access the information most often used
+ * to describe a movie.
+ */
+public final class MovieSummary {
+
+    /** Format string used in toString() method. */
+    private static final String FORMAT = "MovieSummary: { header=%s;"
+            + " tags=%s}";
+
+    /** The header of the movie. */
+    private final transient MovieHeader header;
+    /** The tags decoded from the movie. */
+    private final transient List<MovieTag> tags;
+
+    /**
+     * Creates a MovieSummary.
+     *
+     * @param movieHeader the header of the movie.
+     * @param list the tags decoded from the movie.
+     */
+    MovieSummary(final MovieHeader movieHeader, final List<MovieTag> list) {
+        header = movieHeader;
+        tags = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Get the header containing the version, frame size, frame rate and
+     * number of frames.
+     *
+     * @return the header of the movie.
+     */
+    public MovieHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Get the tags decoded from the movie in the order they were read.
+     *
+     * @return the list of tags.
+     */
+    public List<MovieTag> getTags() {
+        return tags;
+    }
+
+    /**
+     * Get the background colour of the movie.
+     *
+     * @return the colour from the first Background tag or null if the movie
+     * does not contain one or it was not decoded.
+     */
+    public Color getBackground() {
+        for (final MovieTag tag : tags) {
+            if (tag instanceof Background) {
+                return ((Background) tag).getColor();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the meta-data describing the movie.
+     *
+     * @return the XML from the first MovieMetaData tag or null if the movie
+     * does not contain one or it was not decoded.
+     */
+    public String getMetaData() {
+        for (final MovieTag tag : tags) {
+            if (tag instanceof MovieMetaData) {
+                return ((MovieMetaData) tag).getMetaData();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the labels assigned to frames in the main timeline.
+     *
+     * @return the labels from the FrameLabel tags in the order they were read.
+     */
+    public List<String> getFrameLabels() {
+        final List<String> labels = new ArrayList<String>();
+        for (final MovieTag tag : tags) {
+            if (tag instanceof FrameLabel) {
+                labels.add(((FrameLabel) tag).getLabel());
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Get the names that objects are exported with.
+     *
+     * @return a table mapping the identifier of each object to the name it is
+     * exported with, combining all the Export tags.
+     */
+    public Map<Integer, String> getExports() {
+        final Map<Integer, String> exports =
+            new LinkedHashMap<Integer, String>();
+        for (final MovieTag tag : tags) {
+            if (tag instanceof Export) {
+                exports.putAll(((Export) tag).getObjects());
+            }
+        }
+        return exports;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format(FORMAT, header, tags);
+    }
+}
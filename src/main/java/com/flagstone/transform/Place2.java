@@ -253,7 +253,7 @@ public final class Place2 implements MovieTag {
     @SuppressWarnings("PMD.AssignmentInOperand")
     public Place2(final SWFDecoder coder, final Context context)
             throws IOException {
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
         length = coder.readUnsignedShort() & Coder.LENGTH_FIELD;
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
@@ -314,7 +314,7 @@ public final class Place2 implements MovieTag {
 
             coder.readUnsignedShort();
 
-            if (context.get(Context.VERSION) > STANDARD_EVENTS) {
+            if (context.getInt(Context.VERSION) > STANDARD_EVENTS) {
                 coder.readInt();
 
                 while ((event = coder.readInt()) != 0) {
@@ -672,7 +672,7 @@ public final class Place2 implements MovieTag {
 	@SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         length = 3;
         length += (type.equals(PlaceType.NEW) || type
@@ -690,7 +690,7 @@ public final class Place2 implements MovieTag {
         if (!events.isEmpty()) {
             int eventSize;
 
-            if (context.get(Context.VERSION) > STANDARD_EVENTS) {
+            if (context.getInt(Context.VERSION) > STANDARD_EVENTS) {
                 eventSize = 4;
             } else {
                 eventSize = 2;
@@ -729,7 +729,7 @@ public final class Place2 implements MovieTag {
         if (Constants.DEBUG) {
             coder.mark();
         }
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
         int bits = 0;
         bits |= events.isEmpty() ? 0 : Coder.BIT7;
         bits |= depth == null ? 0 : Coder.BIT6;
@@ -782,7 +782,7 @@ public final class Place2 implements MovieTag {
 
             coder.writeShort(0);
 
-            if (context.get(Context.VERSION) > STANDARD_EVENTS) {
+            if (context.getInt(Context.VERSION) > STANDARD_EVENTS) {
                 coder.writeInt(eventMask);
                 for (final EventHandler handler : events) {
                     handler.encode(coder, context);
@@ -188,7 +188,7 @@ public final class Place3 implements MovieTag {
     @SuppressWarnings({"PMD.AssignmentInOperand", "PMD.ExcessiveMethodLength" })
     public Place3(final SWFDecoder coder, final Context context)
             throws IOException {
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
         length = coder.readUnsignedShort() & Coder.LENGTH_FIELD;
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
@@ -728,7 +728,7 @@ public final class Place3 implements MovieTag {
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         hasBlend = blend != null;
         hasFilters = true ^ filters.isEmpty();
@@ -792,7 +792,7 @@ public final class Place3 implements MovieTag {
             coder.mark();
         }
 
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
         int bits = 0;
         bits |= events.isEmpty() ? 0 : Coder.BIT7;
         bits |= depth == null ? 0 : Coder.BIT6;
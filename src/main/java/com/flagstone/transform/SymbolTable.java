@@ -0,0 +1,837 @@
+/*
+ * SymbolTable.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.flagstone.transform.button.ButtonColorTransform;
+import com.flagstone.transform.button.ButtonShape;
+import com.flagstone.transform.button.ButtonSound;
+import com.flagstone.transform.button.DefineButton;
+import com.flagstone.transform.button.DefineButton2;
+import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.font.FontAlignment;
+import com.flagstone.transform.font.FontInfo;
+import com.flagstone.transform.font.FontInfo2;
+import com.flagstone.transform.font.FontName;
+import com.flagstone.transform.movieclip.DefineMovieClip;
+import com.flagstone.transform.movieclip.InitializeMovieClip;
+import com.flagstone.transform.shape.ShapeTag;
+import com.flagstone.transform.sound.SoundInfo;
+import com.flagstone.transform.sound.StartSound;
+import com.flagstone.transform.text.DefineTextField;
+import com.flagstone.transform.text.StaticTextTag;
+import com.flagstone.transform.text.TextSettings;
+import com.flagstone.transform.text.TextSpan;
+import com.flagstone.transform.video.VideoFrame;
+
+/**
+ * <p>
+ * SymbolTable indexes the objects in a Movie by their identifiers. For each
+ * identifier it records the tag that defines the object and the tags that
+ * refer to it, for example the Place2 tags that display it, the buttons and
+ * movie clips that contain it or the shapes that use it as a bitmap fill.
+ * </p>
+ *
+ * <p>
+ * The table for a Movie is obtained using Movie.getSymbols(). It is created
+ * the first time it is used and then updated as tags are added to and
+ * removed from the movie. Changes to the tags themselves, for example
+ * changing the identifier of a definition after it was added to the movie,
+ * are not tracked.
+ * </p>
+ *
+ * <p>
+ * Tags are indexed without changing the movie. The identifier of an object
+ * defined by an EncodedTag is read from the encoded data, as are the
+ * references from tags such as Place2, Remove or FontInfo which only refer
+ * to a single object. The references from other EncodedTags, for example
+ * shapes, buttons, text and movie clips, are found by decoding a copy of the
+ * tag which is then discarded. The references are recorded so a tag is only
+ * read once. Tags returned by getDefinition() and getReferences() are the
+ * ones returned by Movie.getObjects(), so tags shared with another movie are
+ * copied and EncodedTags are decoded only when they are returned.
+ * </p>
+ *
+ * <p>
+ * Identifiers are stored in an open addressed hash table keyed by the
+ * identifier so no Integer objects are created when the table is updated or
+ * searched. The table also records the position of each tag in the movie so
+ * a tag can be copied or decoded without searching the list of objects.
+ * </p>
+ */
+public final class SymbolTable {
+
+    /** The number of entries allocated when the table is created. */
+    private static final int INITIAL_SIZE = 64;
+    /** Value used to mark an empty entry in the table. */
+    private static final int EMPTY = -1;
+    /** Multiplier used to spread identifiers across the table. */
+    private static final int HASH = 0x9E3779B9;
+
+    /** The types of tag that define an object. */
+    private static final Set<Integer> DEFINITION_TYPES =
+        new HashSet<Integer>();
+    /** The types of tag that may refer to an object. */
+    private static final Set<Integer> REFERENCE_TYPES =
+        new HashSet<Integer>();
+    /** The types of tag where the only reference is the first field. */
+    private static final Set<Integer> LEADING_TYPES =
+        new HashSet<Integer>();
+    /** The offset of the identifier in a Place2 tag. */
+    private static final int PLACE_2_OFFSET = 3;
+    /** The minimum length of a Place2 tag that contains an identifier. */
+    private static final int PLACE_2_LENGTH = 5;
+
+    static {
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_SHAPE);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_SHAPE_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_SHAPE_3);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_SHAPE_4);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_3);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_4);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_IMAGE);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_IMAGE_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_SOUND);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_FONT);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_FONT_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_FONT_3);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_FONT_4);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_TEXT);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_TEXT_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_TEXT_FIELD);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_BUTTON);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_BUTTON_2);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_MOVIE_CLIP);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_VIDEO);
+        DEFINITION_TYPES.add(MovieTypes.DEFINE_BINARY_DATA);
+
+        REFERENCE_TYPES.add(MovieTypes.PLACE);
+        REFERENCE_TYPES.add(MovieTypes.PLACE_2);
+        REFERENCE_TYPES.add(MovieTypes.PLACE_3);
+        REFERENCE_TYPES.add(MovieTypes.REMOVE);
+        REFERENCE_TYPES.add(MovieTypes.START_SOUND);
+        REFERENCE_TYPES.add(MovieTypes.VIDEO_FRAME);
+        REFERENCE_TYPES.add(MovieTypes.INITIALIZE);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_SHAPE);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_SHAPE_2);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_SHAPE_3);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_SHAPE_4);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE_2);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_TEXT);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_TEXT_2);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_TEXT_FIELD);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_BUTTON);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_BUTTON_2);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_MOVIE_CLIP);
+        REFERENCE_TYPES.add(MovieTypes.BUTTON_SOUND);
+        REFERENCE_TYPES.add(MovieTypes.BUTTON_COLOR_TRANSFORM);
+        REFERENCE_TYPES.add(MovieTypes.FONT_INFO);
+        REFERENCE_TYPES.add(MovieTypes.FONT_INFO_2);
+        REFERENCE_TYPES.add(MovieTypes.FONT_ALIGNMENT);
+        REFERENCE_TYPES.add(MovieTypes.FONT_NAME);
+        REFERENCE_TYPES.add(MovieTypes.TEXT_SETTINGS);
+        REFERENCE_TYPES.add(MovieTypes.DEFINE_SCALING_GRID);
+        REFERENCE_TYPES.add(MovieTypes.EXPORT);
+        REFERENCE_TYPES.add(MovieTypes.SYMBOL);
+
+        LEADING_TYPES.add(MovieTypes.PLACE);
+        LEADING_TYPES.add(MovieTypes.REMOVE);
+        LEADING_TYPES.add(MovieTypes.START_SOUND);
+        LEADING_TYPES.add(MovieTypes.VIDEO_FRAME);
+        LEADING_TYPES.add(MovieTypes.INITIALIZE);
+        LEADING_TYPES.add(MovieTypes.BUTTON_COLOR_TRANSFORM);
+        LEADING_TYPES.add(MovieTypes.FONT_INFO);
+        LEADING_TYPES.add(MovieTypes.FONT_INFO_2);
+        LEADING_TYPES.add(MovieTypes.FONT_ALIGNMENT);
+        LEADING_TYPES.add(MovieTypes.FONT_NAME);
+        LEADING_TYPES.add(MovieTypes.TEXT_SETTINGS);
+        LEADING_TYPES.add(MovieTypes.DEFINE_SCALING_GRID);
+    }
+
+    /** The movie that contains the tags, used to resolve returned tags. */
+    private final transient Movie movie;
+    /** The identifiers for each entry. */
+    private transient int[] keys;
+    /** The tags that define the identifier for each entry. */
+    private transient List<?>[] definitions;
+    /** The tags that refer to the identifier for each entry. */
+    private transient List<?>[] references;
+    /** The number of entries used. */
+    private transient int used;
+    /** The number of definitions. */
+    private transient int count;
+    /** The position and references recorded for each tag in the table. */
+    private transient Map<MovieTag, Entry> entries;
+
+    /**
+     * Creates an empty SymbolTable.
+     *
+     * @param owner the movie that contains the tags added to the table.
+     */
+    SymbolTable(final Movie owner) {
+        movie = owner;
+        clear();
+    }
+
+    /**
+     * Get the number of objects defined.
+     *
+     * @return the number of definitions in the table.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Is an object with an identifier defined.
+     *
+     * @param identifier the identifier of the object.
+     * @return true if a definition was added for the identifier.
+     */
+    public boolean isDefined(final int identifier) {
+        final int index = find(identifier);
+        return keys[index] != EMPTY && !isEmpty(definitions[index]);
+    }
+
+    /**
+     * Get the tag that defines an object. If more than one tag defines the
+     * object the first one added to the table is returned.
+     *
+     * @param identifier the identifier of the object.
+     * @return the tag that defines the object or null if the object is not
+     * defined. The tag is a DefineTag unless the type is kept raw by the
+     * DecoderRegistry used to decode the movie, in which case it is an
+     * EncodedTag.
+     */
+    public MovieTag getDefinition(final int identifier) {
+        final int index = find(identifier);
+        if (keys[index] == EMPTY || isEmpty(definitions[index])) {
+            return null;
+        }
+        final List<?> list = definitions[index];
+        movie.resolve(Collections.singletonList((MovieTag) list.get(0)));
+        return (MovieTag) list.get(0);
+    }
+
+    /**
+     * Get the tags that refer to an object.
+     *
+     * @param identifier the identifier of the object.
+     * @return an unmodifiable list of the tags that refer to the object, in
+     * the order they were added to the table.
+     */
+    @SuppressWarnings("unchecked")
+    public List<MovieTag> getReferences(final int identifier) {
+        final int index = find(identifier);
+        if (keys[index] == EMPTY || references[index] == null) {
+            return Collections.emptyList();
+        }
+        final List<MovieTag> list = (List<MovieTag>) references[index];
+        movie.resolve(new ArrayList<MovieTag>(list));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Get the identifiers of all the objects defined.
+     *
+     * @return the identifiers in ascending order.
+     */
+    public int[] getIdentifiers() {
+        final int[] identifiers = new int[count];
+        int pos = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && !isEmpty(definitions[i])) {
+                identifiers[pos++] = keys[i];
+            }
+        }
+        Arrays.sort(identifiers);
+        return identifiers;
+    }
+
+    /**
+     * Add a tag to the table, recording the object it defines and the
+     * objects it refers to.
+     *
+     * @param position the position of the tag in the movie.
+     * @param tag the tag added to the movie.
+     */
+    @SuppressWarnings("unchecked")
+    void add(final int position, final MovieTag tag) {
+        final int defined = definedBy(tag);
+        final int[] identifiers = indexedReferences(tag);
+        int index;
+
+        if (defined != EMPTY || identifiers.length > 0) {
+            entries.put(tag, new Entry(position, identifiers));
+        }
+
+        if (defined != EMPTY) {
+            index = insert(defined);
+            if (definitions[index] == null) {
+                definitions[index] = new ArrayList<MovieTag>(1);
+            }
+            if (definitions[index].isEmpty()) {
+                count++;
+            }
+            ((List<MovieTag>) definitions[index]).add(tag);
+        }
+
+        for (final int identifier : identifiers) {
+            index = insert(identifier);
+            if (references[index] == null) {
+                references[index] = new ArrayList<MovieTag>();
+            }
+            final List<MovieTag> list = (List<MovieTag>) references[index];
+            if (list.isEmpty() || list.get(list.size() - 1) != tag) {
+                list.add(tag);
+            }
+        }
+    }
+
+    /**
+     * Remove a tag from the table. The references recorded when the tag was
+     * added are used so the tag is not decoded again.
+     *
+     * @param tag the tag removed from the movie.
+     */
+    void remove(final MovieTag tag) {
+        final int defined = definedBy(tag);
+        final Entry entry = entries.remove(tag);
+        int index;
+
+        if (defined != EMPTY) {
+            index = find(defined);
+            if (keys[index] != EMPTY && definitions[index] != null) {
+                final int pos = indexOf(definitions[index], tag);
+                if (pos != EMPTY) {
+                    definitions[index].remove(pos);
+                    if (definitions[index].isEmpty()) {
+                        count--;
+                    }
+                }
+            }
+        }
+
+        for (final int identifier : identifiers(entry, tag)) {
+            index = find(identifier);
+            if (keys[index] != EMPTY && references[index] != null) {
+                final int pos = indexOf(references[index], tag);
+                if (pos != EMPTY) {
+                    references[index].remove(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace a tag in the table with one that has the same definition and
+     * references, for example when a tag is decoded or copied. The position
+     * of the tag in the lists of definitions and references is unchanged.
+     *
+     * @param original the tag in the table.
+     * @param tag the tag that replaces it.
+     */
+    @SuppressWarnings("unchecked")
+    void replace(final MovieTag original, final MovieTag tag) {
+        final int defined = definedBy(tag);
+        final Entry entry = entries.remove(original);
+        int index;
+        int pos;
+
+        if (entry != null) {
+            entries.put(tag, entry);
+        }
+
+        if (defined != EMPTY) {
+            index = find(defined);
+            if (keys[index] != EMPTY && definitions[index] != null) {
+                pos = indexOf(definitions[index], original);
+                if (pos != EMPTY) {
+                    ((List<MovieTag>) definitions[index]).set(pos, tag);
+                }
+            }
+        }
+
+        for (final int identifier : identifiers(entry, original)) {
+            index = find(identifier);
+            if (keys[index] != EMPTY && references[index] != null) {
+                pos = indexOf(references[index], original);
+                if (pos != EMPTY) {
+                    ((List<MovieTag>) references[index]).set(pos, tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the positions of the tags after a tag was inserted in the movie.
+     *
+     * @param index the position of the tag inserted.
+     */
+    void inserted(final int index) {
+        for (final Entry entry : entries.values()) {
+            if (entry.position >= index) {
+                entry.position++;
+            }
+        }
+    }
+
+    /**
+     * Update the positions of the tags after a tag was deleted from the
+     * movie.
+     *
+     * @param index the position of the tag deleted.
+     */
+    void deleted(final int index) {
+        for (final Entry entry : entries.values()) {
+            if (entry.position > index) {
+                entry.position--;
+            }
+        }
+    }
+
+    /**
+     * Get the position of a tag in the movie.
+     *
+     * @param tag the tag.
+     * @return the position of the tag or -1 if the tag is not in the table.
+     */
+    int position(final MovieTag tag) {
+        final Entry entry = entries.get(tag);
+        return entry == null ? EMPTY : entry.position;
+    }
+
+    /**
+     * Remove all the entries from the table.
+     */
+    void clear() {
+        keys = new int[INITIAL_SIZE];
+        Arrays.fill(keys, EMPTY);
+        definitions = new List<?>[INITIAL_SIZE];
+        references = new List<?>[INITIAL_SIZE];
+        entries = new IdentityHashMap<MovieTag, Entry>();
+        used = 0;
+        count = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("SymbolTable: { definitions=%d}", count);
+    }
+
+    /**
+     * Find the entry for an identifier.
+     *
+     * @param identifier the identifier.
+     * @return the index of the entry for the identifier or of the empty entry
+     * where it would be added.
+     */
+    private int find(final int identifier) {
+        final int mask = keys.length - 1;
+        int index = (identifier * HASH) >>> (Integer.SIZE - bits());
+        while (keys[index] != EMPTY && keys[index] != identifier) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Get the number of bits used to index the table.
+     *
+     * @return log2 of the size of the table.
+     */
+    private int bits() {
+        return Integer.numberOfTrailingZeros(keys.length);
+    }
+
+    /**
+     * Find or add the entry for an identifier, resizing the table when it is
+     * more than half full.
+     *
+     * @param identifier the identifier.
+     * @return the index of the entry.
+     */
+    private int insert(final int identifier) {
+        int index = find(identifier);
+        if (keys[index] == EMPTY) {
+            if ((used + 1) << 1 > keys.length) {
+                resize();
+                index = find(identifier);
+            }
+            keys[index] = identifier;
+            used++;
+        }
+        return index;
+    }
+
+    /**
+     * Double the size of the table.
+     */
+    private void resize() {
+        final int[] oldKeys = keys;
+        final List<?>[] oldDefinitions = definitions;
+        final List<?>[] oldReferences = references;
+        final int size = oldKeys.length << 1;
+
+        keys = new int[size];
+        Arrays.fill(keys, EMPTY);
+        definitions = new List<?>[size];
+        references = new List<?>[size];
+
+        int index;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                definitions[index] = oldDefinitions[i];
+                references[index] = oldReferences[i];
+            }
+        }
+    }
+
+    /**
+     * Is a list of tags null or empty.
+     *
+     * @param list the list.
+     * @return true if there are no tags in the list.
+     */
+    private static boolean isEmpty(final List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    /**
+     * Find a tag in a list, comparing the tags by identity.
+     *
+     * @param list the list.
+     * @param tag the tag.
+     * @return the position of the tag in the list or -1 if it is not found.
+     */
+    private static int indexOf(final List<?> list, final MovieTag tag) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == tag) {
+                return i;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Get the identifiers of the objects referenced by a tag that is added
+     * to the table. If the tag is an EncodedTag and the only reference is
+     * the identifier at the start of the tag, or in a Place2 tag after the
+     * flags and layer, it is read from the encoded data. Otherwise a copy of
+     * the tag is decoded using the registry of the movie then discarded.
+     *
+     * @param tag the tag.
+     * @return the identifiers referenced by the tag.
+     */
+    private int[] indexedReferences(final MovieTag tag) {
+        if (tag instanceof EncodedTag) {
+            final EncodedTag encoded = (EncodedTag) tag;
+            final int type = encoded.getType();
+            if (LEADING_TYPES.contains(type) && encoded.getLength() >= 2) {
+                return new int[] {identifierAt(encoded, 0)};
+            } else if (type == MovieTypes.PLACE_2
+                    && encoded.getLength() >= PLACE_2_LENGTH) {
+                if ((encoded.getDataBuffer().get(0) & Coder.BIT1) == 0) {
+                    return new int[0];
+                }
+                return new int[] {identifierAt(encoded, PLACE_2_OFFSET)};
+            }
+        }
+        try {
+            return referencesFrom(decodeRaw(tag, movie.getRegistry()));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the identifiers recorded for a tag when it was added to the table.
+     * If nothing was recorded, for example because the same tag was added to
+     * the movie more than once, the references are found again.
+     *
+     * @param entry the entry for the tag, which may be null.
+     * @param tag the tag.
+     * @return the identifiers referenced by the tag.
+     */
+    private int[] identifiers(final Entry entry, final MovieTag tag) {
+        return entry == null ? indexedReferences(tag) : entry.identifiers;
+    }
+
+    /**
+     * Read an identifier from the encoded data of a tag.
+     *
+     * @param tag the tag.
+     * @param offset the offset of the identifier from the start of the body
+     * of the tag.
+     * @return the identifier.
+     */
+    private static int identifierAt(final EncodedTag tag, final int offset) {
+        return tag.getDataBuffer().order(ByteOrder.LITTLE_ENDIAN)
+                .getShort(offset) & Coder.USHORT_MAX;
+    }
+
+    /**
+     * Get the identifier of the object defined by a tag. If the tag is an
+     * EncodedTag the identifier is read from the encoded data without
+     * decoding the tag.
+     *
+     * @param tag the tag, which may be an EncodedTag.
+     * @return the identifier or -1 if the tag does not define an object.
+     */
+    public static int definedBy(final MovieTag tag) {
+        int identifier = EMPTY;
+        if (tag instanceof EncodedTag) {
+            final EncodedTag encoded = (EncodedTag) tag;
+            if (DEFINITION_TYPES.contains(encoded.getType())
+                    && encoded.getLength() >= 2) {
+                identifier = identifierAt(encoded, 0);
+            }
+        } else if (tag instanceof DefineTag && !(tag instanceof ScalingGrid)) {
+            identifier = ((DefineTag) tag).getIdentifier();
+        }
+        return identifier;
+    }
+
+    /**
+     * Decode an EncodedTag if it may contain references to other objects.
+     * If the registry keeps the type of tag raw the tag is decoded using a
+     * copy of the registry that does not keep any types raw.
+     *
+     * @param tag the tag.
+     * @param registry the registry used to decode the movie.
+     * @return the decoded tag if the tag is an EncodedTag which may refer to
+     * other objects, otherwise the tag itself.
+     * @throws IOException if the tag cannot be decoded.
+     */
+    public static MovieTag decodeRaw(final MovieTag tag,
+            final DecoderRegistry registry) throws IOException {
+        if (tag instanceof EncodedTag
+                && REFERENCE_TYPES.contains(((EncodedTag) tag).getType())) {
+            final EncodedTag encoded = (EncodedTag) tag;
+            DecoderRegistry decoders = registry;
+            if (registry.isRawType(encoded.getType())) {
+                decoders = registry.copy();
+                decoders.setRawTypes(Collections.<Integer>emptySet());
+            }
+            return encoded.decode(decoders);
+        }
+        return tag;
+    }
+
+    /**
+     * Get the identifiers of the objects referenced by a tag. This includes
+     * the objects displayed by Place tags, the shapes in buttons, the images
+     * used in bitmap fills, the fonts used in text, the objects in the
+     * display list of a movie clip and the objects that tags such as FontInfo
+     * or ScalingGrid add information to.
+     *
+     * @param tag the tag.
+     * @return the identifiers referenced by the tag, which may include
+     * duplicates.
+     */
+    public static int[] referencesFrom(final MovieTag tag) {
+        final Identifiers identifiers = new Identifiers();
+        references(tag, identifiers);
+        return identifiers.toArray();
+    }
+
+    /**
+     * Add the identifiers of the objects referenced by a tag.
+     *
+     * @param tag the tag.
+     * @param identifiers the list the identifiers are added to.
+     */
+    private static void references(final MovieTag tag,
+            final Identifiers identifiers) {
+        if (tag instanceof Place) {
+            identifiers.add(((Place) tag).getIdentifier());
+        } else if (tag instanceof Place2) {
+            if (((Place2) tag).getType() != PlaceType.MODIFY) {
+                identifiers.add(((Place2) tag).getIdentifier());
+            }
+        } else if (tag instanceof Place3) {
+            if (((Place3) tag).getType() != PlaceType.MODIFY) {
+                identifiers.add(((Place3) tag).getIdentifier());
+            }
+        } else if (tag instanceof Remove) {
+            identifiers.add(((Remove) tag).getIdentifier());
+        } else if (tag instanceof StartSound) {
+            identifiers.add(((StartSound) tag).getSound().getIdentifier());
+        } else if (tag instanceof VideoFrame) {
+            identifiers.add(((VideoFrame) tag).getIdentifier());
+        } else if (tag instanceof InitializeMovieClip) {
+            identifiers.add(((InitializeMovieClip) tag).getIdentifier());
+        } else if (tag instanceof ShapeTag) {
+            shapeReferences((ShapeTag) tag, identifiers);
+        } else if (tag instanceof StaticTextTag) {
+            for (final TextSpan span : ((StaticTextTag) tag).getSpans()) {
+                if (span.getIdentifier() != null) {
+                    identifiers.add(span.getIdentifier());
+                }
+            }
+        } else if (tag instanceof DefineTextField) {
+            identifiers.add(((DefineTextField) tag).getFontIdentifier());
+        } else if (tag instanceof DefineButton) {
+            for (final ButtonShape shape : ((DefineButton) tag).getShapes()) {
+                identifiers.add(shape.getIdentifier());
+            }
+        } else if (tag instanceof DefineButton2) {
+            for (final ButtonShape shape : ((DefineButton2) tag).getShapes()) {
+                identifiers.add(shape.getIdentifier());
+            }
+        } else if (tag instanceof ButtonSound) {
+            identifiers.add(((ButtonSound) tag).getIdentifier());
+            SoundInfo info;
+            for (final Event event : Event.values()) {
+                info = ((ButtonSound) tag).getSoundInfo(event);
+                if (info != null) {
+                    identifiers.add(info.getIdentifier());
+                }
+            }
+        } else if (tag instanceof DefineMovieClip) {
+            for (final MovieTag object : ((DefineMovieClip) tag)
+                    .getObjects()) {
+                references(object, identifiers);
+            }
+        } else if (tag instanceof ButtonColorTransform) {
+            identifiers.add(((ButtonColorTransform) tag).getIdentifier());
+        } else if (tag instanceof FontInfo) {
+            identifiers.add(((FontInfo) tag).getIdentifier());
+        } else if (tag instanceof FontInfo2) {
+            identifiers.add(((FontInfo2) tag).getIdentifier());
+        } else if (tag instanceof FontAlignment) {
+            identifiers.add(((FontAlignment) tag).getIdentifier());
+        } else if (tag instanceof FontName) {
+            identifiers.add(((FontName) tag).getIdentifier());
+        } else if (tag instanceof TextSettings) {
+            identifiers.add(((TextSettings) tag).getIdentifier());
+        } else if (tag instanceof ScalingGrid) {
+            identifiers.add(((ScalingGrid) tag).getIdentifier());
+        } else if (tag instanceof Export) {
+            for (final Integer identifier : ((Export) tag).getObjects()
+                    .keySet()) {
+                identifiers.add(identifier);
+            }
+        } else if (tag instanceof SymbolClass) {
+            for (final Integer identifier : ((SymbolClass) tag).getObjects()
+                    .keySet()) {
+                identifiers.add(identifier);
+            }
+        }
+    }
+
+    /**
+     * Add the identifiers of the images used in the fill styles of a shape.
+     *
+     * @param shape the shape.
+     * @param identifiers the list the identifiers are added to.
+     */
+    private static void shapeReferences(final ShapeTag shape,
+            final Identifiers identifiers) {
+        for (final Integer identifier : shape.getImages()) {
+            identifiers.add(identifier);
+        }
+    }
+
+    /**
+     * Entry records the position of a tag in the movie and the identifiers
+     * of the objects it refers to, so the tag can be found and removed
+     * without searching the movie or decoding the tag again.
+     */
+    private static final class Entry {
+        /** The position of the tag in the list of objects. */
+        private transient int position;
+        /** The identifiers of the objects referenced by the tag. */
+        private final transient int[] identifiers;
+
+        /**
+         * Create an Entry.
+         *
+         * @param index the position of the tag in the movie.
+         * @param references the identifiers referenced by the tag.
+         */
+        Entry(final int index, final int[] references) {
+            position = index;
+            identifiers = references;
+        }
+    }
+
+    /**
+     * Identifiers is a growable list of int values.
+     */
+    private static final class Identifiers {
+        /** The identifiers. */
+        private transient int[] values = new int[4];
+        /** The number of identifiers in the list. */
+        private transient int size;
+
+        /**
+         * Add an identifier to the list.
+         *
+         * @param identifier the identifier.
+         */
+        void add(final int identifier) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = identifier;
+        }
+
+        /**
+         * Get the identifiers added to the list.
+         *
+         * @return an array containing the identifiers.
+         */
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * TagList.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * TagList is a view of the list of objects in a Movie that decodes any
+ * EncodedTag objects the first time they are accessed, replacing them in the
+ * underlying list with the decoded MovieTag. Tags that the Movie shares with
+ * another movie are copied when they are accessed, including the tags
+ * returned when they are replaced or removed. Changes made through the view
+ * are reported to the Movie so its SymbolTable and the positions of any
+ * shared tags can be updated.
+ */
+final class TagList extends AbstractList<MovieTag> implements RandomAccess {
+
+    /** The movie that contains the objects. */
+    private final transient Movie movie;
+    /** The list of objects that make up the movie. */
+    private final transient List<MovieTag> objects;
+
+    /**
+     * Create a view of a list of objects.
+     *
+     * @param owner the movie that contains the list.
+     * @param list the list of objects, which may contain EncodedTags.
+     */
+    TagList(final Movie owner, final List<MovieTag> list) {
+        super();
+        movie = owner;
+        objects = list;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MovieTag get(final int index) {
+        return movie.owned(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return objects.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MovieTag set(final int index, final MovieTag tag) {
+        final MovieTag previous = movie.owned(index);
+        objects.set(index, tag);
+        movie.removed(previous);
+        movie.added(index, tag);
+        return previous;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void add(final int index, final MovieTag tag) {
+        modCount++;
+        objects.add(index, tag);
+        movie.inserted(index);
+        movie.added(index, tag);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MovieTag remove(final int index) {
+        modCount++;
+        final MovieTag tag = movie.owned(index);
+        objects.remove(index);
+        movie.deleted(index);
+        movie.removed(tag);
+        return tag;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        modCount++;
+        objects.clear();
+        movie.cleared();
+    }
+}
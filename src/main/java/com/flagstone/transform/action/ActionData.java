@@ -32,6 +32,7 @@
 package com.flagstone.transform.action;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.coder.Context;
@@ -55,7 +56,7 @@ public final class ActionData implements Action {
     private static final String FORMAT = "ActionData: { data=byte<%d> ...}";
 
     /** Encoded actions. */
-    private final transient byte[] data;
+    private final transient ByteBuffer data;
 
     /**
      * Creates an ActionData object initialised with a set of encoded actions.
@@ -64,7 +65,7 @@ public final class ActionData implements Action {
      *            the encoded actions. Must not be null or empty.
      */
     public ActionData(final byte[] bytes) {
-        data = Arrays.copyOf(bytes, bytes.length);
+        data = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
     }
 
     /**
@@ -83,7 +84,18 @@ public final class ActionData implements Action {
      * @return a copy of the encoded actions.
      */
     public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the encoded data. The data is not copied.
+     *
+     * @return a read-only buffer containing the encoded data.
+     */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyBuffer();
     }
 
     /** {@inheritDoc} */
@@ -94,12 +106,12 @@ public final class ActionData implements Action {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, data.length);
+        return String.format(FORMAT, data.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
-        return data.length;
+        return data.remaining();
     }
 
     /** {@inheritDoc} */
@@ -241,7 +241,8 @@ public final class Push implements Action {
                 valuesLength -= 1 + context.strlen(str);
                 break;
             case TYPE_PROPERTY:
-                if (context.get(Context.VERSION) < Property.VERSION_WITH_INTS) {
+                if (context.getInt(Context.VERSION)
+                        < Property.VERSION_WITH_INTS) {
                     values.add(new Property(
                             (int) Float.intBitsToFloat(coder.readInt())));
                 } else {
@@ -394,7 +395,7 @@ public final class Push implements Action {
             } else if (obj instanceof Property) {
                 coder.writeByte(TYPE_PROPERTY);
                 coder.writeInt(((Property) obj).getValue(
-                        context.get(Context.VERSION)));
+                        context.getInt(Context.VERSION)));
             } else if (obj instanceof Double) {
                 coder.writeByte(TYPE_DOUBLE);
                 final long longValue = Double.doubleToLongBits(
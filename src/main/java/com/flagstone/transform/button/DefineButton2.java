@@ -116,8 +116,8 @@ public final class DefineButton2 implements DefineTag {
 
     public DefineButton2(final SWFDecoder coder, final Context context)
             throws IOException {
-        context.put(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
+        context.putInt(Context.TRANSPARENT, 1);
 
         length = coder.readUnsignedShort() & Coder.LENGTH_FIELD;
         if (length == Coder.IS_EXTENDED) {
@@ -142,7 +142,7 @@ public final class DefineButton2 implements DefineTag {
             int size;
 
             if (type == 1) {
-                context.put(Context.MENU_BUTTON, 1);
+                context.putInt(Context.MENU_BUTTON, 1);
             }
 
             do {
@@ -349,8 +349,8 @@ public final class DefineButton2 implements DefineTag {
     @Override
 	public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF - Fixed length when encoded.
-        context.put(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
+        context.putInt(Context.TRANSPARENT, 1);
 
         length = 6;
 
@@ -368,13 +368,13 @@ public final class DefineButton2 implements DefineTag {
         final int count = events.size();
 
         if (type == 1) {
-            context.put(Context.MENU_BUTTON, 1);
+            context.putInt(Context.MENU_BUTTON, 1);
         }
 
         for (int i = 0; i < count; i++) {
             handler = events.get(i);
             if (i == count - 1) {
-                context.put(Context.LAST, 1);
+                context.putInt(Context.LAST, 1);
             }
             length += handler.prepareToEncode(context);
         }
@@ -394,8 +394,8 @@ public final class DefineButton2 implements DefineTag {
 	public void encode(final SWFEncoder coder, final Context context)
             throws IOException {
 
-        context.put(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_BUTTON_2);
+        context.putInt(Context.TRANSPARENT, 1);
 
         if (length > Coder.HEADER_LIMIT) {
             coder.writeShort((MovieTypes.DEFINE_BUTTON_2
@@ -418,7 +418,7 @@ public final class DefineButton2 implements DefineTag {
         coder.writeByte(0);
 
         if (type == 1) {
-            context.put(Context.MENU_BUTTON, 1);
+            context.putInt(Context.MENU_BUTTON, 1);
         }
 
         for (final EventHandler handler : events) {
@@ -33,7 +33,6 @@ package com.flagstone.transform.coder;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Stack;
 
 /**
  * BigDecoder wraps an InputStream with a buffer to reduce the amount of
@@ -68,7 +67,7 @@ public final class BigDecoder {
     /** The buffer for data read from the stream. */
     private final transient byte[] buffer;
     /** Stack for storing file locations. */
-    private final transient Stack<Integer>locations;
+    private final transient LocationStack locations;
     /** The position of the buffer relative to the start of the stream. */
     private transient int pos;
     /** The position from the start of the buffer. */
@@ -88,7 +87,7 @@ public final class BigDecoder {
     public BigDecoder(final InputStream streamIn, final int length) {
         stream = streamIn;
         buffer = new byte[length];
-        locations = new Stack<Integer>();
+        locations = new LocationStack();
     }
 
     /**
@@ -100,7 +99,7 @@ public final class BigDecoder {
     public BigDecoder(final InputStream streamIn) {
         stream = streamIn;
         buffer = new byte[BUFFER_SIZE];
-        locations = new Stack<Integer>();
+        locations = new LocationStack();
     }
 
     /**
@@ -0,0 +1,275 @@
+/*
+ * CoderPool.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CoderPool keeps the decoders, encoders, Contexts and the objects used to
+ * compress and decompress data so they can be reused when a large number of
+ * movies are decoded or encoded, rather than being allocated for each movie.
+ *
+ * <p>
+ * Each thread has its own cache which holds at most one object of each type,
+ * so no locks are taken. Objects are returned to the cache of the thread that
+ * releases them. Coders whose buffers have grown larger than the maximum size
+ * set when the pool was created are discarded rather than retained.
+ * </p>
+ *
+ * <p>
+ * An object must not be used after it has been released.
+ * </p>
+ */
+public final class CoderPool {
+    /** The default maximum number of bytes retained by each coder. */
+    public static final int DEFAULT_SIZE = 65536;
+
+    /** The maximum number of bytes retained by each coder. */
+    private final transient int maxSize;
+    /** The cache for each thread. */
+    private final transient ThreadLocal<Cache> caches;
+
+    /**
+     * Creates a CoderPool which retains coders with buffers up to the default
+     * size.
+     */
+    public CoderPool() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a CoderPool which retains coders with buffers up to the
+     * specified size.
+     *
+     * @param size the maximum number of bytes in the buffers of a coder that
+     * is returned to the pool.
+     */
+    public CoderPool(final int size) {
+        maxSize = size;
+        caches = new ThreadLocal<Cache>() {
+            @Override
+            protected Cache initialValue() {
+                return new Cache();
+            }
+        };
+    }
+
+    /**
+     * Get a decoder to read from a stream.
+     *
+     * @param stream the stream from which data will be read.
+     * @param length the size in bytes of the buffer.
+     * @return a decoder, reused if one is available.
+     */
+    public SWFDecoder getDecoder(final InputStream stream, final int length) {
+        final Cache cache = caches.get();
+        SWFDecoder decoder = cache.decoder;
+
+        if (decoder == null) {
+            decoder = new SWFDecoder(stream, length);
+        } else {
+            cache.decoder = null;
+            decoder.init(stream, length);
+        }
+        return decoder;
+    }
+
+    /**
+     * Return a decoder to the pool. Decoders which were not reading from a
+     * stream are discarded.
+     *
+     * @param decoder the decoder which is no longer used.
+     */
+    public void release(final SWFDecoder decoder) {
+        final int size = decoder.release();
+        if (size >= 0 && size <= maxSize) {
+            caches.get().decoder = decoder;
+        }
+    }
+
+    /**
+     * Get an encoder to write to a stream.
+     *
+     * @param stream the stream to which data will be written.
+     * @return an encoder, reused if one is available.
+     */
+    public SWFEncoder getEncoder(final OutputStream stream) {
+        final Cache cache = caches.get();
+        SWFEncoder encoder = cache.encoder;
+
+        if (encoder == null) {
+            encoder = new SWFEncoder(stream);
+        } else {
+            cache.encoder = null;
+            encoder.init(stream);
+        }
+        return encoder;
+    }
+
+    /**
+     * Return an encoder to the pool.
+     *
+     * @param encoder the encoder which is no longer used.
+     */
+    public void release(final SWFEncoder encoder) {
+        if (encoder.release() <= maxSize) {
+            caches.get().encoder = encoder;
+        }
+    }
+
+    /**
+     * Get an empty Context.
+     *
+     * @return a Context with no variables set, reused if one is available.
+     */
+    public Context getContext() {
+        final Cache cache = caches.get();
+        Context context = cache.context;
+
+        if (context == null) {
+            context = new Context();
+        } else {
+            cache.context = null;
+        }
+        return context;
+    }
+
+    /**
+     * Return a Context to the pool.
+     *
+     * @param context the Context which is no longer used.
+     */
+    public void release(final Context context) {
+        context.clear();
+        caches.get().context = context;
+    }
+
+    /**
+     * Get an Inflater used to decompress movies.
+     *
+     * @return an Inflater, reused if one is available.
+     */
+    public Inflater getInflater() {
+        final Cache cache = caches.get();
+        Inflater inflater = cache.inflater;
+
+        if (inflater == null) {
+            inflater = new Inflater();
+        } else {
+            cache.inflater = null;
+        }
+        return inflater;
+    }
+
+    /**
+     * Return an Inflater to the pool. If the pool already holds an Inflater
+     * for the current thread then the Inflater is closed.
+     *
+     * @param inflater the Inflater which is no longer used.
+     */
+    public void release(final Inflater inflater) {
+        final Cache cache = caches.get();
+        if (cache.inflater == null) {
+            inflater.reset();
+            cache.inflater = inflater;
+        } else {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Get a Deflater used to compress movies.
+     *
+     * @return a Deflater, reused if one is available.
+     */
+    public Deflater getDeflater() {
+        final Cache cache = caches.get();
+        Deflater deflater = cache.deflater;
+
+        if (deflater == null) {
+            deflater = new Deflater();
+        } else {
+            cache.deflater = null;
+        }
+        return deflater;
+    }
+
+    /**
+     * Return a Deflater to the pool. If the pool already holds a Deflater
+     * for the current thread then the Deflater is closed.
+     *
+     * @param deflater the Deflater which is no longer used.
+     */
+    public void release(final Deflater deflater) {
+        final Cache cache = caches.get();
+        if (cache.deflater == null) {
+            deflater.reset();
+            cache.deflater = deflater;
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Discard the objects held for the current thread, closing the Inflater
+     * and Deflater so the memory they use is freed immediately.
+     */
+    public void clear() {
+        final Cache cache = caches.get();
+        if (cache.inflater != null) {
+            cache.inflater.end();
+        }
+        if (cache.deflater != null) {
+            cache.deflater.end();
+        }
+        caches.remove();
+    }
+
+    /**
+     * Cache holds the objects available for reuse by a single thread.
+     */
+    private static final class Cache {
+        /** The decoder available for reuse. */
+        private transient SWFDecoder decoder;
+        /** The encoder available for reuse. */
+        private transient SWFEncoder encoder;
+        /** The Context available for reuse. */
+        private transient Context context;
+        /** The Inflater available for reuse. */
+        private transient Inflater inflater;
+        /** The Deflater available for reuse. */
+        private transient Deflater deflater;
+    }
+}
@@ -31,9 +31,9 @@
 
 package com.flagstone.transform.coder;
 
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -70,24 +70,38 @@ public class Context {
     public static final int SHAPE_SIZE = 15;
     /** Indicates that this is the last EventHandler to be encoded/decoded. */
     public static final int LAST = 16;
-    /** Indicates the flash file is compressed. */
+    /**
+     * Indicates how the flash file is compressed, using the ordinal of the
+     * Compression, 0 for uncompressed, 1 for zlib and 2 for LZMA.
+     */
     public static final int COMPRESSED = 17;
     /** Indicates a definition is for menu button. */
     public static final int MENU_BUTTON = 18;
+    /** Decoded objects keep their encoded data to write if not changed. */
+    public static final int PASS_THROUGH = 19;
 
     /** The character encoding used for strings. */
     private String encoding;
+    /** The coder used to calculate the length of strings. */
+    private transient StringCoder strings;
     /** The registry containing the objects that perform the decoding. */
     private DecoderRegistry registry;
-    /** A table of variables used to pass information between objects. */
-    private final transient Map<Integer, Integer> variables;
+    /** The number of variables that are stored in an array. */
+    private static final int SIZE = 32;
+
+    /** The values of the variables used to pass information between objects. */
+    private final transient int[] values;
+    /** Bit set indicating which of the variables in the array are set. */
+    private transient int present;
+    /** A table for any variables with keys outside the range of the array. */
+    private transient Map<Integer, Integer> variables;
 
     /**
      * Create a Context object.
      */
     public Context() {
         encoding = CharacterEncoding.UTF8.toString();
-        variables = new LinkedHashMap<Integer, Integer>();
+        values = new int[SIZE];
     }
 
     /**
@@ -115,6 +129,7 @@ public class Context {
             throw new UnsupportedCharsetException(charSet);
         }
         encoding = charSet;
+        strings = null;
     }
 
     /**
@@ -129,11 +144,10 @@ public class Context {
      */
 
     public final int strlen(final String string) {
-        try {
-            return string.getBytes(encoding).length + 1;
-        } catch (final UnsupportedEncodingException e) {
-            throw new AssertionError(e);
+        if (strings == null) {
+            strings = new StringCoder(encoding);
         }
+        return strings.length(string) + 1;
     }
 
     /**
@@ -157,8 +171,26 @@ public class Context {
      * @param key the name of the variable.
      * @return true if the variable is set, false if not.
      */
-    public final boolean contains(final Integer key) {
-        return variables.containsKey(key);
+    public final boolean contains(final int key) {
+        if (key >= 0 && key < SIZE) {
+            return (present & (1 << key)) != 0;
+        }
+        return variables != null && variables.containsKey(key);
+    }
+
+    /**
+     * Delete all the context variables and restore the default character
+     * encoding so the Context can be reused.
+     */
+    public final void clear() {
+        Arrays.fill(values, 0);
+        present = 0;
+        variables = null;
+        registry = null;
+        if (!CharacterEncoding.UTF8.toString().equals(encoding)) {
+            encoding = CharacterEncoding.UTF8.toString();
+            strings = null;
+        }
     }
 
     /**
@@ -166,27 +198,70 @@ public class Context {
      *
      * @param key the identifier for the variable.
      */
-    public final void remove(final Integer key) {
-        variables.remove(key);
+    public final void remove(final int key) {
+        if (key >= 0 && key < SIZE) {
+            present &= ~(1 << key);
+            values[key] = 0;
+        } else if (variables != null) {
+            variables.remove(key);
+        }
     }
 
     /**
      * Get the value of a variable.
      * @param key the name of the variable.
-     * @return the variable value.
+     * @return the variable value or null if the variable is not set.
      */
     public final Integer get(final Integer key) {
-        return variables.get(key);
+        Integer value;
+        if (key >= 0 && key < SIZE) {
+            value = contains(key) ? Integer.valueOf(values[key]) : null;
+        } else if (variables == null) {
+            value = null;
+        } else {
+            value = variables.get(key);
+        }
+        return value;
     }
 
     /**
      * Set a variable.
      * @param key the name of the variable.
-     * @param value the variable value.
+     * @param value the variable value, or null to delete the variable.
      * @return this object.
      */
     public final Context put(final Integer key, final Integer value) {
-        variables.put(key, value);
+        if (value == null) {
+            remove(key);
+        } else if (key >= 0 && key < SIZE) {
+            putInt(key, value);
+        } else {
+            if (variables == null) {
+                variables = new LinkedHashMap<Integer, Integer>();
+            }
+            variables.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Get the value of a variable without converting it to an object.
+     * @param key the name of the variable, in the range 0..31.
+     * @return the variable value or zero if the variable is not set.
+     */
+    public final int getInt(final int key) {
+        return values[key];
+    }
+
+    /**
+     * Set a variable without converting it to an object.
+     * @param key the name of the variable, in the range 0..31.
+     * @param value the variable value.
+     * @return this object.
+     */
+    public final Context putInt(final int key, final int value) {
+        values[key] = value;
+        present |= 1 << key;
         return this;
     }
 }
@@ -31,6 +31,10 @@
 
 package com.flagstone.transform.coder;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import com.flagstone.transform.MovieDecoder;
 import com.flagstone.transform.MovieTag;
 import com.flagstone.transform.action.Action;
@@ -94,6 +98,8 @@ public final class DecoderRegistry implements Copyable<DecoderRegistry> {
     private transient SWFFactory<Action> actionDecoder;
     /** The decoder for movie objects. */
     private transient SWFFactory<MovieTag> movieDecoder;
+    /** The types of movie object that are not decoded. */
+    private transient Set<Integer> rawTypes = Collections.emptySet();
 
     /**
      * Creates a DecoderRegistry with no decoders yet registered.
@@ -115,6 +121,7 @@ public final class DecoderRegistry implements Copyable<DecoderRegistry> {
         shapeDecoder = registry.shapeDecoder;
         actionDecoder = registry.actionDecoder;
         movieDecoder = registry.movieDecoder;
+        rawTypes = registry.rawTypes;
     }
 
     /** {@inheritDoc} */
@@ -225,4 +232,34 @@ public final class DecoderRegistry implements Copyable<DecoderRegistry> {
     public void setMovieDecoder(final SWFFactory<MovieTag> factory) {
         movieDecoder = factory;
     }
+
+    /**
+     * Get the types of movie object that are kept as raw, encoded data rather
+     * than being decoded.
+     * @return the set of types, see MovieTypes.
+     */
+    public Set<Integer> getRawTypes() {
+        return rawTypes;
+    }
+
+    /**
+     * Set the types of movie object that are kept as raw, encoded data rather
+     * than being decoded. Each tag with one of the types is decoded as an
+     * EncodedTag which is encoded using the original bytes, so tags that are
+     * never changed do not need to be decoded or encoded.
+     * @param types the set of types, see MovieTypes.
+     */
+    public void setRawTypes(final Set<Integer> types) {
+        rawTypes = Collections.unmodifiableSet(
+                new LinkedHashSet<Integer>(types));
+    }
+
+    /**
+     * Is a type of movie object kept as raw, encoded data.
+     * @param type the type of the object, see MovieTypes.
+     * @return true if objects with the type are not decoded.
+     */
+    public boolean isRawType(final int type) {
+        return !rawTypes.isEmpty() && rawTypes.contains(type);
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * LZMACoder.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.util.Arrays;
+
+/**
+ * LZMACoder contains the probability model and state shared by the LZMA
+ * decoder and encoder used to read and write movies compressed using LZMA
+ * (ZWS). Each decision made while coding a stream is coded as a bit using
+ * an adaptive probability. The arrays of probabilities and the layout of the
+ * bit trees follow the LZMA format so the streams can be read by any LZMA
+ * decoder.
+ */
+abstract class LZMACoder {
+    /** The number of bits of the previous byte used to select literals. */
+    static final int LITERAL_CONTEXT_BITS = 3;
+    /** The number of bits of the position used to select literals. */
+    static final int LITERAL_POS_BITS = 0;
+    /** The number of bits of the position used to select states. */
+    static final int POS_BITS = 2;
+    /** The number of bytes used to encode the properties of a stream. */
+    static final int PROPERTIES_SIZE = 5;
+
+    /** The shortest match that can be encoded. */
+    static final int MATCH_LEN_MIN = 2;
+    /** The longest match that can be encoded. */
+    static final int MATCH_LEN_MAX = 273;
+    /** The number of distances repeated from previous matches. */
+    static final int REPS = 4;
+
+    /** Number of bits used to represent probabilities. */
+    static final int PROB_BITS = 11;
+    /** The value representing a probability of one. */
+    static final int PROB_ONE = 1 << PROB_BITS;
+    /** The initial probability, one half. */
+    static final short PROB_INIT = (short) (PROB_ONE >>> 1);
+    /** The shift used to adapt the probabilities. */
+    static final int MOVE_BITS = 5;
+    /** The range is normalized when it is less than this value. */
+    static final int TOP_VALUE = 1 << 24;
+
+    /** The number of states. */
+    static final int STATES = 12;
+    /** The first state after a match has been coded. */
+    static final int LIT_STATES = 7;
+    /** The maximum number of position states. */
+    static final int POS_STATES_MAX = 16;
+    /** The number of bits used to code a length of up to 10. */
+    static final int LEN_LOW_BITS = 3;
+    /** The number of bits used to code a length of up to 18. */
+    static final int LEN_MID_BITS = 3;
+    /** The number of bits used to code the longer lengths. */
+    static final int LEN_HIGH_BITS = 8;
+    /** The number of lengths coded using the low bit trees. */
+    static final int LEN_LOW_SYMBOLS = 1 << LEN_LOW_BITS;
+    /** The number of lengths coded using the mid bit trees. */
+    static final int LEN_MID_SYMBOLS = 1 << LEN_MID_BITS;
+    /** Index of the second choice in the length probabilities. */
+    static final int LEN_CHOICE2 = 1;
+    /** Index of the low bit trees in the length probabilities. */
+    static final int LEN_LOW = 2;
+    /** Index of the mid bit trees in the length probabilities. */
+    static final int LEN_MID = LEN_LOW + (POS_STATES_MAX << LEN_LOW_BITS);
+    /** Index of the high bit tree in the length probabilities. */
+    static final int LEN_HIGH = LEN_MID + (POS_STATES_MAX << LEN_MID_BITS);
+    /** The size of the length probabilities. */
+    static final int LEN_SIZE = LEN_HIGH + (1 << LEN_HIGH_BITS);
+
+    /** The number of length states used to code distances. */
+    static final int DIST_STATES = 4;
+    /** The number of bits in the slot that selects the range of distance. */
+    static final int SLOT_BITS = 6;
+    /** The first slot with distances coded using extra bits. */
+    static final int START_POS_MODEL = 4;
+    /** The first slot which uses direct bits and the align bits. */
+    static final int END_POS_MODEL = 14;
+    /** The number of distances coded using the slot probabilities. */
+    static final int FULL_DISTANCES = 1 << (END_POS_MODEL >>> 1);
+    /** The number of low bits in long distances coded with probabilities. */
+    static final int ALIGN_BITS = 4;
+    /** Mask used to get the align bits. */
+    static final int ALIGN_MASK = (1 << ALIGN_BITS) - 1;
+
+    /** The number of probabilities used to code each literal. */
+    static final int LITERAL_SIZE = 0x300;
+    /** The value added to a literal to mark the end of the bit tree. */
+    static final int LITERAL_END = 0x100;
+
+    /** The number of bits of the previous byte used to select literals. */
+    protected final transient int lc;
+    /** Mask applied to the position to select literals. */
+    protected final transient int lpMask;
+    /** Mask applied to the position to select the position state. */
+    protected final transient int posMask;
+
+    /** Whether the next symbol is a match. */
+    protected final transient short[] isMatch =
+        new short[STATES * POS_STATES_MAX];
+    /** Whether a match uses a repeated distance. */
+    protected final transient short[] isRep = new short[STATES];
+    /** Whether a repeated match uses the last distance. */
+    protected final transient short[] isRepG0 = new short[STATES];
+    /** Whether a repeated match uses the second last distance. */
+    protected final transient short[] isRepG1 = new short[STATES];
+    /** Whether a repeated match uses the third last distance. */
+    protected final transient short[] isRepG2 = new short[STATES];
+    /** Whether a repeated match is longer than one byte. */
+    protected final transient short[] isRep0Long =
+        new short[STATES * POS_STATES_MAX];
+    /** The bit trees for the slots used to code distances. */
+    protected final transient short[] distSlots =
+        new short[DIST_STATES << SLOT_BITS];
+    /** The reverse bit trees for the low bits of short distances. */
+    protected final transient short[] distSpecial =
+        new short[FULL_DISTANCES - END_POS_MODEL];
+    /** The reverse bit tree for the lowest bits of long distances. */
+    protected final transient short[] distAlign = new short[1 << ALIGN_BITS];
+    /** The probabilities used to code match lengths. */
+    protected final transient short[] matchLen = new short[LEN_SIZE];
+    /** The probabilities used to code repeated match lengths. */
+    protected final transient short[] repLen = new short[LEN_SIZE];
+    /** The bit trees used to code literals. */
+    protected final transient short[] literals;
+
+    /** The current state. */
+    protected transient int state;
+    /** The last four distances used, less one. */
+    protected final transient int[] reps = new int[REPS];
+
+    /**
+     * Create the model for a stream.
+     *
+     * @param literalContext the number of bits of the previous byte used to
+     * select the probabilities for literals.
+     * @param literalPos the number of bits of the position used to select the
+     * probabilities for literals.
+     * @param pos the number of bits of the position used to select the
+     * position state.
+     */
+    LZMACoder(final int literalContext, final int literalPos, final int pos) {
+        lc = literalContext;
+        lpMask = (1 << literalPos) - 1;
+        posMask = (1 << pos) - 1;
+        literals = new short[LITERAL_SIZE << (literalContext + literalPos)];
+
+        Arrays.fill(isMatch, PROB_INIT);
+        Arrays.fill(isRep, PROB_INIT);
+        Arrays.fill(isRepG0, PROB_INIT);
+        Arrays.fill(isRepG1, PROB_INIT);
+        Arrays.fill(isRepG2, PROB_INIT);
+        Arrays.fill(isRep0Long, PROB_INIT);
+        Arrays.fill(distSlots, PROB_INIT);
+        Arrays.fill(distSpecial, PROB_INIT);
+        Arrays.fill(distAlign, PROB_INIT);
+        Arrays.fill(matchLen, PROB_INIT);
+        Arrays.fill(repLen, PROB_INIT);
+        Arrays.fill(literals, PROB_INIT);
+    }
+
+    /**
+     * Get the index of the probabilities used to code a literal.
+     *
+     * @param pos the position of the literal in the uncompressed data.
+     * @param prevByte the previous byte in the uncompressed data.
+     * @return the index of the first probability for the literal.
+     */
+    protected final int literalIndex(final long pos, final int prevByte) {
+        return ((((int) pos & lpMask) << lc)
+                + ((prevByte & 0xFF) >>> (8 - lc))) * LITERAL_SIZE;
+    }
+
+    /**
+     * Get the state used to select the bit tree for a distance.
+     *
+     * @param len the length of the match less the minimum length.
+     * @return the state.
+     */
+    protected static int distState(final int len) {
+        return len < DIST_STATES ? len : DIST_STATES - 1;
+    }
+
+    /** Update the state after a literal. */
+    protected final void literalCoded() {
+        if (state < 4) {
+            state = 0;
+        } else if (state < 10) {
+            state -= 3;
+        } else {
+            state -= 6;
+        }
+    }
+
+    /** Update the state after a match. */
+    protected final void matchCoded() {
+        state = state < LIT_STATES ? 7 : 10;
+    }
+
+    /** Update the state after a match using a repeated distance. */
+    protected final void repCoded() {
+        state = state < LIT_STATES ? 8 : 11;
+    }
+
+    /** Update the state after a single byte repeated from the last match. */
+    protected final void shortRepCoded() {
+        state = state < LIT_STATES ? 9 : 11;
+    }
+}
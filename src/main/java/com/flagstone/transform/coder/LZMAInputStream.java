@@ -0,0 +1,547 @@
+/*
+ * LZMAInputStream.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * LZMAInputStream decompresses data compressed using LZMA, as found in
+ * movies with the ZWS signature. The stream starts with the five bytes that
+ * contain the properties used to compress the data. The number of bytes of
+ * uncompressed data must be known in advance since the compressed data does
+ * not contain it, however an end marker is also recognised. The compressed
+ * data is read in blocks so the underlying stream may be read beyond the end
+ * of the compressed data.
+ */
+public final class LZMAInputStream extends InputStream {
+    /** The number of bytes used to initialise the range decoder. */
+    private static final int INIT_SIZE = 5;
+    /** Bit mask applied to bytes when converting to unsigned integers. */
+    private static final int BYTE_MASK = 255;
+    /** Number of bits to shift when normalizing the range. */
+    private static final int BYTE_SHIFT = 8;
+    /** The largest value for the literal, position and state bits. */
+    private static final int PROPERTIES_MAX = 9 * 5 * 5;
+    /** The number of values for the literal context bits. */
+    private static final int LC_VALUES = 9;
+    /** The number of values for the literal position bits. */
+    private static final int LP_VALUES = 5;
+    /** The smallest window allocated. */
+    private static final int MIN_WINDOW = 4096;
+    /** The size of the buffer for compressed data. */
+    private static final int INPUT_SIZE = 4096;
+
+    /** The stream the compressed data is read from. */
+    private transient InputStream stream;
+    /** The model and state. */
+    private final transient Model model;
+    /** The window containing the most recent uncompressed data. */
+    private final transient byte[] window;
+    /** The index in the window where the next byte will be written. */
+    private transient int windowPos;
+    /** Whether the window has been filled at least once. */
+    private transient boolean wrapped;
+    /** The number of bytes of uncompressed data. */
+    private final transient long size;
+    /** The number of bytes decompressed so far. */
+    private transient long pos;
+    /** The number of bytes remaining to be copied from the current match. */
+    private transient int pending;
+    /** The range of the decoder. */
+    private transient int range;
+    /** The code read from the compressed data. */
+    private transient int code;
+    /** Whether the end marker was read. */
+    private transient boolean finished;
+    /** Buffer for the compressed data. */
+    private final transient byte[] input = new byte[INPUT_SIZE];
+    /** The index of the next byte in the compressed data buffer. */
+    private transient int inPos;
+    /** The number of bytes in the compressed data buffer. */
+    private transient int inCount;
+    /** Buffer used to implement read(). */
+    private final transient byte[] single = new byte[1];
+
+    /**
+     * Creates an LZMAInputStream to decompress the data from a stream. The
+     * properties and the first bytes of compressed data are read immediately.
+     *
+     * @param streamIn the stream containing the compressed data.
+     * @param length the number of bytes of uncompressed data.
+     * @throws IOException if the properties are invalid or an error occurs
+     * reading the stream.
+     */
+    public LZMAInputStream(final InputStream streamIn, final long length)
+            throws IOException {
+        stream = streamIn;
+        size = length;
+
+        int props = readByte();
+
+        if (props >= PROPERTIES_MAX) {
+            throw new IOException("Invalid LZMA properties");
+        }
+
+        final int lc = props % LC_VALUES;
+        props /= LC_VALUES;
+        final int lp = props % LP_VALUES;
+        final int pb = props / LP_VALUES;
+
+        int dictSize = 0;
+        for (int i = 0; i < 4; i++) {
+            dictSize |= readByte() << (i * BYTE_SHIFT);
+        }
+
+        long windowSize = dictSize & 0xFFFFFFFFL;
+        if (windowSize > length) {
+            windowSize = length;
+        }
+        if (windowSize < MIN_WINDOW) {
+            windowSize = MIN_WINDOW;
+        }
+        window = new byte[(int) windowSize];
+        model = new Model(lc, lp, pb);
+
+        range = -1;
+        for (int i = 0; i < INIT_SIZE; i++) {
+            code = (code << BYTE_SHIFT) | readByte();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & BYTE_MASK;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(final byte[] bytes, final int off, final int len)
+            throws IOException {
+        if (stream == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == size || finished) {
+            return -1;
+        }
+
+        int count = 0;
+
+        while (count < len && pos < size) {
+            if (pending > 0) {
+                final int copied = copyMatch(bytes, off + count,
+                        Math.min(pending, len - count));
+                pending -= copied;
+                count += copied;
+            } else if (!model.decode()) {
+                finished = true;
+                break;
+            } else if (pending == 0) {
+                bytes[off + count++] = window[previous(0)];
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Copy bytes from the current match to the window and the buffer.
+     *
+     * @param bytes the buffer the bytes are copied to.
+     * @param off the index of the first byte copied.
+     * @param len the maximum number of bytes to copy.
+     * @return the number of bytes copied.
+     */
+    private int copyMatch(final byte[] bytes, final int off, final int len) {
+        final int count = (int) Math.min(len, size - pos);
+        final int distance = model.rep0() + 1;
+        int from = windowPos - distance;
+        if (from < 0) {
+            from += window.length;
+        }
+        byte value;
+
+        for (int i = 0; i < count; i++) {
+            value = window[from];
+            bytes[off + i] = value;
+            put(value);
+            if (++from == window.length) {
+                from = 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add a byte to the window.
+     *
+     * @param value the byte.
+     */
+    private void put(final byte value) {
+        window[windowPos++] = value;
+        if (windowPos == window.length) {
+            windowPos = 0;
+            wrapped = true;
+        }
+        pos++;
+    }
+
+    /**
+     * Get the index in the window of a previously decoded byte.
+     *
+     * @param distance the distance back from the last byte, less one.
+     * @return the index of the byte in the window.
+     */
+    private int previous(final int distance) {
+        int index = windowPos - distance - 1;
+        if (index < 0) {
+            index += window.length;
+        }
+        return index;
+    }
+
+    /**
+     * Read a byte of compressed data.
+     *
+     * @return the byte.
+     * @throws IOException if an error occurs reading the stream or the end of
+     * the stream was reached.
+     */
+    private int readByte() throws IOException {
+        if (inPos == inCount) {
+            inCount = stream.read(input, 0, INPUT_SIZE);
+            inPos = 0;
+            if (inCount <= 0) {
+                inCount = 0;
+                throw new EOFException();
+            }
+        }
+        return input[inPos++] & BYTE_MASK;
+    }
+
+    /**
+     * Decode a bit.
+     *
+     * @param probs the array of probabilities.
+     * @param index the index of the probability for the bit.
+     * @return the decoded bit.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private int decodeBit(final short[] probs, final int index)
+            throws IOException {
+        final int prob = probs[index];
+        final int bound = (range >>> LZMACoder.PROB_BITS) * prob;
+        int bit;
+
+        if ((code ^ Integer.MIN_VALUE) < (bound ^ Integer.MIN_VALUE)) {
+            range = bound;
+            probs[index] = (short) (prob
+                    + ((LZMACoder.PROB_ONE - prob) >>> LZMACoder.MOVE_BITS));
+            bit = 0;
+        } else {
+            range -= bound;
+            code -= bound;
+            probs[index] = (short) (prob - (prob >>> LZMACoder.MOVE_BITS));
+            bit = 1;
+        }
+        if ((range & 0xFF000000) == 0) {
+            code = (code << BYTE_SHIFT) | readByte();
+            range <<= BYTE_SHIFT;
+        }
+        return bit;
+    }
+
+    /**
+     * Decode bits with a fixed probability of one half.
+     *
+     * @param count the number of bits.
+     * @return the decoded bits.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private int decodeDirect(final int count) throws IOException {
+        int result = 0;
+        int bit;
+
+        for (int i = 0; i < count; i++) {
+            range >>>= 1;
+            bit = (code - range) >>> (Integer.SIZE - 1);
+            code -= range & (bit - 1);
+            result = (result << 1) | (1 - bit);
+
+            if ((range & 0xFF000000) == 0) {
+                code = (code << BYTE_SHIFT) | readByte();
+                range <<= BYTE_SHIFT;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decode a value using a bit tree.
+     *
+     * @param probs the array of probabilities.
+     * @param offset the index of the bit tree in the array.
+     * @param bits the number of bits in the value.
+     * @return the decoded value.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private int decodeTree(final short[] probs, final int offset,
+            final int bits) throws IOException {
+        int index = 1;
+        for (int i = 0; i < bits; i++) {
+            index = (index << 1) | decodeBit(probs, offset + index);
+        }
+        return index - (1 << bits);
+    }
+
+    /**
+     * Decode a value using a bit tree where the least significant bit is
+     * coded first.
+     *
+     * @param probs the array of probabilities.
+     * @param offset the index of the bit tree in the array.
+     * @param bits the number of bits in the value.
+     * @return the decoded value.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    private int decodeReverse(final short[] probs, final int offset,
+            final int bits) throws IOException {
+        int index = 1;
+        int result = 0;
+        int bit;
+        for (int i = 0; i < bits; i++) {
+            bit = decodeBit(probs, offset + index);
+            index = (index << 1) | bit;
+            result |= bit << i;
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    /**
+     * Model decodes each literal or match using the probabilities and state
+     * shared with the encoder.
+     */
+    private final class Model extends LZMACoder {
+        /**
+         * Create the model.
+         *
+         * @param lc the number of literal context bits.
+         * @param lp the number of literal position bits.
+         * @param pb the number of position bits.
+         */
+        Model(final int lc, final int lp, final int pb) {
+            super(lc, lp, pb);
+        }
+
+        /**
+         * Get the last distance used.
+         *
+         * @return the distance less one.
+         */
+        int rep0() {
+            return reps[0];
+        }
+
+        /**
+         * Decode the next literal or match. A literal is added to the window.
+         * The length of a match is stored in the number of pending bytes.
+         *
+         * @return false if the end marker was read, true otherwise.
+         * @throws IOException if an error occurs reading the stream or the
+         * data is not valid.
+         */
+        boolean decode() throws IOException {
+            final int posState = (int) pos & posMask;
+            final int index = (state << 4) + posState;
+
+            if (decodeBit(isMatch, index) == 0) {
+                decodeLiteral();
+                return true;
+            }
+
+            int len;
+
+            if (decodeBit(isRep, state) == 0) {
+                len = decodeLength(matchLen, posState);
+                matchCoded();
+                reps[3] = reps[2];
+                reps[2] = reps[1];
+                reps[1] = reps[0];
+                reps[0] = decodeDistance(len);
+                if (reps[0] == -1) {
+                    return false;
+                }
+            } else {
+                if (decodeBit(isRepG0, state) == 0) {
+                    if (decodeBit(isRep0Long, index) == 0) {
+                        shortRepCoded();
+                        checkDistance(reps[0]);
+                        put(window[previous(reps[0])]);
+                        return true;
+                    }
+                } else {
+                    int distance;
+                    if (decodeBit(isRepG1, state) == 0) {
+                        distance = reps[1];
+                    } else {
+                        if (decodeBit(isRepG2, state) == 0) {
+                            distance = reps[2];
+                        } else {
+                            distance = reps[3];
+                            reps[3] = reps[2];
+                        }
+                        reps[2] = reps[1];
+                    }
+                    reps[1] = reps[0];
+                    reps[0] = distance;
+                }
+                len = decodeLength(repLen, posState);
+                repCoded();
+            }
+            checkDistance(reps[0]);
+            pending = len + MATCH_LEN_MIN;
+            return true;
+        }
+
+        /**
+         * Check that a distance refers to data already decoded.
+         *
+         * @param distance the distance less one.
+         * @throws IOException if the distance is not valid.
+         */
+        private void checkDistance(final int distance) throws IOException {
+            if (distance < 0 || distance >= window.length
+                    || (!wrapped && distance >= windowPos)) {
+                throw new IOException("Invalid LZMA data");
+            }
+        }
+
+        /**
+         * Decode a literal and add it to the window.
+         *
+         * @throws IOException if an error occurs reading the stream.
+         */
+        private void decodeLiteral() throws IOException {
+            final int prevByte = pos == 0 ? 0 : window[previous(0)];
+            final int offset = literalIndex(pos, prevByte);
+            int symbol = 1;
+
+            if (state >= LIT_STATES) {
+                checkDistance(reps[0]);
+                int matchByte = window[previous(reps[0])];
+                int matchBit;
+                int bit;
+
+                while (symbol < LITERAL_END) {
+                    matchBit = (matchByte >>> 7) & 1;
+                    matchByte <<= 1;
+                    bit = decodeBit(literals,
+                            offset + ((1 + matchBit) << 8) + symbol);
+                    symbol = (symbol << 1) | bit;
+                    if (matchBit != bit) {
+                        break;
+                    }
+                }
+            }
+            while (symbol < LITERAL_END) {
+                symbol = (symbol << 1) | decodeBit(literals, offset + symbol);
+            }
+            literalCoded();
+            put((byte) symbol);
+        }
+
+        /**
+         * Decode the length of a match.
+         *
+         * @param probs the length probabilities.
+         * @param posState the position state.
+         * @return the length less the minimum length.
+         * @throws IOException if an error occurs reading the stream.
+         */
+        private int decodeLength(final short[] probs, final int posState)
+                throws IOException {
+            int len;
+            if (decodeBit(probs, 0) == 0) {
+                len = decodeTree(probs, LEN_LOW + (posState << LEN_LOW_BITS),
+                        LEN_LOW_BITS);
+            } else if (decodeBit(probs, LEN_CHOICE2) == 0) {
+                len = LEN_LOW_SYMBOLS + decodeTree(probs,
+                        LEN_MID + (posState << LEN_MID_BITS), LEN_MID_BITS);
+            } else {
+                len = LEN_LOW_SYMBOLS + LEN_MID_SYMBOLS
+                        + decodeTree(probs, LEN_HIGH, LEN_HIGH_BITS);
+            }
+            return len;
+        }
+
+        /**
+         * Decode the distance of a match.
+         *
+         * @param len the length of the match less the minimum length.
+         * @return the distance less one, -1 for the end marker.
+         * @throws IOException if an error occurs reading the stream.
+         */
+        private int decodeDistance(final int len) throws IOException {
+            final int slot = decodeTree(distSlots,
+                    distState(len) << SLOT_BITS, SLOT_BITS);
+
+            if (slot < START_POS_MODEL) {
+                return slot;
+            }
+
+            final int bits = (slot >>> 1) - 1;
+            int distance = (2 | (slot & 1)) << bits;
+
+            if (slot < END_POS_MODEL) {
+                distance += decodeReverse(distSpecial, distance - slot - 1,
+                        bits);
+            } else {
+                distance += decodeDirect(bits - ALIGN_BITS) << ALIGN_BITS;
+                distance += decodeReverse(distAlign, 0, ALIGN_BITS);
+            }
+            return distance;
+        }
+    }
+}
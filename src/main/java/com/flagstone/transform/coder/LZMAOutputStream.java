@@ -0,0 +1,744 @@
+/*
+ * LZMAOutputStream.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * LZMAOutputStream compresses data using LZMA, as used in movies with the ZWS
+ * signature. The five bytes containing the properties used to compress the
+ * data are written first. No end marker is written so the number of bytes of
+ * uncompressed data must be recorded separately, as it is in the header of a
+ * movie.
+ *
+ * <p>
+ * Matches are found using hash chains and encoded greedily, with a one step
+ * lookahead at the higher levels. The level selects the size of the
+ * dictionary and how many earlier occurrences of each sequence are searched.
+ * The dictionary is reduced when the length of the data is known in advance
+ * and is smaller.
+ * </p>
+ */
+public final class LZMAOutputStream extends OutputStream {
+    /** The level used if no level is specified. */
+    public static final int DEFAULT_LEVEL = 6;
+    /** The highest level. */
+    public static final int MAX_LEVEL = 9;
+
+    /** The dictionary size, as a power of two, for level zero. */
+    private static final int DICTIONARY_BITS = 16;
+    /** The largest dictionary size, as a power of two. */
+    private static final int DICTIONARY_MAX_BITS = 24;
+    /** The smallest dictionary size, as a power of two. */
+    private static final int DICTIONARY_MIN_BITS = 12;
+    /** The largest hash table, as a power of two. */
+    private static final int HASH_MAX_BITS = 20;
+    /** The number of bytes hashed to find matches. */
+    private static final int HASH_BYTES = 3;
+    /** Multiplier used to hash bytes. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B1;
+    /** Space for data in the buffer in addition to the dictionary. */
+    private static final int BLOCK_SIZE = 1 << 16;
+    /** The number of earlier matches searched at each level. */
+    private static final int[] DEPTH = {4, 8, 12, 16, 24, 32, 48, 64, 128,
+        256};
+    /** The length of match that ends the search at each level. */
+    private static final int[] NICE_LENGTH = {16, 24, 32, 48, 64, 64, 96,
+        128, 192, LZMACoder.MATCH_LEN_MAX};
+    /** The lowest level that checks the next position for a longer match. */
+    private static final int LAZY_LEVEL = 3;
+    /** Matches of the minimum length further than this are not used. */
+    private static final int SHORT_MATCH_DISTANCE = 1 << 15;
+    /** Repeated matches are preferred if a match is one byte longer. */
+    private static final int REP_DISTANCE1 = 1 << 9;
+    /** Repeated matches are preferred if a match is two bytes longer. */
+    private static final int REP_DISTANCE2 = 1 << 15;
+    /** Bit mask applied to bytes when converting to unsigned integers. */
+    private static final int BYTE_MASK = 255;
+    /** Number of bits to shift to move to the next byte. */
+    private static final int BYTE_SHIFT = 8;
+    /** The number of bytes flushed at the end of the stream. */
+    private static final int FLUSH_SIZE = 5;
+    /** The size of the buffer for compressed data. */
+    private static final int OUTPUT_SIZE = 4096;
+
+    /** The stream the compressed data is written to. */
+    private transient OutputStream stream;
+    /** The model and state. */
+    private final transient Model model;
+    /** The size of the dictionary. */
+    private final transient int dictSize;
+    /** The number of earlier matches searched. */
+    private final transient int depth;
+    /** The length of match that ends the search. */
+    private final transient int niceLength;
+    /** Whether the next position is checked for a longer match. */
+    private final transient boolean lazy;
+    /** The uncompressed data. */
+    private final transient byte[] buffer;
+    /** The position in the data of the first byte in the buffer. */
+    private transient int start;
+    /** The position of the next byte to be encoded. */
+    private transient int readPos;
+    /** The position after the last byte written. */
+    private transient int writePos;
+    /** The position of the next byte to be added to the hash chains. */
+    private transient int hashPos;
+    /** The most recent position for each hash value. */
+    private final transient int[] head;
+    /** The previous position with the same hash value as each position. */
+    private final transient int[] chain;
+    /** The number of bits in a hash value. */
+    private final transient int hashBits;
+
+    /** The low end of the range of the encoder. */
+    private transient long low;
+    /** The size of the range of the encoder. */
+    private transient int range = -1;
+    /** The byte held back in case a carry propagates into it. */
+    private transient int cache;
+    /** The number of bytes held back. */
+    private transient long cacheSize = 1;
+    /** Buffer for the compressed data. */
+    private final transient byte[] output = new byte[OUTPUT_SIZE];
+    /** The number of bytes in the compressed data buffer. */
+    private transient int outCount;
+    /** Whether all the data has been written. */
+    private transient boolean finished;
+    /** Buffer used to implement write(int). */
+    private final transient byte[] single = new byte[1];
+
+    /**
+     * Creates an LZMAOutputStream using the default level.
+     *
+     * @param streamOut the stream the compressed data is written to.
+     * @throws IOException if an error occurs writing the properties.
+     */
+    public LZMAOutputStream(final OutputStream streamOut) throws IOException {
+        this(streamOut, DEFAULT_LEVEL, -1);
+    }
+
+    /**
+     * Creates an LZMAOutputStream.
+     *
+     * @param streamOut the stream the compressed data is written to.
+     * @param level the level of compression from 0 (fastest) to 9 (smallest)
+     * or -1 to use the default level.
+     * @param length the number of bytes of data that will be written, used
+     * to reduce the size of the dictionary, or -1 if it is not known.
+     * @throws IOException if an error occurs writing the properties.
+     */
+    public LZMAOutputStream(final OutputStream streamOut, final int level,
+            final int length) throws IOException {
+        if (level < -1 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Invalid level: " + level);
+        }
+        final int preset = level == -1 ? DEFAULT_LEVEL : level;
+
+        int bits = Math.min(DICTIONARY_BITS + preset, DICTIONARY_MAX_BITS);
+        while (length >= 0 && bits > DICTIONARY_MIN_BITS
+                && (1 << (bits - 1)) >= length) {
+            bits--;
+        }
+
+        stream = streamOut;
+        dictSize = 1 << bits;
+        depth = DEPTH[preset];
+        niceLength = NICE_LENGTH[preset];
+        lazy = preset >= LAZY_LEVEL;
+        hashBits = Math.min(bits, HASH_MAX_BITS);
+
+        buffer = new byte[dictSize + BLOCK_SIZE];
+        head = new int[1 << hashBits];
+        chain = new int[dictSize];
+        Arrays.fill(head, -1);
+        model = new Model();
+
+        stream.write((LZMACoder.POS_BITS * 5 + LZMACoder.LITERAL_POS_BITS)
+                * 9 + LZMACoder.LITERAL_CONTEXT_BITS);
+        for (int i = 0; i < 4; i++) {
+            stream.write(dictSize >>> (i * BYTE_SHIFT));
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final int value) throws IOException {
+        single[0] = (byte) value;
+        write(single, 0, 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final byte[] bytes, final int off, final int len)
+            throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+        int index = off;
+        int remaining = len;
+        int count;
+
+        while (remaining > 0) {
+            if (writePos - start == buffer.length) {
+                encode(writePos - LZMACoder.MATCH_LEN_MAX);
+                slide();
+            }
+            count = Math.min(remaining, buffer.length - (writePos - start));
+            System.arraycopy(bytes, index, buffer, writePos - start, count);
+            writePos += count;
+            index += count;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Compress the remaining data and write the last bytes of compressed
+     * data without closing the underlying stream.
+     *
+     * @throws IOException if an error occurs writing the stream.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            encode(writePos);
+            for (int i = 0; i < FLUSH_SIZE; i++) {
+                shiftLow();
+            }
+            stream.write(output, 0, outCount);
+            outCount = 0;
+            stream.flush();
+            finished = true;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+        stream.flush();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            try {
+                finish();
+            } finally {
+                stream.close();
+                stream = null;
+            }
+        }
+    }
+
+    /**
+     * Move the data that may be referenced by a match, the dictionary, and
+     * the data not yet encoded to the start of the buffer. Repeated matches
+     * are encoded without updating the hash chains so any positions that
+     * were skipped and are now outside the dictionary are discarded.
+     */
+    private void slide() {
+        final int keep = Math.max(start, readPos - dictSize);
+        if (hashPos < keep) {
+            hashPos = keep;
+        }
+        System.arraycopy(buffer, keep - start, buffer, 0, writePos - keep);
+        start = keep;
+    }
+
+    /**
+     * Encode the data up to the specified position.
+     *
+     * @param limit the position after the last byte to encode, if a match
+     * does not extend beyond it.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void encode(final int limit) throws IOException {
+        while (readPos < limit) {
+            readPos += model.encode(readPos);
+        }
+    }
+
+    /**
+     * Add the positions up to the specified position to the hash chains.
+     *
+     * @param pos the position after the last one added.
+     */
+    private void hashTo(final int pos) {
+        final int end = Math.min(pos, writePos - HASH_BYTES + 1);
+        int hash;
+
+        while (hashPos < end) {
+            hash = hash(hashPos);
+            chain[hashPos & (dictSize - 1)] = head[hash];
+            head[hash] = hashPos++;
+        }
+    }
+
+    /**
+     * Get the hash value of the bytes at a position.
+     *
+     * @param pos the position.
+     * @return the hash value.
+     */
+    private int hash(final int pos) {
+        final int index = pos - start;
+        return (((buffer[index] & BYTE_MASK)
+                | (buffer[index + 1] & BYTE_MASK) << BYTE_SHIFT
+                | (buffer[index + 2] & BYTE_MASK) << (2 * BYTE_SHIFT))
+                * HASH_MULTIPLIER) >>> (Integer.SIZE - hashBits);
+    }
+
+    /**
+     * Get the length of the match between the data at a position and the
+     * data at an earlier position.
+     *
+     * @param pos the position.
+     * @param from the earlier position.
+     * @param limit the longest match.
+     * @return the number of bytes that match.
+     */
+    private int matchLength(final int pos, final int from, final int limit) {
+        final int index = pos - start;
+        final int earlier = from - start;
+        int len = 0;
+        while (len < limit && buffer[index + len] == buffer[earlier + len]) {
+            len++;
+        }
+        return len;
+    }
+
+    /**
+     * Find the longest match for the data at a position using the hash
+     * chains. All earlier positions must have been added to the chains.
+     *
+     * @param pos the position.
+     * @param limit the longest match.
+     * @return the length of the match in the upper half of a long and the
+     * distance less one in the lower half, zero if no match was found.
+     */
+    private long find(final int pos, final int limit) {
+        if (limit < HASH_BYTES) {
+            return 0;
+        }
+        final int minPos = Math.max(start, pos - dictSize);
+        int from = head[hash(pos)];
+        int bestLen = 0;
+        int bestDist = 0;
+        int len;
+        int next;
+
+        for (int i = depth; i > 0 && from >= minPos; i--) {
+            if (buffer[from - start + bestLen] == buffer[pos - start + bestLen]) {
+                len = matchLength(pos, from, limit);
+                if (len > bestLen) {
+                    bestLen = len;
+                    bestDist = pos - from - 1;
+                    if (len >= niceLength || len == limit) {
+                        break;
+                    }
+                }
+            }
+            next = chain[from & (dictSize - 1)];
+            if (next >= from) {
+                break;
+            }
+            from = next;
+        }
+
+        if (bestLen < HASH_BYTES || (bestLen == HASH_BYTES
+                && bestDist >= SHORT_MATCH_DISTANCE)) {
+            return 0;
+        }
+        return ((long) bestLen << Integer.SIZE) | bestDist;
+    }
+
+    /**
+     * Encode a bit.
+     *
+     * @param probs the array of probabilities.
+     * @param index the index of the probability for the bit.
+     * @param bit the bit.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void encodeBit(final short[] probs, final int index,
+            final int bit) throws IOException {
+        final int prob = probs[index];
+        final int bound = (range >>> LZMACoder.PROB_BITS) * prob;
+
+        if (bit == 0) {
+            range = bound;
+            probs[index] = (short) (prob
+                    + ((LZMACoder.PROB_ONE - prob) >>> LZMACoder.MOVE_BITS));
+        } else {
+            low += bound & 0xFFFFFFFFL;
+            range -= bound;
+            probs[index] = (short) (prob - (prob >>> LZMACoder.MOVE_BITS));
+        }
+        if ((range & 0xFF000000) == 0) {
+            range <<= BYTE_SHIFT;
+            shiftLow();
+        }
+    }
+
+    /**
+     * Encode bits with a fixed probability of one half.
+     *
+     * @param value the bits to encode.
+     * @param count the number of bits.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void encodeDirect(final int value, final int count)
+            throws IOException {
+        for (int i = count - 1; i >= 0; i--) {
+            range >>>= 1;
+            if (((value >>> i) & 1) == 1) {
+                low += range & 0xFFFFFFFFL;
+            }
+            if ((range & 0xFF000000) == 0) {
+                range <<= BYTE_SHIFT;
+                shiftLow();
+            }
+        }
+    }
+
+    /**
+     * Encode a value using a bit tree.
+     *
+     * @param probs the array of probabilities.
+     * @param offset the index of the bit tree in the array.
+     * @param bits the number of bits in the value.
+     * @param value the value.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void encodeTree(final short[] probs, final int offset,
+            final int bits, final int value) throws IOException {
+        int index = 1;
+        int bit;
+        for (int i = bits - 1; i >= 0; i--) {
+            bit = (value >>> i) & 1;
+            encodeBit(probs, offset + index, bit);
+            index = (index << 1) | bit;
+        }
+    }
+
+    /**
+     * Encode a value using a bit tree where the least significant bit is
+     * coded first.
+     *
+     * @param probs the array of probabilities.
+     * @param offset the index of the bit tree in the array.
+     * @param bits the number of bits in the value.
+     * @param value the value.
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void encodeReverse(final short[] probs, final int offset,
+            final int bits, final int value) throws IOException {
+        int index = 1;
+        int bit;
+        for (int i = 0; i < bits; i++) {
+            bit = (value >>> i) & 1;
+            encodeBit(probs, offset + index, bit);
+            index = (index << 1) | bit;
+        }
+    }
+
+    /**
+     * Write the top byte of the low end of the range, holding bytes back
+     * until it is known whether a carry will change them.
+     *
+     * @throws IOException if an error occurs writing the stream.
+     */
+    private void shiftLow() throws IOException {
+        final int carry = (int) (low >>> Integer.SIZE);
+
+        if (carry != 0 || low < 0xFF000000L) {
+            int value = cache;
+            do {
+                if (outCount == OUTPUT_SIZE) {
+                    stream.write(output, 0, outCount);
+                    outCount = 0;
+                }
+                output[outCount++] = (byte) (value + carry);
+                value = BYTE_MASK;
+            } while (--cacheSize != 0);
+            cache = (int) (low >>> (Integer.SIZE - BYTE_SHIFT)) & BYTE_MASK;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFFL) << BYTE_SHIFT;
+    }
+
+    /**
+     * Model encodes each literal or match using the probabilities and state
+     * shared with the decoder.
+     */
+    private final class Model extends LZMACoder {
+        /** Create the model. */
+        Model() {
+            super(LITERAL_CONTEXT_BITS, LITERAL_POS_BITS, POS_BITS);
+        }
+
+        /**
+         * Encode the literal or match at a position.
+         *
+         * @param pos the position.
+         * @return the number of bytes encoded.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        int encode(final int pos) throws IOException {
+            final int limit = Math.min(writePos - pos, MATCH_LEN_MAX);
+
+            if (limit < MATCH_LEN_MIN) {
+                encodeLiteral(pos);
+                return 1;
+            }
+
+            int repLen = 0;
+            int repIndex = 0;
+            int len;
+
+            for (int i = 0; i < REPS; i++) {
+                if (pos - reps[i] - 1 >= start) {
+                    len = matchLength(pos, pos - reps[i] - 1, limit);
+                    if (len > repLen) {
+                        repLen = len;
+                        repIndex = i;
+                    }
+                }
+            }
+
+            if (repLen >= niceLength) {
+                encodeRep(pos, repIndex, repLen);
+                return repLen;
+            }
+
+            hashTo(pos);
+            final long match = find(pos, limit);
+            final int mainLen = (int) (match >>> Integer.SIZE);
+            final int mainDist = (int) match;
+
+            if (repLen >= MATCH_LEN_MIN && (repLen + 1 >= mainLen
+                    || (repLen + 2 >= mainLen && mainDist >= REP_DISTANCE1)
+                    || (repLen + 3 >= mainLen
+                            && mainDist >= REP_DISTANCE2))) {
+                encodeRep(pos, repIndex, repLen);
+                return repLen;
+            }
+
+            if (mainLen == 0) {
+                encodeLiteral(pos);
+                return 1;
+            }
+
+            if (lazy && mainLen < niceLength && limit > mainLen) {
+                hashTo(pos + 1);
+                final long next = find(pos + 1, Math.min(limit - 1,
+                        writePos - pos - 1));
+                if ((int) (next >>> Integer.SIZE) > mainLen) {
+                    encodeLiteral(pos);
+                    return 1;
+                }
+            }
+
+            encodeMatch(pos, mainDist, mainLen);
+            return mainLen;
+        }
+
+        /**
+         * Encode a literal.
+         *
+         * @param pos the position of the literal.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        private void encodeLiteral(final int pos) throws IOException {
+            final int index = pos - start;
+            final int prevByte = pos == 0 ? 0 : buffer[index - 1];
+            final int offset = literalIndex(pos, prevByte);
+            final int value = buffer[index] & BYTE_MASK;
+
+            encodeBit(isMatch, (state << 4) + (pos & posMask), 0);
+
+            int context = 1;
+            int bit;
+
+            if (state >= LIT_STATES) {
+                final int matchByte = buffer[index - reps[0] - 1];
+                int matchBit;
+                boolean same = true;
+
+                for (int i = 7; i >= 0; i--) {
+                    bit = (value >>> i) & 1;
+                    if (same) {
+                        matchBit = (matchByte >>> i) & 1;
+                        encodeBit(literals,
+                                offset + ((1 + matchBit) << 8) + context, bit);
+                        same = matchBit == bit;
+                    } else {
+                        encodeBit(literals, offset + context, bit);
+                    }
+                    context = (context << 1) | bit;
+                }
+            } else {
+                for (int i = 7; i >= 0; i--) {
+                    bit = (value >>> i) & 1;
+                    encodeBit(literals, offset + context, bit);
+                    context = (context << 1) | bit;
+                }
+            }
+            literalCoded();
+        }
+
+        /**
+         * Encode a match.
+         *
+         * @param pos the position of the match.
+         * @param distance the distance to the earlier data, less one.
+         * @param len the length of the match.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        private void encodeMatch(final int pos, final int distance,
+                final int len) throws IOException {
+            final int posState = pos & posMask;
+            encodeBit(isMatch, (state << 4) + posState, 1);
+            encodeBit(isRep, state, 0);
+            encodeLength(matchLen, len - MATCH_LEN_MIN, posState);
+            encodeDistance(distance, len - MATCH_LEN_MIN);
+
+            reps[3] = reps[2];
+            reps[2] = reps[1];
+            reps[1] = reps[0];
+            reps[0] = distance;
+            matchCoded();
+        }
+
+        /**
+         * Encode a match using one of the previous distances.
+         *
+         * @param pos the position of the match.
+         * @param rep the index of the distance.
+         * @param len the length of the match.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        private void encodeRep(final int pos, final int rep, final int len)
+                throws IOException {
+            final int posState = pos & posMask;
+            encodeBit(isMatch, (state << 4) + posState, 1);
+            encodeBit(isRep, state, 1);
+
+            if (rep == 0) {
+                encodeBit(isRepG0, state, 0);
+                encodeBit(isRep0Long, (state << 4) + posState, 1);
+            } else {
+                final int distance = reps[rep];
+                encodeBit(isRepG0, state, 1);
+                if (rep == 1) {
+                    encodeBit(isRepG1, state, 0);
+                } else {
+                    encodeBit(isRepG1, state, 1);
+                    encodeBit(isRepG2, state, rep - 2);
+                    if (rep == 3) {
+                        reps[3] = reps[2];
+                    }
+                    reps[2] = reps[1];
+                }
+                reps[1] = reps[0];
+                reps[0] = distance;
+            }
+            encodeLength(repLen, len - MATCH_LEN_MIN, posState);
+            repCoded();
+        }
+
+        /**
+         * Encode the length of a match.
+         *
+         * @param probs the length probabilities.
+         * @param len the length less the minimum length.
+         * @param posState the position state.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        private void encodeLength(final short[] probs, final int len,
+                final int posState) throws IOException {
+            if (len < LEN_LOW_SYMBOLS) {
+                encodeBit(probs, 0, 0);
+                encodeTree(probs, LEN_LOW + (posState << LEN_LOW_BITS),
+                        LEN_LOW_BITS, len);
+            } else if (len < LEN_LOW_SYMBOLS + LEN_MID_SYMBOLS) {
+                encodeBit(probs, 0, 1);
+                encodeBit(probs, LEN_CHOICE2, 0);
+                encodeTree(probs, LEN_MID + (posState << LEN_MID_BITS),
+                        LEN_MID_BITS, len - LEN_LOW_SYMBOLS);
+            } else {
+                encodeBit(probs, 0, 1);
+                encodeBit(probs, LEN_CHOICE2, 1);
+                encodeTree(probs, LEN_HIGH, LEN_HIGH_BITS,
+                        len - LEN_LOW_SYMBOLS - LEN_MID_SYMBOLS);
+            }
+        }
+
+        /**
+         * Encode the distance of a match.
+         *
+         * @param distance the distance less one.
+         * @param len the length of the match less the minimum length.
+         * @throws IOException if an error occurs writing the stream.
+         */
+        private void encodeDistance(final int distance, final int len)
+                throws IOException {
+            int slot;
+            if (distance < START_POS_MODEL) {
+                slot = distance;
+            } else {
+                final int high = Integer.SIZE - 1
+                        - Integer.numberOfLeadingZeros(distance);
+                slot = (high << 1) | ((distance >>> (high - 1)) & 1);
+            }
+            encodeTree(distSlots, distState(len) << SLOT_BITS, SLOT_BITS,
+                    slot);
+
+            if (slot >= START_POS_MODEL) {
+                final int bits = (slot >>> 1) - 1;
+                final int base = (2 | (slot & 1)) << bits;
+                final int reduced = distance - base;
+
+                if (slot < END_POS_MODEL) {
+                    encodeReverse(distSpecial, base - slot - 1, bits,
+                            reduced);
+                } else {
+                    encodeDirect(reduced >>> ALIGN_BITS, bits - ALIGN_BITS);
+                    encodeReverse(distAlign, 0, ALIGN_BITS,
+                            reduced & ALIGN_MASK);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * LocationStack.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.util.EmptyStackException;
+
+/**
+ * LocationStack is a stack of int values used by the coders to record the
+ * locations of objects being encoded or decoded. It replaces Stack&lt;Integer&gt;
+ * so locations are not converted to Integer objects and no locks are taken.
+ */
+final class LocationStack {
+    /** The initial number of locations that can be stored. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** The locations. */
+    private transient int[] locations;
+    /** The number of locations on the stack. */
+    private transient int size;
+
+    /**
+     * Create an empty stack.
+     */
+    LocationStack() {
+        locations = new int[INITIAL_SIZE];
+    }
+
+    /**
+     * Add a location to the top of the stack.
+     * @param location the location.
+     * @return the location.
+     */
+    int push(final int location) {
+        if (size == locations.length) {
+            final int[] array = new int[size << 1];
+            System.arraycopy(locations, 0, array, 0, size);
+            locations = array;
+        }
+        locations[size++] = location;
+        return location;
+    }
+
+    /**
+     * Remove the location at the top of the stack.
+     * @return the location.
+     * @throws EmptyStackException if the stack is empty.
+     */
+    int pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return locations[--size];
+    }
+
+    /**
+     * Get the location at the top of the stack.
+     * @return the location.
+     * @throws EmptyStackException if the stack is empty.
+     */
+    int peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return locations[size - 1];
+    }
+
+    /**
+     * Is the stack empty.
+     * @return true if the stack contains no locations.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all the locations from the stack.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -33,8 +33,8 @@ package com.flagstone.transform.coder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Stack;
 
 import com.flagstone.transform.CharacterEncoding;
 
@@ -43,6 +43,15 @@ import com.flagstone.transform.CharacterEncoding;
  * SWFDecoder wraps an InputStream with a buffer to reduce the amount of
  * memory required to decode a movie and to improve efficiency by reading
  * data from a file or external source in blocks.
+ *
+ * <p>
+ * An SWFDecoder can also be created directly from a ByteBuffer. If the
+ * ByteBuffer is backed by an array then values are read directly from the
+ * array and the buffer is never refilled. Otherwise, for example with a
+ * MappedByteBuffer, the data is copied in blocks from the ByteBuffer with no
+ * calls to read() on an underlying stream, and large arrays of bytes are
+ * copied directly from the ByteBuffer.
+ * </p>
  */
 @SuppressWarnings("PMD.TooManyMethods")
 public final class SWFDecoder {
@@ -59,8 +68,10 @@ public final class SWFDecoder {
     private static final int TO_BYTE2 = 16;
     /** Number of bits to shift when aligning a value to the fourth byte. */
     private static final int TO_BYTE3 = 24;
-    /** Number of bits in an int. */
-    private static final int BITS_PER_INT = 32;
+    /** Number of bits in a long. */
+    private static final int BITS_PER_LONG = 64;
+    /** Number of bytes loaded to read a bit field. */
+    private static final int WINDOW_SIZE = 5;
     /** Number of bits in a byte. */
     private static final int BITS_PER_BYTE = 8;
     /** Right shift to convert number of bits to number of bytes. */
@@ -68,16 +79,23 @@ public final class SWFDecoder {
     /** Left shift to convert number of bytes to number of bits. */
     private static final int BYTES_TO_BITS = 3;
 
+    /** Empty header used when reading a buffer. */
+    private static final byte[] NO_BYTES = new byte[0];
+
     /** The underlying input stream. */
-    private final transient InputStream stream;
+    private transient InputStream stream;
+    /** The underlying ByteBuffer, if it is not backed by an array. */
+    private final transient ByteBuffer source;
     /** The buffer for data read from the stream. */
-    private final transient byte[] buffer;
+    private transient byte[] buffer;
+    /** The number of bytes in the buffer that are filled from the stream. */
+    private transient int capacity;
     /** A buffer used for reading null terminated strings. */
     private transient byte[] stringBuffer;
-    /** The character encoding used for strings. */
-    private transient String encoding;
+    /** The coder for the character encoding used for strings. */
+    private transient StringCoder strings;
     /** Stack for storing file locations. */
-    private final transient Stack<Integer>locations;
+    private final transient LocationStack locations;
     /** The position of the buffer relative to the start of the stream. */
     private transient int pos;
     /** The position from the start of the buffer. */
@@ -102,10 +120,12 @@ public final class SWFDecoder {
      */
     public SWFDecoder(final InputStream streamIn, final int length) {
         stream = streamIn;
+        source = null;
         buffer = new byte[length];
+        capacity = length;
         stringBuffer = new byte[STR_BUFFER_SIZE];
-        encoding = CharacterEncoding.UTF8.getEncoding();
-        locations = new Stack<Integer>();
+        strings = new StringCoder(CharacterEncoding.UTF8.getEncoding());
+        locations = new LocationStack();
     }
 
     /**
@@ -116,37 +136,114 @@ public final class SWFDecoder {
      */
     public SWFDecoder(final InputStream streamIn) {
         stream = streamIn;
+        source = null;
         buffer = new byte[BUFFER_SIZE];
+        capacity = BUFFER_SIZE;
         stringBuffer = new byte[BUFFER_SIZE];
-        encoding = CharacterEncoding.UTF8.getEncoding();
-        locations = new Stack<Integer>();
+        strings = new StringCoder(CharacterEncoding.UTF8.getEncoding());
+        locations = new LocationStack();
+    }
+
+    /**
+     * Create a new SWFDecoder that reads the remaining bytes in a ByteBuffer.
+     * Locations returned by mark() are relative to the current position of
+     * the ByteBuffer. The position of the ByteBuffer is not changed.
+     *
+     * @param data the buffer containing the data to be decoded.
+     */
+    public SWFDecoder(final ByteBuffer data) {
+        stream = null;
+        if (data.hasArray()) {
+            source = null;
+            buffer = data.array();
+            index = data.arrayOffset() + data.position();
+            size = data.arrayOffset() + data.limit();
+            pos = -index;
+        } else {
+            source = data.slice();
+            buffer = new byte[Math.min(BUFFER_SIZE, source.remaining())];
+        }
+        capacity = buffer.length;
+        stringBuffer = new byte[STR_BUFFER_SIZE];
+        strings = new StringCoder(CharacterEncoding.UTF8.getEncoding());
+        locations = new LocationStack();
+    }
+
+    /**
+     * Reuse the decoder to read from another stream. The existing buffers are
+     * kept unless the buffer is smaller than the requested size. Only the
+     * first length bytes of the buffer are filled from the stream.
+     *
+     * @param streamIn the stream from which data will be read.
+     * @param length the number of bytes of the buffer that will be used.
+     */
+    void init(final InputStream streamIn, final int length) {
+        if (buffer.length < length) {
+            buffer = new byte[length];
+        }
+        stream = streamIn;
+        capacity = length;
+        setEncoding(CharacterEncoding.UTF8);
+        locations.clear();
+        pos = 0;
+        index = 0;
+        offset = 0;
+        size = 0;
+        location = 0;
+        expected = 0;
+        delta = 0;
+    }
+
+    /**
+     * Release the stream so the decoder can be reused.
+     *
+     * @return the number of bytes in the buffers held by the decoder or -1 if
+     * the decoder was not reading from a stream and cannot be reused.
+     */
+    int release() {
+        if (stream == null) {
+            return -1;
+        }
+        stream = null;
+        return buffer.length + stringBuffer.length;
     }
 
     /**
      * Fill the internal buffer. Any unread bytes are copied to the start of
      * the buffer and the remaining space is filled with data from the
-     * underlying stream.
+     * underlying stream. If the decoder was created from a ByteBuffer backed
+     * by an array then all the data is already available and the method does
+     * nothing.
      *
      * @throws IOException if an error occurs reading from the underlying
      * input stream.
      */
     public void fill() throws IOException {
+        if (stream == null && source == null) {
+            return;
+        }
+
         final int diff = size - index;
         pos += index;
 
         if (index < size) {
-            for (int i = 0; i < diff; i++) {
-                buffer[i] = buffer[index++];
-            }
+            System.arraycopy(buffer, index, buffer, 0, diff);
         }
 
         int bytesRead = 0;
-        int bytesToRead = buffer.length - diff;
+        int bytesToRead = capacity - diff;
 
         index = diff;
         size = diff;
 
-        do {
+        if (source != null) {
+            bytesToRead = Math.min(bytesToRead, source.remaining());
+            source.get(buffer, index, bytesToRead);
+            size += bytesToRead;
+            bytesToRead = 0;
+        }
+
+        while (bytesToRead > 0) {
             bytesRead = stream.read(buffer, index, bytesToRead);
             if (bytesRead == -1) {
                 bytesToRead = 0;
@@ -155,7 +252,7 @@ public final class SWFDecoder {
                 size += bytesRead;
                 bytesToRead -= bytesRead;
             }
-        } while (bytesToRead > 0);
+        }
 
         index = 0;
     }
@@ -267,6 +364,35 @@ public final class SWFDecoder {
         }
         if (count < size - index) {
             index += count;
+        } else if (source != null) {
+            final int toSkip = count - (size - index);
+            if (toSkip > source.remaining()) {
+                throw new ArrayIndexOutOfBoundsException();
+            }
+            source.position(source.position() + toSkip);
+            pos += size + toSkip;
+            index = 0;
+            size = 0;
+        } else if (stream != null && count - (size - index) > capacity) {
+            /*
+             * Skip large blocks in the stream directly rather than copying
+             * them through the buffer.
+             */
+            long toSkip = count - (size - index);
+            pos += size + (int) toSkip;
+            index = 0;
+            size = 0;
+            long skipped;
+            while (toSkip > 0) {
+                skipped = stream.skip(toSkip);
+                if (skipped <= 0) {
+                    if (stream.read() == -1) {
+                        throw new ArrayIndexOutOfBoundsException();
+                    }
+                    skipped = 1;
+                }
+                toSkip -= skipped;
+            }
         } else {
             int toSkip = count;
             int diff;
@@ -319,17 +445,12 @@ public final class SWFDecoder {
                 throw new ArrayIndexOutOfBoundsException();
             }
 
-            for (int i = BITS_PER_INT; (i > 0)
-                    && (index < buffer.length); i -= BITS_PER_BYTE) {
-                value |= (buffer[index++] & BYTE_MASK) << (i - BITS_PER_BYTE);
-            }
-
-            value <<= offset;
+            final long bits = window() << offset;
 
             if (signed) {
-                value >>= BITS_PER_INT - numberOfBits;
+                value = (int) (bits >> (BITS_PER_LONG - numberOfBits));
             } else {
-                value >>>= BITS_PER_INT - numberOfBits;
+                value = (int) (bits >>> (BITS_PER_LONG - numberOfBits));
             }
 
             pointer += numberOfBits;
@@ -340,6 +461,37 @@ public final class SWFDecoder {
         return value;
     }
 
+    /**
+     * Get the next five bytes in the buffer, starting at the current byte,
+     * as a long with the first byte in the most significant position. Five
+     * bytes contain any bit field of up to 32 bits, whatever the offset of
+     * the field in the first byte. Bytes past the end of the buffer are
+     * returned as zero. The location is not changed.
+     *
+     * @return the next 40 bits in the buffer, in the most significant bits.
+     */
+    private long window() {
+        long bits;
+
+        if (index + WINDOW_SIZE <= buffer.length) {
+            // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 5 LINES
+            bits = ((long) (buffer[index] & BYTE_MASK) << 56)
+                | ((long) (buffer[index + 1] & BYTE_MASK) << 48)
+                | ((long) (buffer[index + 2] & BYTE_MASK) << 40)
+                | ((long) (buffer[index + 3] & BYTE_MASK) << 32)
+                | ((long) (buffer[index + 4] & BYTE_MASK) << 24);
+        } else {
+            bits = 0;
+            for (int i = 0; i < WINDOW_SIZE; i++) {
+                if (index + i < buffer.length) {
+                    bits |= (long) (buffer[index + i] & BYTE_MASK)
+                            << (BITS_PER_LONG - BITS_PER_BYTE * (i + 1));
+                }
+            }
+        }
+        return bits;
+    }
+
     /**
      * Read-ahead a bit field.
      *
@@ -372,17 +524,12 @@ public final class SWFDecoder {
                 throw new ArrayIndexOutOfBoundsException();
             }
 
-            for (int i = BITS_PER_INT; (i > 0)
-                    && (index < buffer.length); i -= BITS_PER_BYTE) {
-                value |= (buffer[index++] & BYTE_MASK) << (i - BITS_PER_BYTE);
-            }
-
-            value <<= offset;
+            final long bits = window() << offset;
 
             if (signed) {
-                value >>= BITS_PER_INT - numberOfBits;
+                value = (int) (bits >> (BITS_PER_LONG - numberOfBits));
             } else {
-                value >>>= BITS_PER_INT - numberOfBits;
+                value = (int) (bits >>> (BITS_PER_LONG - numberOfBits));
             }
 
             index = pointer >>> BITS_TO_BYTES;
@@ -440,8 +587,27 @@ public final class SWFDecoder {
      * input stream.
      */
     public byte[] readBytes(final byte[] bytes) throws IOException {
-        final int wanted = bytes.length;
-        int dest = 0;
+        return readBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads bytes into part of an array.
+     *
+     * @param bytes
+     *            the array that will contain the bytes read.
+     * @param start
+     *            the position in the array of the first byte read.
+     * @param wanted
+     *            the number of bytes to read.
+     *
+     * @return the array of bytes.
+     *
+     * @throws IOException if an error occurs reading from the underlying
+     * input stream.
+     */
+    private byte[] readBytes(final byte[] bytes, final int start,
+            final int wanted) throws IOException {
+        int dest = start;
         int read = 0;
 
         int available;
@@ -459,12 +625,100 @@ public final class SWFDecoder {
             dest += available;
 
             if (index == size) {
-                fill();
+                if (source != null && wanted - read > buffer.length) {
+                    available = wanted - read;
+                    if (available > source.remaining()) {
+                        throw new ArrayIndexOutOfBoundsException();
+                    }
+                    source.get(bytes, dest, available);
+                    read += available;
+                    dest += available;
+                    pos += size + available;
+                    index = 0;
+                    size = 0;
+                } else {
+                    fill();
+                    if (index == size && read < wanted) {
+                        throw new ArrayIndexOutOfBoundsException();
+                    }
+                }
             }
         }
         return bytes;
     }
 
+    /**
+     * Reads an array of bytes into a ByteBuffer. If the decoder was created
+     * from a ByteBuffer backed by an array then the returned buffer shares
+     * the data, so no bytes are copied. Otherwise the bytes are copied into a
+     * new buffer, since the decoder's buffer is reused and a buffer which is
+     * not backed by an array, for example a file mapped into memory, may be
+     * changed or become invalid once the movie has been decoded. The contents
+     * of the returned buffer must not be changed.
+     *
+     * @param length
+     *            the number of bytes to read.
+     *
+     * @return a buffer containing the bytes read.
+     *
+     * @throws IOException if an error occurs reading from the underlying
+     * input stream.
+     */
+    public ByteBuffer readBuffer(final int length) throws IOException {
+        return readBuffer(NO_BYTES, length);
+    }
+
+    /**
+     * Reads an array of bytes into a ByteBuffer that starts with the bytes
+     * that were just read, for example the header of a tag. If the decoder
+     * was created from a ByteBuffer backed by an array then the returned
+     * buffer shares the data starting header.length bytes before the current
+     * position and no bytes are copied. Otherwise a new buffer is created
+     * containing the header followed by the bytes read. The contents of the returned buffer must
+     * not be changed.
+     *
+     * @param header
+     *            the bytes immediately before the current position.
+     * @param length
+     *            the number of bytes to read.
+     *
+     * @return a buffer containing the header and the bytes read.
+     *
+     * @throws IOException if an error occurs reading from the underlying
+     * input stream.
+     */
+    public ByteBuffer readBuffer(final byte[] header, final int length)
+            throws IOException {
+        final int before = header.length;
+        final ByteBuffer data;
+
+        if (stream == null && source == null) {
+            if (length < 0 || index < before || index + length > size) {
+                throw new ArrayIndexOutOfBoundsException();
+            }
+            data = ByteBuffer.wrap(buffer, index - before, before + length)
+                    .slice();
+            index += length;
+        } else if (source != null) {
+            final int start = pos + index - before;
+            if (length < 0 || start < 0
+                    || start + before + length > source.limit()) {
+                throw new ArrayIndexOutOfBoundsException();
+            }
+            final byte[] bytes = new byte[before + length];
+            final ByteBuffer view = source.duplicate();
+            view.position(start);
+            view.get(bytes);
+            data = ByteBuffer.wrap(bytes);
+            skip(length);
+        } else {
+            final byte[] bytes = new byte[before + length];
+            System.arraycopy(header, 0, bytes, 0, before);
+            data = ByteBuffer.wrap(readBytes(bytes, before, length));
+        }
+        return data;
+    }
+
     /**
      * Sets the character encoding scheme used when encoding or decoding
      * strings.
@@ -473,7 +727,9 @@ public final class SWFDecoder {
      *            the CharacterEncoding that identifies how strings are encoded.
      */
     public void setEncoding(final CharacterEncoding enc) {
-        encoding = enc.getEncoding();
+        if (!enc.getEncoding().equals(strings.getName())) {
+            strings = new StringCoder(enc.getEncoding());
+        }
     }
 
     /**
@@ -488,15 +744,25 @@ public final class SWFDecoder {
      * input stream.
      */
     public String readString(final int length) throws IOException {
-        final byte[] bytes = new byte[length];
-        readBytes(bytes);
+        byte[] bytes;
+        int start;
+
+        if (size - index >= length) {
+            bytes = buffer;
+            start = index;
+            index += length;
+        } else {
+            bytes = new byte[length];
+            start = 0;
+            readBytes(bytes);
+        }
         int len;
-        if (bytes[length - 1] == 0) {
+        if (bytes[start + length - 1] == 0) {
             len = length - 1;
         } else {
             len = length;
         }
-        return new String(bytes, 0, len, encoding);
+        return strings.decode(bytes, start, len);
     }
 
     /**
@@ -521,6 +787,9 @@ public final class SWFDecoder {
             if (available == 0) {
                 fill();
                 available = size - index;
+                if (available == 0) {
+                    throw new ArrayIndexOutOfBoundsException();
+                }
             }
             start = index;
             count = 0;
@@ -537,9 +806,9 @@ public final class SWFDecoder {
                 stringBuffer = Arrays.copyOf(stringBuffer, length << 2);
             }
             System.arraycopy(buffer, start, stringBuffer, dest, count);
-            dest += length;
+            dest += count;
         }
-        return new String(stringBuffer, 0, length, encoding);
+        return strings.decode(stringBuffer, 0, length);
     }
 
     /**
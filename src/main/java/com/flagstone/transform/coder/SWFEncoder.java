@@ -33,7 +33,7 @@ package com.flagstone.transform.coder;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Stack;
+import java.nio.ByteBuffer;
 
 import com.flagstone.transform.CharacterEncoding;
 
@@ -49,10 +49,12 @@ public final class SWFEncoder {
 
     /** Bit mask applied to bytes when converting to unsigned integers. */
     private static final int BYTE_MASK = 255;
-    /** Number of bits in an int. */
-    private static final int BITS_PER_INT = 32;
-    /** Number of bits in a byte. */
-    private static final int BITS_PER_BYTE = 8;
+    /** Number of bits in a long. */
+    private static final int BITS_PER_LONG = 64;
+    /** Number of bits to shift a byte to the top of a long. */
+    private static final int TO_TOP_BYTE = 56;
+    /** Number of bytes that can contain a bit field of up to 32 bits. */
+    private static final int WINDOW_SIZE = 5;
     /** Offset to add to number of bits when calculating number of bytes. */
     private static final int ROUND_TO_BYTES = 7;
     /** Right shift to convert number of bits to number of bytes. */
@@ -68,17 +70,17 @@ public final class SWFEncoder {
 
 
     /** The underlying input stream. */
-    private final transient OutputStream stream;
+    private transient OutputStream stream;
     /** The buffer for data read from the stream. */
     private final transient byte[] buffer;
     /** The index in bytes to the current location in the buffer. */
     private transient int index;
     /** The offset in bits to the location in the current byte. */
     private transient int offset;
-    /** The character encoding used for strings. */
-    private transient String encoding;
+    /** The coder for the character encoding used for strings. */
+    private transient StringCoder strings;
     /** Stack for storing file locations. */
-    private final transient Stack<Integer>locations;
+    private final transient LocationStack locations;
     /** The position of the buffer relative to the start of the stream. */
     private transient int pos;
 
@@ -92,8 +94,8 @@ public final class SWFEncoder {
     public SWFEncoder(final OutputStream streamOut, final int length) {
         stream = streamOut;
         buffer = new byte[length];
-        encoding = CharacterEncoding.UTF8.getEncoding();
-        locations = new Stack<Integer>();
+        strings = new StringCoder(CharacterEncoding.UTF8.getEncoding());
+        locations = new LocationStack();
     }
 
     /**
@@ -105,8 +107,33 @@ public final class SWFEncoder {
     public SWFEncoder(final OutputStream streamOut) {
         stream = streamOut;
         buffer = new byte[BUFFER_SIZE];
-        encoding = CharacterEncoding.UTF8.getEncoding();
-        locations = new Stack<Integer>();
+        strings = new StringCoder(CharacterEncoding.UTF8.getEncoding());
+        locations = new LocationStack();
+    }
+
+    /**
+     * Reuse the encoder to write to another stream. The existing buffer is
+     * kept.
+     *
+     * @param streamOut the stream to which data will be written.
+     */
+    void init(final OutputStream streamOut) {
+        stream = streamOut;
+        setEncoding(CharacterEncoding.UTF8);
+        locations.clear();
+        pos = 0;
+        index = 0;
+        offset = 0;
+    }
+
+    /**
+     * Release the stream so the encoder can be reused.
+     *
+     * @return the number of bytes in the buffer held by the encoder.
+     */
+    int release() {
+        stream = null;
+        return buffer.length;
     }
 
     /**
@@ -117,7 +144,9 @@ public final class SWFEncoder {
      *            the CharacterEncoding that identifies how strings are encoded.
      */
     public void setEncoding(final CharacterEncoding enc) {
-        encoding = enc.getEncoding();
+        if (!enc.getEncoding().equals(strings.getName())) {
+            strings = new StringCoder(enc.getEncoding());
+        }
     }
 
     /**
@@ -171,18 +200,10 @@ public final class SWFEncoder {
         stream.write(buffer, 0, index);
         stream.flush();
 
-        int diff;
-        if (offset == 0) {
-            diff = 0;
-        } else {
-            diff = 1;
+        if (offset > 0) {
             buffer[0] = buffer[index];
         }
 
-        for (int i = diff; i < buffer.length; i++) {
-            buffer[i] = 0;
-        }
-
         pos += index;
         index = 0;
     }
@@ -200,32 +221,40 @@ public final class SWFEncoder {
     public void writeBits(final int value, final int numberOfBits)
                 throws IOException {
 
-        final int ptr = (index << BYTES_TO_BITS) + offset + numberOfBits;
+        if (numberOfBits == 0) {
+            return;
+        }
+
+        final int end = offset + numberOfBits;
+        final int count = (end + ROUND_TO_BYTES) >>> BITS_TO_BYTES;
 
-        if (ptr >= (buffer.length << BYTES_TO_BITS)) {
+        if (index + count > buffer.length) {
             flush();
         }
 
-        final int val = ((value << (BITS_PER_INT - numberOfBits)) >>> offset)
-                | (buffer[index] << TO_BYTE3);
-        int base = BITS_PER_INT - (((offset + numberOfBits
-                + ROUND_TO_BYTES) >>> BITS_TO_BYTES) << BYTES_TO_BITS);
-        base = base < 0 ? 0 : base;
+        long bits = ((long) value << (BITS_PER_LONG - numberOfBits))
+                >>> offset;
 
-        int pointer = (index << BYTES_TO_BITS) + offset;
-
-        for (int i = 24; i >= base; i -= BITS_PER_BYTE) {
-            buffer[index++] = (byte) (val >>> i);
+        if (offset > 0) {
+            bits |= (long) buffer[index] << TO_TOP_BYTE;
         }
 
-        if (offset + numberOfBits > BITS_PER_INT) {
-            buffer[index] = (byte) (value << (BITS_PER_BYTE
-                    - (offset + numberOfBits - BITS_PER_INT)));
+        if (index + WINDOW_SIZE <= buffer.length) {
+            // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 5 LINES
+            buffer[index] = (byte) (bits >>> 56);
+            buffer[index + 1] = (byte) (bits >>> 48);
+            buffer[index + 2] = (byte) (bits >>> 40);
+            buffer[index + 3] = (byte) (bits >>> 32);
+            buffer[index + 4] = (byte) (bits >>> 24);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[index + i] = (byte) (bits >>> (TO_TOP_BYTE
+                        - (i << BYTES_TO_BITS)));
+            }
         }
 
-        pointer += numberOfBits;
-        index = pointer >>> BITS_TO_BYTES;
-        offset = pointer & Coder.LOWEST3;
+        index += end >>> BITS_TO_BYTES;
+        offset = end & Coder.LOWEST3;
     }
 
     /**
@@ -266,6 +295,39 @@ public final class SWFEncoder {
         return bytes.length;
     }
 
+    /**
+     * Write the remaining bytes in a ByteBuffer. The position of the buffer
+     * is not changed.
+     *
+     * @param bytes
+     *            the buffer containing the bytes to be written.
+     *
+     * @return the number of bytes written.
+     * @throws IOException if there is an error writing data to the underlying
+     * stream.
+     */
+    public int writeBytes(final ByteBuffer bytes) throws IOException {
+        final int length = bytes.remaining();
+        if (bytes.hasArray() && index + length >= buffer.length) {
+            flush();
+            stream.write(bytes.array(), bytes.arrayOffset()
+                    + bytes.position(), length);
+            pos += length;
+        } else {
+            final ByteBuffer data = bytes.duplicate();
+            int count;
+            while (data.hasRemaining()) {
+                if (index == buffer.length) {
+                    flush();
+                }
+                count = Math.min(buffer.length - index, data.remaining());
+                data.get(buffer, index, count);
+                index += count;
+            }
+        }
+        return length;
+    }
+
     /**
      * Write a string using the default character set defined in the encoder.
      *
@@ -275,12 +337,18 @@ public final class SWFEncoder {
      * stream.
      */
     public void writeString(final String str) throws IOException {
-        try {
-            writeBytes(str.getBytes(encoding));
-            buffer[index++] = 0;
-        } catch (final java.io.UnsupportedEncodingException e) {
-            throw new AssertionError(e);
+        final int length = str.length();
+
+        if (index + length >= buffer.length) {
+            flush();
+        }
+        if (index + length < buffer.length
+                && strings.copy(str, buffer, index)) {
+            index += length;
+        } else {
+            writeBytes(strings.encode(str));
         }
+        buffer[index++] = 0;
     }
 
     /**
@@ -0,0 +1,223 @@
+/*
+ * StringCoder.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import java.nio.charset.Charset;
+
+/**
+ * StringCoder converts strings to and from the character encoding used in a
+ * movie. Strings which only contain characters that are encoded as a single
+ * byte, which covers most of the strings found in movies, are copied directly
+ * without creating any intermediate arrays. Other strings are coded using the
+ * Charset, which is looked up once rather than by name for each string. The
+ * length of UTF-8 strings is calculated without encoding them.
+ *
+ * <p>
+ * A StringCoder is not thread-safe. Each coder and Context has its own.
+ * </p>
+ */
+final class StringCoder {
+    /** Characters below this value are encoded as a byte by UTF-8. */
+    private static final int ASCII_LIMIT = 0x80;
+    /** Characters below this value are encoded as a byte by ISO-8859-1. */
+    private static final int LATIN1_LIMIT = 0x100;
+    /** Bit mask applied to bytes when converting to unsigned integers. */
+    private static final int BYTE_MASK = 255;
+    /** The initial size of the buffer used to decode single byte strings. */
+    private static final int CHAR_BUFFER_SIZE = 256;
+    /** Characters below this value are encoded in two bytes by UTF-8. */
+    private static final int UTF8_TWO_BYTES = 0x800;
+    /** The number of bytes used to encode a character outside the BMP. */
+    private static final int UTF8_PAIR = 4;
+    /** The number of bytes used to encode the other characters in the BMP. */
+    private static final int UTF8_THREE_BYTES = 3;
+
+    /** The name of the character encoding. */
+    private final transient String name;
+    /** The character set used for the encoding. */
+    private final transient Charset charset;
+    /**
+     * Characters below this value are encoded as a single byte with the same
+     * value, zero if the encoding does not map characters this way.
+     */
+    private final transient int limit;
+    /** Whether the encoding is UTF-8. */
+    private final transient boolean utf8;
+    /** The buffer used to decode single byte strings. */
+    private transient char[] chars;
+
+    /**
+     * Create a StringCoder for a character encoding.
+     *
+     * @param encoding the name of the character encoding.
+     */
+    StringCoder(final String encoding) {
+        name = encoding;
+        charset = Charset.forName(encoding);
+
+        final String canonical = charset.name();
+        utf8 = "UTF-8".equals(canonical);
+
+        if ("UTF-8".equals(canonical) || "US-ASCII".equals(canonical)) {
+            limit = ASCII_LIMIT;
+        } else if ("ISO-8859-1".equals(canonical)) {
+            limit = LATIN1_LIMIT;
+        } else {
+            limit = 0;
+        }
+    }
+
+    /**
+     * Get the name of the character encoding.
+     *
+     * @return the name used to create the StringCoder.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of bytes used to encode a string.
+     *
+     * @param str the string.
+     * @return the length of the encoded string, not including a terminating
+     * null.
+     */
+    int length(final String str) {
+        final int length = str.length();
+        int index = 0;
+
+        while (index < length && str.charAt(index) < limit) {
+            index++;
+        }
+        if (index == length) {
+            return length;
+        }
+        if (utf8) {
+            return index + utf8Length(str, index);
+        }
+        return encode(str).length;
+    }
+
+    /**
+     * Get the number of bytes used to encode the remainder of a string in
+     * UTF-8. Unpaired surrogates are counted as a single byte since they are
+     * replaced when the string is encoded.
+     *
+     * @param str the string.
+     * @param start the index of the first character.
+     * @return the number of bytes in the encoded characters.
+     */
+    private static int utf8Length(final String str, final int start) {
+        final int length = str.length();
+        int count = 0;
+        char value;
+
+        for (int i = start; i < length; i++) {
+            value = str.charAt(i);
+            if (value < ASCII_LIMIT) {
+                count++;
+            } else if (value < UTF8_TWO_BYTES) {
+                count += 2;
+            } else if (Character.isHighSurrogate(value) && i + 1 < length
+                    && Character.isLowSurrogate(str.charAt(i + 1))) {
+                count += UTF8_PAIR;
+                i++;
+            } else if (value >= Character.MIN_SURROGATE
+                    && value <= Character.MAX_SURROGATE) {
+                count++;
+            } else {
+                count += UTF8_THREE_BYTES;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copy a string to an array if every character is encoded as a single
+     * byte. The array must have space for the string.
+     *
+     * @param str the string.
+     * @param bytes the array the encoded string is written to.
+     * @param offset the index in the array of the first byte written.
+     * @return true if the string was copied, false if it must be encoded
+     * using encode().
+     */
+    boolean copy(final String str, final byte[] bytes, final int offset) {
+        final int length = str.length();
+        char value;
+
+        for (int i = 0; i < length; i++) {
+            value = str.charAt(i);
+            if (value >= limit) {
+                return false;
+            }
+            bytes[offset + i] = (byte) value;
+        }
+        return true;
+    }
+
+    /**
+     * Encode a string.
+     *
+     * @param str the string.
+     * @return an array containing the encoded string.
+     */
+    byte[] encode(final String str) {
+        return str.getBytes(charset);
+    }
+
+    /**
+     * Decode a string.
+     *
+     * @param bytes the array containing the encoded string.
+     * @param offset the index in the array of the first byte.
+     * @param length the number of bytes in the encoded string.
+     * @return the decoded string.
+     */
+    String decode(final byte[] bytes, final int offset, final int length) {
+        if (chars == null || chars.length < length) {
+            chars = new char[Math.max(length, CHAR_BUFFER_SIZE)];
+        }
+
+        int value;
+
+        for (int i = 0; i < length; i++) {
+            value = bytes[offset + i] & BYTE_MASK;
+            if (value >= limit) {
+                return new String(bytes, offset, length, charset);
+            }
+            chars[i] = (char) value;
+        }
+        return new String(chars, 0, length);
+    }
+}
@@ -215,9 +215,9 @@ public final class DefineFont implements DefineTag {
     public int prepareToEncode(final Context context) {
         length = 2;
 
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
 
         final int count = shapes.size();
         int index = 0;
@@ -236,8 +236,8 @@ public final class DefineFont implements DefineTag {
             length += shapeLength;
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -260,9 +260,9 @@ public final class DefineFont implements DefineTag {
         }
         coder.writeShort(identifier);
 
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
 
         for (int i = 0; i < table.length - 1; i++) {
             coder.writeShort(table[i]);
@@ -272,8 +272,8 @@ public final class DefineFont implements DefineTag {
             shape.encode(coder, context);
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         if (Constants.DEBUG) {
             coder.check(length);
             coder.unmark();
@@ -167,7 +167,7 @@ public final class DefineFont2 implements DefineTag {
         bold = (bits & Coder.BIT0) != 0;
 
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         language = coder.readByte();
@@ -768,15 +768,15 @@ public final class DefineFont2 implements DefineTag {
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF
-        wideCodes = (context.get(Context.VERSION) > 5)
+        wideCodes = (context.getInt(Context.VERSION) > 5)
                 || encoding != 1;
 
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
 
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         final int count = shapes.size();
@@ -826,8 +826,8 @@ public final class DefineFont2 implements DefineTag {
             length += kernings.size() * (wideCodes ? 6 : 4);
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.WIDE_CODES);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
@@ -864,12 +864,12 @@ public final class DefineFont2 implements DefineTag {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
 
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         int bits = 0;
@@ -881,7 +881,7 @@ public final class DefineFont2 implements DefineTag {
         bits |= bold ? Coder.BIT0 : 0;
         coder.writeByte(bits);
 
-        coder.writeByte(context.get(Context.VERSION)
+        coder.writeByte(context.getInt(Context.VERSION)
                 > LANGUAGE_VERSION ? language : 0);
         coder.writeByte(context.strlen(name));
 
@@ -932,8 +932,8 @@ public final class DefineFont2 implements DefineTag {
             }
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.WIDE_CODES);
         if (Constants.DEBUG) {
             coder.check(length);
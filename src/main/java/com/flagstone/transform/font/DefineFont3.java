@@ -155,7 +155,7 @@ public final class DefineFont3 implements DefineTag {
         bold = (bits & Coder.BIT0) != 0;
 
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         language = coder.readByte();
@@ -766,14 +766,14 @@ public final class DefineFont3 implements DefineTag {
 	@SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF
-        wideCodes = (context.get(Context.VERSION) > 5)
+        wideCodes = (context.getInt(Context.VERSION) > 5)
                 || encoding != 1;
 
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         final int count = shapes.size();
@@ -823,8 +823,8 @@ public final class DefineFont3 implements DefineTag {
             length += kernings.size() * (wideCodes ? 6 : 4);
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.WIDE_CODES);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
@@ -861,11 +861,11 @@ public final class DefineFont3 implements DefineTag {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.FILL_SIZE, 1);
-        context.put(Context.LINE_SIZE, context.contains(Context.POSTSCRIPT) ? 1
-                : 0);
+        context.putInt(Context.FILL_SIZE, 1);
+        context.putInt(Context.LINE_SIZE,
+                context.contains(Context.POSTSCRIPT) ? 1 : 0);
         if (wideCodes) {
-            context.put(Context.WIDE_CODES, 1);
+            context.putInt(Context.WIDE_CODES, 1);
         }
 
         int bits = 0;
@@ -927,8 +927,8 @@ public final class DefineFont3 implements DefineTag {
             }
         }
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.WIDE_CODES);
         if (Constants.DEBUG) {
             coder.check(length);
@@ -31,6 +31,7 @@
 package com.flagstone.transform.image;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.Constants;
@@ -72,7 +73,7 @@ public final class DefineJPEGImage implements ImageTag {
     /** The unique identifier for this object. */
     private int identifier;
     /** The JPEG encoded image. */
-    private byte[] image;
+    private ByteBuffer image;
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
@@ -98,7 +99,7 @@ public final class DefineJPEGImage implements ImageTag {
         }
         coder.mark();
         identifier = coder.readUnsignedShort();
-        image = coder.readBytes(new byte[length - 2]);
+        image = coder.readBuffer(length - 2);
         decodeInfo();
         coder.check(length);
         coder.unmark();
@@ -171,7 +172,18 @@ public final class DefineJPEGImage implements ImageTag {
      * @return  a copy of the data.
      */
     public byte[] getImage() {
-        return Arrays.copyOf(image, image.length);
+        final byte[] bytes = new byte[image.remaining()];
+        image.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the image. The data is not copied.
+     *
+     * @return a read-only buffer containing the image.
+     */
+    public ByteBuffer getImageBuffer() {
+        return image.asReadOnlyBuffer();
     }
 
     /**
@@ -188,7 +200,7 @@ public final class DefineJPEGImage implements ImageTag {
         if (bytes == null) {
             throw new IllegalArgumentException();
         }
-        image = Arrays.copyOf(bytes, bytes.length);
+        image = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
         decodeInfo();
     }
 
@@ -200,12 +212,12 @@ public final class DefineJPEGImage implements ImageTag {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, identifier, image.length);
+        return String.format(FORMAT, identifier, image.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
-        length = 2 + image.length;
+        length = 2 + image.remaining();
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
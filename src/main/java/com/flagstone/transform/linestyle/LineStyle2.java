@@ -503,14 +503,14 @@ public final class LineStyle2 implements LineStyle {
             length += 4;
         }
 
-        int scaling = context.get(Context.SCALING_STROKE);
+        int scaling = context.getInt(Context.SCALING_STROKE);
 
         if (horizontal || vertical) {
             scaling |= Coder.BIT1;
         } else {
             scaling |= Coder.BIT0;
         }
-        context.put(Context.SCALING_STROKE, scaling);
+        context.putInt(Context.SCALING_STROKE, scaling);
 
         return length;
         // CHECKSTYLE:ON
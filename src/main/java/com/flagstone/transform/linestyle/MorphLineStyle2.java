@@ -574,7 +574,7 @@ public final class MorphLineStyle2 implements LineStyle {
         }
 
         if (horizontal || vertical) {
-            context.put(Context.SCALING_STROKE, 1);
+            context.putInt(Context.SCALING_STROKE, 1);
         }
 
         return length;
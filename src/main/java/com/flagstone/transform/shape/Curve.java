@@ -234,8 +234,8 @@ public final class Curve implements ShapeRecord {
 
         numberOfBits += size << 2;
 
-        context.put(Context.SHAPE_SIZE,
-                context.get(Context.SHAPE_SIZE) + numberOfBits);
+        context.putInt(Context.SHAPE_SIZE,
+                context.getInt(Context.SHAPE_SIZE) + numberOfBits);
 
         return numberOfBits;
     }
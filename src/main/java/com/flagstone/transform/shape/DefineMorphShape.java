@@ -152,9 +152,9 @@ public final class DefineMorphShape implements ShapeTag {
         }
         coder.mark();
         coder.mark();
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.TYPE, MovieTypes.DEFINE_MORPH_SHAPE);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_MORPH_SHAPE);
 
         identifier = coder.readUnsignedShort();
 
@@ -226,7 +226,7 @@ public final class DefineMorphShape implements ShapeTag {
         }
 
         context.remove(Context.TRANSPARENT);
-        context.put(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
         context.remove(Context.TYPE);
 
         // known bug - empty objects may be added to Flash file.
@@ -400,6 +400,11 @@ public final class DefineMorphShape implements ShapeTag {
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Get shape displayed at the end of the morphing process.
      *
@@ -527,7 +532,7 @@ public final class DefineMorphShape implements ShapeTag {
             }
         }
 
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
         length = 6 + bounds.prepareToEncode(context);
@@ -546,15 +551,15 @@ public final class DefineMorphShape implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
         offset = length - offset;
         // Number of Fill and Line bits is zero for end shape.
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         length += endShape.prepareToEncode(context);
 
@@ -583,7 +588,7 @@ public final class DefineMorphShape implements ShapeTag {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         bounds.encode(coder, context);
         endBounds.encode(coder, context);
@@ -611,15 +616,15 @@ public final class DefineMorphShape implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
         // Number of Fill and Line bits is zero for end shape.
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         endShape.encode(coder, context);
 
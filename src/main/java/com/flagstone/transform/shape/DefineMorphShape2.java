@@ -160,9 +160,9 @@ public final class DefineMorphShape2 implements ShapeTag {
         coder.mark();
         identifier = coder.readUnsignedShort();
 
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.TYPE, MovieTypes.DEFINE_MORPH_SHAPE);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_MORPH_SHAPE);
 
         bounds = new Bounds(coder);
         endBounds = new Bounds(coder);
@@ -403,6 +403,11 @@ public final class DefineMorphShape2 implements ShapeTag {
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Get shape displayed at the end of the morphing process.
      *
@@ -553,7 +558,7 @@ public final class DefineMorphShape2 implements ShapeTag {
             }
         }
 
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
         length = 7;
@@ -569,7 +574,7 @@ public final class DefineMorphShape2 implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.SCALING_STROKE, 0);
+        context.putInt(Context.SCALING_STROKE, 0);
 
         length += (lineStyles.size() >= EXTENDED) ? EXTENDED_LENGTH : 1;
 
@@ -579,15 +584,15 @@ public final class DefineMorphShape2 implements ShapeTag {
 
         scaling = context.contains(Context.SCALING_STROKE);
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
         offset = length - offset;
         // Number of Fill and Line bits is zero for end shape.
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         length += endShape.prepareToEncode(context);
 
@@ -617,7 +622,7 @@ public final class DefineMorphShape2 implements ShapeTag {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         bounds.encode(coder, context);
         endBounds.encode(coder, context);
@@ -649,16 +654,16 @@ public final class DefineMorphShape2 implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
         // Number of Fill and Line bits is zero for end shape.
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         endShape.encode(coder, context);
 
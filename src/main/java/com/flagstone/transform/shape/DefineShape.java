@@ -32,12 +32,14 @@
 package com.flagstone.transform.shape;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.flagstone.transform.Constants;
 import com.flagstone.transform.MovieTypes;
 import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncoder;
@@ -86,6 +88,8 @@ public final class DefineShape implements ShapeTag {
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
+    /** The encoded object, minus the header, or null if it was changed. */
+    private transient byte[] encoded;
     /** The number of bits to encode indices into the fill style list. */
     private transient int fillBits;
     /** The number of bits to encode indices into the line style list. */
@@ -112,6 +116,35 @@ public final class DefineShape implements ShapeTag {
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
         }
+        if (context.contains(Context.PASS_THROUGH)) {
+            final int start = coder.mark();
+            coder.unmark();
+            encoded = coder.readBytes(new byte[length]);
+            final SWFDecoder body = new SWFDecoder(ByteBuffer.wrap(encoded));
+            decode(body, context);
+            if (body.getDelta() != 0) {
+                throw new CoderException(start + body.getLocation(),
+                        body.getExpected(), body.getDelta());
+            }
+        } else {
+            decode(coder, context);
+        }
+    }
+
+    /**
+     * Decode the body of the shape.
+     *
+     * @param coder
+     *            an SWFDecoder object that contains the encoded Flash data.
+     * @param context
+     *            a Context object used to manage the decoders for different
+     *            type of object and to pass information on how objects are
+     *            decoded.
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    private void decode(final SWFDecoder coder, final Context context)
+            throws IOException {
         coder.mark();
         identifier = coder.readUnsignedShort();
         bounds = new Bounds(coder);
@@ -119,7 +152,7 @@ public final class DefineShape implements ShapeTag {
         fillStyles = new ArrayList<FillStyle>();
         lineStyles = new ArrayList<LineStyle>();
 
-        context.put(Context.TYPE, MovieTypes.DEFINE_SHAPE);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_SHAPE);
 
         final int fillStyleCount = coder.readByte();
 
@@ -181,6 +214,7 @@ public final class DefineShape implements ShapeTag {
      *            copied.
      */
     public DefineShape(final DefineShape object) {
+        encoded = object.encoded;
         identifier = object.identifier;
         bounds = object.bounds;
         fillStyles = new ArrayList<FillStyle>(object.fillStyles.size());
@@ -205,6 +239,7 @@ public final class DefineShape implements ShapeTag {
             throw new IllegalArgumentRangeException(
                     1, Coder.USHORT_MAX, uid);
         }
+        encoded = null;
         identifier = uid;
     }
 
@@ -221,6 +256,7 @@ public final class DefineShape implements ShapeTag {
         if (style == null || style instanceof LineStyle2) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles.add(style);
         return this;
     }
@@ -237,6 +273,7 @@ public final class DefineShape implements ShapeTag {
         if (style == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles.add(style);
         return this;
     }
@@ -256,6 +293,7 @@ public final class DefineShape implements ShapeTag {
      * @return the list of fill styles used in the shape.
      */
     public List<FillStyle> getFillStyles() {
+        encoded = null;
         return fillStyles;
     }
 
@@ -265,6 +303,7 @@ public final class DefineShape implements ShapeTag {
      * @return the list of line styles used in the shape.
      */
     public List<LineStyle> getLineStyles() {
+        encoded = null;
         return lineStyles;
     }
 
@@ -274,9 +313,15 @@ public final class DefineShape implements ShapeTag {
      * @return the shape.
      */
     public Shape getShape() {
+        encoded = null;
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Sets the bounding rectangle that encloses the shape.
      *
@@ -287,6 +332,7 @@ public final class DefineShape implements ShapeTag {
         if (rect == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         bounds = rect;
     }
 
@@ -300,6 +346,7 @@ public final class DefineShape implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles = list;
     }
 
@@ -314,6 +361,7 @@ public final class DefineShape implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles = list;
     }
 
@@ -327,6 +375,7 @@ public final class DefineShape implements ShapeTag {
         if (aShape == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         shape = aShape;
     }
 
@@ -343,6 +392,12 @@ public final class DefineShape implements ShapeTag {
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
+        if (encoded != null) {
+            length = encoded.length;
+            return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
+                    : Coder.SHORT_HEADER) + length;
+        }
+
         fillBits = Coder.unsignedSize(fillStyles.size());
         lineBits = Coder.unsignedSize(lineStyles.size());
 
@@ -369,13 +424,13 @@ public final class DefineShape implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -393,6 +448,10 @@ public final class DefineShape implements ShapeTag {
             coder.writeShort((MovieTypes.DEFINE_SHAPE
                     << Coder.LENGTH_FIELD_SIZE) | length);
         }
+        if (encoded != null) {
+            coder.writeBytes(encoded);
+            return;
+        }
         if (Constants.DEBUG) {
             coder.mark();
         }
@@ -411,13 +470,13 @@ public final class DefineShape implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         if (Constants.DEBUG) {
             coder.check(length);
             coder.unmark();
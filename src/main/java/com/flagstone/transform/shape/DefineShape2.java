@@ -32,12 +32,14 @@
 package com.flagstone.transform.shape;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.flagstone.transform.Constants;
 import com.flagstone.transform.MovieTypes;
 import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncoder;
@@ -93,6 +95,8 @@ public final class DefineShape2 implements ShapeTag {
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
+    /** The encoded object, minus the header, or null if it was changed. */
+    private transient byte[] encoded;
     /** The number of bits to encode indices into the fill style list. */
     private transient int fillBits;
     /** The number of bits to encode indices into the line style list. */
@@ -119,14 +123,43 @@ public final class DefineShape2 implements ShapeTag {
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
         }
+        if (context.contains(Context.PASS_THROUGH)) {
+            final int start = coder.mark();
+            coder.unmark();
+            encoded = coder.readBytes(new byte[length]);
+            final SWFDecoder body = new SWFDecoder(ByteBuffer.wrap(encoded));
+            decode(body, context);
+            if (body.getDelta() != 0) {
+                throw new CoderException(start + body.getLocation(),
+                        body.getExpected(), body.getDelta());
+            }
+        } else {
+            decode(coder, context);
+        }
+    }
+
+    /**
+     * Decode the body of the shape.
+     *
+     * @param coder
+     *            an SWFDecoder object that contains the encoded Flash data.
+     * @param context
+     *            a Context object used to manage the decoders for different
+     *            type of object and to pass information on how objects are
+     *            decoded.
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    private void decode(final SWFDecoder coder, final Context context)
+            throws IOException {
         coder.mark();
         identifier = coder.readUnsignedShort();
         bounds = new Bounds(coder);
 
         fillStyles = new ArrayList<FillStyle>();
         lineStyles = new ArrayList<LineStyle>();
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.TYPE, MovieTypes.DEFINE_SHAPE_2);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_SHAPE_2);
 
         int fillStyleCount = coder.readByte();
 
@@ -196,6 +229,7 @@ public final class DefineShape2 implements ShapeTag {
      *            copied.
      */
     public DefineShape2(final DefineShape2 object) {
+        encoded = object.encoded;
         identifier = object.identifier;
         bounds = object.bounds;
         fillStyles = new ArrayList<FillStyle>(object.fillStyles.size());
@@ -220,6 +254,7 @@ public final class DefineShape2 implements ShapeTag {
             throw new IllegalArgumentRangeException(
                     1, Coder.USHORT_MAX, uid);
         }
+        encoded = null;
         identifier = uid;
     }
 
@@ -236,6 +271,7 @@ public final class DefineShape2 implements ShapeTag {
         if (style == null || style instanceof LineStyle2) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles.add(style);
         return this;
     }
@@ -252,6 +288,7 @@ public final class DefineShape2 implements ShapeTag {
         if (style == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles.add(style);
         return this;
     }
@@ -271,6 +308,7 @@ public final class DefineShape2 implements ShapeTag {
      * @return the list of fill styles used in the shape.
      */
     public List<FillStyle> getFillStyles() {
+        encoded = null;
         return fillStyles;
     }
 
@@ -280,6 +318,7 @@ public final class DefineShape2 implements ShapeTag {
      * @return the list of line styles used in the shape.
      */
     public List<LineStyle> getLineStyles() {
+        encoded = null;
         return lineStyles;
     }
 
@@ -289,9 +328,15 @@ public final class DefineShape2 implements ShapeTag {
      * @return the shape.
      */
     public Shape getShape() {
+        encoded = null;
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Sets the bounding rectangle that encloses the shape.
      *
@@ -302,6 +347,7 @@ public final class DefineShape2 implements ShapeTag {
         if (rect == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         bounds = rect;
     }
 
@@ -315,6 +361,7 @@ public final class DefineShape2 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles = list;
     }
 
@@ -329,6 +376,7 @@ public final class DefineShape2 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles = list;
     }
 
@@ -342,6 +390,7 @@ public final class DefineShape2 implements ShapeTag {
         if (aShape == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         shape = aShape;
     }
 
@@ -359,6 +408,12 @@ public final class DefineShape2 implements ShapeTag {
     /** {@inheritDoc} */
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
+        if (encoded != null) {
+            length = encoded.length;
+            return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
+                    : Coder.SHORT_HEADER) + length;
+        }
+
         fillBits = Coder.unsignedSize(fillStyles.size());
         lineBits = Coder.unsignedSize(lineStyles.size());
 
@@ -385,15 +440,15 @@ public final class DefineShape2 implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -411,6 +466,10 @@ public final class DefineShape2 implements ShapeTag {
             coder.writeShort((MovieTypes.DEFINE_SHAPE_2
                     << Coder.LENGTH_FIELD_SIZE) | length);
         }
+        if (encoded != null) {
+            coder.writeBytes(encoded);
+            return;
+        }
         if (Constants.DEBUG) {
             coder.mark();
         }
@@ -439,15 +498,15 @@ public final class DefineShape2 implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         if (Constants.DEBUG) {
             coder.check(length);
             coder.unmark();
@@ -30,12 +30,14 @@
 package com.flagstone.transform.shape;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.flagstone.transform.Constants;
 import com.flagstone.transform.MovieTypes;
 import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncoder;
@@ -79,6 +81,8 @@ public final class DefineShape3 implements ShapeTag {
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
+    /** The encoded object, minus the header, or null if it was changed. */
+    private transient byte[] encoded;
     /** The number of bits to encode indices into the fill style list. */
     private transient int fillBits;
     /** The number of bits to encode indices into the line style list. */
@@ -105,10 +109,39 @@ public final class DefineShape3 implements ShapeTag {
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
         }
+        if (context.contains(Context.PASS_THROUGH)) {
+            final int start = coder.mark();
+            coder.unmark();
+            encoded = coder.readBytes(new byte[length]);
+            final SWFDecoder body = new SWFDecoder(ByteBuffer.wrap(encoded));
+            decode(body, context);
+            if (body.getDelta() != 0) {
+                throw new CoderException(start + body.getLocation(),
+                        body.getExpected(), body.getDelta());
+            }
+        } else {
+            decode(coder, context);
+        }
+    }
+
+    /**
+     * Decode the body of the shape.
+     *
+     * @param coder
+     *            an SWFDecoder object that contains the encoded Flash data.
+     * @param context
+     *            a Context object used to manage the decoders for different
+     *            type of object and to pass information on how objects are
+     *            decoded.
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    private void decode(final SWFDecoder coder, final Context context)
+            throws IOException {
         coder.mark();
         identifier = coder.readUnsignedShort();
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.TYPE, MovieTypes.DEFINE_SHAPE_3);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_SHAPE_3);
 
         bounds = new Bounds(coder);
 
@@ -137,7 +170,7 @@ public final class DefineShape3 implements ShapeTag {
             lineStyles.add(new LineStyle1(coder, context));
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
 
         if (context.getRegistry().getShapeDecoder() == null) {
             shape = new Shape();
@@ -186,6 +219,7 @@ public final class DefineShape3 implements ShapeTag {
      *            copied.
      */
     public DefineShape3(final DefineShape3 object) {
+        encoded = object.encoded;
         identifier = object.identifier;
         bounds = object.bounds;
         fillStyles = new ArrayList<FillStyle>(object.fillStyles.size());
@@ -210,6 +244,7 @@ public final class DefineShape3 implements ShapeTag {
             throw new IllegalArgumentRangeException(
                     1, Coder.USHORT_MAX, uid);
         }
+        encoded = null;
         identifier = uid;
     }
 
@@ -226,6 +261,7 @@ public final class DefineShape3 implements ShapeTag {
         if (style == null || style instanceof LineStyle2) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles.add(style);
         return this;
     }
@@ -242,6 +278,7 @@ public final class DefineShape3 implements ShapeTag {
         if (style == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles.add(style);
         return this;
     }
@@ -261,6 +298,7 @@ public final class DefineShape3 implements ShapeTag {
      * @return the list of fill styles used in the shape.
      */
     public List<FillStyle> getFillStyles() {
+        encoded = null;
         return fillStyles;
     }
 
@@ -270,6 +308,7 @@ public final class DefineShape3 implements ShapeTag {
      * @return the list of line styles used in the shape.
      */
     public List<LineStyle> getLineStyles() {
+        encoded = null;
         return lineStyles;
     }
 
@@ -279,9 +318,15 @@ public final class DefineShape3 implements ShapeTag {
      * @return the shape.
      */
     public Shape getShape() {
+        encoded = null;
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Sets the bounding rectangle that encloses the shape.
      *
@@ -292,6 +337,7 @@ public final class DefineShape3 implements ShapeTag {
         if (rect == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         bounds = rect;
     }
 
@@ -305,6 +351,7 @@ public final class DefineShape3 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles = list;
     }
 
@@ -319,6 +366,7 @@ public final class DefineShape3 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles = list;
     }
 
@@ -332,6 +380,7 @@ public final class DefineShape3 implements ShapeTag {
         if (aShape == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         shape = aShape;
     }
 
@@ -349,6 +398,12 @@ public final class DefineShape3 implements ShapeTag {
     /** {@inheritDoc} */
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
+        if (encoded != null) {
+            length = encoded.length;
+            return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
+                    : Coder.SHORT_HEADER) + length;
+        }
+
         fillBits = Coder.unsignedSize(fillStyles.size());
         lineBits = Coder.unsignedSize(lineStyles.size());
 
@@ -362,7 +417,7 @@ public final class DefineShape3 implements ShapeTag {
             }
         }
 
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         length = 2 + bounds.prepareToEncode(context);
 
@@ -378,15 +433,15 @@ public final class DefineShape3 implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.TRANSPARENT);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
@@ -405,11 +460,15 @@ public final class DefineShape3 implements ShapeTag {
             coder.writeShort((MovieTypes.DEFINE_SHAPE_3
                     << Coder.LENGTH_FIELD_SIZE) | length);
         }
+        if (encoded != null) {
+            coder.writeBytes(encoded);
+            return;
+        }
         if (Constants.DEBUG) {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         bounds.encode(coder, context);
 
@@ -435,15 +494,15 @@ public final class DefineShape3 implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.TRANSPARENT);
         if (Constants.DEBUG) {
             coder.check(length);
@@ -32,12 +32,14 @@
 package com.flagstone.transform.shape;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.flagstone.transform.Constants;
 import com.flagstone.transform.MovieTypes;
 import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncoder;
@@ -89,6 +91,8 @@ public final class DefineShape4 implements ShapeTag {
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
+    /** The encoded object, minus the header, or null if it was changed. */
+    private transient byte[] encoded;
     /** The number of bits to encode indices into the fill style list. */
     private transient int fillBits;
     /** The number of bits to encode indices into the line style list. */
@@ -115,10 +119,39 @@ public final class DefineShape4 implements ShapeTag {
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
         }
+        if (context.contains(Context.PASS_THROUGH)) {
+            final int start = coder.mark();
+            coder.unmark();
+            encoded = coder.readBytes(new byte[length]);
+            final SWFDecoder body = new SWFDecoder(ByteBuffer.wrap(encoded));
+            decode(body, context);
+            if (body.getDelta() != 0) {
+                throw new CoderException(start + body.getLocation(),
+                        body.getExpected(), body.getDelta());
+            }
+        } else {
+            decode(coder, context);
+        }
+    }
+
+    /**
+     * Decode the body of the shape.
+     *
+     * @param coder
+     *            an SWFDecoder object that contains the encoded Flash data.
+     * @param context
+     *            a Context object used to manage the decoders for different
+     *            type of object and to pass information on how objects are
+     *            decoded.
+     * @throws IOException
+     *             if an error occurs while decoding the data.
+     */
+    private void decode(final SWFDecoder coder, final Context context)
+            throws IOException {
         coder.mark();
         identifier = coder.readUnsignedShort();
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.TYPE, MovieTypes.DEFINE_SHAPE_4);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.TYPE, MovieTypes.DEFINE_SHAPE_4);
 
         bounds = new Bounds(coder);
         edgeBounds = new Bounds(coder);
@@ -151,7 +184,7 @@ public final class DefineShape4 implements ShapeTag {
             lineStyles.add(new LineStyle2(coder, context));
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
 
         if (context.getRegistry().getShapeDecoder() == null) {
             shape = new Shape();
@@ -205,6 +238,7 @@ public final class DefineShape4 implements ShapeTag {
      *            copied.
      */
     public DefineShape4(final DefineShape4 object) {
+        encoded = object.encoded;
         identifier = object.identifier;
         bounds = object.bounds;
         edgeBounds = object.edgeBounds;
@@ -230,6 +264,7 @@ public final class DefineShape4 implements ShapeTag {
             throw new IllegalArgumentRangeException(
                     1, Coder.USHORT_MAX, uid);
         }
+        encoded = null;
         identifier = uid;
     }
 
@@ -252,6 +287,7 @@ public final class DefineShape4 implements ShapeTag {
         if (rect == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         bounds = rect;
     }
 
@@ -276,6 +312,7 @@ public final class DefineShape4 implements ShapeTag {
         if (rect == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         edgeBounds = rect;
     }
 
@@ -292,6 +329,7 @@ public final class DefineShape4 implements ShapeTag {
         if (style == null || style instanceof LineStyle1) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles.add(style);
         return this;
     }
@@ -308,6 +346,7 @@ public final class DefineShape4 implements ShapeTag {
         if (style == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles.add(style);
         return this;
     }
@@ -318,6 +357,7 @@ public final class DefineShape4 implements ShapeTag {
      * @return the list of fill styles used in the shape.
      */
     public List<FillStyle> getFillStyles() {
+        encoded = null;
         return fillStyles;
     }
 
@@ -327,6 +367,7 @@ public final class DefineShape4 implements ShapeTag {
      * @return the list of line styles used in the shape.
      */
     public List<LineStyle> getLineStyles() {
+        encoded = null;
         return lineStyles;
     }
 
@@ -336,9 +377,15 @@ public final class DefineShape4 implements ShapeTag {
      * @return the shape.
      */
     public Shape getShape() {
+        encoded = null;
         return shape;
     }
 
+    /** {@inheritDoc} */
+    public List<Integer> getImages() {
+        return Shape.images(fillStyles, shape);
+    }
+
     /**
      * Sets the list fill styles that will be used to draw the shape.
      *
@@ -349,6 +396,7 @@ public final class DefineShape4 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         fillStyles = list;
     }
 
@@ -363,6 +411,7 @@ public final class DefineShape4 implements ShapeTag {
         if (list == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         lineStyles = list;
     }
 
@@ -376,6 +425,7 @@ public final class DefineShape4 implements ShapeTag {
         if (aShape == null) {
             throw new IllegalArgumentException();
         }
+        encoded = null;
         shape = aShape;
     }
 
@@ -392,6 +442,7 @@ public final class DefineShape4 implements ShapeTag {
      * @param use true if fill winding is used, false otherwise.
      */
     public void setWinding(final boolean use) {
+        encoded = null;
         if (use) {
             winding = Coder.BIT2;
         } else {
@@ -413,6 +464,12 @@ public final class DefineShape4 implements ShapeTag {
     /** {@inheritDoc} */
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
+        if (encoded != null) {
+            length = encoded.length;
+            return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
+                    : Coder.SHORT_HEADER) + length;
+        }
+
         fillBits = Coder.unsignedSize(fillStyles.size());
         lineBits = Coder.unsignedSize(lineStyles.size());
 
@@ -426,7 +483,7 @@ public final class DefineShape4 implements ShapeTag {
             }
         }
 
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
         length = 3;
         length += bounds.prepareToEncode(context);
@@ -438,7 +495,7 @@ public final class DefineShape4 implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        context.put(Context.SCALING_STROKE, 0);
+        context.putInt(Context.SCALING_STROKE, 0);
 
         length += (lineStyles.size() >= EXTENDED) ? EXTENDED_LENGTH : 1;
 
@@ -446,17 +503,17 @@ public final class DefineShape4 implements ShapeTag {
             length += style.prepareToEncode(context);
         }
 
-        scaling = context.get(Context.SCALING_STROKE);
+        scaling = context.getInt(Context.SCALING_STROKE);
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         length += shape.prepareToEncode(context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.TRANSPARENT);
         context.remove(Context.SCALING_STROKE);
 
@@ -467,7 +524,7 @@ public final class DefineShape4 implements ShapeTag {
     /** {@inheritDoc} */
     public void encode(final SWFEncoder coder, final Context context)
             throws IOException {
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         if (length > Coder.HEADER_LIMIT) {
             coder.writeShort((MovieTypes.DEFINE_SHAPE_4
@@ -477,6 +534,10 @@ public final class DefineShape4 implements ShapeTag {
             coder.writeShort((MovieTypes.DEFINE_SHAPE_4
                     << Coder.LENGTH_FIELD_SIZE) | length);
         }
+        if (encoded != null) {
+            coder.writeBytes(encoded);
+            return;
+        }
         if (Constants.DEBUG) {
             coder.mark();
         }
@@ -509,15 +570,15 @@ public final class DefineShape4 implements ShapeTag {
             style.encode(coder, context);
         }
 
-        context.put(Context.ARRAY_EXTENDED, 1);
-        context.put(Context.FILL_SIZE, fillBits);
-        context.put(Context.LINE_SIZE, lineBits);
+        context.putInt(Context.ARRAY_EXTENDED, 1);
+        context.putInt(Context.FILL_SIZE, fillBits);
+        context.putInt(Context.LINE_SIZE, lineBits);
 
         shape.encode(coder, context);
 
         context.remove(Context.ARRAY_EXTENDED);
-        context.put(Context.FILL_SIZE, 0);
-        context.put(Context.LINE_SIZE, 0);
+        context.putInt(Context.FILL_SIZE, 0);
+        context.putInt(Context.LINE_SIZE, 0);
         context.remove(Context.TRANSPARENT);
         if (Constants.DEBUG) {
             coder.check(length);
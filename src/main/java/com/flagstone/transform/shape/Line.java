@@ -184,7 +184,7 @@ public final class Line implements ShapeRecord {
             numberOfBits += 1 + size;
         }
 
-        context.put(Context.SHAPE_SIZE, context.get(Context.SHAPE_SIZE)
+        context.putInt(Context.SHAPE_SIZE, context.getInt(Context.SHAPE_SIZE)
                 + numberOfBits);
 
         return numberOfBits;
@@ -86,7 +86,7 @@ public final class PathsArePostscript implements MovieTag {
      */
     public static PathsArePostscript getInstance(final SWFDecoder coder,
             final Context context) throws IOException {
-        context.put(Context.POSTSCRIPT, 1);
+        context.putInt(Context.POSTSCRIPT, 1);
         coder.readUnsignedShort();
         return INSTANCE;
     }
@@ -108,7 +108,7 @@ public final class PathsArePostscript implements MovieTag {
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
-        context.put(Context.POSTSCRIPT, 1);
+        context.putInt(Context.POSTSCRIPT, 1);
         return 2;
     }
 
@@ -31,7 +31,6 @@
 
 package com.flagstone.transform.shape;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +42,9 @@ import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncodeable;
 import com.flagstone.transform.coder.SWFEncoder;
 import com.flagstone.transform.coder.SWFFactory;
+import com.flagstone.transform.fillstyle.BitmapFill;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.fillstyle.MorphBitmapFill;
 
 /**
  * Shape is a container class for the shape objects (Line, Curve, ShapeStyle
@@ -68,6 +70,45 @@ public final class Shape implements SWFEncodeable, Copyable<Shape> {
     /** Format string used in toString() method. */
     private static final String FORMAT = "Shape: { records=%s}";
 
+    /**
+     * Get the identifiers of the images used in a list of fill styles and in
+     * the fill styles defined in the records of a shape.
+     *
+     * @param styles the fill styles.
+     * @param shape the shape, whose records may define further styles.
+     * @return the identifiers of the images in the order they are used.
+     */
+    static List<Integer> images(final List<FillStyle> styles,
+            final Shape shape) {
+        final List<Integer> list = new ArrayList<Integer>();
+        images(styles, list);
+        for (final ShapeRecord record : shape.objects) {
+            if (record instanceof ShapeStyle) {
+                images(((ShapeStyle) record).getFillStyles(), list);
+            } else if (record instanceof ShapeStyle2) {
+                images(((ShapeStyle2) record).getFillStyles(), list);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Add the identifiers of the images used in a list of fill styles.
+     *
+     * @param styles the fill styles.
+     * @param list the list the identifiers are added to.
+     */
+    private static void images(final List<FillStyle> styles,
+            final List<Integer> list) {
+        for (final FillStyle style : styles) {
+            if (style instanceof BitmapFill) {
+                list.add(((BitmapFill) style).getIdentifier());
+            } else if (style instanceof MorphBitmapFill) {
+                list.add(((MorphBitmapFill) style).getIdentifier());
+            }
+        }
+    }
+
     /**
      * Decode a ShapeData object into the set of ShapeRecord objects that
      * describe how a shape is drawn.
@@ -77,9 +118,7 @@ public final class Shape implements SWFEncodeable, Copyable<Shape> {
      */
     public static Shape shapeFromData(final ShapeData shapeData)
                 throws IOException {
-        final byte[] data = shapeData.getData();
-        final ByteArrayInputStream stream = new ByteArrayInputStream(data);
-        final SWFDecoder coder = new SWFDecoder(stream);
+        final SWFDecoder coder = new SWFDecoder(shapeData.buffer());
         final Context context = new Context();
         return new Shape(coder, context);
     }
@@ -110,9 +149,9 @@ public final class Shape implements SWFEncodeable, Copyable<Shape> {
         objects = new ArrayList<ShapeRecord>();
 
         final int sizes = coder.readByte();
-        context.put(Context.FILL_SIZE, (sizes & Coder.NIB1)
+        context.putInt(Context.FILL_SIZE, (sizes & Coder.NIB1)
                 >> Coder.TO_LOWER_NIB);
-        context.put(Context.LINE_SIZE, sizes & Coder.NIB0);
+        context.putInt(Context.LINE_SIZE, sizes & Coder.NIB0);
 
         final SWFFactory<ShapeRecord> decoder = context.getRegistry()
             .getShapeDecoder();
@@ -214,7 +253,7 @@ public final class Shape implements SWFEncodeable, Copyable<Shape> {
         if (isEncoded) {
             length += objects.get(0).prepareToEncode(context);
         } else {
-            context.put(Context.SHAPE_SIZE, 0);
+            context.putInt(Context.SHAPE_SIZE, 0);
 
             // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 6 LINES
             int numberOfBits = 21; // Includes end of shape and align to byte
@@ -234,8 +273,8 @@ public final class Shape implements SWFEncodeable, Copyable<Shape> {
         if (isEncoded) {
             objects.get(0).encode(coder, context);
         } else {
-            int bits = context.get(Context.FILL_SIZE) << Coder.TO_UPPER_NIB;
-            bits |= context.get(Context.LINE_SIZE);
+            int bits = context.getInt(Context.FILL_SIZE) << Coder.TO_UPPER_NIB;
+            bits |= context.getInt(Context.LINE_SIZE);
             coder.writeByte(bits);
 
             for (final ShapeRecord record : objects) {
@@ -32,6 +32,7 @@
 package com.flagstone.transform.shape;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.coder.Context;
@@ -47,7 +48,7 @@ public final class ShapeData implements ShapeRecord {
     /** Format string used in toString() method. */
     private static final String FORMAT = "ShapeData: byte<%d> ...";
     /** The encoded ShapeRecords. */
-    private final transient byte[] data;
+    private final transient ByteBuffer data;
 
     /**
      * Create a new ShapeData object initialised with an array of bytes
@@ -66,7 +67,7 @@ public final class ShapeData implements ShapeRecord {
         if (size < 0) {
             throw new IllegalArgumentException();
         }
-        data = coder.readBytes(new byte[size]);
+        data = coder.readBuffer(size);
     }
 
     /**
@@ -77,7 +78,7 @@ public final class ShapeData implements ShapeRecord {
         if (bytes == null) {
             throw new IllegalArgumentException();
         }
-        data = Arrays.copyOf(bytes, bytes.length);
+        data = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
     }
 
     /**
@@ -98,9 +99,31 @@ public final class ShapeData implements ShapeRecord {
      * @return a copy of the encoded shape.
      */
     public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the encoded data. The data is not copied.
+     *
+     * @return a read-only buffer containing the encoded data.
+     */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyBuffer();
     }
 
+    /**
+     * Get a view of the encoded data that shares the underlying array, if
+     * there is one, so it can be decoded without copying. The contents must
+     * not be changed.
+     *
+     * @return a buffer containing the encoded data.
+     */
+    ByteBuffer buffer() {
+        return data.duplicate();
+    }
+
     /** {@inheritDoc} */
     public ShapeData copy() {
         return new ShapeData(this);
@@ -108,12 +131,12 @@ public final class ShapeData implements ShapeRecord {
 
     @Override
     public String toString() {
-        return String.format(FORMAT, data.length);
+        return String.format(FORMAT, data.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
-        return data.length;
+        return data.remaining();
     }
 
     /** {@inheritDoc} */
@@ -143,8 +143,8 @@ public final class ShapeStyle implements ShapeRecord {
 
     public ShapeStyle(final int flags, final SWFDecoder coder,
             final Context context) throws IOException {
-        int numberOfFillBits = context.get(Context.FILL_SIZE);
-        int numberOfLineBits = context.get(Context.LINE_SIZE);
+        int numberOfFillBits = context.getInt(Context.FILL_SIZE);
+        int numberOfLineBits = context.getInt(Context.LINE_SIZE);
 
         hasStyles = (flags & Coder.BIT4) != 0;
         hasLine = (flags & Coder.BIT3) != 0;
@@ -202,8 +202,8 @@ public final class ShapeStyle implements ShapeRecord {
             numberOfFillBits = (sizes & Coder.NIB1) >> Coder.TO_LOWER_NIB;
             numberOfLineBits = sizes & Coder.NIB0;
 
-            context.put(Context.FILL_SIZE, numberOfFillBits);
-            context.put(Context.LINE_SIZE, numberOfLineBits);
+            context.putInt(Context.FILL_SIZE, numberOfFillBits);
+            context.putInt(Context.LINE_SIZE, numberOfLineBits);
         }
     }
 
@@ -516,11 +516,11 @@ public final class ShapeStyle implements ShapeRecord {
             numberOfBits += 5 + fieldSize * 2;
         }
 
-        numberOfBits += hasFill ? context.get(Context.FILL_SIZE) : 0;
-        numberOfBits += hasAlt ? context.get(Context.FILL_SIZE) : 0;
-        numberOfBits += (hasLine) ? context.get(Context.LINE_SIZE) : 0;
+        numberOfBits += hasFill ? context.getInt(Context.FILL_SIZE) : 0;
+        numberOfBits += hasAlt ? context.getInt(Context.FILL_SIZE) : 0;
+        numberOfBits += (hasLine) ? context.getInt(Context.LINE_SIZE) : 0;
 
-        context.put(Context.SHAPE_SIZE, context.get(Context.SHAPE_SIZE)
+        context.putInt(Context.SHAPE_SIZE, context.getInt(Context.SHAPE_SIZE)
                 + numberOfBits);
 
         if (hasStyles) {
@@ -541,7 +541,7 @@ public final class ShapeStyle implements ShapeRecord {
                     .contains(Context.ARRAY_EXTENDED);
 
             int numberOfStyleBits = 0;
-            final int flushBits = context.get(Context.SHAPE_SIZE);
+            final int flushBits = context.getInt(Context.SHAPE_SIZE);
 
             numberOfStyleBits += (flushBits % 8 > 0)
                     ? 8 - (flushBits % 8) : 0;
@@ -561,10 +561,10 @@ public final class ShapeStyle implements ShapeRecord {
 
             numberOfStyleBits += 8;
 
-            context.put(Context.FILL_SIZE, numberOfFillBits);
-            context.put(Context.LINE_SIZE, numberOfLineBits);
-            context.put(Context.SHAPE_SIZE, context.get(Context.SHAPE_SIZE)
-                    + numberOfStyleBits);
+            context.putInt(Context.FILL_SIZE, numberOfFillBits);
+            context.putInt(Context.LINE_SIZE, numberOfLineBits);
+            context.putInt(Context.SHAPE_SIZE,
+                    context.getInt(Context.SHAPE_SIZE) + numberOfStyleBits);
 
             numberOfBits += numberOfStyleBits;
         }
@@ -594,15 +594,15 @@ public final class ShapeStyle implements ShapeRecord {
         }
 
         if (hasFill) {
-            coder.writeBits(fillStyle, context.get(Context.FILL_SIZE));
+            coder.writeBits(fillStyle, context.getInt(Context.FILL_SIZE));
         }
 
         if (hasAlt) {
-            coder.writeBits(altFillStyle, context.get(Context.FILL_SIZE));
+            coder.writeBits(altFillStyle, context.getInt(Context.FILL_SIZE));
         }
 
         if (hasLine) {
-            coder.writeBits(lineStyle, context.get(Context.LINE_SIZE));
+            coder.writeBits(lineStyle, context.getInt(Context.LINE_SIZE));
         }
 
         if (hasStyles) {
@@ -650,8 +650,8 @@ public final class ShapeStyle implements ShapeRecord {
                     | numberOfLineBits);
 
             // Update the stream with the new numbers of line and fill bits
-            context.put(Context.FILL_SIZE, numberOfFillBits);
-            context.put(Context.LINE_SIZE, numberOfLineBits);
+            context.putInt(Context.FILL_SIZE, numberOfFillBits);
+            context.putInt(Context.LINE_SIZE, numberOfLineBits);
         }
     }
 }
@@ -85,4 +85,15 @@ public interface ShapeTag extends DefineTag {
      *            set the shape to be drawn. Must not be null.
      */
     void setShape(final Shape aShape);
+
+    /**
+     * Get the identifiers of the images used by the fill styles of the shape,
+     * including the styles defined in the records of the shape. Unlike
+     * getFillStyles() and getShape() this does not return any object that
+     * could be used to change the shape, so the encoded data kept by shapes
+     * decoded with pass through enabled is not discarded.
+     *
+     * @return the identifiers of the images in the order they are used.
+     */
+    List<Integer> getImages();
 }
@@ -32,6 +32,7 @@
 package com.flagstone.transform.sound;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.Constants;
@@ -89,7 +90,7 @@ public final class DefineSound implements DefineTag {
     /** The number of samples. */
     private int sampleCount;
     /** The sound data. */
-    private byte[] sound;
+    private ByteBuffer sound;
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
@@ -138,7 +139,7 @@ public final class DefineSound implements DefineTag {
         channelCount = (info & 0x01) + 1;
         sampleCount = coder.readInt();
 
-        sound = coder.readBytes(new byte[length - coder.bytesRead()]);
+        sound = coder.readBuffer(length - coder.bytesRead());
         coder.unmark();
     }
 
@@ -263,7 +264,18 @@ public final class DefineSound implements DefineTag {
      * @return a copy of the sound.
      */
     public byte[] getSound() {
-        return Arrays.copyOf(sound, sound.length);
+        final byte[] bytes = new byte[sound.remaining()];
+        sound.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the sound data. The data is not copied.
+     *
+     * @return a read-only buffer containing the sound data.
+     */
+    public ByteBuffer getSoundBuffer() {
+        return sound.asReadOnlyBuffer();
     }
 
     /**
@@ -348,7 +360,7 @@ public final class DefineSound implements DefineTag {
         if (bytes == null) {
             throw new IllegalArgumentException();
         }
-        sound = Arrays.copyOf(bytes, bytes.length);
+        sound = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
     }
 
     /** {@inheritDoc} */
@@ -367,7 +379,7 @@ public final class DefineSound implements DefineTag {
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
         length = 7;
-        length += sound.length;
+        length += sound.remaining();
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -32,6 +32,7 @@
 package com.flagstone.transform.sound;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.Constants;
@@ -64,7 +65,7 @@ public final class SoundStreamBlock implements MovieTag {
                 + "sound=byte<%d> ...}";
 
     /** Encoded sound data. */
-    private byte[] sound;
+    private ByteBuffer sound;
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
@@ -84,7 +85,7 @@ public final class SoundStreamBlock implements MovieTag {
         if (length == Coder.IS_EXTENDED) {
             length = coder.readInt();
         }
-        sound = coder.readBytes(new byte[length]);
+        sound = coder.readBuffer(length);
     }
 
     /**
@@ -117,7 +118,18 @@ public final class SoundStreamBlock implements MovieTag {
      * @return a copy of the sound.
      */
     public byte[] getSound() {
-        return Arrays.copyOf(sound, sound.length);
+        final byte[] bytes = new byte[sound.remaining()];
+        sound.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the sound data. The data is not copied.
+     *
+     * @return a read-only buffer containing the sound data.
+     */
+    public ByteBuffer getSoundBuffer() {
+        return sound.asReadOnlyBuffer();
     }
 
     /**
@@ -130,7 +142,7 @@ public final class SoundStreamBlock implements MovieTag {
         if (bytes == null) {
             throw new IllegalArgumentException();
         }
-        sound = Arrays.copyOf(bytes, bytes.length);
+        sound = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
     }
 
     /** {@inheritDoc} */
@@ -141,12 +153,12 @@ public final class SoundStreamBlock implements MovieTag {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, sound.length);
+        return String.format(FORMAT, sound.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
-        length = sound.length;
+        length = sound.remaining();
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
     }
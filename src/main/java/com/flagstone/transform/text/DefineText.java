@@ -138,8 +138,8 @@ public final class DefineText implements StaticTextTag {
         glyphBits = coder.readByte();
         advanceBits = coder.readByte();
 
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         spans = new ArrayList<TextSpan>();
 
@@ -149,8 +149,8 @@ public final class DefineText implements StaticTextTag {
 
         coder.readByte();
 
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
         coder.check(length);
         coder.unmark();
     }
@@ -312,8 +312,8 @@ public final class DefineText implements StaticTextTag {
         glyphBits = calculateSizeForGlyphs();
         advanceBits = calculateSizeForAdvances();
 
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         length = 2 + bounds.prepareToEncode(context);
         length += transform.prepareToEncode(context);
@@ -325,8 +325,8 @@ public final class DefineText implements StaticTextTag {
 
         length += 1;
 
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -350,8 +350,8 @@ public final class DefineText implements StaticTextTag {
         }
         coder.writeShort(identifier);
 
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         bounds.encode(coder, context);
         transform.encode(coder, context);
@@ -365,8 +365,8 @@ public final class DefineText implements StaticTextTag {
 
         coder.writeByte(0);
 
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
         if (Constants.DEBUG) {
             coder.check(length);
             coder.unmark();
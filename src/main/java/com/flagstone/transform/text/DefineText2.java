@@ -137,9 +137,9 @@ public final class DefineText2 implements StaticTextTag {
         glyphBits = coder.readByte();
         advanceBits = coder.readByte();
 
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         spans = new ArrayList<TextSpan>();
 
@@ -150,8 +150,8 @@ public final class DefineText2 implements StaticTextTag {
         coder.readByte();
 
         context.remove(Context.TRANSPARENT);
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
         coder.check(length);
         coder.unmark();
     }
@@ -313,9 +313,9 @@ public final class DefineText2 implements StaticTextTag {
         glyphBits = calculateSizeForGlyphs();
         advanceBits = calculateSizeForAdvances();
 
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         length = 2 + bounds.prepareToEncode(context);
         length += transform.prepareToEncode(context);
@@ -328,8 +328,8 @@ public final class DefineText2 implements StaticTextTag {
         length += 1;
 
         context.remove(Context.TRANSPARENT);
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
 
         return (length > Coder.HEADER_LIMIT ? Coder.LONG_HEADER
                 : Coder.SHORT_HEADER) + length;
@@ -352,9 +352,9 @@ public final class DefineText2 implements StaticTextTag {
             coder.mark();
         }
         coder.writeShort(identifier);
-        context.put(Context.TRANSPARENT, 1);
-        context.put(Context.GLYPH_SIZE, glyphBits);
-        context.put(Context.ADVANCE_SIZE, advanceBits);
+        context.putInt(Context.TRANSPARENT, 1);
+        context.putInt(Context.GLYPH_SIZE, glyphBits);
+        context.putInt(Context.ADVANCE_SIZE, advanceBits);
 
         bounds.encode(coder, context);
         transform.encode(coder, context);
@@ -369,8 +369,8 @@ public final class DefineText2 implements StaticTextTag {
         coder.writeByte(0);
 
         context.remove(Context.TRANSPARENT);
-        context.put(Context.GLYPH_SIZE, 0);
-        context.put(Context.ADVANCE_SIZE, 0);
+        context.putInt(Context.GLYPH_SIZE, 0);
+        context.putInt(Context.ADVANCE_SIZE, 0);
         if (Constants.DEBUG) {
             coder.check(length);
             coder.unmark();
@@ -298,7 +298,7 @@ public final class DefineTextField implements DefineTag {
         }
         coder.mark();
         identifier = coder.readUnsignedShort();
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         bounds = new Bounds(coder);
 
@@ -1004,7 +1004,7 @@ public final class DefineTextField implements DefineTag {
     @SuppressWarnings("PMD.NPathComplexity")
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE:OFF
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         length = 2 + bounds.prepareToEncode(context);
         length += 2;
@@ -1039,7 +1039,7 @@ public final class DefineTextField implements DefineTag {
         if (Constants.DEBUG) {
             coder.mark();
         }
-        context.put(Context.TRANSPARENT, 1);
+        context.putInt(Context.TRANSPARENT, 1);
 
         coder.writeShort(identifier);
         bounds.encode(coder, context);
@@ -0,0 +1,485 @@
+/*
+ * Deduplicator.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.flagstone.transform.CharacterEncoding;
+import com.flagstone.transform.DefineTag;
+import com.flagstone.transform.EncodedTag;
+import com.flagstone.transform.Event;
+import com.flagstone.transform.Export;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.Place;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.Place3;
+import com.flagstone.transform.Remove;
+import com.flagstone.transform.SymbolClass;
+import com.flagstone.transform.SymbolTable;
+import com.flagstone.transform.button.ButtonShape;
+import com.flagstone.transform.button.ButtonSound;
+import com.flagstone.transform.button.DefineButton;
+import com.flagstone.transform.button.DefineButton2;
+import com.flagstone.transform.coder.Coder;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.coder.SWFEncoder;
+import com.flagstone.transform.fillstyle.BitmapFill;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.fillstyle.MorphBitmapFill;
+import com.flagstone.transform.movieclip.DefineMovieClip;
+import com.flagstone.transform.movieclip.InitializeMovieClip;
+import com.flagstone.transform.shape.ShapeRecord;
+import com.flagstone.transform.shape.ShapeStyle;
+import com.flagstone.transform.shape.ShapeStyle2;
+import com.flagstone.transform.shape.ShapeTag;
+import com.flagstone.transform.sound.SoundInfo;
+import com.flagstone.transform.sound.StartSound;
+import com.flagstone.transform.text.DefineTextField;
+import com.flagstone.transform.text.StaticTextTag;
+import com.flagstone.transform.text.TextSpan;
+import com.flagstone.transform.video.VideoFrame;
+
+/**
+ * <p>
+ * Deduplicator removes definitions from a movie that are identical to an
+ * earlier definition except for their identifier, for example the same image
+ * or sound added several times when movies are generated or merged. The
+ * first definition is kept and all the references to the duplicates are
+ * changed to refer to it.
+ * </p>
+ *
+ * <p>
+ * Definitions are compared by encoding each one and calculating a SHA-256
+ * digest of the encoded data, excluding the tag header and the identifier.
+ * Only the types of definition returned by getTypes() are compared. By
+ * default these are shapes, morphing shapes, images, sounds, fonts (other
+ * than DefineFont which has its glyph codes in a separate FontInfo tag),
+ * static text and binary data. References to the removed definitions are
+ * changed in Place, Place2, Place3, Remove, StartSound, VideoFrame,
+ * InitializeMovieClip, bitmap fill styles, text spans, text fields, buttons,
+ * ButtonSound and in the tags contained in movie clips. Tags such as
+ * FontInfo or ScalingGrid which add information to a removed definition are
+ * also removed.
+ * </p>
+ *
+ * <p>
+ * Definitions that are named in an Export or SymbolClass tag are never
+ * removed, since merging them would lose the name or class of one of the
+ * objects. They may still be kept as the definition that duplicates are
+ * replaced with.
+ * </p>
+ *
+ * <p>
+ * Tags that a DecoderRegistry keeps raw are compared using their encoded
+ * data. If a raw tag refers to a removed definition it is decoded so the
+ * reference can be changed or, for tags such as FontInfo, so it can be
+ * removed.
+ * </p>
+ *
+ * <pre>
+ * Movie movie = new Movie();
+ * movie.decodeFromFile(file);
+ * int removed = new Deduplicator().process(movie);
+ * </pre>
+ */
+public final class Deduplicator {
+
+    /** The algorithm used to calculate the digest of each definition. */
+    private static final String ALGORITHM = "SHA-256";
+    /** The types of definition compared by default. */
+    private static final Set<Integer> DEFAULT_TYPES = new HashSet<Integer>();
+    static {
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_SHAPE);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_SHAPE_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_SHAPE_3);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_SHAPE_4);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_MORPH_SHAPE_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_3);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_JPEG_IMAGE_4);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_IMAGE);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_IMAGE_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_SOUND);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_FONT_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_FONT_3);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_FONT_4);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_TEXT);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_TEXT_2);
+        DEFAULT_TYPES.add(MovieTypes.DEFINE_BINARY_DATA);
+    }
+
+    /** The types of definition that are compared. */
+    private transient Set<Integer> types;
+    /** The identifiers of removed definitions and their replacements. */
+    private final transient Map<Integer, Integer> table;
+    /** The type of each class of definition encoded so far. */
+    private final transient Map<Class<?>, Integer> classes;
+
+    /**
+     * Creates a Deduplicator that compares the default types of definition.
+     */
+    public Deduplicator() {
+        types = DEFAULT_TYPES;
+        table = new HashMap<Integer, Integer>();
+        classes = new HashMap<Class<?>, Integer>();
+    }
+
+    /**
+     * Get the types of definition that are compared.
+     *
+     * @return an unmodifiable set of MovieTypes values.
+     */
+    public Set<Integer> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Set the types of definition that are compared.
+     *
+     * @param set the MovieTypes values for the definitions that may be
+     * removed. Must not be null.
+     */
+    public void setTypes(final Set<Integer> set) {
+        if (set == null) {
+            throw new IllegalArgumentException();
+        }
+        types = new HashSet<Integer>(set);
+    }
+
+    /**
+     * Remove the duplicate definitions from a movie and change the references
+     * to them to refer to the definition that is kept.
+     *
+     * @param movie the movie to process.
+     * @return the number of definitions removed.
+     * @throws IOException if a definition cannot be encoded or a raw tag
+     * cannot be decoded.
+     */
+    public int process(final Movie movie) throws IOException {
+        table.clear();
+
+        final List<MovieTag> objects = movie.getObjects();
+        final Set<Integer> named = new HashSet<Integer>();
+        int version = Movie.VERSION;
+
+        for (final MovieTag tag : objects) {
+            if (tag instanceof MovieHeader) {
+                version = ((MovieHeader) tag).getVersion();
+            } else if (tag instanceof Export) {
+                named.addAll(((Export) tag).getObjects().keySet());
+            } else if (tag instanceof SymbolClass) {
+                named.addAll(((SymbolClass) tag).getObjects().keySet());
+            }
+        }
+
+        final MessageDigest digest = newDigest();
+        final Map<ByteBuffer, Integer> definitions =
+            new HashMap<ByteBuffer, Integer>();
+        final List<MovieTag> list = new ArrayList<MovieTag>(objects.size());
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder coder = new SWFEncoder(stream);
+        final Context context = new Context();
+        context.setEncoding(CharacterEncoding.UTF8.getEncoding());
+        context.putInt(Context.VERSION, version);
+
+        MovieTag tag;
+        byte[] data;
+        int start;
+        int type;
+        int identifier;
+        ByteBuffer buffer;
+        ByteBuffer key;
+
+        for (int i = 0; i < objects.size(); i++) {
+            tag = rewrite(objects.get(i), movie.getRegistry());
+
+            if (table.containsKey(RawTags.addsTo(tag))) {
+                continue;
+            }
+            if (isCandidate(tag)) {
+                stream.reset();
+                tag.prepareToEncode(context);
+                tag.encode(coder, context);
+                coder.flush();
+                data = stream.toByteArray();
+                buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+                type = (buffer.getShort(0) & Coder.USHORT_MAX)
+                        >>> Coder.LENGTH_FIELD_SIZE;
+                start = (data[0] & Coder.LENGTH_FIELD) == Coder.IS_EXTENDED
+                        ? Coder.LONG_HEADER : Coder.SHORT_HEADER;
+                classes.put(tag.getClass(), type);
+
+                if (types.contains(type) && data.length >= start + 2) {
+                    identifier = buffer.getShort(start) & Coder.USHORT_MAX;
+                    digest.reset();
+                    digest.update((byte) type);
+                    digest.update((byte) (type >>> Coder.TO_UPPER_BYTE));
+                    digest.update(data, start + 2, data.length - start - 2);
+                    key = ByteBuffer.wrap(digest.digest());
+
+                    if (!definitions.containsKey(key)) {
+                        definitions.put(key, identifier);
+                    } else if (!named.contains(identifier)) {
+                        table.put(identifier, definitions.get(key));
+                        continue;
+                    }
+                }
+            }
+            list.add(tag);
+        }
+
+        if (!table.isEmpty()) {
+            movie.setObjects(list);
+        }
+        return table.size();
+    }
+
+    /**
+     * Get the identifiers of the removed definitions and the identifiers of
+     * the definitions they were replaced with, from the last movie processed.
+     *
+     * @return an unmodifiable map from the identifier of each removed
+     * definition to the identifier of the definition kept.
+     */
+    public Map<Integer, Integer> getReplacements() {
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Create the MessageDigest used to compare definitions.
+     *
+     * @return a new MessageDigest.
+     */
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Is a tag a definition that may be compared. Each class of definition
+     * is encoded once to find its type so definitions which are not compared,
+     * such as movie clips, are not encoded each time.
+     *
+     * @param tag the tag.
+     * @return true if the tag should be encoded and compared.
+     */
+    private boolean isCandidate(final MovieTag tag) {
+        final Integer type;
+        if (tag instanceof EncodedTag) {
+            type = ((EncodedTag) tag).getType();
+        } else if (tag instanceof DefineTag) {
+            type = classes.get(tag.getClass());
+        } else {
+            return false;
+        }
+        return type == null || types.contains(type);
+    }
+
+    /**
+     * Get the replacement for an identifier.
+     *
+     * @param identifier the identifier of a definition.
+     * @return the identifier of the definition kept, or the identifier if
+     * the definition was not removed.
+     */
+    private int replace(final int identifier) {
+        final Integer replacement = table.get(identifier);
+        return replacement == null ? identifier : replacement;
+    }
+
+    /**
+     * Change the references in a tag to the definitions removed so far. Raw
+     * tags are decoded if they refer to a removed definition.
+     *
+     * @param object the tag.
+     * @param registry the registry used to decode the movie.
+     * @return the tag, or the decoded tag if a raw tag was decoded.
+     * @throws IOException if a raw tag cannot be decoded.
+     */
+    private MovieTag rewrite(final MovieTag object,
+            final DecoderRegistry registry) throws IOException {
+        if (table.isEmpty()) {
+            return object;
+        }
+
+        MovieTag tag = object;
+
+        if (tag instanceof EncodedTag) {
+            final MovieTag decoded = RawTags.decode(tag, registry);
+            if (decoded == tag) {
+                return tag;
+            }
+            boolean changed = false;
+            for (final int identifier : SymbolTable.referencesFrom(decoded)) {
+                changed |= table.containsKey(identifier);
+            }
+            if (!changed) {
+                return tag;
+            }
+            tag = decoded;
+        }
+
+        if (tag instanceof Place) {
+            final Place place = (Place) tag;
+            place.setIdentifier(replace(place.getIdentifier()));
+        } else if (tag instanceof Place2) {
+            final Place2 place = (Place2) tag;
+            if (table.containsKey(place.getIdentifier())) {
+                place.setIdentifier(replace(place.getIdentifier()));
+            }
+        } else if (tag instanceof Place3) {
+            final Place3 place = (Place3) tag;
+            if (table.containsKey(place.getIdentifier())) {
+                place.setIdentifier(replace(place.getIdentifier()));
+            }
+        } else if (tag instanceof Remove) {
+            final Remove remove = (Remove) tag;
+            remove.setIdentifier(replace(remove.getIdentifier()));
+        } else if (tag instanceof StartSound) {
+            final SoundInfo info = ((StartSound) tag).getSound();
+            info.setIdentifier(replace(info.getIdentifier()));
+        } else if (tag instanceof VideoFrame) {
+            final VideoFrame frame = (VideoFrame) tag;
+            frame.setIdentifier(replace(frame.getIdentifier()));
+        } else if (tag instanceof InitializeMovieClip) {
+            final InitializeMovieClip init = (InitializeMovieClip) tag;
+            init.setIdentifier(replace(init.getIdentifier()));
+        } else if (tag instanceof ShapeTag) {
+            rewriteShape((ShapeTag) tag);
+        } else if (tag instanceof StaticTextTag) {
+            for (final TextSpan span : ((StaticTextTag) tag).getSpans()) {
+                if (span.getIdentifier() != null) {
+                    span.setIdentifier(replace(span.getIdentifier()));
+                }
+            }
+        } else if (tag instanceof DefineTextField) {
+            final DefineTextField field = (DefineTextField) tag;
+            if (table.containsKey(field.getFontIdentifier())) {
+                field.setFontIdentifier(replace(field.getFontIdentifier()));
+            }
+        } else if (tag instanceof DefineButton) {
+            rewriteShapes(((DefineButton) tag).getShapes());
+        } else if (tag instanceof DefineButton2) {
+            rewriteShapes(((DefineButton2) tag).getShapes());
+        } else if (tag instanceof ButtonSound) {
+            SoundInfo info;
+            for (final Event event : Event.values()) {
+                info = ((ButtonSound) tag).getSoundInfo(event);
+                if (info != null) {
+                    info.setIdentifier(replace(info.getIdentifier()));
+                }
+            }
+        } else if (tag instanceof DefineMovieClip) {
+            final List<MovieTag> objects = ((DefineMovieClip) tag)
+                    .getObjects();
+            for (int i = 0; i < objects.size(); i++) {
+                objects.set(i, rewrite(objects.get(i), registry));
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * Change the references to images in the fill styles of a shape.
+     *
+     * @param shape the shape.
+     */
+    private void rewriteShape(final ShapeTag shape) {
+        boolean changed = false;
+        for (final int identifier : SymbolTable.referencesFrom(shape)) {
+            changed |= table.containsKey(identifier);
+        }
+        if (!changed) {
+            return;
+        }
+
+        rewriteFills(shape.getFillStyles());
+
+        for (final ShapeRecord record : shape.getShape().getObjects()) {
+            if (record instanceof ShapeStyle) {
+                rewriteFills(((ShapeStyle) record).getFillStyles());
+            } else if (record instanceof ShapeStyle2) {
+                rewriteFills(((ShapeStyle2) record).getFillStyles());
+            }
+        }
+    }
+
+    /**
+     * Change the references to images in a list of fill styles.
+     *
+     * @param styles the fill styles.
+     */
+    private void rewriteFills(final List<FillStyle> styles) {
+        for (final FillStyle style : styles) {
+            if (style instanceof BitmapFill) {
+                final BitmapFill fill = (BitmapFill) style;
+                fill.setIdentifier(replace(fill.getIdentifier()));
+            } else if (style instanceof MorphBitmapFill) {
+                final MorphBitmapFill fill = (MorphBitmapFill) style;
+                fill.setIdentifier(replace(fill.getIdentifier()));
+            }
+        }
+    }
+
+    /**
+     * Change the references to the objects displayed by a button.
+     *
+     * @param shapes the shapes that make up the button.
+     */
+    private void rewriteShapes(final List<ButtonShape> shapes) {
+        for (final ButtonShape shape : shapes) {
+            shape.setIdentifier(replace(shape.getIdentifier()));
+        }
+    }
+}
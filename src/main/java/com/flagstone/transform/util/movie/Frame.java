@@ -31,8 +31,11 @@
 
 package com.flagstone.transform.util.movie;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.DataFormatException;
 
 import com.flagstone.transform.DefineTag;
 import com.flagstone.transform.DoAction;
@@ -140,6 +143,29 @@ public final class Frame {
         return frames;
     }
 
+    /**
+     * Create a frame based view of a range of frames from a movie file. Only
+     * the tags needed to display the frames are decoded, see FrameRange. The
+     * first Frame returned also contains the tags from earlier frames that
+     * are needed to display the range.
+     *
+     * @param file
+     *            the Flash file.
+     * @param first
+     *            the first frame in the range, starting from zero.
+     * @param last
+     *            the last frame in the range.
+     * @return a list of Frame objects.
+     * @throws DataFormatException
+     *             if the file does not contain Flash data.
+     * @throws IOException
+     *             if an error occurs reading or decoding the file.
+     */
+    public static List<Frame> split(final File file, final int first,
+            final int last) throws DataFormatException, IOException {
+        return split(new FrameRange().decodeFromFile(file, first, last));
+    }
+
     /** The frame label. */
     private String label;
     /** The frame number. */
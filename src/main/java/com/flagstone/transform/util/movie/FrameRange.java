@@ -0,0 +1,409 @@
+/*
+ * FrameRange.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+
+import com.flagstone.transform.EncodedTag;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieIndex;
+import com.flagstone.transform.MovieReader;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.Place;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.Place3;
+import com.flagstone.transform.PlaceType;
+import com.flagstone.transform.Remove;
+import com.flagstone.transform.Remove2;
+import com.flagstone.transform.SymbolTable;
+import com.flagstone.transform.coder.DecoderRegistry;
+
+/**
+ * <p>
+ * FrameRange decodes only the tags needed to display a range of frames from
+ * a movie, for example to create a thumbnail from the first frame of a long
+ * movie without decoding the remainder.
+ * </p>
+ *
+ * <p>
+ * The movie is first indexed using a MovieIndex. The Place and Remove tags
+ * in the frames before the range are decoded to find the objects on the
+ * display list when the first frame in the range is shown. The definitions
+ * of those objects, and of the objects placed in the range, are then decoded
+ * along with the definitions they depend on, for example the images used in
+ * a shape or the fonts used in text. All the other definitions and the
+ * actions in the frames before the range are skipped. The file is read once:
+ * the definitions are read without being decoded and only the ones that are
+ * needed are decoded.
+ * </p>
+ *
+ * <p>
+ * The tags are returned as a Movie which contains the header, the Background,
+ * FileAttributes, JPEG encoding tables, DoABC and SymbolClass tags, the
+ * required definitions, the
+ * tags that rebuild the display list and finally all the other tags in the
+ * range. The first frame in the movie corresponds to the first frame in the
+ * range so the movie can be encoded and displayed, or viewed using
+ * Frame.split().
+ * </p>
+ *
+ * <pre>
+ * Movie movie = new FrameRange().decodeFromFile(file, 0, 0);
+ * </pre>
+ */
+public final class FrameRange {
+
+    /** The types of tag kept from the frames before the range. */
+    private static final Set<Integer> GLOBAL_TYPES = new HashSet<Integer>();
+    /** The types of tag that change the display list. */
+    private static final Set<Integer> DISPLAY_TYPES = new HashSet<Integer>();
+    /**
+     * The types of tag that add information to a definition and which are
+     * only decoded if the definition is.
+     */
+    private static final Set<Integer> EXTRA_TYPES = new HashSet<Integer>();
+
+    static {
+        GLOBAL_TYPES.add(MovieTypes.FILE_ATTRIBUTES);
+        GLOBAL_TYPES.add(MovieTypes.SET_BACKGROUND_COLOR);
+        GLOBAL_TYPES.add(MovieTypes.JPEG_TABLES);
+        GLOBAL_TYPES.add(MovieTypes.DO_ABC);
+        GLOBAL_TYPES.add(MovieTypes.SYMBOL);
+
+        DISPLAY_TYPES.add(MovieTypes.PLACE);
+        DISPLAY_TYPES.add(MovieTypes.PLACE_2);
+        DISPLAY_TYPES.add(MovieTypes.PLACE_3);
+        DISPLAY_TYPES.add(MovieTypes.REMOVE);
+        DISPLAY_TYPES.add(MovieTypes.REMOVE_2);
+
+        EXTRA_TYPES.add(MovieTypes.FONT_INFO);
+        EXTRA_TYPES.add(MovieTypes.FONT_INFO_2);
+        EXTRA_TYPES.add(MovieTypes.FONT_ALIGNMENT);
+        EXTRA_TYPES.add(MovieTypes.FONT_NAME);
+        EXTRA_TYPES.add(MovieTypes.TEXT_SETTINGS);
+        EXTRA_TYPES.add(MovieTypes.DEFINE_SCALING_GRID);
+        EXTRA_TYPES.add(MovieTypes.BUTTON_SOUND);
+        EXTRA_TYPES.add(MovieTypes.BUTTON_COLOR_TRANSFORM);
+    }
+
+    /**
+     * Decode the tags needed to display a range of frames from a movie.
+     *
+     * @param file the Flash file.
+     * @param first the first frame in the range, starting from zero.
+     * @param last the last frame in the range.
+     * @return a movie containing the frames in the range.
+     * @throws DataFormatException if the file does not contain Flash data.
+     * @throws IOException if an error occurs reading or decoding the file.
+     */
+    public Movie decodeFromFile(final File file, final int first,
+            final int last) throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+        return decodeFromFile(file, index, first, last);
+    }
+
+    /**
+     * Decode the tags needed to display a range of frames from a movie using
+     * an existing index.
+     *
+     * @param file the Flash file.
+     * @param index the index for the file.
+     * @param first the first frame in the range, starting from zero.
+     * @param last the last frame in the range.
+     * @return a movie containing the frames in the range.
+     * @throws DataFormatException if the file does not match the index.
+     * @throws IOException if an error occurs reading or decoding the file.
+     */
+    public Movie decodeFromFile(final File file, final MovieIndex index,
+            final int first, final int last)
+            throws DataFormatException, IOException {
+
+        final int start = index.firstTag(first);
+
+        if (first < 0 || last < first || start == -1
+                || index.firstTag(last) == -1) {
+            throw new IllegalArgumentException("No such frames: " + first
+                    + ".." + last);
+        }
+
+        int end = index.firstTag(last);
+        while (end < index.size() && index.getFrame(end) == last) {
+            end++;
+        }
+
+        final Map<Integer, Integer> definitions =
+            new HashMap<Integer, Integer>();
+        final Map<Integer, List<Integer>> extras =
+            new HashMap<Integer, List<Integer>>();
+        final Set<Integer> before = new TreeSet<Integer>();
+        final Set<Integer> display = new TreeSet<Integer>();
+        final Set<Integer> range = new TreeSet<Integer>();
+
+        int type;
+        for (int i = 0; i < end; i++) {
+            type = index.getType(i);
+            if (index.isDefinition(i)) {
+                if (!definitions.containsKey(index.getIdentifier(i))) {
+                    definitions.put(index.getIdentifier(i), i);
+                }
+            } else if (EXTRA_TYPES.contains(type)) {
+                if (!extras.containsKey(index.getIdentifier(i))) {
+                    extras.put(index.getIdentifier(i),
+                            new ArrayList<Integer>());
+                }
+                extras.get(index.getIdentifier(i)).add(i);
+            } else if (i >= start) {
+                range.add(i);
+            } else if (DISPLAY_TYPES.contains(type)) {
+                display.add(i);
+            } else if (GLOBAL_TYPES.contains(type)) {
+                before.add(i);
+            }
+        }
+
+        /*
+         * The index does not record the objects each definition refers to,
+         * so all the definitions are read, but not decoded, in the same pass
+         * through the file as the other tags. Only the definitions that are
+         * needed are then decoded.
+         */
+        final DecoderRegistry decoders = index.getRegistry();
+        final Set<Integer> rawTypes =
+            new HashSet<Integer>(decoders.getRawTypes());
+        final Set<Integer> selected = new TreeSet<Integer>();
+
+        selected.addAll(before);
+        selected.addAll(display);
+        selected.addAll(range);
+
+        for (final Map.Entry<Integer, Integer> entry
+                : definitions.entrySet()) {
+            selected.add(entry.getValue());
+            rawTypes.add(index.getType(entry.getValue()));
+            if (extras.containsKey(entry.getKey())) {
+                for (final Integer tagIndex : extras.get(entry.getKey())) {
+                    selected.add(tagIndex);
+                    rawTypes.add(index.getType(tagIndex));
+                }
+            }
+        }
+
+        final DecoderRegistry raw = decoders.copy();
+        raw.setRawTypes(rawTypes);
+
+        final List<MovieTag> list = index.decodeTags(file, selected, raw);
+        final Map<Integer, MovieTag> read = new HashMap<Integer, MovieTag>();
+        int pos = 0;
+        for (final Integer tagIndex : selected) {
+            read.put(tagIndex, list.get(pos++));
+        }
+
+        final List<MovieTag> displayList = displayList(select(read, display));
+        final SortedMap<Integer, MovieTag> tags =
+            new TreeMap<Integer, MovieTag>();
+        Set<Integer> pending = new HashSet<Integer>();
+
+        for (final MovieTag tag : displayList) {
+            references(tag, pending);
+        }
+        for (final Integer tagIndex : before) {
+            tags.put(tagIndex, read.get(tagIndex));
+            references(read.get(tagIndex), pending);
+        }
+        for (final Integer tagIndex : range) {
+            tags.put(tagIndex, read.get(tagIndex));
+            references(read.get(tagIndex), pending);
+        }
+
+        final Set<Integer> resolved = new HashSet<Integer>();
+        Set<Integer> next;
+        MovieTag definition;
+
+        while (!pending.isEmpty()) {
+            next = new HashSet<Integer>();
+            for (final Integer identifier : pending) {
+                if (resolved.add(identifier)
+                        && definitions.containsKey(identifier)) {
+                    final List<Integer> batch = new ArrayList<Integer>();
+                    batch.add(definitions.get(identifier));
+                    if (extras.containsKey(identifier)) {
+                        batch.addAll(extras.get(identifier));
+                    }
+                    for (final Integer tagIndex : batch) {
+                        definition = decode(read.get(tagIndex), decoders);
+                        references(definition, next);
+                        tags.put(tagIndex, definition);
+                    }
+                }
+            }
+            pending = next;
+        }
+
+        final MovieReader reader = new MovieReader(file);
+        final MovieHeader header;
+        try {
+            header = reader.getHeader();
+        } finally {
+            reader.close();
+        }
+        header.setFrameCount(last - first + 1);
+
+        final Movie movie = new Movie();
+        movie.add(header);
+        for (final MovieTag tag : tags.headMap(start).values()) {
+            movie.add(tag);
+        }
+        for (final MovieTag tag : displayList) {
+            movie.add(tag);
+        }
+        for (final MovieTag tag : tags.tailMap(start).values()) {
+            movie.add(tag);
+        }
+        return movie;
+    }
+
+    /**
+     * Get the tags read from the file at a set of positions in the index.
+     *
+     * @param read the tags read from the file, indexed by position.
+     * @param indices the positions of the tags, in the order they appear in
+     * the movie.
+     * @return the tags.
+     */
+    private List<MovieTag> select(final Map<Integer, MovieTag> read,
+            final Set<Integer> indices) {
+        final List<MovieTag> list = new ArrayList<MovieTag>(indices.size());
+        for (final Integer tagIndex : indices) {
+            list.add(read.get(tagIndex));
+        }
+        return list;
+    }
+
+    /**
+     * Decode a definition that was read without being decoded.
+     *
+     * @param tag the tag read from the file.
+     * @param decoders the registry used to decode the tag.
+     * @return the decoded tag.
+     * @throws IOException if an error occurs decoding the tag.
+     */
+    private MovieTag decode(final MovieTag tag,
+            final DecoderRegistry decoders) throws IOException {
+        MovieTag decoded;
+        if (tag instanceof EncodedTag) {
+            decoded = ((EncodedTag) tag).decode(decoders);
+        } else {
+            decoded = tag;
+        }
+        return decoded;
+    }
+
+    /**
+     * Replay the tags that change the display list to find the tags that
+     * place the objects still displayed at the end of the list.
+     *
+     * @param list the Place and Remove tags in the order they appear.
+     * @return the Place tags, ordered by layer, that recreate the display
+     * list.
+     */
+    private List<MovieTag> displayList(final List<MovieTag> list) {
+        final SortedMap<Integer, List<MovieTag>> layers =
+            new TreeMap<Integer, List<MovieTag>>();
+
+        for (final MovieTag tag : list) {
+            if (tag instanceof Place) {
+                layers.put(((Place) tag).getLayer(),
+                        new ArrayList<MovieTag>());
+                layers.get(((Place) tag).getLayer()).add(tag);
+            } else if (tag instanceof Place2) {
+                place(layers, ((Place2) tag).getLayer(),
+                        ((Place2) tag).getType(), tag);
+            } else if (tag instanceof Place3) {
+                place(layers, ((Place3) tag).getLayer(),
+                        ((Place3) tag).getType(), tag);
+            } else if (tag instanceof Remove) {
+                layers.remove(((Remove) tag).getLayer());
+            } else if (tag instanceof Remove2) {
+                layers.remove(((Remove2) tag).getLayer());
+            }
+        }
+
+        final List<MovieTag> tags = new ArrayList<MovieTag>();
+        for (final List<MovieTag> layer : layers.values()) {
+            tags.addAll(layer);
+        }
+        return tags;
+    }
+
+    /**
+     * Add a Place2 or Place3 tag to the display list.
+     *
+     * @param layers the tags used to display the object on each layer.
+     * @param layer the layer the tag applies to.
+     * @param type whether the tag places, modifies or replaces an object.
+     * @param tag the Place2 or Place3 tag.
+     */
+    private void place(final Map<Integer, List<MovieTag>> layers,
+            final int layer, final PlaceType type, final MovieTag tag) {
+        if (type == PlaceType.NEW || !layers.containsKey(layer)) {
+            layers.put(layer, new ArrayList<MovieTag>());
+        }
+        layers.get(layer).add(tag);
+    }
+
+    /**
+     * Add the identifiers of the objects referenced by a tag.
+     *
+     * @param tag the tag.
+     * @param identifiers the set the identifiers are added to.
+     */
+    private void references(final MovieTag tag,
+            final Set<Integer> identifiers) {
+        for (final int identifier : SymbolTable.referencesFrom(tag)) {
+            identifiers.add(identifier);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * RawTags.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.flagstone.transform.EncodedTag;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.ScalingGrid;
+import com.flagstone.transform.SymbolTable;
+import com.flagstone.transform.button.ButtonColorTransform;
+import com.flagstone.transform.button.ButtonSound;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.font.DefineFont;
+import com.flagstone.transform.font.DefineFont2;
+import com.flagstone.transform.font.DefineFont3;
+import com.flagstone.transform.font.DefineFont4;
+import com.flagstone.transform.font.FontAlignment;
+import com.flagstone.transform.font.FontInfo;
+import com.flagstone.transform.font.FontInfo2;
+import com.flagstone.transform.font.FontName;
+import com.flagstone.transform.movieclip.DefineMovieClip;
+import com.flagstone.transform.text.TextSettings;
+
+/**
+ * RawTags contains the methods used by the classes that process a movie to
+ * find the definitions and references in tags which a DecoderRegistry keeps
+ * raw, that is, as EncodedTags.
+ */
+final class RawTags {
+
+    /** The types of tag that define a font. */
+    private static final Set<Integer> FONT_TYPES = new HashSet<Integer>();
+    /** The types of tag that add information to an existing definition. */
+    private static final Set<Class<?>> EXTRA_CLASSES = new HashSet<Class<?>>();
+
+    static {
+        FONT_TYPES.add(MovieTypes.DEFINE_FONT);
+        FONT_TYPES.add(MovieTypes.DEFINE_FONT_2);
+        FONT_TYPES.add(MovieTypes.DEFINE_FONT_3);
+        FONT_TYPES.add(MovieTypes.DEFINE_FONT_4);
+
+        EXTRA_CLASSES.add(FontInfo.class);
+        EXTRA_CLASSES.add(FontInfo2.class);
+        EXTRA_CLASSES.add(FontAlignment.class);
+        EXTRA_CLASSES.add(FontName.class);
+        EXTRA_CLASSES.add(TextSettings.class);
+        EXTRA_CLASSES.add(ScalingGrid.class);
+        EXTRA_CLASSES.add(ButtonSound.class);
+        EXTRA_CLASSES.add(ButtonColorTransform.class);
+    }
+
+    /**
+     * Get the identifier of the object defined by a tag.
+     *
+     * @param tag the tag, which may be an EncodedTag.
+     * @return the identifier of the object or -1 if the tag does not define
+     * an object.
+     */
+    static int definedBy(final MovieTag tag) {
+        return SymbolTable.definedBy(tag);
+    }
+
+    /**
+     * Does a tag define a font.
+     *
+     * @param tag the tag, which may be an EncodedTag.
+     * @return true if the tag is one of the DefineFont tags.
+     */
+    static boolean isFont(final MovieTag tag) {
+        if (tag instanceof EncodedTag) {
+            return FONT_TYPES.contains(((EncodedTag) tag).getType());
+        }
+        return tag instanceof DefineFont || tag instanceof DefineFont2
+                || tag instanceof DefineFont3 || tag instanceof DefineFont4;
+    }
+
+    /**
+     * Get the identifier of the definition that a tag such as FontInfo,
+     * ScalingGrid or ButtonSound adds information to.
+     *
+     * @param tag the tag, which must not be raw.
+     * @return the identifier of the definition or -1 if the tag does not add
+     * information to a definition.
+     */
+    static int addsTo(final MovieTag tag) {
+        if (EXTRA_CLASSES.contains(tag.getClass())) {
+            return SymbolTable.referencesFrom(tag)[0];
+        }
+        return -1;
+    }
+
+    /**
+     * Decode a raw tag if it may contain a reference to a definition.
+     *
+     * @param tag the tag.
+     * @param registry the registry used to decode the movie.
+     * @return the decoded tag if the tag is an EncodedTag which may refer to
+     * a definition, otherwise the tag itself.
+     * @throws IOException if the tag cannot be decoded.
+     */
+    static MovieTag decode(final MovieTag tag, final DecoderRegistry registry)
+            throws IOException {
+        return SymbolTable.decodeRaw(tag, registry);
+    }
+
+    /**
+     * Get the identifiers of the objects referenced by a tag, decoding the
+     * tag, or the tags in a movie clip, first if they are raw.
+     *
+     * @param tag the tag.
+     * @param registry the registry used to decode the movie.
+     * @return the identifiers referenced by the tag.
+     * @throws IOException if a raw tag cannot be decoded.
+     */
+    static int[] referencesFrom(final MovieTag tag,
+            final DecoderRegistry registry) throws IOException {
+        final List<int[]> list = new ArrayList<int[]>();
+        references(tag, registry, list);
+        if (list.size() == 1) {
+            return list.get(0);
+        }
+        int length = 0;
+        for (final int[] references : list) {
+            length += references.length;
+        }
+        final int[] identifiers = new int[length];
+        int pos = 0;
+        for (final int[] references : list) {
+            System.arraycopy(references, 0, identifiers, pos,
+                    references.length);
+            pos += references.length;
+        }
+        return identifiers;
+    }
+
+    /**
+     * Add the identifiers of the objects referenced by a tag to a list.
+     *
+     * @param tag the tag.
+     * @param registry the registry used to decode the movie.
+     * @param list the list the identifiers are added to.
+     * @throws IOException if a raw tag cannot be decoded.
+     */
+    private static void references(final MovieTag tag,
+            final DecoderRegistry registry, final List<int[]> list)
+            throws IOException {
+        final MovieTag decoded = decode(tag, registry);
+        if (decoded instanceof DefineMovieClip) {
+            for (final MovieTag object : ((DefineMovieClip) decoded)
+                    .getObjects()) {
+                references(object, registry, list);
+            }
+        } else {
+            list.add(SymbolTable.referencesFrom(decoded));
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private RawTags() {
+        // Class only contains static methods
+    }
+}
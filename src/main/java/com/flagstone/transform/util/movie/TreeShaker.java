@@ -0,0 +1,229 @@
+/*
+ * TreeShaker.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.text.DefineTextField;
+
+/**
+ * <p>
+ * TreeShaker removes the definitions from a movie that are never displayed
+ * or used, for example the unused symbols in a library copied from a
+ * template.
+ * </p>
+ *
+ * <p>
+ * The objects referenced by the tags in the main timeline, such as Place2,
+ * StartSound, InitializeMovieClip, Export and SymbolClass, are used. So are
+ * the objects referenced by the definition of a used object: the images in
+ * the bitmap fills of a shape, the fonts used in text, the shapes and sounds
+ * in a button and the contents of a movie clip. All other definitions are
+ * removed, along with any tags such as FontInfo or ScalingGrid that add
+ * information to them. Since text fields that display HTML may select fonts
+ * by name, all fonts are kept if a used text field displays HTML.
+ * </p>
+ *
+ * <p>
+ * Identifiers are tracked using arrays and a BitSet indexed by identifier and
+ * each definition is visited at most once, so the time taken is proportional
+ * to the number of tags in the movie.
+ * </p>
+ *
+ * <pre>
+ * Movie movie = new Movie();
+ * movie.decodeFromFile(file);
+ * int removed = new TreeShaker().process(movie);
+ * </pre>
+ */
+public final class TreeShaker {
+
+    /** The identifiers of the definitions that are used. */
+    private transient BitSet used;
+    /** The position of the definition for each identifier, or -1. */
+    private transient int[] positions;
+    /** The identifiers of used definitions that have not been visited. */
+    private transient int[] pending;
+    /** The number of identifiers in pending. */
+    private transient int count;
+    /** The identifiers of the definitions removed from the last movie. */
+    private transient int[] removed = new int[0];
+
+    /**
+     * Remove the unused definitions from a movie.
+     *
+     * @param movie the movie to process.
+     * @return the number of definitions removed.
+     * @throws IOException if a raw tag cannot be decoded.
+     */
+    public int process(final Movie movie) throws IOException {
+        final List<MovieTag> objects = movie.getObjects();
+        final DecoderRegistry registry = movie.getRegistry();
+        final int size = objects.size();
+        final int[] defines = new int[size];
+        final int[] targets = new int[size];
+        final int[][] references = new int[size][];
+        int max = -1;
+
+        MovieTag tag;
+
+        for (int i = 0; i < size; i++) {
+            tag = objects.get(i);
+            defines[i] = RawTags.definedBy(tag);
+            targets[i] = -1;
+            if (defines[i] == -1) {
+                tag = RawTags.decode(tag, registry);
+                targets[i] = RawTags.addsTo(tag);
+                references[i] = RawTags.referencesFrom(tag, registry);
+            }
+            max = Math.max(max, defines[i]);
+        }
+
+        positions = new int[max + 1];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < size; i++) {
+            if (defines[i] != -1 && positions[defines[i]] == -1) {
+                positions[defines[i]] = i;
+            }
+        }
+
+        used = new BitSet(max + 1);
+        pending = new int[max + 1];
+        count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (defines[i] == -1 && targets[i] == -1) {
+                use(references[i]);
+            }
+        }
+
+        boolean fonts = false;
+        boolean changed = true;
+
+        while (changed) {
+            while (count > 0) {
+                tag = RawTags.decode(objects.get(positions[pending[--count]]),
+                        registry);
+                use(RawTags.referencesFrom(tag, registry));
+                fonts |= tag instanceof DefineTextField
+                        && ((DefineTextField) tag).isHtml();
+            }
+            for (int i = 0; i < size; i++) {
+                if (targets[i] != -1 && isUsed(targets[i])) {
+                    use(references[i]);
+                } else if (fonts && RawTags.isFont(objects.get(i))) {
+                    use(defines[i]);
+                }
+            }
+            changed = count > 0;
+        }
+
+        final List<MovieTag> list = new ArrayList<MovieTag>(size);
+        final BitSet unused = new BitSet(max + 1);
+
+        for (int i = 0; i < size; i++) {
+            if (defines[i] != -1 && !used.get(defines[i])) {
+                unused.set(defines[i]);
+            } else if (targets[i] == -1 || isUsed(targets[i])
+                    || !isDefined(targets[i])) {
+                list.add(objects.get(i));
+            }
+        }
+
+        removed = new int[unused.cardinality()];
+        int index = 0;
+        for (int i = unused.nextSetBit(0); i >= 0;
+                i = unused.nextSetBit(i + 1)) {
+            removed[index++] = i;
+        }
+
+        if (list.size() < size) {
+            movie.setObjects(list);
+        }
+        used = null;
+        positions = null;
+        pending = null;
+        return removed.length;
+    }
+
+    /**
+     * Get the identifiers of the definitions removed from the last movie
+     * processed.
+     *
+     * @return the identifiers in ascending order.
+     */
+    public int[] getRemoved() {
+        return Arrays.copyOf(removed, removed.length);
+    }
+
+    /**
+     * Is there a definition for an identifier.
+     *
+     * @param identifier the identifier.
+     * @return true if the movie contains a definition for the identifier.
+     */
+    private boolean isDefined(final int identifier) {
+        return identifier >= 0 && identifier < positions.length
+                && positions[identifier] != -1;
+    }
+
+    /**
+     * Is the definition for an identifier used.
+     *
+     * @param identifier the identifier.
+     * @return true if the definition is used.
+     */
+    private boolean isUsed(final int identifier) {
+        return isDefined(identifier) && used.get(identifier);
+    }
+
+    /**
+     * Mark the definitions for a set of identifiers as used.
+     *
+     * @param identifiers the identifiers.
+     */
+    private void use(final int... identifiers) {
+        for (final int identifier : identifiers) {
+            if (isDefined(identifier) && !used.get(identifier)) {
+                used.set(identifier);
+                pending[count++] = identifier;
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@
 package com.flagstone.transform.video;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.flagstone.transform.MovieTag;
@@ -66,7 +67,7 @@ public final class VideoFrame implements MovieTag {
     /** The frame number in the video. */
     private int frameNumber;
     /** The encoded video data. */
-    private byte[] data;
+    private ByteBuffer data;
 
     /** The length of the object, minus the header, when it is encoded. */
     private transient int length;
@@ -89,7 +90,7 @@ public final class VideoFrame implements MovieTag {
         identifier = coder.readUnsignedShort();
         frameNumber = coder.readUnsignedShort();
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
-        data = coder.readBytes(new byte[length - 4]);
+        data = coder.readBuffer(length - 4);
     }
 
     /**
@@ -183,7 +184,18 @@ public final class VideoFrame implements MovieTag {
      * @return a copy of the video data.
      */
     public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get a read-only view of the encoded data. The data is not copied.
+     *
+     * @return a read-only buffer containing the encoded data.
+     */
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyBuffer();
     }
 
     /**
@@ -197,7 +209,7 @@ public final class VideoFrame implements MovieTag {
         if (frameData == null) {
             throw new IllegalArgumentException();
         }
-        data =  Arrays.copyOf(frameData, frameData.length);
+        data = ByteBuffer.wrap(Arrays.copyOf(frameData, frameData.length));
     }
 
     /** {@inheritDoc} */
@@ -208,13 +220,13 @@ public final class VideoFrame implements MovieTag {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        return String.format(FORMAT, identifier, frameNumber, data.length);
+        return String.format(FORMAT, identifier, frameNumber, data.remaining());
     }
 
     /** {@inheritDoc} */
     public int prepareToEncode(final Context context) {
         // CHECKSTYLE IGNORE MagicNumberCheck FOR NEXT 1 LINES
-        length = 4 + data.length;
+        length = 4 + data.remaining();
 
         return (length > Coder.HEADER_LIMIT
                 ? Coder.LONG_HEADER : Coder.SHORT_HEADER) + length;
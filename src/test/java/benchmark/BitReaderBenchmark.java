@@ -0,0 +1,187 @@
+/*
+ * BitReaderBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.coder.SWFDecoder;
+import com.flagstone.transform.coder.SWFEncodeable;
+import com.flagstone.transform.coder.SWFEncoder;
+import com.flagstone.transform.coder.SWFFactory;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.datatype.CoordTransform;
+import com.flagstone.transform.shape.ShapeTag;
+
+/**
+ * BitReaderBenchmark measures reading bit fields directly and decoding the
+ * objects that are encoded as bit fields: Bounds, CoordTransform and the
+ * shapes in the reference suite, which are decoded using ShapeDecoder.
+ */
+public final class BitReaderBenchmark {
+
+    /** The number of objects encoded for each datatype. */
+    private static final int COUNT = 10000;
+    /** The number of bytes used to measure reading bit fields. */
+    private static final int BIT_BYTES = 65536;
+    /** The widths of the bit fields read, in bits. */
+    private static final int[] WIDTHS = {5, 17, 3, 31, 1, 12, 8, 20};
+
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final Context context = new Context();
+        context.setRegistry(DecoderRegistry.getDefault());
+        context.put(Context.VERSION, Movie.VERSION);
+
+        final List<SWFEncodeable> list = new ArrayList<SWFEncodeable>();
+
+        for (int i = 0; i < COUNT; i++) {
+            list.add(new Bounds(-i, -2 * i, 3 * i, 4 * i));
+        }
+        final byte[] bounds = encode(list, context);
+
+        list.clear();
+        for (int i = 0; i < COUNT; i++) {
+            list.add(new CoordTransform(1.5f + i, 0.5f, 0.25f, -0.75f, i, -i));
+        }
+        final byte[] transforms = encode(list, context);
+
+        list.clear();
+        for (final File file : Harness.files()) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+            for (final MovieTag tag : movie.getObjects()) {
+                if (tag instanceof ShapeTag) {
+                    list.add(tag);
+                }
+            }
+        }
+        final int shapeCount = list.size();
+        final byte[] shapes = encode(list, context);
+
+        final byte[] data = new byte[BIT_BYTES];
+        new Random(1).nextBytes(data);
+
+        Harness.measure("readBits", data.length, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFDecoder coder = new SWFDecoder(
+                        ByteBuffer.wrap(data));
+                final int limit = (data.length - 8) << 3;
+                int read = 0;
+                int total = 0;
+                while (read < limit) {
+                    for (final int width : WIDTHS) {
+                        total += coder.readBits(width, (width & 1) == 1);
+                        read += width;
+                    }
+                }
+                if (total == 1) {
+                    throw new IllegalStateException();
+                }
+            }
+        });
+
+        Harness.measure("Bounds", bounds.length, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFDecoder coder = new SWFDecoder(
+                        ByteBuffer.wrap(bounds));
+                for (int i = 0; i < COUNT; i++) {
+                    new Bounds(coder);
+                }
+            }
+        });
+
+        Harness.measure("CoordTransform", transforms.length,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFDecoder coder = new SWFDecoder(
+                        ByteBuffer.wrap(transforms));
+                for (int i = 0; i < COUNT; i++) {
+                    new CoordTransform(coder);
+                }
+            }
+        });
+
+        final SWFFactory<MovieTag> factory = DecoderRegistry.getDefault()
+                .getMovieDecoder();
+        final List<MovieTag> decoded = new ArrayList<MovieTag>(1);
+
+        Harness.measure("Shapes", shapes.length, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFDecoder coder = new SWFDecoder(
+                        ByteBuffer.wrap(shapes));
+                for (int i = 0; i < shapeCount; i++) {
+                    factory.getObject(decoded, coder, context);
+                    decoded.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * Encode a list of objects.
+     * @param list the objects to encode.
+     * @param context the Context used to encode the objects.
+     * @return the encoded objects.
+     * @throws IOException if an object cannot be encoded.
+     */
+    private static byte[] encode(final List<SWFEncodeable> list,
+            final Context context) throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder coder = new SWFEncoder(stream);
+
+        for (final SWFEncodeable object : list) {
+            object.prepareToEncode(context);
+            object.encode(coder, context);
+        }
+        coder.flush();
+        return stream.toByteArray();
+    }
+
+    /** Private constructor. */
+    private BitReaderBenchmark() {
+        // Private
+    }
+}
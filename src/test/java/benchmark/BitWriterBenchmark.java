@@ -0,0 +1,142 @@
+/*
+ * BitWriterBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.SWFEncodeable;
+import com.flagstone.transform.coder.SWFEncoder;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.datatype.CoordTransform;
+
+/**
+ * BitWriterBenchmark measures writing bit fields directly and encoding the
+ * datatypes that are encoded as bit fields: Bounds and CoordTransform.
+ */
+public final class BitWriterBenchmark {
+
+    /** The number of objects encoded for each datatype. */
+    private static final int COUNT = 10000;
+    /** The number of bytes written when measuring writing bit fields. */
+    private static final int BIT_BYTES = 65536;
+    /** The widths of the bit fields written, in bits. */
+    private static final int[] WIDTHS = {5, 17, 3, 31, 1, 12, 8, 20};
+
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if an object cannot be encoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final Context context = new Context();
+        context.put(Context.VERSION, Movie.VERSION);
+
+        final List<Bounds> bounds = new ArrayList<Bounds>(COUNT);
+        final List<CoordTransform> transforms =
+            new ArrayList<CoordTransform>(COUNT);
+
+        for (int i = 0; i < COUNT; i++) {
+            bounds.add(new Bounds(-i, -2 * i, 3 * i, 4 * i));
+            transforms.add(new CoordTransform(1.5f + i, 0.5f, 0.25f, -0.75f,
+                    i, -i));
+        }
+
+        Harness.measure("writeBits", BIT_BYTES, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFEncoder coder = new SWFEncoder(
+                        new ByteArrayOutputStream(BIT_BYTES));
+                final int limit = BIT_BYTES << 3;
+                int written = 0;
+                int value = 0;
+                while (written < limit) {
+                    for (final int width : WIDTHS) {
+                        coder.writeBits(value++, width);
+                        written += width;
+                    }
+                }
+                coder.flush();
+            }
+        });
+
+        final long boundsSize = size(bounds, context);
+
+        Harness.measure("Bounds", boundsSize, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFEncoder coder = new SWFEncoder(
+                        new ByteArrayOutputStream((int) boundsSize));
+                for (final Bounds object : bounds) {
+                    object.prepareToEncode(context);
+                    object.encode(coder, context);
+                }
+                coder.flush();
+            }
+        });
+
+        final long transformSize = size(transforms, context);
+
+        Harness.measure("CoordTransform", transformSize, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFEncoder coder = new SWFEncoder(
+                        new ByteArrayOutputStream((int) transformSize));
+                for (final CoordTransform object : transforms) {
+                    object.prepareToEncode(context);
+                    object.encode(coder, context);
+                }
+                coder.flush();
+            }
+        });
+    }
+
+    /**
+     * Get the number of bytes needed to encode a list of objects.
+     * @param list the objects.
+     * @param context the Context used to encode the objects.
+     * @return the number of bytes.
+     */
+    private static long size(final List<? extends SWFEncodeable> list,
+            final Context context) {
+        long size = 0;
+        for (final SWFEncodeable object : list) {
+            size += object.prepareToEncode(context);
+        }
+        return size;
+    }
+
+    /** Private constructor. */
+    private BitWriterBenchmark() {
+        // Private
+    }
+}
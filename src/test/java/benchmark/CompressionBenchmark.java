@@ -0,0 +1,129 @@
+/*
+ * CompressionBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import com.flagstone.transform.Compression;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+
+/**
+ * CompressionBenchmark compares the size of the files in the reference suite
+ * and the time taken to encode and decode them when compressed using zlib
+ * (CWS) and LZMA (ZWS) at the default and fastest levels.
+ */
+public final class CompressionBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.files();
+        final long size = Harness.size(Harness.uncompressed(files));
+
+        System.out.println(String.format("%-24s %10d B", //NOPMD
+                "uncompressed", size));
+
+        measure(files, size, "zlib", Compression.ZLIB,
+                Deflater.DEFAULT_COMPRESSION);
+        measure(files, size, "zlib level 1", Compression.ZLIB,
+                Deflater.BEST_SPEED);
+        measure(files, size, "lzma", Compression.LZMA,
+                Deflater.DEFAULT_COMPRESSION);
+        measure(files, size, "lzma level 0", Compression.LZMA,
+                Deflater.NO_COMPRESSION);
+    }
+
+    /**
+     * Measure encoding and decoding the files using a given compression.
+     *
+     * @param files the files to encode.
+     * @param size the total uncompressed size of the files.
+     * @param label the name printed along with the results.
+     * @param compression the compression used.
+     * @param level the compression level.
+     * @throws Exception if a file cannot be encoded or decoded.
+     */
+    private static void measure(final List<File> files, final long size,
+            final String label, final Compression compression,
+            final int level) throws Exception { //NOPMD
+        final List<Movie> movies = new ArrayList<Movie>(files.size());
+        final List<byte[]> encoded = new ArrayList<byte[]>(files.size());
+        long total = 0;
+
+        for (final File file : files) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+            ((MovieHeader) movie.getObjects().get(0)).setCompression(
+                    compression);
+            movie.setCompressionLevel(level);
+            movies.add(movie);
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            movie.encodeToStream(out);
+            encoded.add(out.toByteArray());
+            total += out.size();
+        }
+
+        System.out.println(String.format("%-24s %10d B %9.1f%%", //NOPMD
+                label, total, total * 100.0 / size));
+
+        Harness.measure("encode (" + label + ")", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        Harness.measure("decode (" + label + ")", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final byte[] data : encoded) {
+                    new Movie().decodeFromStream(
+                            new ByteArrayInputStream(data));
+                }
+            }
+        });
+    }
+
+    /** Private constructor. */
+    private CompressionBenchmark() {
+        // Private
+    }
+}
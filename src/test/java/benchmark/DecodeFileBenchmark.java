@@ -0,0 +1,131 @@
+/*
+ * DecodeFileBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.coder.DecoderRegistry;
+
+/**
+ * DecodeFileBenchmark compares decoding uncompressed copies of the files in
+ * the reference suite from a FileInputStream against decoding them directly
+ * from the file, with and without lazy decoding, keeping images, sounds,
+ * fonts and ActionScript 3 byte-code as raw tags and decoding tags in
+ * parallel.
+ */
+public final class DecodeFileBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.uncompressed(Harness.files());
+        final long size = Harness.size(files);
+
+        Harness.measure("decodeFromStream", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    new Movie().decodeFromStream(new FileInputStream(file));
+                }
+            }
+        });
+
+        Harness.measure("decodeFromFile", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    new Movie().decodeFromFile(file);
+                }
+            }
+        });
+
+        Harness.measure("decodeFromFile (lazy)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    final Movie movie = new Movie();
+                    movie.setLazyDecoding(true);
+                    movie.decodeFromFile(file);
+                }
+            }
+        });
+
+        final DecoderRegistry registry = DecoderRegistry.getDefault();
+        registry.setRawTypes(new HashSet<Integer>(Arrays.asList(
+                MovieTypes.DEFINE_SOUND, MovieTypes.DEFINE_FONT_2,
+                MovieTypes.DEFINE_FONT_3, MovieTypes.DO_ABC,
+                MovieTypes.DEFINE_JPEG_IMAGE, MovieTypes.DEFINE_JPEG_IMAGE_2,
+                MovieTypes.DEFINE_JPEG_IMAGE_3, MovieTypes.DEFINE_IMAGE,
+                MovieTypes.DEFINE_IMAGE_2)));
+
+        Harness.measure("decodeFromFile (raw types)", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    final Movie movie = new Movie();
+                    movie.setRegistry(registry);
+                    movie.decodeFromFile(file);
+                }
+            }
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+
+        try {
+            Harness.measure("decodeFromFile (parallel)", size,
+                    new Harness.Task() {
+                public void run() throws Exception { //NOPMD
+                    for (final File file : files) {
+                        final Movie movie = new Movie();
+                        movie.setExecutor(executor);
+                        movie.decodeFromFile(file);
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Private constructor. */
+    private DecodeFileBenchmark() {
+        // Private
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * EncodeBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.util.movie.Deduplicator;
+import com.flagstone.transform.util.movie.TreeShaker;
+
+/**
+ * EncodeBenchmark measures encoding the files in the reference suite, using
+ * the current thread, writing unchanged shapes directly, using an executor
+ * and compressing the movies using the default and fastest levels. It also
+ * measures encoding copies of the movies made with copy() and copyOnWrite(),
+ * searching the movies for duplicate definitions, removing unused
+ * definitions and encoding the movies once they have been removed.
+ */
+public final class EncodeBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.files();
+        final List<Movie> movies = new ArrayList<Movie>(files.size());
+
+        for (final File file : files) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+            movies.add(movie);
+        }
+        final long size = Harness.size(Harness.uncompressed(files));
+
+        final List<Movie> retained = new ArrayList<Movie>(files.size());
+
+        for (final File file : files) {
+            final Movie movie = new Movie();
+            movie.setPassThrough(true);
+            movie.decodeFromFile(file);
+            retained.add(movie);
+        }
+
+        Harness.measure("encodeToStream", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        Harness.measure("encodeToStream (pass through)", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : retained) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        Harness.measure("copy, encodeToStream", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    movie.copy().encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        Harness.measure("copyOnWrite, encodeToStream", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    movie.copyOnWrite().encodeToStream(
+                            new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        Harness.measure("Deduplicator.process", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    new Deduplicator().process(movie);
+                }
+            }
+        });
+
+        final List<Movie> shaken = new ArrayList<Movie>(files.size());
+
+        for (final File file : files) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+            new TreeShaker().process(movie);
+            shaken.add(movie);
+        }
+
+        Harness.measure("TreeShaker.process (copy)", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    new TreeShaker().process(movie.copy());
+                }
+            }
+        });
+
+        Harness.measure("encodeToStream (tree shaken)", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : shaken) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        final List<Movie> compressed = new ArrayList<Movie>(files.size());
+
+        for (final File file : files) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+            ((MovieHeader) movie.getObjects().get(0)).setCompressed(true);
+            compressed.add(movie);
+        }
+
+        Harness.measure("encodeToStream (compressed)", size,
+                new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : compressed) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        for (final Movie movie : compressed) {
+            movie.setCompressionLevel(Deflater.BEST_SPEED);
+        }
+
+        Harness.measure("encodeToStream (level 1)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : compressed) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+
+        try {
+            for (final Movie movie : movies) {
+                movie.setExecutor(executor);
+            }
+
+            Harness.measure("encodeToStream (parallel)", size,
+                    new Harness.Task() {
+                public void run() throws Exception { //NOPMD
+                    for (final Movie movie : movies) {
+                        movie.encodeToStream(new ByteArrayOutputStream());
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Private constructor. */
+    private EncodeBenchmark() {
+        // Private
+    }
+}
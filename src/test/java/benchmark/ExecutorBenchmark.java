@@ -0,0 +1,98 @@
+/*
+ * ExecutorBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieExecutor;
+
+/**
+ * ExecutorBenchmark compares decoding the files in the reference suite one
+ * after another against decoding them as tasks submitted to a MovieExecutor,
+ * with different limits on the number of movies decoded at the same time.
+ */
+public final class ExecutorBenchmark {
+    /** The number of threads used to decode the movies. */
+    private static final int THREADS = 4;
+
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.files();
+        final long size = Harness.size(files);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            Harness.measure("decodeFromFile", size, new Harness.Task() {
+                public void run() throws Exception { //NOPMD
+                    for (final File file : files) {
+                        new Movie().decodeFromFile(file);
+                    }
+                }
+            });
+
+            for (final int limit : new int[] {1, THREADS, THREADS * THREADS}) {
+                final MovieExecutor movies = new MovieExecutor(executor,
+                        limit);
+                Harness.measure("MovieExecutor (" + limit + ")", size,
+                        new Harness.Task() {
+                    public void run() throws Exception { //NOPMD
+                        final List<Future<Movie>> tasks =
+                            new ArrayList<Future<Movie>>();
+                        for (final File file : files) {
+                            tasks.add(movies.decodeFromFile(file));
+                        }
+                        for (final Future<Movie> task : tasks) {
+                            task.get();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Private constructor. */
+    private ExecutorBenchmark() {
+        // Private
+    }
+}
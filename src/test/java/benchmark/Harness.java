@@ -0,0 +1,234 @@
+/*
+ * Harness.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Harness contains the code shared by the benchmarks for loading the files
+ * in the reference suite and timing each task.
+ *
+ * <p>
+ * Each task is run a number of times to allow the JIT compiler to warm up
+ * before it is timed. The memory allocated is measured using the
+ * com.sun.management.ThreadMXBean extension, where available.
+ * </p>
+ */
+public final class Harness {
+
+    /** The number of iterations used to warm up the JIT compiler. */
+    public static final int WARMUP = Integer.getInteger("warmup", 200);
+    /** The number of iterations that are timed. */
+    public static final int ITERATIONS = Integer.getInteger("iterations", 500);
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final double NANOS = 1000000.0;
+    /** Number of bytes in a megabyte. */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    /** Size of the buffer used to copy files. */
+    private static final int BUFFER_SIZE = 4096;
+    /** Length of the signature, version and length fields in a file. */
+    private static final int HEADER_LENGTH = 8;
+
+    /** A task that is timed by the harness. */
+    public interface Task {
+        /**
+         * Run the task once.
+         * @throws Exception if the task fails.
+         */
+        void run() throws Exception; //NOPMD
+    }
+
+    /**
+     * Get the Flash files in the reference suite or the directory set in the
+     * test.suite system property.
+     *
+     * @return the list of files sorted by name.
+     */
+    public static List<File> files() {
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] names = srcDir.list(filter);
+        Arrays.sort(names);
+
+        final List<File> list = new ArrayList<File>(names.length);
+        for (final String name : names) {
+            list.add(new File(srcDir, name));
+        }
+        return list;
+    }
+
+    /**
+     * Write a copy of each file, with the body of compressed files inflated,
+     * to a temporary directory.
+     *
+     * @param files the list of files to copy.
+     * @return the list of uncompressed files.
+     * @throws IOException if a file cannot be copied.
+     */
+    public static List<File> uncompressed(final List<File> files)
+            throws IOException {
+        final File dir = new File(System.getProperty("java.io.tmpdir"),
+                "swf-uncompressed");
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        final List<File> list = new ArrayList<File>(files.size());
+        final byte[] header = new byte[HEADER_LENGTH];
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        for (final File file : files) {
+            final File dest = new File(dir, file.getName());
+            final InputStream input = new FileInputStream(file);
+            final OutputStream output = new FileOutputStream(dest);
+            try {
+                if (input.read(header) != HEADER_LENGTH) {
+                    throw new IOException("Cannot read " + file);
+                }
+                InputStream body = input;
+                if (header[0] == 'C') {
+                    body = new InflaterInputStream(input);
+                    header[0] = 'F';
+                }
+                output.write(header);
+                int remaining = (((header[7] & 0xFF) << 24)
+                        | ((header[6] & 0xFF) << 16)
+                        | ((header[5] & 0xFF) << 8)
+                        | (header[4] & 0xFF)) - HEADER_LENGTH;
+                int count;
+                while (remaining > 0 && (count = body.read(buffer, 0,
+                        Math.min(remaining, BUFFER_SIZE))) != -1) {
+                    output.write(buffer, 0, count);
+                    remaining -= count;
+                }
+            } finally {
+                input.close();
+                output.close();
+            }
+            dest.deleteOnExit();
+            list.add(dest);
+        }
+        return list;
+    }
+
+    /**
+     * Get the total size in bytes of a list of files.
+     *
+     * @param files the list of files.
+     * @return the sum of the lengths of the files.
+     */
+    public static long size(final List<File> files) {
+        long total = 0;
+        for (final File file : files) {
+            total += file.length();
+        }
+        return total;
+    }
+
+    /**
+     * Time a task and print the average time, throughput and memory
+     * allocated for each iteration.
+     *
+     * @param label the name printed along with the results.
+     * @param bytes the number of bytes processed each time the task is run.
+     * @param task the task to run.
+     * @throws Exception if the task fails.
+     */
+    public static void measure(final String label, final long bytes,
+            final Task task) throws Exception { //NOPMD
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+
+        final long startBytes = allocated();
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        final long memory = allocated() - startBytes;
+        final double millis = elapsed / NANOS / ITERATIONS;
+
+        System.out.println(String.format( //NOPMD
+                "%-24s %10.3f ms/op %10.1f MB/s %14d B/op", label, millis,
+                (bytes / MEGABYTE) / (millis / 1000.0),
+                memory < 0 ? -1 : memory / ITERATIONS));
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread.
+     *
+     * @return the number of bytes allocated or -1 if the JVM does not
+     * support allocation measurement.
+     */
+    private static long allocated() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /** Private constructor. */
+    private Harness() {
+        // Private
+    }
+}
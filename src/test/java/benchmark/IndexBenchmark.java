@@ -0,0 +1,106 @@
+/*
+ * IndexBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieIndex;
+import com.flagstone.transform.util.movie.FrameRange;
+
+/**
+ * IndexBenchmark compares decoding uncompressed copies of the files in the
+ * reference suite against scanning them to create an index and decoding the
+ * last frame of each movie using an existing index. The tags needed to
+ * display the first frame are also decoded using FrameRange.
+ */
+public final class IndexBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.uncompressed(Harness.files());
+        final long size = Harness.size(files);
+        final List<MovieIndex> indices = new ArrayList<MovieIndex>();
+
+        for (final File file : files) {
+            final MovieIndex index = new MovieIndex();
+            index.scanFile(file);
+            indices.add(index);
+        }
+
+        Harness.measure("decodeFromFile", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    new Movie().decodeFromFile(file);
+                }
+            }
+        });
+
+        Harness.measure("scanFile", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    new MovieIndex().scanFile(file);
+                }
+            }
+        });
+
+        Harness.measure("decodeFrame (last)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                MovieIndex index;
+                for (int i = 0; i < files.size(); i++) {
+                    index = indices.get(i);
+                    index.decodeFrame(files.get(i),
+                            index.getFrame(index.size() - 1));
+                }
+            }
+        });
+
+        Harness.measure("FrameRange (first)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (int i = 0; i < files.size(); i++) {
+                    new FrameRange().decodeFromFile(files.get(i),
+                            indices.get(i), 0, 0);
+                }
+            }
+        });
+    }
+
+    /** Private constructor. */
+    private IndexBenchmark() {
+        // Private
+    }
+}
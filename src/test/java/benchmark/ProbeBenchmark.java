@@ -0,0 +1,86 @@
+/*
+ * ProbeBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieProbe;
+
+/**
+ * ProbeBenchmark compares decoding uncompressed copies of the files in the
+ * reference suite against probing them for the header and the tags used to
+ * describe a movie, reading from the file and from a stream.
+ */
+public final class ProbeBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<File> files = Harness.uncompressed(Harness.files());
+        final long size = Harness.size(files);
+        final MovieProbe probe = new MovieProbe();
+
+        Harness.measure("decodeFromFile", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    new Movie().decodeFromFile(file);
+                }
+            }
+        });
+
+        Harness.measure("probe (file)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    probe.probe(file);
+                }
+            }
+        });
+
+        Harness.measure("probe (stream)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final File file : files) {
+                    probe.probe(new FileInputStream(file));
+                }
+            }
+        });
+    }
+
+    /** Private constructor. */
+    private ProbeBenchmark() {
+        // Private
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * ShapeCodingBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.shape.ShapeTag;
+
+/**
+ * ShapeCodingBenchmark measures decoding and encoding the files in the
+ * reference suite that contain shapes. The files are uncompressed and held
+ * in memory so the results reflect the cost of the coders rather than the
+ * cost of reading files or inflating data.
+ */
+public final class ShapeCodingBenchmark {
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<byte[]> data = new ArrayList<byte[]>();
+        final List<Movie> movies = new ArrayList<Movie>();
+        long size = 0;
+
+        for (final File file : Harness.uncompressed(Harness.files())) {
+            final Movie movie = new Movie();
+            movie.decodeFromFile(file);
+
+            if (containsShapes(movie)) {
+                data.add(read(file));
+                movies.add(movie);
+                size += file.length();
+            }
+        }
+
+        Harness.measure("decode shapes", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final byte[] bytes : data) {
+                    new Movie().decodeFromStream(
+                            new ByteArrayInputStream(bytes));
+                }
+            }
+        });
+
+        Harness.measure("encode shapes", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final Movie movie : movies) {
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+    }
+
+    /**
+     * Does a movie contain any shapes.
+     * @param movie the movie.
+     * @return true if the movie contains at least one ShapeTag.
+     */
+    private static boolean containsShapes(final Movie movie) {
+        for (final MovieTag tag : movie.getObjects()) {
+            if (tag instanceof ShapeTag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the contents of a file.
+     * @param file the file.
+     * @return the contents of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static byte[] read(final File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream stream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int count;
+            while (offset < bytes.length && (count = stream.read(bytes,
+                    offset, bytes.length - offset)) != -1) {
+                offset += count;
+            }
+        } finally {
+            stream.close();
+        }
+        return bytes;
+    }
+
+    /** Private constructor. */
+    private ShapeCodingBenchmark() {
+        // Private
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * SmallMovieBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.coder.CoderPool;
+
+/**
+ * SmallMovieBenchmark measures the throughput of decoding and encoding the
+ * files in the reference suite between 1KB and 50KB in size, with and
+ * without a CoderPool shared between the movies.
+ */
+public final class SmallMovieBenchmark {
+    /** The size in bytes of the smallest file included. */
+    private static final int MIN_SIZE = 1024;
+    /** The size in bytes of the largest file included. */
+    private static final int MAX_SIZE = 50 * 1024;
+
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if a file cannot be decoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final List<byte[]> movies = new ArrayList<byte[]>();
+        long size = 0;
+
+        for (final File file : Harness.files()) {
+            if (file.length() >= MIN_SIZE && file.length() <= MAX_SIZE) {
+                final byte[] data = read(file);
+                movies.add(data);
+                size += data.length;
+            }
+        }
+
+        System.out.println(movies.size() + " files"); //NOPMD
+
+        Harness.measure("decode/encode", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final byte[] data : movies) {
+                    final Movie movie = new Movie();
+                    movie.decodeFromStream(new ByteArrayInputStream(data));
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+
+        final CoderPool pool = new CoderPool();
+
+        Harness.measure("decode/encode (pooled)", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                for (final byte[] data : movies) {
+                    final Movie movie = new Movie();
+                    movie.setCoderPool(pool);
+                    movie.decodeFromStream(new ByteArrayInputStream(data));
+                    movie.encodeToStream(new ByteArrayOutputStream());
+                }
+            }
+        });
+    }
+
+    /**
+     * Read the contents of a file.
+     *
+     * @param file the file to read.
+     * @return the contents of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static byte[] read(final File file) throws IOException {
+        final byte[] data = new byte[(int) file.length()];
+        final InputStream stream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int count;
+            while (offset < data.length && (count = stream.read(data, offset,
+                    data.length - offset)) != -1) {
+                offset += count;
+            }
+        } finally {
+            stream.close();
+        }
+        return data;
+    }
+
+    /** Private constructor. */
+    private SmallMovieBenchmark() {
+        // Private
+    }
+}
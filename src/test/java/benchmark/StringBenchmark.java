@@ -0,0 +1,139 @@
+/*
+ * StringBenchmark.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.action.Push;
+import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.SWFDecoder;
+import com.flagstone.transform.coder.SWFEncoder;
+
+/**
+ * StringBenchmark measures encoding and decoding Push actions containing
+ * strings, which is where most of the strings in action-heavy movies are
+ * found.
+ */
+public final class StringBenchmark {
+
+    /** The number of actions encoded. */
+    private static final int COUNT = 10000;
+
+    /**
+     * Run the benchmark from the command line.
+     * @param args array of command line arguments.
+     * @throws Exception if an object cannot be encoded.
+     */
+    public static void main(final String[] args) throws Exception { //NOPMD
+        final Context context = new Context();
+        context.put(Context.VERSION, Movie.VERSION);
+
+        final List<Push> actions = new ArrayList<Push>(COUNT);
+
+        for (int i = 0; i < COUNT; i++) {
+            final List<Object> values = new ArrayList<Object>();
+            values.add("_root.clip" + i);
+            values.add("gotoAndPlay");
+            values.add("label_" + (i % 100));
+            actions.add(new Push(values));
+        }
+
+        final List<Push> unicode = new ArrayList<Push>(COUNT);
+
+        for (int i = 0; i < COUNT; i++) {
+            final List<Object> values = new ArrayList<Object>();
+            values.add("\u00e9t\u00e9_" + i);
+            values.add("\u65e5\u672c\u8a9e");
+            unicode.add(new Push(values));
+        }
+
+        measure("Push (ASCII)", actions, context);
+        measure("Push (non-ASCII)", unicode, context);
+    }
+
+    /**
+     * Measure encoding then decoding a list of actions.
+     *
+     * @param label the name printed along with the results.
+     * @param actions the actions to encode.
+     * @param context the Context used to encode the actions.
+     * @throws Exception if an action cannot be encoded.
+     */
+    private static void measure(final String label, final List<Push> actions,
+            final Context context) throws Exception { //NOPMD
+        int length = 0;
+        for (final Push action : actions) {
+            length += action.prepareToEncode(context);
+        }
+        final int size = length;
+
+        Harness.measure(label + " encode", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFEncoder coder = new SWFEncoder(
+                        new ByteArrayOutputStream(size));
+                for (final Push action : actions) {
+                    action.prepareToEncode(context);
+                    action.encode(coder, context);
+                }
+                coder.flush();
+            }
+        });
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        final SWFEncoder encoder = new SWFEncoder(out);
+        for (final Push action : actions) {
+            action.encode(encoder, context);
+        }
+        encoder.flush();
+        final byte[] data = out.toByteArray();
+        final int count = actions.size();
+
+        Harness.measure(label + " decode", size, new Harness.Task() {
+            public void run() throws Exception { //NOPMD
+                final SWFDecoder coder = new SWFDecoder(ByteBuffer.wrap(data));
+                for (int i = 0; i < count; i++) {
+                    coder.readByte();
+                    new Push(coder, context);
+                }
+            }
+        });
+    }
+
+    /** Private constructor. */
+    private StringBenchmark() {
+        // Private
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * A set of simple benchmarks, run from the command line, for measuring the
+ * time taken and memory allocated when decoding and encoding the Flash files
+ * in the reference suite.
+ */
+package benchmark;
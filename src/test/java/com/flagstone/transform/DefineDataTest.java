@@ -32,6 +32,9 @@ package com.flagstone.transform;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -67,4 +70,14 @@ public final class DefineDataTest {
         assertNotSame(fixture.getData(), copy.getData());
         assertEquals(fixture.toString(), copy.toString());
     }
+
+    @Test
+    public void checkAccessorForDataBuffer() {
+        fixture = new DefineData(IDENTIFIER, data);
+        final ByteBuffer buffer = fixture.getDataBuffer();
+
+        assertTrue(buffer.isReadOnly());
+        assertEquals(data.length, buffer.remaining());
+        assertEquals(data[0], buffer.get(0));
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * MovieExecutorTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class MovieExecutorTest {
+
+    private transient ExecutorService executor;
+    private transient CountDownLatch latch;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        latch = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        latch.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkNullExecutor() {
+        new MovieExecutor(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkLimitWithLowerBound() {
+        new MovieExecutor(executor, 0);
+    }
+
+    @Test
+    public void checkPendingReleasedOnCompletion()
+            throws InterruptedException {
+        final MovieExecutor fixture = new MovieExecutor(executor, 2);
+        final Future<Movie> future = fixture.decodeFromStream(
+                new BlockingStream());
+
+        assertEquals(1, fixture.getPending());
+        latch.countDown();
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(0, fixture.getPending());
+    }
+
+    @Test
+    public void checkPendingReleasedOnCancel() throws InterruptedException {
+        final MovieExecutor fixture = new MovieExecutor(executor, 2);
+        fixture.decodeFromStream(new BlockingStream());
+        final Future<Movie> queued = fixture.decodeFromStream(
+                new BlockingStream());
+
+        assertEquals(2, fixture.getPending());
+        queued.cancel(false);
+        assertEquals(1, fixture.getPending());
+    }
+
+    /** Stream that blocks until the latch is released then fails. */
+    private final class BlockingStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e.getMessage());
+            }
+            throw new IOException("closed");
+        }
+    }
+}
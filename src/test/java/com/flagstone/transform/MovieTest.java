@@ -0,0 +1,226 @@
+/*
+ * MovieTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.flagstone.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.exception.IllegalArgumentRangeException;
+import com.flagstone.transform.exception.IllegalArgumentValueException;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.linestyle.LineStyle;
+import com.flagstone.transform.shape.DefineShape2;
+import com.flagstone.transform.shape.PathsArePostscript;
+import com.flagstone.transform.shape.Shape;
+
+public final class MovieTest {
+
+    private transient Movie fixture;
+
+    private MovieHeader header() {
+        final MovieHeader header = new MovieHeader();
+        header.setFrameSize(new Bounds(0, 0, 100, 100));
+        return header;
+    }
+
+    private DefineShape2 shape(final int identifier) {
+        return new DefineShape2(identifier, new Bounds(0, 0, 100, 100),
+                new ArrayList<FillStyle>(), new ArrayList<LineStyle>(),
+                new Shape());
+    }
+
+    @Test(expected = IllegalArgumentRangeException.class)
+    public void checkAccessorForCompressionLevelWithLowerBound() {
+        fixture = new Movie();
+        fixture.setCompressionLevel(-2);
+    }
+
+    @Test(expected = IllegalArgumentRangeException.class)
+    public void checkAccessorForCompressionLevelWithUpperBound() {
+        fixture = new Movie();
+        fixture.setCompressionLevel(10);
+    }
+
+    @Test(expected = IllegalArgumentValueException.class)
+    public void checkAccessorForCompressionStrategyWithInvalidValue() {
+        fixture = new Movie();
+        fixture.setCompressionStrategy(3);
+    }
+
+    @Test
+    public void checkCopy() {
+        fixture = new Movie();
+        fixture.setCompressionLevel(Deflater.BEST_SPEED);
+        fixture.setCompressionStrategy(Deflater.HUFFMAN_ONLY);
+        final Movie copy = fixture.copy();
+
+        assertEquals(Deflater.BEST_SPEED, copy.getCompressionLevel());
+        assertEquals(Deflater.HUFFMAN_ONLY, copy.getCompressionStrategy());
+    }
+
+    @Test
+    public void checkCopyOnWriteCopiesAccessedTags() {
+        fixture = new Movie();
+        fixture.add(header());
+        final DefineData data = new DefineData(1, new byte[] {1, 2, 3});
+        fixture.add(data);
+
+        final Movie copy = fixture.copyOnWrite();
+        final DefineData copied = (DefineData) copy.getObjects().get(1);
+        assertNotSame(data, copied);
+        assertSame(copied, copy.getObjects().get(1));
+
+        copied.setIdentifier(2);
+        assertEquals(1, data.getIdentifier());
+        assertSame(data, fixture.getObjects().get(1));
+    }
+
+    @Test
+    public void checkCopyOnWriteCopiesReplacedTags() {
+        fixture = new Movie();
+        fixture.add(header());
+        final DefineData data = new DefineData(1, new byte[] {1, 2, 3});
+        fixture.add(data);
+        fixture.add(data);
+
+        final Movie copy = fixture.copyOnWrite();
+        final DefineData replaced = (DefineData) copy.getObjects().set(1,
+                ShowFrame.getInstance());
+        final DefineData removed = (DefineData) copy.getObjects().remove(2);
+        assertNotSame(data, replaced);
+        assertNotSame(data, removed);
+
+        replaced.setIdentifier(2);
+        removed.setIdentifier(3);
+        assertEquals(1, data.getIdentifier());
+    }
+
+    @Test
+    public void checkCopyOnWriteTracksPositions() {
+        fixture = new Movie();
+        fixture.add(header());
+        final DefineData data = new DefineData(1, new byte[] {1, 2, 3});
+        fixture.add(data);
+
+        final Movie copy = fixture.copyOnWrite();
+        copy.getObjects().add(1, ShowFrame.getInstance());
+        assertNotSame(data, copy.getObjects().get(2));
+    }
+
+    @Test
+    public void checkCopyOnWriteCopiesHeader() throws DataFormatException,
+            IOException {
+        fixture = new Movie();
+        fixture.add(header());
+        fixture.add(ShowFrame.getInstance());
+
+        final Movie copy = fixture.copyOnWrite();
+        copy.add(ShowFrame.getInstance());
+        copy.encodeToStream(new ByteArrayOutputStream());
+
+        assertEquals(0, ((MovieHeader) fixture.getObjects().get(0))
+                .getFrameCount());
+        assertEquals(2, ((MovieHeader) copy.getObjects().get(0))
+                .getFrameCount());
+    }
+
+    @Test
+    public void checkCopyOnWriteEncodesSameData()
+            throws DataFormatException, IOException {
+        fixture = new Movie();
+        fixture.add(header());
+        fixture.add(new DefineData(1, new byte[] {1, 2, 3}));
+        fixture.add(ShowFrame.getInstance());
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        fixture.encodeToStream(expected);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        fixture.copyOnWrite().encodeToStream(actual);
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void checkParallelEncodingSetsPostscriptInOrder()
+            throws DataFormatException, IOException {
+        fixture = new Movie();
+        fixture.add(header());
+        fixture.add(shape(1));
+        for (int i = 0; i < 100; i++) {
+            fixture.add(ShowFrame.getInstance());
+        }
+        fixture.add(PathsArePostscript.getInstance());
+        for (int i = 0; i < 100; i++) {
+            fixture.add(ShowFrame.getInstance());
+        }
+        fixture.add(shape(2));
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        fixture.encodeToStream(expected);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try {
+            fixture.setExecutor(executor);
+            fixture.encodeToStream(actual);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void checkCopyOnWriteSymbols() {
+        fixture = new Movie();
+        fixture.add(header());
+        final DefineData data = new DefineData(1, new byte[] {1, 2, 3});
+        fixture.add(data);
+
+        final Movie copy = fixture.copyOnWrite();
+        final MovieTag definition = copy.getSymbols().getDefinition(1);
+        assertNotSame(data, definition);
+        assertSame(copy.getObjects().get(1), definition);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * SymbolTableTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.datatype.CoordTransform;
+import com.flagstone.transform.fillstyle.BitmapFill;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.linestyle.LineStyle;
+import com.flagstone.transform.movieclip.DefineMovieClip;
+import com.flagstone.transform.shape.DefineShape;
+import com.flagstone.transform.shape.Shape;
+
+public final class SymbolTableTest {
+
+    private transient Movie movie;
+    private transient DefineShape shape;
+    private transient Place2 place;
+
+    @Before
+    public void setUp() {
+        final List<FillStyle> fills = new ArrayList<FillStyle>();
+        fills.add(new BitmapFill(false, false, 2,
+                CoordTransform.translate(0, 0)));
+        shape = new DefineShape(1, new Bounds(0, 0, 100, 100), fills,
+                new ArrayList<LineStyle>(), new Shape());
+        place = Place2.show(1, 1, 0, 0);
+
+        movie = new Movie();
+        movie.add(new MovieHeader());
+        movie.add(shape);
+        movie.add(place);
+    }
+
+    @Test
+    public void checkDefinition() {
+        final SymbolTable table = movie.getSymbols();
+        assertEquals(1, table.size());
+        assertSame(shape, table.getDefinition(1));
+        assertTrue(table.isDefined(1));
+        assertFalse(table.isDefined(2));
+        assertNull(table.getDefinition(2));
+    }
+
+    @Test
+    public void checkReferences() {
+        final SymbolTable table = movie.getSymbols();
+        assertEquals(1, table.getReferences(1).size());
+        assertSame(place, table.getReferences(1).get(0));
+        assertSame(shape, table.getReferences(2).get(0));
+        assertTrue(table.getReferences(3).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void checkReferencesCannotBeModified() {
+        movie.getSymbols().getReferences(1).clear();
+    }
+
+    @Test
+    public void checkAddUpdatesTable() {
+        final SymbolTable table = movie.getSymbols();
+        final List<MovieTag> list = new ArrayList<MovieTag>();
+        list.add(Place2.show(1, 1, 0, 0));
+        final DefineMovieClip clip = new DefineMovieClip(3, list);
+        movie.add(clip);
+
+        assertSame(clip, table.getDefinition(3));
+        assertEquals(2, table.getReferences(1).size());
+        assertSame(clip, table.getReferences(1).get(1));
+    }
+
+    @Test
+    public void checkRemoveUpdatesTable() {
+        final SymbolTable table = movie.getSymbols();
+        movie.getObjects().remove(place);
+        movie.getObjects().remove(shape);
+
+        assertFalse(table.isDefined(1));
+        assertTrue(table.getReferences(1).isEmpty());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void checkSetObjectsReplacesTable() {
+        final SymbolTable table = movie.getSymbols();
+        movie.setObjects(new ArrayList<MovieTag>());
+        assertTrue(table != movie.getSymbols());
+        assertEquals(0, movie.getSymbols().size());
+    }
+
+    @Test
+    public void checkFirstDefinitionIsKept() {
+        movie.add(new DefineShape(1, new Bounds(0, 0, 1, 1),
+                new ArrayList<FillStyle>(), new ArrayList<LineStyle>(),
+                new Shape()));
+        assertSame(shape, movie.getSymbols().getDefinition(1));
+    }
+
+    @Test
+    public void checkLaterDefinitionKeptAfterRemove() {
+        final DefineShape other = new DefineShape(1, new Bounds(0, 0, 1, 1),
+                new ArrayList<FillStyle>(), new ArrayList<LineStyle>(),
+                new Shape());
+        movie.add(other);
+        final SymbolTable table = movie.getSymbols();
+        movie.getObjects().remove(shape);
+
+        assertEquals(1, table.size());
+        assertSame(other, table.getDefinition(1));
+    }
+
+    @Test
+    public void checkRawDefinitions() throws DataFormatException,
+            IOException {
+        final Movie decoded = decode(Collections.singleton(
+                MovieTypes.DEFINE_SHAPE), false);
+        final SymbolTable table = decoded.getSymbols();
+
+        assertArrayEquals(new int[] {1}, table.getIdentifiers());
+        assertTrue(table.getDefinition(1) instanceof EncodedTag);
+        assertEquals(1, table.getReferences(1).size());
+        assertEquals(1, table.getReferences(2).size());
+    }
+
+    @Test
+    public void checkLazyTagsDecodedWhenReturned()
+            throws DataFormatException, IOException {
+        final Movie decoded = decode(Collections.<Integer>emptySet(), true);
+        final SymbolTable table = decoded.getSymbols();
+
+        assertArrayEquals(new int[] {1}, table.getIdentifiers());
+        assertTrue(decoded.toString().contains("EncodedTag"));
+
+        final MovieTag definition = table.getDefinition(1);
+        assertTrue(definition instanceof DefineShape);
+        assertSame(decoded.getObjects().get(1), definition);
+        assertSame(decoded.getObjects().get(2),
+                table.getReferences(1).get(0));
+    }
+
+    @Test
+    public void checkIsDefinedDoesNotDecode()
+            throws DataFormatException, IOException {
+        final Movie decoded = decode(Collections.<Integer>emptySet(), true);
+        final SymbolTable table = decoded.getSymbols();
+
+        assertTrue(table.isDefined(1));
+        assertTrue(decoded.toString().contains("EncodedTag"));
+    }
+
+    @Test
+    public void checkEncodedReferences()
+            throws DataFormatException, IOException {
+        movie.add(Place2.move(1, 10, 10));
+        movie.add(new Remove(1, 1));
+        final Movie decoded = decode(Collections.<Integer>emptySet(), true);
+        final SymbolTable table = decoded.getSymbols();
+
+        assertEquals(2, table.getReferences(1).size());
+        assertTrue(table.getReferences(1).get(1) instanceof Remove);
+
+        decoded.getObjects().remove(4);
+        assertEquals(1, table.getReferences(1).size());
+    }
+
+    @Test
+    public void checkPositionsFollowInsertAndRemove()
+            throws DataFormatException, IOException {
+        final Movie decoded = decode(Collections.<Integer>emptySet(), true);
+        final SymbolTable table = decoded.getSymbols();
+        final List<MovieTag> list = decoded.getObjects();
+
+        list.add(1, new DefineMovieClip(7, new ArrayList<MovieTag>()));
+        list.add(1, new DefineMovieClip(8, new ArrayList<MovieTag>()));
+        list.remove(2);
+
+        final MovieTag definition = table.getDefinition(1);
+        assertTrue(definition instanceof DefineShape);
+        assertSame(list.get(2), definition);
+        assertSame(list.get(3), table.getReferences(1).get(0));
+    }
+
+    @Test
+    public void checkSharedTagsCopiedWhenReturned() {
+        final Movie copy = movie.copyOnWrite();
+        final MovieTag definition = copy.getSymbols().getDefinition(1);
+
+        assertTrue(definition != shape);
+        assertSame(copy.getObjects().get(1), definition);
+    }
+
+    @Test
+    public void checkTableIsResized() {
+        for (int i = 2; i < 1000; i++) {
+            movie.add(new Remove(i, 1));
+            movie.add(new DefineMovieClip(i, new ArrayList<MovieTag>()));
+        }
+        final SymbolTable table = movie.getSymbols();
+        assertEquals(999, table.size());
+        for (int i = 1; i < 1000; i++) {
+            assertTrue(table.isDefined(i));
+        }
+        assertEquals(1, table.getReferences(999).size());
+    }
+
+    @Test
+    public void checkIdentifiers() {
+        movie.add(new DefineMovieClip(5, new ArrayList<MovieTag>()));
+        movie.add(new DefineMovieClip(3, new ArrayList<MovieTag>()));
+        assertArrayEquals(new int[] {1, 3, 5},
+                movie.getSymbols().getIdentifiers());
+    }
+
+    @Test
+    public void checkReferencesFromMovieClip() {
+        final List<MovieTag> list = new ArrayList<MovieTag>();
+        list.add(Place2.show(4, 1, 0, 0));
+        list.add(new Remove(4, 1));
+        list.add(Place2.move(1, 10, 10));
+        assertArrayEquals(new int[] {4, 4},
+                SymbolTable.referencesFrom(new DefineMovieClip(3, list)));
+    }
+
+    private Movie decode(final Set<Integer> types, final boolean lazy)
+            throws DataFormatException, IOException {
+        ((MovieHeader) movie.getObjects().get(0)).setFrameSize(
+                new Bounds(0, 0, 100, 100));
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        movie.encodeToStream(stream);
+
+        final DecoderRegistry registry = DecoderRegistry.getDefault().copy();
+        registry.setRawTypes(types);
+
+        final Movie decoded = new Movie();
+        decoded.setRegistry(registry);
+        decoded.setLazyDecoding(lazy);
+        decoded.decodeFromStream(new ByteArrayInputStream(
+                stream.toByteArray()));
+        return decoded;
+    }
+}
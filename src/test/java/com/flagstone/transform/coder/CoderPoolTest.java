@@ -0,0 +1,180 @@
+/*
+ * CoderPoolTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+import com.flagstone.transform.CharacterEncoding;
+import com.flagstone.transform.MovieReader;
+
+public final class CoderPoolTest {
+
+    @Test
+    public void releasedDecoderIsReused() {
+        final CoderPool pool = new CoderPool();
+        final SWFDecoder decoder = pool.getDecoder(
+                new ByteArrayInputStream(new byte[0]), 16);
+        pool.release(decoder);
+        assertSame(decoder, pool.getDecoder(
+                new ByteArrayInputStream(new byte[0]), 16));
+    }
+
+    @Test
+    public void reusedDecoderReadsNewStream() throws IOException {
+        final CoderPool pool = new CoderPool();
+        SWFDecoder decoder = pool.getDecoder(
+                new ByteArrayInputStream(new byte[] {1, 2, 3, 4}), 4);
+        decoder.readByte();
+        decoder.readBits(3, false);
+        pool.release(decoder);
+
+        decoder = pool.getDecoder(
+                new ByteArrayInputStream(new byte[] {5, 6, 7}), 2);
+        assertEquals(0, decoder.mark());
+        assertEquals(5, decoder.readByte());
+        assertEquals(6, decoder.readByte());
+    }
+
+    @Test
+    public void decoderForBufferIsDiscarded() {
+        final CoderPool pool = new CoderPool();
+        final SWFDecoder decoder = new SWFDecoder(ByteBuffer.wrap(new byte[4]));
+        pool.release(decoder);
+        assertNotSame(decoder, pool.getDecoder(
+                new ByteArrayInputStream(new byte[0]), 16));
+    }
+
+    @Test
+    public void largeDecoderIsDiscarded() {
+        final CoderPool pool = new CoderPool(1024);
+        final SWFDecoder decoder = pool.getDecoder(
+                new ByteArrayInputStream(new byte[0]), 4096);
+        pool.release(decoder);
+        assertNotSame(decoder, pool.getDecoder(
+                new ByteArrayInputStream(new byte[0]), 16));
+    }
+
+    @Test
+    public void reusedEncoderWritesNewStream() throws IOException {
+        final CoderPool pool = new CoderPool();
+        SWFEncoder encoder = pool.getEncoder(new ByteArrayOutputStream());
+        encoder.writeBits(7, 3);
+        encoder.mark();
+        pool.release(encoder);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SWFEncoder reused = pool.getEncoder(out);
+        assertSame(encoder, reused);
+        encoder = reused;
+        encoder.writeByte(1);
+        encoder.writeBits(1, 1);
+        encoder.flush();
+        assertArrayEquals(new byte[] {1}, out.toByteArray());
+        assertEquals(1, encoder.mark());
+    }
+
+    @Test
+    public void releasedContextIsCleared() {
+        final CoderPool pool = new CoderPool();
+        final Context context = pool.getContext();
+        context.putInt(Context.VERSION, 10);
+        context.put(100, 1);
+        context.setEncoding("US-ASCII");
+        pool.release(context);
+
+        assertSame(context, pool.getContext());
+        assertFalse(context.contains(Context.VERSION));
+        assertFalse(context.contains(100));
+        assertEquals(new Context().getEncoding(), context.getEncoding());
+    }
+
+    @Test
+    public void releasedInflaterIsReset() {
+        final CoderPool pool = new CoderPool();
+        final Inflater inflater = pool.getInflater();
+        inflater.setInput(new byte[] {1, 2, 3});
+        pool.release(inflater);
+
+        assertSame(inflater, pool.getInflater());
+        assertEquals(0, inflater.getRemaining());
+    }
+
+    @Test
+    public void invalidMovieReleasesContext() throws IOException {
+        final CoderPool pool = new CoderPool();
+        final Context context = pool.getContext();
+        pool.release(context);
+
+        final boolean[] closed = new boolean[1];
+        final ByteArrayInputStream stream = new ByteArrayInputStream(
+                new byte[] {'G', 'I', 'F', '8', '9', 'a', 0, 0}) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        try {
+            new MovieReader(stream, DecoderRegistry.getDefault(),
+                    CharacterEncoding.UTF8, pool);
+            fail();
+        } catch (final DataFormatException e) {
+            assertTrue(closed[0]);
+            assertSame(context, pool.getContext());
+        }
+    }
+
+    @Test
+    public void clearDiscardsObjects() {
+        final CoderPool pool = new CoderPool();
+        final Context context = pool.getContext();
+        pool.release(context);
+        pool.clear();
+        assertNotSame(context, pool.getContext());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * ContextTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public final class ContextTest {
+
+    @Test
+    public void variableIsNotSet() {
+        final Context context = new Context();
+        assertFalse(context.contains(Context.TYPE));
+        assertNull(context.get(Context.TYPE));
+        assertEquals(0, context.getInt(Context.TYPE));
+    }
+
+    @Test
+    public void putSetsVariable() {
+        final Context context = new Context();
+        context.put(Context.VERSION, 9);
+        assertTrue(context.contains(Context.VERSION));
+        assertEquals(Integer.valueOf(9), context.get(Context.VERSION));
+        assertEquals(9, context.getInt(Context.VERSION));
+    }
+
+    @Test
+    public void putIntSetsVariable() {
+        final Context context = new Context();
+        context.putInt(Context.FILL_SIZE, 0);
+        assertTrue(context.contains(Context.FILL_SIZE));
+        assertEquals(Integer.valueOf(0), context.get(Context.FILL_SIZE));
+    }
+
+    @Test
+    public void removeClearsVariable() {
+        final Context context = new Context();
+        context.putInt(Context.SHAPE_SIZE, 4);
+        context.remove(Context.SHAPE_SIZE);
+        assertFalse(context.contains(Context.SHAPE_SIZE));
+        assertEquals(0, context.getInt(Context.SHAPE_SIZE));
+    }
+
+    @Test
+    public void putNullClearsVariable() {
+        final Context context = new Context();
+        context.put(Context.VERSION, 9);
+        context.put(Context.VERSION, null);
+        context.put(100, 1);
+        context.put(100, null);
+        assertFalse(context.contains(Context.VERSION));
+        assertNull(context.get(Context.VERSION));
+        assertFalse(context.contains(100));
+        assertNull(context.get(100));
+    }
+
+    @Test
+    public void keysOutsideArrayAreSupported() {
+        final Context context = new Context();
+        context.put(100, 1);
+        assertTrue(context.contains(100));
+        assertEquals(Integer.valueOf(1), context.get(100));
+        context.remove(100);
+        assertFalse(context.contains(100));
+        assertNull(context.get(100));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * DecoderRegistryTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.flagstone.transform.MovieTypes;
+
+public final class DecoderRegistryTest {
+
+    @Test
+    public void checkDefaultHasNoRawTypes() {
+        assertTrue(DecoderRegistry.getDefault().getRawTypes().isEmpty());
+        assertFalse(DecoderRegistry.getDefault().isRawType(
+                MovieTypes.DO_ABC));
+    }
+
+    @Test
+    public void checkAccessorForRawTypes() {
+        final DecoderRegistry registry = DecoderRegistry.getDefault();
+        registry.setRawTypes(new HashSet<Integer>(Arrays.asList(
+                MovieTypes.DO_ABC, MovieTypes.DEFINE_SOUND)));
+
+        assertTrue(registry.isRawType(MovieTypes.DO_ABC));
+        assertTrue(registry.isRawType(MovieTypes.DEFINE_SOUND));
+        assertFalse(registry.isRawType(MovieTypes.DEFINE_FONT_3));
+    }
+
+    @Test
+    public void checkRawTypesAreCopied() {
+        final Set<Integer> types = new HashSet<Integer>();
+        types.add(MovieTypes.DO_ABC);
+
+        final DecoderRegistry registry = DecoderRegistry.getDefault();
+        registry.setRawTypes(types);
+        types.add(MovieTypes.DEFINE_SOUND);
+
+        assertFalse(registry.isRawType(MovieTypes.DEFINE_SOUND));
+        assertEquals(registry.getRawTypes(), registry.copy().getRawTypes());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void checkRawTypesCannotBeChanged() {
+        final DecoderRegistry registry = DecoderRegistry.getDefault();
+        registry.setRawTypes(new HashSet<Integer>());
+        registry.getRawTypes().add(MovieTypes.DO_ABC);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * LZMAStreamTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class LZMAStreamTest {
+
+    private static final byte[] HELLO = {
+        0x5D, 0x00, 0x00, (byte) 0x80, 0x00, 0x00, 0x24, 0x19, 0x49,
+        (byte) 0x98, 0x6F, 0x16, 0x02, (byte) 0xA6, (byte) 0xFD, 0x66,
+        (byte) 0x86, (byte) 0xBC, 0x55, (byte) 0x9A, 0x34, (byte) 0xA4,
+        (byte) 0x93, (byte) 0xB7, (byte) 0xFF, (byte) 0xFF, (byte) 0xD5,
+        0x34, 0x00, 0x00
+    };
+
+    @Test
+    public void decodeReferenceData() throws IOException {
+        final byte[] expected = "Hello, Hello, Hello, World!".getBytes("UTF-8");
+        assertArrayEquals(expected, decode(HELLO, expected.length));
+    }
+
+    @Test
+    public void encodeEmpty() throws IOException {
+        checkRoundTrip(new byte[0], LZMAOutputStream.DEFAULT_LEVEL);
+    }
+
+    @Test
+    public void encodeSingleByte() throws IOException {
+        checkRoundTrip(new byte[] {1}, LZMAOutputStream.DEFAULT_LEVEL);
+    }
+
+    @Test
+    public void encodeRepeatedData() throws IOException {
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251 == 0 ? i : i % 7);
+        }
+        for (int level = 0; level <= LZMAOutputStream.MAX_LEVEL; level++) {
+            checkRoundTrip(data, level);
+        }
+    }
+
+    @Test
+    public void encodeRandomData() throws IOException {
+        final byte[] data = new byte[70000];
+        new Random(1).nextBytes(data);
+        checkRoundTrip(data, 0);
+        checkRoundTrip(data, LZMAOutputStream.DEFAULT_LEVEL);
+    }
+
+    @Test
+    public void encodeBeyondDictionary() throws IOException {
+        final Random random = new Random(2);
+        final byte[] block = new byte[1000];
+        final byte[] data = new byte[300000];
+        random.nextBytes(block);
+        for (int i = 0; i < data.length; i += block.length) {
+            System.arraycopy(block, 0, data, i, block.length);
+            data[i + random.nextInt(block.length)] = (byte) random.nextInt();
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LZMAOutputStream stream = new LZMAOutputStream(out, 0, -1);
+        for (int i = 0; i < data.length; i += 777) {
+            stream.write(data, i, Math.min(777, data.length - i));
+        }
+        stream.close();
+        assertArrayEquals(data, decode(out.toByteArray(), data.length));
+    }
+
+    @Test
+    public void encodeRepeatsBeyondDictionary() throws IOException {
+        final Random random = new Random(3);
+        final byte[] data = new byte[400000];
+        for (int i = data.length - 20000; i < data.length; i++) {
+            data[i] = (byte) random.nextInt(4);
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LZMAOutputStream stream = new LZMAOutputStream(out, 0, -1);
+        stream.write(data);
+        stream.close();
+        assertArrayEquals(data, decode(out.toByteArray(), data.length));
+    }
+
+    @Test(expected = EOFException.class)
+    public void decodeTruncatedData() throws IOException {
+        final byte[] data = new byte[10];
+        System.arraycopy(HELLO, 0, data, 0, data.length);
+        decode(data, 27);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkInvalidLevel() throws IOException {
+        new LZMAOutputStream(new ByteArrayOutputStream(), 10, -1);
+    }
+
+    private void checkRoundTrip(final byte[] data, final int level)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LZMAOutputStream stream = new LZMAOutputStream(out, level,
+                data.length);
+        stream.write(data);
+        stream.close();
+        assertArrayEquals(data, decode(out.toByteArray(), data.length));
+    }
+
+    private byte[] decode(final byte[] data, final int length)
+            throws IOException {
+        final LZMAInputStream stream = new LZMAInputStream(
+                new ByteArrayInputStream(data), length);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int count;
+        try {
+            while ((count = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            stream.close();
+        }
+        return out.toByteArray();
+    }
+}
@@ -33,9 +33,11 @@ package com.flagstone.transform.coder; // NOPMD - too many methods, etc.
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.EmptyStackException;
 
 import org.junit.Test;
@@ -141,6 +143,27 @@ public final class SWFDecoderTest {
         assertEquals(4, fixture.readByte());
     }
 
+    @Test
+    public void skipLargerThanBuffer() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4, 5, 6, 7, 8 };
+        final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+        final SWFDecoder fixture = new SWFDecoder(stream, 2);
+
+        fixture.readByte();
+        fixture.skip(5);
+        assertEquals(6, fixture.mark());
+        assertEquals(7, fixture.readByte());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void skipStreamBeyondAvailableData() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+        final SWFDecoder fixture = new SWFDecoder(stream, 2);
+
+        fixture.skip(6);
+    }
+
     @Test(expected = ArrayIndexOutOfBoundsException.class)
     public void skipBeyondAvailableData() throws IOException {
         final byte[] data = new byte[] {1, 2, 3, 4 };
@@ -609,4 +632,196 @@ public final class SWFDecoderTest {
 
         assertEquals(0.0, fixture.readHalf(), 0.0);
     }
+
+    @Test
+    public void readFromBuffer() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4, 5, 6 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        assertEquals(0x0201, fixture.readUnsignedShort());
+        assertEquals(0x06050403, fixture.readInt());
+    }
+
+    @Test
+    public void markIsRelativeToBufferPosition() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(2);
+        final SWFDecoder fixture = new SWFDecoder(buffer);
+
+        assertEquals(3, fixture.readByte());
+        assertEquals(1, fixture.mark());
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void readBitsFromBuffer() throws IOException {
+        final byte[] data = new byte[] {(byte) 0xA5, (byte) 0xF0 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        assertEquals(0x0A, fixture.readBits(4, false));
+        assertEquals(0x5F, fixture.readBits(8, false));
+        assertEquals(0, fixture.readBits(4, true));
+    }
+
+    @Test
+    public void readBitsAcrossFiveBytes() throws IOException {
+        final byte[] data = new byte[] {0x0F, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xF0 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        assertEquals(0, fixture.readBits(4, false));
+        assertEquals(-1, fixture.readBits(32, true));
+        assertEquals(0, fixture.readBits(4, false));
+    }
+
+    @Test
+    public void scanBitsDoesNotChangeLocation() throws IOException {
+        final byte[] data = new byte[] {(byte) 0xA5, (byte) 0xF0 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        fixture.readBits(4, false);
+        assertEquals(0x5F, fixture.scanBits(8, false));
+        assertEquals(0x5F, fixture.readBits(8, false));
+    }
+
+    @Test
+    public void readStringFromBuffer() throws IOException {
+        final byte[] data = new byte[] {0x61, 0x62, 0x63, 0x00 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        assertEquals(STRING, fixture.readString());
+    }
+
+    @Test
+    public void readFromDirectBuffer() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(6);
+        buffer.put(new byte[] {1, 2, 3, 4, 5, 6 });
+        buffer.flip();
+        final SWFDecoder fixture = new SWFDecoder(buffer);
+
+        assertEquals(0x0201, fixture.readUnsignedShort());
+        assertEquals(0x06050403, fixture.readInt());
+    }
+
+    @Test
+    public void skipWorksWithDirectBuffer() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(10000);
+        buffer.put(9000, (byte) 1);
+        final SWFDecoder fixture = new SWFDecoder(buffer);
+
+        fixture.readByte();
+        fixture.skip(8999);
+        assertEquals(1, fixture.readByte());
+        assertEquals(9001, fixture.mark());
+    }
+
+    @Test
+    public void readBytesWorksWithDirectBuffer() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(10000);
+        buffer.put(9998, (byte) 1);
+        buffer.put(9999, (byte) 2);
+        final SWFDecoder fixture = new SWFDecoder(buffer);
+        final byte[] bytes = new byte[9999];
+
+        fixture.readByte();
+        fixture.readBytes(bytes);
+        assertEquals(1, bytes[9997]);
+        assertEquals(2, bytes[9998]);
+        assertEquals(10000, fixture.mark());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void readBytesBeyondEndOfBuffer() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+
+        fixture.readBytes(new byte[5]);
+    }
+
+    @Test
+    public void readBufferSharesArray() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+        fixture.readByte();
+
+        final ByteBuffer buffer = fixture.readBuffer(2);
+        data[1] = 5;
+
+        assertEquals(2, buffer.remaining());
+        assertEquals(5, buffer.get(0));
+        assertTrue(buffer.hasArray());
+        assertEquals(4, fixture.readByte());
+    }
+
+    @Test
+    public void readBufferCopiesStream() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+        final SWFDecoder fixture = new SWFDecoder(stream, 2);
+        fixture.readByte();
+
+        final ByteBuffer buffer = fixture.readBuffer(2);
+
+        assertEquals(2, buffer.remaining());
+        assertEquals(2, buffer.get(0));
+        assertEquals(3, buffer.get(1));
+        assertEquals(4, fixture.readByte());
+    }
+
+    @Test
+    public void readBufferCopiesDirectBuffer() throws IOException {
+        final ByteBuffer data = ByteBuffer.allocateDirect(10000);
+        data.put(1, (byte) 2);
+        data.put(9000, (byte) 3);
+        final SWFDecoder fixture = new SWFDecoder(data);
+        fixture.readByte();
+
+        final ByteBuffer buffer = fixture.readBuffer(9998);
+        data.put(2, (byte) 5);
+
+        assertTrue(buffer.hasArray());
+        assertEquals(9998, buffer.remaining());
+        assertEquals(2, buffer.get(0));
+        assertEquals(0, buffer.get(1));
+        assertEquals(3, buffer.get(8999));
+        assertEquals(0, fixture.readByte());
+    }
+
+    @Test
+    public void readBufferWithHeader() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final SWFDecoder fixture = new SWFDecoder(ByteBuffer.wrap(data));
+        fixture.readByte();
+
+        final ByteBuffer buffer = fixture.readBuffer(new byte[] {1}, 2);
+
+        assertEquals(3, buffer.remaining());
+        assertEquals(1, buffer.get(0));
+        assertEquals(3, buffer.get(2));
+        assertTrue(buffer.hasArray());
+        assertEquals(4, fixture.readByte());
+    }
+
+    @Test
+    public void readBufferWithHeaderFromStream() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final ByteArrayInputStream stream = new ByteArrayInputStream(data);
+        final SWFDecoder fixture = new SWFDecoder(stream, 2);
+        fixture.readByte();
+
+        final ByteBuffer buffer = fixture.readBuffer(new byte[] {1}, 2);
+
+        assertEquals(3, buffer.remaining());
+        assertEquals(1, buffer.get(0));
+        assertEquals(3, buffer.get(2));
+        assertEquals(4, fixture.readByte());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void readBufferBeyondEnd() throws IOException {
+        final SWFDecoder fixture = new SWFDecoder(
+                ByteBuffer.wrap(new byte[2]));
+        fixture.readBuffer(3);
+    }
 }
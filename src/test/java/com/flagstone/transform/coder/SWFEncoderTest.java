@@ -36,6 +36,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -171,6 +172,34 @@ public final class SWFEncoderTest {
         assertArrayEquals(data, stream.toByteArray());
     }
 
+    @Test
+    public void writeBitsAfterFlush() throws IOException {
+        final byte[] data = new byte[] {(byte) 0xFF, (byte) 0xFF, 0x0A };
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder encoder = new SWFEncoder(stream, 2);
+        encoder.writeByte(0xFF);
+        encoder.writeByte(0xFF);
+        encoder.writeBits(0, 4);
+        encoder.writeBits(0xA, 4);
+        encoder.flush();
+
+        assertArrayEquals(data, stream.toByteArray());
+    }
+
+    @Test
+    public void writeBitsAcrossFiveBytes() throws IOException {
+        final byte[] data = new byte[] {0x0F, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xF0 };
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder encoder = new SWFEncoder(stream);
+        encoder.writeBits(0, 4);
+        encoder.writeBits(-1, 32);
+        encoder.writeBits(0, 4);
+        encoder.flush();
+
+        assertArrayEquals(data, stream.toByteArray());
+    }
+
     @Test
     public void writeBytes() throws IOException {
         final byte[] data = new byte[] {1, 2, 3, 4, 5, 6, 7, 8 };
@@ -389,4 +418,32 @@ public final class SWFEncoderTest {
 
         assertArrayEquals(data, stream.toByteArray());
     }
+
+    @Test
+    public void writeBuffer() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4 };
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder fixture = new SWFEncoder(stream);
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 1, 2);
+
+        assertEquals(2, fixture.writeBytes(buffer));
+        fixture.flush();
+
+        assertArrayEquals(new byte[] {2, 3 }, stream.toByteArray());
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    public void writeReadOnlyBufferLargerThanBuffer() throws IOException {
+        final byte[] data = new byte[] {1, 2, 3, 4, 5 };
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder fixture = new SWFEncoder(stream, 2);
+        fixture.writeByte(0);
+        fixture.writeBytes(ByteBuffer.wrap(data).asReadOnlyBuffer());
+        fixture.flush();
+
+        assertArrayEquals(new byte[] {0, 1, 2, 3, 4, 5 },
+                stream.toByteArray());
+        assertEquals(6, fixture.mark());
+    }
 }
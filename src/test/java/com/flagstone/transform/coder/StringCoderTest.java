@@ -0,0 +1,101 @@
+/*
+ * StringCoderTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.coder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+public final class StringCoderTest {
+
+    private static final String[] STRINGS = {"", "abc", "caf\u00e9",
+        "\u65e5\u672c\u8a9e", "\ud834\udd1e", "a\ud834b", "\udd1ea"};
+
+    @Test
+    public void lengthMatchesEncodedUTF8() throws UnsupportedEncodingException {
+        final StringCoder coder = new StringCoder("UTF-8");
+        for (final String str : STRINGS) {
+            assertEquals(str, str.getBytes("UTF-8").length, coder.length(str));
+        }
+    }
+
+    @Test
+    public void lengthMatchesEncodedShiftJIS()
+            throws UnsupportedEncodingException {
+        final StringCoder coder = new StringCoder("SJIS");
+        for (final String str : STRINGS) {
+            assertEquals(str, str.getBytes("SJIS").length, coder.length(str));
+        }
+    }
+
+    @Test
+    public void copyASCII() {
+        final byte[] bytes = new byte[4];
+        assertTrue(new StringCoder("UTF-8").copy("abc", bytes, 1));
+        assertArrayEquals(new byte[] {0, 'a', 'b', 'c'}, bytes);
+    }
+
+    @Test
+    public void copyLatin1() {
+        final byte[] bytes = new byte[1];
+        assertTrue(new StringCoder("ISO-8859-1").copy("\u00e9", bytes, 0));
+        assertEquals((byte) 0xE9, bytes[0]);
+    }
+
+    @Test
+    public void copyRejectsMultiByteCharacters() {
+        assertFalse(new StringCoder("UTF-8").copy("\u00e9", new byte[1], 0));
+    }
+
+    @Test
+    public void encodeMatchesGetBytes() throws UnsupportedEncodingException {
+        final StringCoder coder = new StringCoder("UTF-8");
+        for (final String str : STRINGS) {
+            assertArrayEquals(str, str.getBytes("UTF-8"), coder.encode(str));
+        }
+    }
+
+    @Test
+    public void decodeMatchesNewString() throws UnsupportedEncodingException {
+        final StringCoder coder = new StringCoder("UTF-8");
+        for (final String str : STRINGS) {
+            final byte[] bytes = ("x" + str).getBytes("UTF-8");
+            assertEquals(str, new String(bytes, 1, bytes.length - 1, "UTF-8"),
+                    coder.decode(bytes, 1, bytes.length - 1));
+        }
+    }
+}
@@ -31,6 +31,7 @@
 
 package com.flagstone.transform.shape;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
@@ -38,13 +39,23 @@ import static org.junit.Assert.assertNotSame;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.coder.CoderException;
 import com.flagstone.transform.coder.Context;
+import com.flagstone.transform.coder.DecoderRegistry;
 import com.flagstone.transform.coder.SWFDecoder;
 import com.flagstone.transform.coder.SWFEncoder;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.linestyle.LineStyle;
 
 public final class DefineShapeTest {
 
@@ -92,6 +103,54 @@ public final class DefineShapeTest {
         assertNotNull(fixture);
     }
 
+    @Test(expected = CoderException.class)
+    public void decodePassThroughChecksLength() throws IOException {
+        final DefineShape shape = new DefineShape(1,
+                new Bounds(0, 0, 100, 100), new ArrayList<FillStyle>(),
+                new ArrayList<LineStyle>(), new Shape());
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder encoder = new SWFEncoder(stream);
+        final Context context = new Context();
+        context.setRegistry(DecoderRegistry.getDefault());
+        shape.prepareToEncode(context);
+        shape.encode(encoder, context);
+        encoder.flush();
+
+        final byte[] data = Arrays.copyOf(stream.toByteArray(),
+                stream.size() + 1);
+        data[0]++;
+
+        context.putInt(Context.PASS_THROUGH, 1);
+        final List<MovieTag> list = new ArrayList<MovieTag>();
+        DecoderRegistry.getDefault().getMovieDecoder().getObject(list,
+                new SWFDecoder(ByteBuffer.wrap(data)), context);
+    }
+
+    @Test
+    public void getImagesKeepsPassThrough() throws IOException {
+        // Bounds encoded with 16-bit fields rather than the minimum 8 bits.
+        final byte[] data = new byte[] {(byte) 0x8F, 0x00, 0x01, 0x00,
+                (byte) 0x80, 0x00, 0x00, 0x03, 0x20, 0x00, 0x00, 0x03,
+                0x20, 0x00, 0x00, 0x00, 0x00 };
+        final Context context = new Context();
+        context.setRegistry(DecoderRegistry.getDefault());
+        context.putInt(Context.PASS_THROUGH, 1);
+        final List<MovieTag> list = new ArrayList<MovieTag>();
+        DecoderRegistry.getDefault().getMovieDecoder().getObject(list,
+                new SWFDecoder(ByteBuffer.wrap(data)), context);
+
+        fixture = (DefineShape) list.get(0);
+        fixture.getImages();
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final SWFEncoder encoder = new SWFEncoder(stream);
+        fixture.prepareToEncode(context);
+        fixture.encode(encoder, context);
+        encoder.flush();
+
+        assertArrayEquals(data, stream.toByteArray());
+    }
+
     @Test
     @Ignore
     public void decodeExtended() throws IOException {
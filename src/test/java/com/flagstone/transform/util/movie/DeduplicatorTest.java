@@ -0,0 +1,170 @@
+/*
+ * DeduplicatorTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flagstone.transform.DefineData;
+import com.flagstone.transform.EncodedTag;
+import com.flagstone.transform.Export;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.ScalingGrid;
+import com.flagstone.transform.ShowFrame;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.datatype.CoordTransform;
+import com.flagstone.transform.fillstyle.BitmapFill;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.linestyle.LineStyle;
+import com.flagstone.transform.shape.DefineShape3;
+import com.flagstone.transform.shape.Shape;
+
+public final class DeduplicatorTest {
+
+    private static final int SIZE = 100;
+
+    private transient Movie movie;
+
+    @Before
+    public void setUp() {
+        final MovieHeader header = new MovieHeader();
+        header.setFrameSize(new Bounds(0, 0, SIZE, SIZE));
+
+        movie = new Movie();
+        movie.add(header);
+        movie.add(new DefineData(1, new byte[] {1, 2, 3}));
+        movie.add(new DefineData(2, new byte[] {1, 2, 3}));
+        movie.add(new DefineData(3, new byte[] {4, 5, 6}));
+        movie.add(shape(4, 1));
+        movie.add(shape(5, 2));
+        movie.add(new ScalingGrid(5, new Bounds(0, 0, 1, 1)));
+        movie.add(Place2.show(4, 1, 0, 0));
+        movie.add(Place2.show(5, 2, 0, 0));
+        movie.add(ShowFrame.getInstance());
+    }
+
+    private DefineShape3 shape(final int identifier, final int image) {
+        final List<FillStyle> fills = new ArrayList<FillStyle>();
+        fills.add(new BitmapFill(false, false, image,
+                CoordTransform.translate(0, 0)));
+        return new DefineShape3(identifier, new Bounds(0, 0, SIZE, SIZE),
+                fills, new ArrayList<LineStyle>(), new Shape());
+    }
+
+    @Test
+    public void checkDuplicatesRemoved() throws IOException {
+        final Deduplicator fixture = new Deduplicator();
+        assertEquals(2, fixture.process(movie));
+        assertEquals(Integer.valueOf(1), fixture.getReplacements().get(2));
+        assertEquals(Integer.valueOf(4), fixture.getReplacements().get(5));
+
+        final List<MovieTag> objects = movie.getObjects();
+        assertEquals(7, objects.size());
+        assertEquals(1, ((DefineData) objects.get(1)).getIdentifier());
+        assertEquals(3, ((DefineData) objects.get(2)).getIdentifier());
+        assertEquals(4, ((DefineShape3) objects.get(3)).getIdentifier());
+        assertEquals(4, ((Place2) objects.get(4)).getIdentifier());
+        assertEquals(4, ((Place2) objects.get(5)).getIdentifier());
+    }
+
+    @Test
+    public void checkUniqueDefinitionsKept() throws IOException {
+        final Deduplicator fixture = new Deduplicator();
+        fixture.process(movie);
+        assertEquals(0, fixture.process(movie));
+        assertEquals(7, movie.getObjects().size());
+    }
+
+    @Test
+    public void checkExportedDefinitionsKept() throws IOException {
+        final Export export = new Export();
+        export.add(2, "image");
+        movie.add(export);
+
+        final Deduplicator fixture = new Deduplicator();
+        assertEquals(0, fixture.process(movie));
+        assertEquals(11, movie.getObjects().size());
+    }
+
+    @Test
+    public void checkTypesCompared() throws IOException {
+        final Set<Integer> types = new HashSet<Integer>();
+        types.add(MovieTypes.DEFINE_SHAPE_3);
+
+        final Deduplicator fixture = new Deduplicator();
+        fixture.setTypes(types);
+        assertEquals(0, fixture.process(movie));
+    }
+
+    @Test
+    public void checkRawTagsRewritten() throws DataFormatException,
+            IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        movie.encodeToStream(stream);
+
+        final Set<Integer> types = new HashSet<Integer>();
+        types.add(MovieTypes.DEFINE_BINARY_DATA);
+        types.add(MovieTypes.PLACE_2);
+        final DecoderRegistry registry = DecoderRegistry.getDefault().copy();
+        registry.setRawTypes(types);
+
+        final Movie decoded = new Movie();
+        decoded.setRegistry(registry);
+        decoded.decodeFromStream(new ByteArrayInputStream(
+                stream.toByteArray()));
+
+        assertEquals(2, new Deduplicator().process(decoded));
+
+        final List<MovieTag> objects = decoded.getObjects();
+        assertEquals(7, objects.size());
+        assertTrue(objects.get(1) instanceof EncodedTag);
+        assertTrue(objects.get(4) instanceof EncodedTag);
+        assertEquals(4, ((Place2) objects.get(5)).getIdentifier());
+    }
+}
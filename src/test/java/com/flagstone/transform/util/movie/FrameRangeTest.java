@@ -0,0 +1,172 @@
+/*
+ * FrameRangeTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flagstone.transform.DoABC;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.Remove2;
+import com.flagstone.transform.ShowFrame;
+import com.flagstone.transform.SymbolClass;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.text.DefineTextField;
+
+public final class FrameRangeTest {
+
+    private static final int SIZE = 100;
+
+    private transient File file;
+    private transient List<MovieTag> tags;
+
+    @Before
+    public void setUp() throws DataFormatException, IOException {
+        final MovieHeader header = new MovieHeader();
+        header.setFrameSize(new Bounds(0, 0, SIZE, SIZE));
+        header.setFrameCount(3);
+
+        tags = new ArrayList<MovieTag>();
+        tags.add(header);
+        tags.add(new DefineTextField(1).setBounds(new Bounds(0, 0, SIZE,
+                SIZE)));
+        tags.add(new DefineTextField(2).setBounds(new Bounds(0, 0, SIZE,
+                SIZE)));
+        tags.add(Place2.show(1, 1, 0, 0));
+        tags.add(Place2.show(2, 2, 0, 0));
+        tags.add(ShowFrame.getInstance());
+        tags.add(new Remove2(2));
+        tags.add(Place2.move(1, SIZE, SIZE));
+        tags.add(new DefineTextField(3).setBounds(new Bounds(0, 0, SIZE,
+                SIZE)));
+        tags.add(ShowFrame.getInstance());
+        tags.add(Place2.show(3, 3, 0, 0));
+        tags.add(ShowFrame.getInstance());
+
+        final Movie movie = new Movie();
+        for (final MovieTag tag : tags) {
+            movie.add(tag);
+        }
+        file = File.createTempFile("range", ".swf");
+        movie.encodeToFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void checkFirstFrame() throws DataFormatException, IOException {
+        final List<MovieTag> objects = new FrameRange()
+                .decodeFromFile(file, 0, 0).getObjects();
+
+        assertEquals(tags.subList(1, 6).toString(),
+                objects.subList(1, objects.size()).toString());
+    }
+
+    @Test
+    public void checkLastFrame() throws DataFormatException, IOException {
+        final List<MovieTag> objects = new FrameRange()
+                .decodeFromFile(file, 2, 2).getObjects();
+
+        final List<MovieTag> expected = new ArrayList<MovieTag>();
+        expected.add(tags.get(1));
+        expected.add(tags.get(8));
+        expected.add(tags.get(3));
+        expected.add(tags.get(7));
+        expected.add(tags.get(10));
+        expected.add(tags.get(11));
+
+        assertEquals(1, ((MovieHeader) objects.get(0)).getFrameCount());
+        assertEquals(expected.toString(),
+                objects.subList(1, objects.size()).toString());
+    }
+
+    @Test
+    public void checkSplit() throws DataFormatException, IOException {
+        final List<Frame> frames = Frame.split(file, 1, 2);
+
+        assertEquals(2, frames.size());
+        assertEquals(3, frames.get(0).getDefinitions().size());
+        assertEquals(0, frames.get(1).getDefinitions().size());
+    }
+
+    @Test
+    public void checkScriptsKept() throws DataFormatException, IOException {
+        final DoABC script = new DoABC("script", false, new byte[] {1, 2});
+        final SymbolClass symbols = new SymbolClass().add(2, "Field");
+
+        final Movie movie = new Movie();
+        for (final MovieTag tag : tags) {
+            movie.add(tag);
+        }
+        movie.getObjects().add(3, script);
+        movie.getObjects().add(4, symbols);
+        movie.encodeToFile(file);
+
+        final List<MovieTag> objects = new FrameRange()
+                .decodeFromFile(file, 2, 2).getObjects();
+
+        final List<MovieTag> expected = new ArrayList<MovieTag>();
+        expected.add(tags.get(1));
+        expected.add(tags.get(2));
+        expected.add(script);
+        expected.add(symbols);
+        expected.add(tags.get(8));
+        expected.add(tags.get(3));
+        expected.add(tags.get(7));
+        expected.add(tags.get(10));
+        expected.add(tags.get(11));
+
+        assertEquals(expected.toString(),
+                objects.subList(1, objects.size()).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkFrameOutOfRange() throws DataFormatException,
+            IOException {
+        new FrameRange().decodeFromFile(file, 0, 3);
+    }
+}
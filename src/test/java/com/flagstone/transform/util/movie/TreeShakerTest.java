@@ -0,0 +1,178 @@
+/*
+ * TreeShakerTest.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.flagstone.transform.util.movie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flagstone.transform.DefineData;
+import com.flagstone.transform.Export;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.ScalingGrid;
+import com.flagstone.transform.ShowFrame;
+import com.flagstone.transform.coder.DecoderRegistry;
+import com.flagstone.transform.datatype.Bounds;
+import com.flagstone.transform.datatype.CoordTransform;
+import com.flagstone.transform.fillstyle.BitmapFill;
+import com.flagstone.transform.fillstyle.FillStyle;
+import com.flagstone.transform.font.DefineFont2;
+import com.flagstone.transform.linestyle.LineStyle;
+import com.flagstone.transform.movieclip.DefineMovieClip;
+import com.flagstone.transform.shape.DefineShape3;
+import com.flagstone.transform.shape.Shape;
+import com.flagstone.transform.text.DefineTextField;
+
+public final class TreeShakerTest {
+
+    private static final int SIZE = 100;
+
+    private transient Movie movie;
+
+    @Before
+    public void setUp() {
+        final MovieHeader header = new MovieHeader();
+        header.setFrameSize(new Bounds(0, 0, SIZE, SIZE));
+
+        movie = new Movie();
+        movie.add(header);
+        movie.add(new DefineData(1, new byte[] {1, 2, 3}));
+        movie.add(shape(2, 1));
+        movie.add(shape(3, 1));
+        movie.add(new ScalingGrid(3, new Bounds(0, 0, 1, 1)));
+        movie.add(new DefineFont2(4, "Arial"));
+        movie.add(new DefineTextField(5).setHtml(true).setBounds(
+                new Bounds(0, 0, SIZE, SIZE)));
+        movie.add(Place2.show(2, 1, 0, 0));
+        movie.add(ShowFrame.getInstance());
+    }
+
+    private DefineShape3 shape(final int identifier, final int image) {
+        final List<FillStyle> fills = new ArrayList<FillStyle>();
+        fills.add(new BitmapFill(false, false, image,
+                CoordTransform.translate(0, 0)));
+        return new DefineShape3(identifier, new Bounds(0, 0, SIZE, SIZE),
+                fills, new ArrayList<LineStyle>(), new Shape());
+    }
+
+    @Test
+    public void checkUnusedDefinitionsRemoved() throws IOException {
+        final TreeShaker fixture = new TreeShaker();
+        assertEquals(3, fixture.process(movie));
+        assertArrayEquals(new int[] {3, 4, 5}, fixture.getRemoved());
+
+        final List<MovieTag> objects = movie.getObjects();
+        assertEquals(5, objects.size());
+        assertEquals(1, ((DefineData) objects.get(1)).getIdentifier());
+        assertEquals(2, ((DefineShape3) objects.get(2)).getIdentifier());
+    }
+
+    @Test
+    public void checkExportedDefinitionsKept() throws IOException {
+        final Export export = new Export();
+        export.add(3, "shape");
+        movie.add(export);
+
+        final TreeShaker fixture = new TreeShaker();
+        assertEquals(2, fixture.process(movie));
+        assertArrayEquals(new int[] {4, 5}, fixture.getRemoved());
+        assertEquals(8, movie.getObjects().size());
+    }
+
+    @Test
+    public void checkMovieClipContentsKept() throws IOException {
+        final List<MovieTag> list = new ArrayList<MovieTag>();
+        list.add(Place2.show(3, 1, 0, 0));
+        list.add(ShowFrame.getInstance());
+        movie.add(new DefineMovieClip(6, list));
+        movie.add(Place2.show(6, 2, 0, 0));
+
+        final TreeShaker fixture = new TreeShaker();
+        fixture.process(movie);
+        assertArrayEquals(new int[] {4, 5}, fixture.getRemoved());
+    }
+
+    @Test
+    public void checkFontsKeptForHtmlText() throws IOException {
+        movie.add(Place2.show(5, 2, 0, 0));
+
+        final TreeShaker fixture = new TreeShaker();
+        fixture.process(movie);
+        assertArrayEquals(new int[] {3}, fixture.getRemoved());
+    }
+
+    @Test
+    public void checkUsedDefinitionsKept() throws IOException {
+        final TreeShaker fixture = new TreeShaker();
+        fixture.process(movie);
+        assertEquals(0, fixture.process(movie));
+        assertEquals(5, movie.getObjects().size());
+    }
+
+    @Test
+    public void checkRawTags() throws DataFormatException, IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        movie.encodeToStream(stream);
+
+        final Set<Integer> types = new HashSet<Integer>();
+        types.add(MovieTypes.DEFINE_BINARY_DATA);
+        types.add(MovieTypes.DEFINE_SHAPE_3);
+        types.add(MovieTypes.PLACE_2);
+        final DecoderRegistry registry = DecoderRegistry.getDefault().copy();
+        registry.setRawTypes(types);
+
+        final Movie decoded = new Movie();
+        decoded.setRegistry(registry);
+        decoded.decodeFromStream(new ByteArrayInputStream(
+                stream.toByteArray()));
+
+        final TreeShaker fixture = new TreeShaker();
+        fixture.process(decoded);
+        assertArrayEquals(new int[] {3, 4, 5}, fixture.getRemoved());
+        assertEquals(5, decoded.getObjects().size());
+    }
+}
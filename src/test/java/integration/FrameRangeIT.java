@@ -0,0 +1,191 @@
+/*
+ * FrameRangeIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.DefineTag;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieIndex;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.Place;
+import com.flagstone.transform.Place2;
+import com.flagstone.transform.Place3;
+import com.flagstone.transform.PlaceType;
+import com.flagstone.transform.util.movie.Frame;
+import com.flagstone.transform.util.movie.FrameRange;
+
+/**
+ * FrameRangeIT verifies that the movies created by FrameRange only contain
+ * tags from the original movie, define every object they display and can be
+ * encoded and decoded.
+ */
+@RunWith(Parameterized.class)
+public final class FrameRangeIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public FrameRangeIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void decodeFrames() throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+
+        final int frameCount = index.getFrameCount();
+
+        for (int i = 0; i < frameCount; i++) {
+            check(new FrameRange().decodeFromFile(file, index, i, i), 1);
+        }
+        if (frameCount > 0) {
+            check(new FrameRange().decodeFromFile(file, index, 0,
+                    frameCount - 1), frameCount);
+        }
+    }
+
+    @Test
+    public void splitFrames() throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+
+        if (index.getFrameCount() > 0) {
+            final List<Frame> frames = Frame.split(file, 0, 0);
+            assertEquals(file.getName(), 1, frames.size());
+        }
+    }
+
+    private void check(final Movie range, final int frameCount)
+            throws DataFormatException, IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final Set<String> expected = new HashSet<String>();
+        for (final MovieTag tag : movie.getObjects().subList(1,
+                movie.getObjects().size())) {
+            expected.add(tag.toString());
+        }
+
+        final List<MovieTag> tags = range.getObjects();
+        assertEquals(file.getName(), frameCount,
+                ((MovieHeader) tags.get(0)).getFrameCount());
+
+        final Set<Integer> defined = new HashSet<Integer>();
+        Integer placed;
+
+        for (final MovieTag tag : tags.subList(1, tags.size())) {
+            assertTrue(file.getName() + ": " + tag,
+                    expected.contains(tag.toString()));
+
+            placed = null;
+            if (tag instanceof DefineTag) {
+                defined.add(((DefineTag) tag).getIdentifier());
+            } else if (tag instanceof Place) {
+                placed = ((Place) tag).getIdentifier();
+            } else if (tag instanceof Place2
+                    && ((Place2) tag).getType() != PlaceType.MODIFY) {
+                placed = ((Place2) tag).getIdentifier();
+            } else if (tag instanceof Place3
+                    && ((Place3) tag).getType() != PlaceType.MODIFY) {
+                placed = ((Place3) tag).getIdentifier();
+            }
+            if (placed != null && movieDefines(movie, placed)) {
+                assertTrue(file.getName() + ": " + tag,
+                        defined.contains(placed));
+            }
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        range.encodeToStream(out);
+
+        final Movie decoded = new Movie();
+        decoded.decodeFromStream(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(file.getName(), tags.toString(),
+                decoded.getObjects().toString());
+    }
+
+    private boolean movieDefines(final Movie movie, final int identifier) {
+        for (final MovieTag tag : movie.getObjects()) {
+            if (tag instanceof DefineTag
+                    && ((DefineTag) tag).getIdentifier() == identifier) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MovieCoderPoolIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.coder.CoderPool;
+
+/**
+ * MovieCoderPoolIT verifies that movies decoded and encoded using a shared
+ * CoderPool are identical to ones decoded and encoded without one.
+ */
+@RunWith(Parameterized.class)
+public final class MovieCoderPoolIT {
+
+    private static final CoderPool POOL = new CoderPool();
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public MovieCoderPoolIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void pooledMovieIsEncoded() throws DataFormatException,
+            IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        movie.encodeToStream(expected);
+
+        for (int i = 0; i < 2; i++) {
+            final Movie pooled = new Movie();
+            pooled.setCoderPool(POOL);
+            pooled.decodeFromFile(file);
+
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            pooled.encodeToStream(actual);
+
+            assertArrayEquals(file.getName(), expected.toByteArray(),
+                    actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void pooledStreamIsDecoded() throws DataFormatException,
+            IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        movie.encodeToStream(expected);
+
+        for (int i = 0; i < 2; i++) {
+            final Movie pooled = new Movie();
+            pooled.setCoderPool(POOL);
+            pooled.decodeFromStream(
+                    new ByteArrayInputStream(expected.toByteArray()));
+
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            pooled.encodeToStream(actual);
+
+            assertArrayEquals(file.getName(), expected.toByteArray(),
+                    actual.toByteArray());
+        }
+    }
+}
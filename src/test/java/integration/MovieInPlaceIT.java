@@ -0,0 +1,128 @@
+/*
+ * MovieInPlaceIT.java
+ * Transform
+ *
+ * Copyright (c) 2009-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.Compression;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+
+/**
+ * MovieInPlaceIT verifies that an uncompressed movie, including one large
+ * enough to be mapped into memory, can be decoded from a file and encoded
+ * back to the same file.
+ */
+@RunWith(Parameterized.class)
+public final class MovieInPlaceIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public MovieInPlaceIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void encodeToSameFile() throws DataFormatException, IOException {
+        checkInPlace(false);
+    }
+
+    @Test
+    public void encodeLazyToSameFile() throws DataFormatException,
+            IOException {
+        checkInPlace(true);
+    }
+
+    private void checkInPlace(final boolean lazy)
+            throws DataFormatException, IOException {
+        final Movie expected = new Movie();
+        expected.decodeFromFile(file);
+        ((MovieHeader) expected.getObjects().get(0)).setCompression(
+                Compression.NONE);
+
+        final File copy = File.createTempFile("inplace", ".swf");
+        try {
+            expected.encodeToFile(copy);
+
+            final Movie movie = new Movie();
+            movie.setLazyDecoding(lazy);
+            movie.decodeFromFile(copy);
+            movie.encodeToFile(copy);
+
+            final Movie actual = new Movie();
+            actual.decodeFromFile(copy);
+
+            assertEquals(file.getName(), expected.getObjects().toString(),
+                    actual.getObjects().toString());
+        } finally {
+            copy.delete();
+        }
+    }
+}
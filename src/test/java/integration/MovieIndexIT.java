@@ -0,0 +1,221 @@
+/*
+ * MovieIndexIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.Compression;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieIndex;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.MovieTypes;
+
+/**
+ * MovieIndexIT verifies that the tags and frames decoded using a MovieIndex
+ * match the ones in the fully decoded movie.
+ */
+@RunWith(Parameterized.class)
+public final class MovieIndexIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public MovieIndexIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void decodeTags() throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+        compareTags(file, index);
+    }
+
+    @Test
+    public void decodeDuplicateTags() throws DataFormatException,
+            IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+
+        final List<Integer> indices = new ArrayList<Integer>();
+        for (int i = index.size() - 1; i >= 0; i--) {
+            indices.add(i);
+            indices.add(i);
+        }
+        assertEquals(file.getName(), decode(file).toString(),
+                index.decodeTags(file, indices).toString());
+    }
+
+    @Test
+    public void decodeFrames() throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+        compareFrames(file, index);
+    }
+
+    @Test
+    public void decodeCompressed() throws DataFormatException, IOException {
+        for (final Compression compression : Compression.values()) {
+            final File copy = copy(compression);
+            try {
+                final MovieIndex index = new MovieIndex();
+                index.scanFile(copy);
+                assertEquals(file.getName(), compression,
+                        index.getCompression());
+                compareTags(copy, index);
+                compareFrames(copy, index);
+            } finally {
+                copy.delete();
+            }
+        }
+    }
+
+    @Test
+    public void encodeIndex() throws DataFormatException, IOException {
+        final MovieIndex index = new MovieIndex();
+        index.scanFile(file);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.encodeToStream(out);
+
+        final MovieIndex decoded = new MovieIndex();
+        decoded.decodeFromStream(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(file.getName(), index.toString(), decoded.toString());
+        assertEquals(file.getName(), index.getFrameCount(),
+                decoded.getFrameCount());
+
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(file.getName(), index.getType(i),
+                    decoded.getType(i));
+            assertEquals(file.getName(), index.getOffset(i),
+                    decoded.getOffset(i));
+            assertEquals(file.getName(), index.getLength(i),
+                    decoded.getLength(i));
+            assertEquals(file.getName(), index.getFrame(i),
+                    decoded.getFrame(i));
+            assertEquals(file.getName(), index.getIdentifier(i),
+                    decoded.getIdentifier(i));
+        }
+        compareTags(file, decoded);
+    }
+
+    private File copy(final Compression compression)
+            throws DataFormatException, IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+        ((MovieHeader) movie.getObjects().get(0)).setCompression(compression);
+
+        final File copy = File.createTempFile("index", ".swf");
+        movie.encodeToFile(copy);
+        return copy;
+    }
+
+    private List<MovieTag> decode(final File movieFile)
+            throws DataFormatException, IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(movieFile);
+        return movie.getObjects().subList(1, movie.getObjects().size());
+    }
+
+    private void compareTags(final File movieFile, final MovieIndex index)
+            throws DataFormatException, IOException {
+        final List<MovieTag> expected = decode(movieFile);
+
+        assertEquals(file.getName(), expected.size(), index.size());
+
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(file.getName(), expected.get(i).toString(),
+                    index.decodeTag(movieFile, i).toString());
+        }
+    }
+
+    private void compareFrames(final File movieFile, final MovieIndex index)
+            throws DataFormatException, IOException {
+        final List<MovieTag> expected = decode(movieFile);
+        final List<MovieTag> actual = new ArrayList<MovieTag>();
+
+        for (int i = 0; i < index.getFrameCount(); i++) {
+            final List<MovieTag> frame = index.decodeFrame(movieFile, i);
+            assertEquals(file.getName(), MovieTypes.SHOW_FRAME,
+                    index.getType(index.firstTag(i) + frame.size() - 1));
+            actual.addAll(frame);
+        }
+        if (actual.size() < index.size()) {
+            actual.addAll(index.decodeFrame(movieFile,
+                    index.getFrameCount()));
+        }
+        assertEquals(file.getName(), expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * MoviePassThroughIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieTag;
+import com.flagstone.transform.shape.ShapeTag;
+
+/**
+ * MoviePassThroughIT verifies that movies decoded with pass through enabled
+ * are encoded correctly, whether or not the shapes are changed.
+ */
+@RunWith(Parameterized.class)
+public final class MoviePassThroughIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public MoviePassThroughIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void unchangedShapesAreEncoded() throws DataFormatException,
+            IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final Movie passThrough = new Movie();
+        passThrough.setPassThrough(true);
+        passThrough.decodeFromFile(file);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        passThrough.encodeToStream(out);
+
+        final Movie decoded = new Movie();
+        decoded.decodeFromStream(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(file.getName(), movie.getObjects().toString(),
+                decoded.getObjects().toString());
+    }
+
+    @Test
+    public void changedShapesAreEncoded() throws DataFormatException,
+            IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        movie.encodeToStream(expected);
+
+        final Movie passThrough = new Movie();
+        passThrough.setPassThrough(true);
+        passThrough.decodeFromFile(file);
+
+        for (final MovieTag tag : passThrough.getObjects()) {
+            if (tag instanceof ShapeTag) {
+                ((ShapeTag) tag).setIdentifier(
+                        ((ShapeTag) tag).getIdentifier());
+            }
+        }
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        passThrough.encodeToStream(actual);
+
+        assertArrayEquals(file.getName(), expected.toByteArray(),
+                actual.toByteArray());
+    }
+}
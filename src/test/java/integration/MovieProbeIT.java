@@ -0,0 +1,131 @@
+/*
+ * MovieProbeIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.Background;
+import com.flagstone.transform.Export;
+import com.flagstone.transform.FrameLabel;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieMetaData;
+import com.flagstone.transform.MovieProbe;
+import com.flagstone.transform.MovieSummary;
+import com.flagstone.transform.MovieTag;
+
+/**
+ * MovieProbeIT verifies that the header and tags returned by a MovieProbe
+ * match the ones in the fully decoded movie.
+ */
+@RunWith(Parameterized.class)
+public final class MovieProbeIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][1];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File file;
+
+    public MovieProbeIT(final File movieFile) {
+        file = movieFile;
+    }
+
+    @Test
+    public void probeFile() throws DataFormatException, IOException {
+        compare(new MovieProbe().probe(file));
+    }
+
+    @Test
+    public void probeStream() throws DataFormatException, IOException {
+        final InputStream stream = new FileInputStream(file);
+        compare(new MovieProbe().probe(stream));
+    }
+
+    private void compare(final MovieSummary summary)
+            throws DataFormatException, IOException {
+        final Movie movie = new Movie();
+        movie.decodeFromFile(file);
+
+        final List<MovieTag> expected = new ArrayList<MovieTag>();
+
+        for (final MovieTag tag : movie.getObjects().subList(1,
+                movie.getObjects().size())) {
+            if (tag instanceof Background || tag instanceof MovieMetaData
+                    || tag instanceof FrameLabel || tag instanceof Export) {
+                expected.add(tag);
+            }
+        }
+
+        assertEquals(file.getName(), movie.getObjects().get(0).toString(),
+                summary.getHeader().toString());
+        assertEquals(file.getName(), expected.toString(),
+                summary.getTags().toString());
+    }
+}
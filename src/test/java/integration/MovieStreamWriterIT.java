@@ -0,0 +1,181 @@
+/*
+ * MovieStreamWriterIT.java
+ * Transform
+ *
+ * Copyright (c) 2001-2010 Flagstone Software Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  * Neither the name of Flagstone Software Ltd. nor the names of its
+ *    contributors may be used to endorse or promote products derived from this
+ *    software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package integration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.flagstone.transform.CharacterEncoding;
+import com.flagstone.transform.Compression;
+import com.flagstone.transform.Movie;
+import com.flagstone.transform.MovieHeader;
+import com.flagstone.transform.MovieReader;
+import com.flagstone.transform.MovieStreamWriter;
+import com.flagstone.transform.MovieTag;
+
+/**
+ * MovieStreamWriterIT verifies that movies written one tag at a time by a
+ * MovieStreamWriter are the same as the movies encoded by a Movie.
+ */
+@RunWith(Parameterized.class)
+public final class MovieStreamWriterIT {
+
+    @Parameters
+    public static Collection<Object[]>  files() {
+
+        File srcDir;
+
+        if (System.getProperty("test.suite") == null) {
+            srcDir = new File("src/test/resources/swf-reference");
+        } else {
+            srcDir = new File(System.getProperty("test.suite"));
+        }
+
+        final File destDir = new File(
+                "target/integration-results/MovieStreamWriterIT");
+
+        if (!destDir.exists() && !destDir.mkdirs()) {
+            fail();
+        }
+
+        final FilenameFilter filter = new FilenameFilter() {
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(".swf");
+            }
+        };
+
+        final String[] files = srcDir.list(filter);
+        final Object[][] collection = new Object[files.length][2];
+
+        for (int i = 0; i < files.length; i++) {
+            collection[i][0] = new File(srcDir, files[i]);
+            collection[i][1] = new File(destDir, files[i]);
+        }
+        return Arrays.asList(collection);
+    }
+
+    private final transient File sourceFile;
+    private final transient File destFile;
+
+    public MovieStreamWriterIT(final File src, final File dst) {
+        sourceFile = src;
+        destFile = dst;
+    }
+
+    @Test
+    public void writeCompressed() throws DataFormatException, IOException {
+        compare(Compression.ZLIB);
+    }
+
+    @Test
+    public void writeUncompressed() throws DataFormatException, IOException {
+        compare(Compression.NONE);
+    }
+
+    @Test
+    public void writeLZMA() throws DataFormatException, IOException {
+        write(Compression.LZMA);
+
+        /*
+         * The dictionary size depends on the length of the movie, which is
+         * not known by the writer, so compare the decoded movies.
+         */
+        final Movie expected = new Movie();
+        expected.decodeFromFile(sourceFile);
+        ((MovieHeader) expected.getObjects().get(0)).setCompression(
+                Compression.LZMA);
+        final Movie actual = new Movie();
+        actual.decodeFromFile(destFile);
+
+        assertEquals(sourceFile.getName(), expected.getObjects().toString(),
+                actual.getObjects().toString());
+    }
+
+    private void compare(final Compression compression)
+            throws DataFormatException, IOException {
+        write(compression);
+
+        final Movie movie = new Movie();
+        movie.decodeFromFile(sourceFile);
+        ((MovieHeader) movie.getObjects().get(0)).setCompression(
+                compression);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        movie.encodeToStream(expected);
+
+        final RandomAccessFile file = new RandomAccessFile(destFile, "r");
+        final byte[] actual = new byte[(int) file.length()];
+
+        try {
+            file.readFully(actual);
+        } finally {
+            file.close();
+        }
+        assertArrayEquals(sourceFile.getName(), expected.toByteArray(),
+                actual);
+    }
+
+    private void write(final Compression compression)
+            throws DataFormatException, IOException {
+        final MovieReader reader = new MovieReader(sourceFile);
+        final MovieHeader header = reader.getHeader();
+        header.setCompression(compression);
+
+        final MovieStreamWriter writer = new MovieStreamWriter(destFile,
+                header, CharacterEncoding.UTF8);
+        MovieTag tag;
+
+        try {
+            while ((tag = reader.next()) != null) {
+                writer.write(tag);
+            }
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+}